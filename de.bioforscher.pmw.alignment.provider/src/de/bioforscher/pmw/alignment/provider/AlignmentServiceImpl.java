@@ -1,20 +1,27 @@
 package de.bioforscher.pmw.alignment.provider;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import org.biojava.nbio.structure.jama.Matrix;
-import org.biojava.nbio.structure.jama.SingularValueDecomposition;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
+import de.bioforscher.pmw.alignment.superposition.BoundedHeap;
+import de.bioforscher.pmw.alignment.superposition.CenteredReferenceSet;
+import de.bioforscher.pmw.alignment.superposition.QCPSuperposition;
+import de.bioforscher.pmw.alignment.superposition.RmsdMatrix;
 import de.bioforscher.pmw.api.AlignmentService;
+import de.bioforscher.pmw.api.GeometryKernels;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.ReferenceSet;
 import de.bioforscher.pmw.model.Alignment;
 import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.CoordinateTable;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.Residue;
 
@@ -24,6 +31,8 @@ public class AlignmentServiceImpl implements AlignmentService {
 	private LinearAlgebra linearAlgebra;
 	@Reference
 	private ModelConverter modelConverter;
+	@Reference
+	private GeometryKernels geometryKernels;
 	/**
 	 * the atom names used to represent the individual amino acids
 	 */
@@ -39,81 +48,103 @@ public class AlignmentServiceImpl implements AlignmentService {
 		List<double[]> referenceAtoms = extractAtoms(reference, ATOM_NAMES);
 		List<double[]> fragmentAtoms = extractAtoms(fragmentToAlign, ATOM_NAMES);
 		
-		double[] referenceCentroid = calculateCentroid(referenceAtoms);
-		double[] fragmentCentroid = calculateCentroid(fragmentAtoms);
-//		System.out.println("old centroid1: " + Arrays.toString(referenceCentroid));
-//		System.out.println("old centroid2: " + Arrays.toString(fragmentCentroid));
 		// center atoms
-		List<double[]> centeredReferenceAtoms = calculateCenteredAtoms(referenceAtoms, referenceCentroid);
-		List<double[]> centeredFragmentAtoms = calculateCenteredAtoms(fragmentAtoms, fragmentCentroid);
-//		System.out.println("new centroid1: " + Arrays.toString(calculateCentroid(centeredReferenceAtoms)));
-//		System.out.println("new centroid2: " + Arrays.toString(calculateCentroid(centeredFragmentAtoms)));
-		// wrap in matrices
-		Matrix referenceMatrix = wrapInMatrix(centeredReferenceAtoms);
-		Matrix fragmentMatrix = wrapInMatrix(centeredFragmentAtoms);
+		double[] centeredReferenceAtoms = CenteredReferenceSet.pack(referenceAtoms);
+		double[] centeredFragmentAtoms = CenteredReferenceSet.pack(fragmentAtoms);
+		double[] referenceCentroid = QCPSuperposition.center(centeredReferenceAtoms);
+		double[] fragmentCentroid = QCPSuperposition.center(centeredFragmentAtoms);
 		
-		// compose covariance matrix and calculate SVD
-		SingularValueDecomposition svd = fragmentMatrix.transpose().times(referenceMatrix).svd();
-		// R = (V * U')'
-		Matrix ut = svd.getU().transpose();
-		Matrix rotationMatrix = svd.getV().times(ut).transpose();
-		// check if reflection
-		if(rotationMatrix.det() < 0) {
-			Matrix v = svd.getV().transpose();
-			v.set(2, 0, (0 - v.get(2, 0)));
-			v.set(2, 1, (0 - v.get(2, 1)));
-			v.set(2, 2, (0 - v.get(2, 2)));
-			rotationMatrix = v.transpose().times(ut).transpose();
-		}
-		double[][] rotation = rotationMatrix.getArray();
+		return align(referenceAtoms, centeredReferenceAtoms, referenceCentroid, fragmentAtoms, centeredFragmentAtoms, fragmentCentroid);
+	}
+	
+	private Alignment align(final List<double[]> referenceAtoms, final double[] centeredReferenceAtoms, final double[] referenceCentroid,
+			final List<double[]> fragmentAtoms, final double[] centeredFragmentAtoms, final double[] fragmentCentroid) {
+		double[][] rotation = new QCPSuperposition(centeredReferenceAtoms, centeredFragmentAtoms).getRotation();
 		
-		// compute translation
-		Matrix referenceCentroidMatrix = new Matrix(referenceCentroid, 1);
-		Matrix fragmentCentroidMatrix = new Matrix(fragmentCentroid, 1);
-		double[] translation = referenceCentroidMatrix.minus(fragmentCentroidMatrix.times(rotationMatrix)).getRowPackedCopy();
+		// compute translation - the centroid of the fragment has to end up on the one of the reference
+		double[] translation = this.linearAlgebra.subtract(referenceCentroid, this.linearAlgebra.transform(fragmentCentroid, new double[3], rotation));
 		
 		// compute rmsd and prepare return type
 		Alignment alignment = Alignment.of(referenceAtoms, fragmentAtoms, translation, rotation);
-		alignment.rmsd = calculateRMSD(referenceAtoms, fragmentAtoms, translation, rotation);
+		alignment.rmsd = calculateRMSD(centeredReferenceAtoms, centeredFragmentAtoms, rotation);
 		
 		return alignment;
 	}
 	
-	private Matrix wrapInMatrix(List<double[]> atoms) {
-		double[][] matrix = new double[atoms.size()][3];
-		for (int index = 0; index < atoms.size(); index++) {
-			matrix[index] = atoms.get(index);
-		}
-		return new Matrix(matrix);
+	@Override
+	public double rmsd(final List<Residue> reference, final List<Residue> fragmentToAlign) {
+		return new QCPSuperposition(packCentered(reference), packCentered(fragmentToAlign)).getRmsd();
 	}
 	
-	private double[] calculateCentroid(List<double[]> atoms) {
-		return new double[] { atoms.stream().mapToDouble(d -> d[0]).average().getAsDouble(),
-			atoms.stream().mapToDouble(d -> d[1]).average().getAsDouble(),
-			atoms.stream().mapToDouble(d -> d[2]).average().getAsDouble() };
+	@Override
+	public double[][] rmsdMatrix(final List<List<Residue>> fragments, final double cutoff) {
+		return RmsdMatrix.compute(fragments.stream().map(this::packCentered).collect(Collectors.toList()), cutoff);
 	}
 	
-	private List<double[]> calculateCenteredAtoms(final List<double[]> atoms, final double[] centroid) {
-		return atoms.stream().map(a -> this.linearAlgebra.subtract(a, centroid)).collect(Collectors.toList());
+	@Override
+	public ReferenceSet prepareReferences(final List<List<Residue>> references) {
+		return new CenteredReferenceSet(references, references.stream().map(r -> extractAtoms(r, ATOM_NAMES)).collect(Collectors.toList()));
+	}
+	
+	@Override
+	public List<Alignment> alignFragments(final ReferenceSet references, final List<Residue> fragmentToAlign, final int k) {
+		if(!(references instanceof CenteredReferenceSet)) {
+			throw new IllegalArgumentException("references have to be prepared by this service - found " + references);
+		}
+		final CenteredReferenceSet centeredReferences = (CenteredReferenceSet) references;
+		final List<double[]> fragmentAtoms = extractAtoms(fragmentToAlign, ATOM_NAMES);
+		final double[] centeredFragmentAtoms = CenteredReferenceSet.pack(fragmentAtoms);
+		final double[] fragmentCentroid = QCPSuperposition.center(centeredFragmentAtoms);
+		final double radiusOfGyration = RmsdMatrix.radiusOfGyration(centeredFragmentAtoms);
+		
+		// score all references, each worker retains its best ones - references which cannot beat the worst retained one are skipped without superposition
+		BoundedHeap best = IntStream.range(0, centeredReferences.size()).parallel().collect(() -> new BoundedHeap(k), (heap, index) -> {
+			double[] centeredReferenceAtoms = centeredReferences.getCenteredAtoms(index);
+			if(centeredReferenceAtoms.length != centeredFragmentAtoms.length ||
+					Math.abs(centeredReferences.getRadiusOfGyration(index) - radiusOfGyration) > heap.worstScore()) {
+				return;
+			}
+			heap.offer(index, new QCPSuperposition(centeredReferenceAtoms, centeredFragmentAtoms).getRmsd());
+		}, BoundedHeap::merge);
+		
+		List<Alignment> alignments = new ArrayList<>();
+		for(int index : best.getIndices()) {
+			Alignment alignment = align(centeredReferences.getAtoms(index), centeredReferences.getCenteredAtoms(index), centeredReferences.getCentroid(index),
+					fragmentAtoms, centeredFragmentAtoms, fragmentCentroid);
+			alignment.referenceIndex = index;
+			alignments.add(alignment);
+		}
+		return alignments;
+	}
+	
+	/**
+	 * @return the centered coordinates of the atoms to align packed in one array
+	 */
+	private double[] packCentered(final List<Residue> fragment) {
+		double[] coordinates = CenteredReferenceSet.pack(extractAtoms(fragment, ATOM_NAMES));
+		QCPSuperposition.center(coordinates);
+		return coordinates;
 	}
 	
 	/**
-	 * Computes the root-mean-square deviation for 2 atom sets. <b>Important:</b> do not use already aligned atoms here, but the initial ones.
-	 * @param atoms1
-	 * @param atoms2
-	 * @param translation
+	 * Computes the root-mean-square deviation for 2 atom sets directly from the residual distances (this is exact even for identical atom sets, whereas {@link QCPSuperposition#getRmsd()} loses precision close to 0).
+	 * @param atoms1 the centered, packed reference atoms
+	 * @param atoms2 the centered, packed atoms to rotate onto the reference
 	 * @param rotation
 	 * @return
 	 */
-	private double calculateRMSD(final List<double[]> atoms1, final List<double[]> atoms2, final double[] translation, final double[][] rotation) {
+	private double calculateRMSD(final double[] atoms1, final double[] atoms2, final double[][] rotation) {
 		double rmsd = 0;
-		for (int index = 0; index < atoms1.size(); index++) {
-			double[] atom1 = atoms1.get(index);
-			double[] atom2 = this.linearAlgebra.transform(atoms2.get(index), translation, rotation);
-			
-			rmsd += this.linearAlgebra.distanceFast(atom1, atom2);
+		for (int index = 0; index < atoms1.length; index += 3) {
+			final double x = atoms2[index];
+			final double y = atoms2[index + 1];
+			final double z = atoms2[index + 2];
+			final double dx = atoms1[index] - (rotation[0][0] * x + rotation[0][1] * y + rotation[0][2] * z);
+			final double dy = atoms1[index + 1] - (rotation[1][0] * x + rotation[1][1] * y + rotation[1][2] * z);
+			final double dz = atoms1[index + 2] - (rotation[2][0] * x + rotation[2][1] * y + rotation[2][2] * z);
+			rmsd += dx * dx + dy * dy + dz * dz;
 		}
-		return Math.sqrt(rmsd / atoms1.size());
+		return Math.sqrt(rmsd / (atoms1.length / 3));
 	}
 	
 	/**
@@ -129,15 +160,33 @@ public class AlignmentServiceImpl implements AlignmentService {
 	
 	@Override
 	public void transform(final Protein protein, final double[] translation, final double[][] rotation) {
-		transform(this.modelConverter.getAtoms(protein), translation, rotation);
+		final CoordinateTable table = CoordinateTable.of(protein);
+		this.geometryKernels.transform(table.getX(), table.getY(), table.getZ(), 0, table.getAtomCount(), translation, rotation);
+		table.push();
 	}
 	
 	@Override
 	public void transform(final List<Atom> atoms, final double[] translation, final double[][] rotation) {
-		atoms.forEach(a -> {
-//			System.out.println("moved " + Arrays.toString(a.xyz));
-			a.xyz = this.linearAlgebra.transform(a.xyz, translation, rotation);
-//			System.out.println(" to " + Arrays.toString(a.xyz));
-		});
+		// pack the coordinates, so all atoms are moved in one pass
+		final int atomCount = atoms.size();
+		final double[] x = new double[atomCount];
+		final double[] y = new double[atomCount];
+		final double[] z = new double[atomCount];
+		int i = 0;
+		for(Atom atom : atoms) {
+			x[i] = atom.xyz[0];
+			y[i] = atom.xyz[1];
+			z[i] = atom.xyz[2];
+			i++;
+		}
+		this.geometryKernels.transform(x, y, z, 0, atomCount, translation, rotation);
+		// write back in place, like CoordinateTable#push() does for whole proteins
+		i = 0;
+		for(Atom atom : atoms) {
+			atom.xyz[0] = x[i];
+			atom.xyz[1] = y[i];
+			atom.xyz[2] = z[i];
+			i++;
+		}
 	}
 }
@@ -1,9 +1,11 @@
 package de.bioforscher.pmw.alignment.provider;
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.biojava.nbio.structure.jama.Matrix;
 import org.biojava.nbio.structure.jama.SingularValueDecomposition;
 import org.osgi.service.component.annotations.Activate;
@@ -11,6 +13,7 @@ import org.osgi.service.component.annotations.Reference;
 import de.bioforscher.pmw.api.AlignmentService;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.ReferenceSet;
 import de.bioforscher.pmw.model.Alignment;
 import de.bioforscher.pmw.model.Atom;
 import de.bioforscher.pmw.model.Protein;
@@ -152,6 +155,47 @@ public class AlignmentServiceImplOld implements AlignmentService {
 		return residue1AtomNames;
 	}
 
+	@Override
+	public double rmsd(List<Residue> reference, List<Residue> fragmentToAlign) {
+		return alignFragments(reference, fragmentToAlign).rmsd;
+	}
+
+	@Override
+	public double[][] rmsdMatrix(List<List<Residue>> fragments, double cutoff) {
+		double[][] rmsds = new double[fragments.size()][fragments.size()];
+		for (int i = 0; i < fragments.size(); i++) {
+			for (int j = i + 1; j < fragments.size(); j++) {
+				double rmsd = rmsd(fragments.get(i), fragments.get(j));
+				rmsds[i][j] = rmsds[j][i] = rmsd > cutoff ? Double.POSITIVE_INFINITY : rmsd;
+			}
+		}
+		return rmsds;
+	}
+
+	@Override
+	public ReferenceSet prepareReferences(List<List<Residue>> references) {
+		return new ReferenceSet() {
+			@Override
+			public int size() {
+				return references.size();
+			}
+
+			@Override
+			public List<Residue> getReference(int index) {
+				return references.get(index);
+			}
+		};
+	}
+
+	@Override
+	public List<Alignment> alignFragments(ReferenceSet references, List<Residue> fragmentToAlign, int k) {
+		return IntStream.range(0, references.size()).mapToObj(index -> {
+			Alignment alignment = alignFragments(references.getReference(index), fragmentToAlign);
+			alignment.referenceIndex = index;
+			return alignment;
+		}).sorted(Comparator.comparingDouble(a -> a.rmsd)).limit(k).collect(Collectors.toList());
+	}
+
 	@Override
 	public void transform(Protein protein, double[] translation, double[][] rotation) {
 		transform(this.modelConverter.getAtoms(protein), translation, rotation);		
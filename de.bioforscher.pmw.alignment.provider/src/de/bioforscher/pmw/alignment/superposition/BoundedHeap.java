@@ -0,0 +1,129 @@
+package de.bioforscher.pmw.alignment.superposition;
+
+/**
+ * Retains the <code>capacity</code> best (i.e. lowest scored) of all offered elements - a max-heap on packed primitive
+ * arrays, so the worst retained element can be replaced in logarithmic time. Elements are ordered by their score and
+ * then by their index, hence the result does not depend on the order of offers, which allows to fill heaps in parallel
+ * and {@link #merge(BoundedHeap)} them afterwards. Instances are not thread-safe.
+ * @author S
+ *
+ */
+public final class BoundedHeap {
+	private final int capacity;
+	private final int[] indices;
+	private final double[] scores;
+	private int size;
+
+	public BoundedHeap(int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative - found " + capacity);
+		}
+		this.capacity = capacity;
+		this.indices = new int[capacity];
+		this.scores = new double[capacity];
+	}
+
+	/**
+	 * @param index the identifier of the element
+	 * @param score the score of the element - lower is better
+	 * @return true iff the element was retained
+	 */
+	public boolean offer(int index, double score) {
+		if(this.size < this.capacity) {
+			this.indices[this.size] = index;
+			this.scores[this.size] = score;
+			siftUp(this.size++);
+			return true;
+		}
+		if(this.capacity == 0 || !isBefore(score, index, this.scores[0], this.indices[0])) {
+			return false;
+		}
+		this.indices[0] = index;
+		this.scores[0] = score;
+		siftDown(0);
+		return true;
+	}
+
+	/**
+	 * @return the score an element has to fall below to be retained - {@link Double#POSITIVE_INFINITY} while the heap is not full
+	 */
+	public double worstScore() {
+		return this.size < this.capacity ? Double.POSITIVE_INFINITY : this.capacity == 0 ? Double.NEGATIVE_INFINITY : this.scores[0];
+	}
+
+	/**
+	 * offers all elements of another heap to this one
+	 * @return this heap
+	 */
+	public BoundedHeap merge(BoundedHeap other) {
+		for(int i = 0; i < other.size; i++) {
+			offer(other.indices[i], other.scores[i]);
+		}
+		return this;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the indices of the retained elements, best first
+	 */
+	public int[] getIndices() {
+		BoundedHeap copy = new BoundedHeap(this.capacity).merge(this);
+		int[] sortedIndices = new int[copy.size];
+		// repeatedly remove the worst element
+		for(int i = copy.size - 1; i >= 0; i--) {
+			sortedIndices[i] = copy.indices[0];
+			copy.size--;
+			copy.indices[0] = copy.indices[copy.size];
+			copy.scores[0] = copy.scores[copy.size];
+			copy.siftDown(0);
+		}
+		return sortedIndices;
+	}
+
+	private void siftUp(int position) {
+		while(position > 0) {
+			int parent = (position - 1) / 2;
+			if(!isBefore(this.scores[parent], this.indices[parent], this.scores[position], this.indices[position])) {
+				return;
+			}
+			swap(parent, position);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position) {
+		while(true) {
+			int largest = position;
+			int left = 2 * position + 1;
+			int right = left + 1;
+			if(left < this.size && isBefore(this.scores[largest], this.indices[largest], this.scores[left], this.indices[left])) {
+				largest = left;
+			}
+			if(right < this.size && isBefore(this.scores[largest], this.indices[largest], this.scores[right], this.indices[right])) {
+				largest = right;
+			}
+			if(largest == position) {
+				return;
+			}
+			swap(position, largest);
+			position = largest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int index = this.indices[i];
+		this.indices[i] = this.indices[j];
+		this.indices[j] = index;
+		double score = this.scores[i];
+		this.scores[i] = this.scores[j];
+		this.scores[j] = score;
+	}
+
+	private static boolean isBefore(double score1, int index1, double score2, int index2) {
+		int comparison = Double.compare(score1, score2);
+		return comparison < 0 || (comparison == 0 && index1 < index2);
+	}
+}
@@ -0,0 +1,78 @@
+package de.bioforscher.pmw.alignment.superposition;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.bioforscher.pmw.api.ReferenceSet;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * References prepared for batch alignment: the atoms to align, their packed and centered coordinates, centroids and
+ * radii of gyration are computed once.
+ * @author S
+ *
+ */
+public final class CenteredReferenceSet implements ReferenceSet {
+	private final List<List<Residue>> references;
+	private final List<List<double[]>> atoms;
+	private final double[][] centeredAtoms;
+	private final double[][] centroids;
+	private final double[] radiiOfGyration;
+
+	/**
+	 * @param references the residues of each reference
+	 * @param atoms the atoms to align of each reference
+	 */
+	public CenteredReferenceSet(List<List<Residue>> references, List<List<double[]>> atoms) {
+		this.references = Collections.unmodifiableList(references);
+		this.atoms = atoms;
+		this.centeredAtoms = new double[atoms.size()][];
+		this.centroids = new double[atoms.size()][];
+		this.radiiOfGyration = new double[atoms.size()];
+		for(int i = 0; i < atoms.size(); i++) {
+			this.centeredAtoms[i] = pack(atoms.get(i));
+			this.centroids[i] = QCPSuperposition.center(this.centeredAtoms[i]);
+			this.radiiOfGyration[i] = RmsdMatrix.radiusOfGyration(this.centeredAtoms[i]);
+		}
+	}
+
+	/**
+	 * @return the coordinates of all atoms packed in one array
+	 */
+	public static double[] pack(List<double[]> atoms) {
+		double[] coordinates = new double[3 * atoms.size()];
+		int index = 0;
+		for(double[] atom : atoms) {
+			coordinates[index++] = atom[0];
+			coordinates[index++] = atom[1];
+			coordinates[index++] = atom[2];
+		}
+		return coordinates;
+	}
+
+	@Override
+	public int size() {
+		return this.centeredAtoms.length;
+	}
+
+	@Override
+	public List<Residue> getReference(int index) {
+		return this.references.get(index);
+	}
+
+	public List<double[]> getAtoms(int index) {
+		return this.atoms.get(index);
+	}
+
+	public double[] getCenteredAtoms(int index) {
+		return this.centeredAtoms[index];
+	}
+
+	public double[] getCentroid(int index) {
+		return this.centroids[index];
+	}
+
+	public double getRadiusOfGyration(int index) {
+		return this.radiiOfGyration[index];
+	}
+}
@@ -0,0 +1,257 @@
+package de.bioforscher.pmw.alignment.superposition;
+
+/**
+ * Optimal superposition of two equally sized point sets by the quaternion characteristic polynomial (QCP) method
+ * (Theobald 2005, Liu et al. 2010). The RMSD follows from the largest eigenvalue of the 4x4 key matrix, which is found
+ * by Newton-Raphson on its characteristic polynomial - the rotation (derived from the corresponding eigenvector) is
+ * only computed on request, so scoring does not pay for it.<br />
+ * Coordinates are packed as <code>[x0, y0, z0, x1, y1, z1, ...]</code> and have to be centered (see
+ * {@link #center(double[])}). Instances hold the inner product of one pair and are not thread-safe.
+ * @author S
+ *
+ */
+public final class QCPSuperposition {
+	private static final double EIGENVALUE_PRECISION = 1e-11;
+	private static final double EIGENVECTOR_PRECISION = 1e-6;
+	private static final int MAXIMAL_ITERATIONS = 50;
+
+	private final int count;
+	/**
+	 * the inner product matrix: sum over all points of fragment (first index) times reference (second index)
+	 */
+	private final double sxx, sxy, sxz, syx, syy, syz, szx, szy, szz;
+	/**
+	 * half the sum of the squared norms of both point sets - the upper bound of the largest eigenvalue
+	 */
+	private final double e0;
+	private double maximalEigenvalue = Double.NaN;
+
+	/**
+	 * @param reference the centered points held fixed
+	 * @param fragment the centered points to superimpose onto the reference
+	 */
+	public QCPSuperposition(double[] reference, double[] fragment) {
+		if(reference.length != fragment.length || reference.length % 3 != 0) {
+			throw new IllegalArgumentException("cannot superimpose point sets of " + reference.length + " and " + fragment.length + " coordinates");
+		}
+		this.count = reference.length / 3;
+		double sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+		double g = 0;
+		for(int i = 0; i < reference.length; i += 3) {
+			final double x1 = fragment[i];
+			final double y1 = fragment[i + 1];
+			final double z1 = fragment[i + 2];
+			final double x2 = reference[i];
+			final double y2 = reference[i + 1];
+			final double z2 = reference[i + 2];
+			g += x1 * x1 + y1 * y1 + z1 * z1 + x2 * x2 + y2 * y2 + z2 * z2;
+			sxx += x1 * x2;
+			sxy += x1 * y2;
+			sxz += x1 * z2;
+			syx += y1 * x2;
+			syy += y1 * y2;
+			syz += y1 * z2;
+			szx += z1 * x2;
+			szy += z1 * y2;
+			szz += z1 * z2;
+		}
+		this.sxx = sxx;
+		this.sxy = sxy;
+		this.sxz = sxz;
+		this.syx = syx;
+		this.syy = syy;
+		this.syz = syz;
+		this.szx = szx;
+		this.szy = szy;
+		this.szz = szz;
+		this.e0 = 0.5 * g;
+	}
+
+	/**
+	 * moves the points to their centroid
+	 * @param coordinates the packed points, modified in place
+	 * @return the former centroid
+	 */
+	public static double[] center(double[] coordinates) {
+		double x = 0;
+		double y = 0;
+		double z = 0;
+		for(int i = 0; i < coordinates.length; i += 3) {
+			x += coordinates[i];
+			y += coordinates[i + 1];
+			z += coordinates[i + 2];
+		}
+		int count = coordinates.length / 3;
+		double[] centroid = { x / count, y / count, z / count };
+		for(int i = 0; i < coordinates.length; i += 3) {
+			coordinates[i] -= centroid[0];
+			coordinates[i + 1] -= centroid[1];
+			coordinates[i + 2] -= centroid[2];
+		}
+		return centroid;
+	}
+
+	/**
+	 * @return the RMSD of the optimal superposition - without computing the superposition itself
+	 */
+	public double getRmsd() {
+		return Math.sqrt(Math.abs(2.0 * (this.e0 - getMaximalEigenvalue()) / this.count));
+	}
+
+	/**
+	 * @return the rotation matrix superimposing the fragment onto the reference, to be applied as
+	 * {@link de.bioforscher.pmw.api.LinearAlgebra#transform(double[], double[], double[][])}
+	 */
+	public double[][] getRotation() {
+		final double eigenvalue = getMaximalEigenvalue();
+		final double sxxpsyy = this.sxx + this.syy;
+		final double sxxmsyy = this.sxx - this.syy;
+		final double syzmszy = this.syz - this.szy;
+		final double sxzmszx = this.sxz - this.szx;
+		final double sxymsyx = this.sxy - this.syx;
+		final double syzpszy = this.syz + this.szy;
+		final double sxzpszx = this.sxz + this.szx;
+		final double sxypsyx = this.sxy + this.syx;
+
+		// the key matrix shifted by the eigenvalue - any non-vanishing column of its adjugate is the eigenvector
+		final double a11 = sxxpsyy + this.szz - eigenvalue;
+		final double a12 = syzmszy;
+		final double a13 = -sxzmszx;
+		final double a14 = sxymsyx;
+		final double a21 = syzmszy;
+		final double a22 = sxxmsyy - this.szz - eigenvalue;
+		final double a23 = sxypsyx;
+		final double a24 = sxzpszx;
+		final double a31 = a13;
+		final double a32 = a23;
+		final double a33 = this.syy - this.sxx - this.szz - eigenvalue;
+		final double a34 = syzpszy;
+		final double a41 = a14;
+		final double a42 = a24;
+		final double a43 = a34;
+		final double a44 = this.szz - sxxpsyy - eigenvalue;
+		final double a3344_4334 = a33 * a44 - a43 * a34;
+		final double a3244_4234 = a32 * a44 - a42 * a34;
+		final double a3243_4233 = a32 * a43 - a42 * a33;
+		final double a3143_4133 = a31 * a43 - a41 * a33;
+		final double a3144_4134 = a31 * a44 - a41 * a34;
+		final double a3142_4132 = a31 * a42 - a41 * a32;
+
+		double q1 = a22 * a3344_4334 - a23 * a3244_4234 + a24 * a3243_4233;
+		double q2 = -a21 * a3344_4334 + a23 * a3144_4134 - a24 * a3143_4133;
+		double q3 = a21 * a3244_4234 - a22 * a3144_4134 + a24 * a3142_4132;
+		double q4 = -a21 * a3243_4233 + a22 * a3143_4133 - a23 * a3142_4132;
+		double qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+
+		if(qsqr < EIGENVECTOR_PRECISION) {
+			q1 = a12 * a3344_4334 - a13 * a3244_4234 + a14 * a3243_4233;
+			q2 = -a11 * a3344_4334 + a13 * a3144_4134 - a14 * a3143_4133;
+			q3 = a11 * a3244_4234 - a12 * a3144_4134 + a14 * a3142_4132;
+			q4 = -a11 * a3243_4233 + a12 * a3143_4133 - a13 * a3142_4132;
+			qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+		}
+		if(qsqr < EIGENVECTOR_PRECISION) {
+			final double a1324_1423 = a13 * a24 - a14 * a23;
+			final double a1224_1422 = a12 * a24 - a14 * a22;
+			final double a1223_1322 = a12 * a23 - a13 * a22;
+			final double a1124_1421 = a11 * a24 - a14 * a21;
+			final double a1123_1321 = a11 * a23 - a13 * a21;
+			final double a1122_1221 = a11 * a22 - a12 * a21;
+			q1 = a42 * a1324_1423 - a43 * a1224_1422 + a44 * a1223_1322;
+			q2 = -a41 * a1324_1423 + a43 * a1124_1421 - a44 * a1123_1321;
+			q3 = a41 * a1224_1422 - a42 * a1124_1421 + a44 * a1122_1221;
+			q4 = -a41 * a1223_1322 + a42 * a1123_1321 - a43 * a1122_1221;
+			qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+			if(qsqr < EIGENVECTOR_PRECISION) {
+				q1 = a32 * a1324_1423 - a33 * a1224_1422 + a34 * a1223_1322;
+				q2 = -a31 * a1324_1423 + a33 * a1124_1421 - a34 * a1123_1321;
+				q3 = a31 * a1224_1422 - a32 * a1124_1421 + a34 * a1122_1221;
+				q4 = -a31 * a1223_1322 + a32 * a1123_1321 - a33 * a1122_1221;
+				qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+			}
+		}
+		if(qsqr < EIGENVECTOR_PRECISION) {
+			// degenerate point sets (e.g. all points identical) - any rotation is optimal
+			return new double[][] { { 1, 0, 0 }, { 0, 1, 0 }, { 0, 0, 1 } };
+		}
+
+		final double normq = Math.sqrt(qsqr);
+		q1 /= normq;
+		q2 /= normq;
+		q3 /= normq;
+		q4 /= normq;
+		final double a2 = q1 * q1;
+		final double x2 = q2 * q2;
+		final double y2 = q3 * q3;
+		final double z2 = q4 * q4;
+		final double xy = q2 * q3;
+		final double az = q1 * q4;
+		final double zx = q4 * q2;
+		final double ay = q1 * q3;
+		final double yz = q3 * q4;
+		final double ax = q1 * q2;
+		return new double[][] { { a2 + x2 - y2 - z2, 2 * (xy - az), 2 * (zx + ay) },
+			{ 2 * (xy + az), a2 - x2 + y2 - z2, 2 * (yz - ax) },
+			{ 2 * (zx - ay), 2 * (yz + ax), a2 - x2 - y2 + z2 } };
+	}
+
+	private double getMaximalEigenvalue() {
+		if(Double.isNaN(this.maximalEigenvalue)) {
+			this.maximalEigenvalue = computeMaximalEigenvalue();
+		}
+		return this.maximalEigenvalue;
+	}
+
+	/**
+	 * finds the largest root of the characteristic polynomial of the key matrix by Newton-Raphson, starting at its
+	 * upper bound {@link #e0}
+	 */
+	private double computeMaximalEigenvalue() {
+		final double sxx2 = this.sxx * this.sxx;
+		final double syy2 = this.syy * this.syy;
+		final double szz2 = this.szz * this.szz;
+		final double sxy2 = this.sxy * this.sxy;
+		final double syz2 = this.syz * this.syz;
+		final double sxz2 = this.sxz * this.sxz;
+		final double syx2 = this.syx * this.syx;
+		final double szy2 = this.szy * this.szy;
+		final double szx2 = this.szx * this.szx;
+
+		final double syzszymsyyszz2 = 2.0 * (this.syz * this.szy - this.syy * this.szz);
+		final double sxx2syy2szz2syz2szy2 = syy2 + szz2 - sxx2 + syz2 + szy2;
+
+		final double c2 = -2.0 * (sxx2 + syy2 + szz2 + sxy2 + syx2 + sxz2 + szx2 + syz2 + szy2);
+		final double c1 = 8.0 * (this.sxx * this.syz * this.szy + this.syy * this.szx * this.sxz + this.szz * this.sxy * this.syx
+				- this.sxx * this.syy * this.szz - this.syz * this.szx * this.sxy - this.szy * this.syx * this.sxz);
+
+		final double sxzpszx = this.sxz + this.szx;
+		final double syzpszy = this.syz + this.szy;
+		final double sxypsyx = this.sxy + this.syx;
+		final double syzmszy = this.syz - this.szy;
+		final double sxzmszx = this.sxz - this.szx;
+		final double sxymsyx = this.sxy - this.syx;
+		final double sxxpsyy = this.sxx + this.syy;
+		final double sxxmsyy = this.sxx - this.syy;
+		final double sxy2sxz2syx2szx2 = sxy2 + sxz2 - syx2 - szx2;
+
+		final double c0 = sxy2sxz2syx2szx2 * sxy2sxz2syx2szx2
+				+ (sxx2syy2szz2syz2szy2 + syzszymsyyszz2) * (sxx2syy2szz2syz2szy2 - syzszymsyyszz2)
+				+ (-sxzpszx * syzmszy + sxymsyx * (sxxmsyy - this.szz)) * (-sxzmszx * syzpszy + sxymsyx * (sxxmsyy + this.szz))
+				+ (-sxzpszx * syzpszy - sxypsyx * (sxxpsyy - this.szz)) * (-sxzmszx * syzmszy - sxypsyx * (sxxpsyy + this.szz))
+				+ (sxypsyx * syzpszy + sxzpszx * (sxxmsyy + this.szz)) * (-sxymsyx * syzmszy + sxzpszx * (sxxpsyy + this.szz))
+				+ (sxypsyx * syzmszy + sxzmszx * (sxxmsyy - this.szz)) * (-sxymsyx * syzpszy + sxzmszx * (sxxpsyy - this.szz));
+
+		double eigenvalue = this.e0;
+		for(int i = 0; i < MAXIMAL_ITERATIONS; i++) {
+			final double previous = eigenvalue;
+			final double x2 = eigenvalue * eigenvalue;
+			final double b = (x2 + c2) * eigenvalue;
+			final double a = b + c1;
+			eigenvalue -= (a * eigenvalue + c0) / (2.0 * x2 * eigenvalue + b + a);
+			if(Math.abs(eigenvalue - previous) < Math.abs(EIGENVALUE_PRECISION * eigenvalue)) {
+				break;
+			}
+		}
+		return eigenvalue;
+	}
+}
@@ -0,0 +1,81 @@
+package de.bioforscher.pmw.alignment.superposition;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * All-vs-all RMSD computation for a set of fragments. The upper triangle of the matrix is split into square tiles,
+ * which are processed in parallel on the fork/join pool - each tile owns its cells (and their mirrored counterparts),
+ * so no synchronization is needed.<br />
+ * Pairs which provably exceed the cutoff are skipped without superposition: the difference of the radii of gyration
+ * is a lower bound of the RMSD.
+ * @author S
+ *
+ */
+public final class RmsdMatrix {
+	private static final int TILE_SIZE = 32;
+
+	private RmsdMatrix() {
+	}
+
+	/**
+	 * @param centeredFragments the centered, packed coordinates of each fragment (see {@link QCPSuperposition})
+	 * @param cutoff pairs with a higher RMSD are reported as {@link Double#POSITIVE_INFINITY} (as are pairs of differing
+	 * size) - use {@link Double#POSITIVE_INFINITY} to compute all values
+	 * @return the symmetric RMSD matrix
+	 */
+	public static double[][] compute(final List<double[]> centeredFragments, final double cutoff) {
+		final int size = centeredFragments.size();
+		final double[][] fragments = centeredFragments.toArray(new double[size][]);
+		final double[] radiiOfGyration = new double[size];
+		for(int i = 0; i < size; i++) {
+			radiiOfGyration[i] = radiusOfGyration(fragments[i]);
+		}
+
+		final double[][] rmsds = new double[size][size];
+		final int tiles = (size + TILE_SIZE - 1) / TILE_SIZE;
+		// enumerate the tiles of the upper triangle (including the diagonal) row by row
+		IntStream.range(0, tiles * (tiles + 1) / 2).parallel().forEach(tile -> {
+			int row = 0;
+			int column = tile;
+			while(column >= tiles - row) {
+				column -= tiles - row;
+				row++;
+			}
+			column += row;
+			computeTile(fragments, radiiOfGyration, cutoff, rmsds, row * TILE_SIZE, column * TILE_SIZE);
+		});
+		return rmsds;
+	}
+
+	private static void computeTile(double[][] fragments, double[] radiiOfGyration, double cutoff, double[][] rmsds, int rowStart, int columnStart) {
+		final int rowEnd = Math.min(rowStart + TILE_SIZE, fragments.length);
+		final int columnEnd = Math.min(columnStart + TILE_SIZE, fragments.length);
+		for(int i = rowStart; i < rowEnd; i++) {
+			for(int j = Math.max(columnStart, i + 1); j < columnEnd; j++) {
+				double rmsd = rmsd(fragments[i], fragments[j], radiiOfGyration[i], radiiOfGyration[j], cutoff);
+				rmsds[i][j] = rmsd;
+				rmsds[j][i] = rmsd;
+			}
+		}
+	}
+
+	private static double rmsd(double[] fragment1, double[] fragment2, double radiusOfGyration1, double radiusOfGyration2, double cutoff) {
+		if(fragment1.length != fragment2.length || Math.abs(radiusOfGyration1 - radiusOfGyration2) > cutoff) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double rmsd = new QCPSuperposition(fragment1, fragment2).getRmsd();
+		return rmsd > cutoff ? Double.POSITIVE_INFINITY : rmsd;
+	}
+
+	/**
+	 * @param coordinates centered, packed coordinates
+	 */
+	public static double radiusOfGyration(double[] coordinates) {
+		double sum = 0;
+		for(double coordinate : coordinates) {
+			sum += coordinate * coordinate;
+		}
+		return Math.sqrt(sum / (coordinates.length / 3));
+	}
+}
@@ -0,0 +1,58 @@
+package superposition.test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import de.bioforscher.pmw.alignment.superposition.BoundedHeap;
+import junit.framework.TestCase;
+
+public class BoundedHeapFunctionalTest extends TestCase {
+	private static final int ELEMENT_COUNT = 1000;
+	private double[] scores;
+
+	@Override
+	protected void setUp() throws Exception {
+		Random random = new Random(5);
+		this.scores = new double[ELEMENT_COUNT];
+		for(int i = 0; i < ELEMENT_COUNT; i++) {
+			// coarse scores to provoke ties
+			this.scores[i] = random.nextInt(200) / 10.0;
+		}
+	}
+
+	public void testRetainsBestElements() {
+		for(int capacity : new int[] { 0, 1, 10, 999, 1000, 2000 }) {
+			BoundedHeap heap = new BoundedHeap(capacity);
+			for(int i = 0; i < ELEMENT_COUNT; i++) {
+				heap.offer(i, this.scores[i]);
+			}
+			assertTrue(Arrays.equals(expectedIndices(capacity), heap.getIndices()));
+		}
+	}
+
+	public void testMergeDoesNotDependOnOrder() {
+		int capacity = 25;
+		BoundedHeap merged = new BoundedHeap(capacity);
+		// fill several heaps with interleaved elements in reverse order
+		for(int part = 0; part < 4; part++) {
+			BoundedHeap heap = new BoundedHeap(capacity);
+			for(int i = ELEMENT_COUNT - 1 - part; i >= 0; i -= 4) {
+				heap.offer(i, this.scores[i]);
+			}
+			merged.merge(heap);
+		}
+		assertTrue(Arrays.equals(expectedIndices(capacity), merged.getIndices()));
+		assertEquals(this.scores[expectedIndices(capacity)[capacity - 1]], merged.worstScore(), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, new BoundedHeap(capacity).worstScore(), 0.0);
+	}
+
+	private int[] expectedIndices(int capacity) {
+		return IntStream.range(0, ELEMENT_COUNT).boxed()
+				.sorted(Comparator.comparingDouble((Integer i) -> this.scores[i]).thenComparingInt(i -> i))
+				.limit(capacity)
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+}
@@ -0,0 +1,130 @@
+package superposition.test;
+
+import java.util.Random;
+
+import org.biojava.nbio.structure.jama.Matrix;
+import org.biojava.nbio.structure.jama.SingularValueDecomposition;
+
+import de.bioforscher.pmw.alignment.superposition.QCPSuperposition;
+import junit.framework.TestCase;
+
+public class QCPSuperpositionFunctionalTest extends TestCase {
+	private static final double EPSILON = 1e-9;
+	private final Random random = new Random(7);
+
+	public void testRandomPointSets() {
+		for(int trial = 0; trial < 100; trial++) {
+			int count = 3 + this.random.nextInt(30);
+			double[] reference = randomPoints(count, 10);
+			double[] fragment = rototranslate(reference, randomRotation(), new double[] { 5, -3, 12 });
+			addNoise(fragment, trial % 10 == 0 ? 0 : trial * 0.02);
+			assertSuperposition(reference, fragment);
+		}
+	}
+
+	public void testPlanarPointSets() {
+		// planar sets are the candidates for reflections in SVD-based superposition
+		for(int trial = 0; trial < 20; trial++) {
+			double[] reference = randomPoints(8, 10);
+			double[] fragment = randomPoints(8, 10);
+			for(int i = 2; i < reference.length; i += 3) {
+				reference[i] = 0;
+				fragment[i] = 0;
+			}
+			assertSuperposition(reference, fragment);
+		}
+	}
+
+	public void testIdenticalPointSets() {
+		double[] reference = randomPoints(12, 10);
+		QCPSuperposition.center(reference);
+		QCPSuperposition superposition = new QCPSuperposition(reference, reference.clone());
+		assertEquals(0, superposition.getRmsd(), 1e-6);
+		assertEquals(new Matrix(new double[][] { { 1, 0, 0 }, { 0, 1, 0 }, { 0, 0, 1 } }), new Matrix(superposition.getRotation()));
+	}
+
+	private void assertSuperposition(double[] reference, double[] fragment) {
+		reference = reference.clone();
+		fragment = fragment.clone();
+		QCPSuperposition.center(reference);
+		QCPSuperposition.center(fragment);
+		QCPSuperposition superposition = new QCPSuperposition(reference, fragment);
+		double[][] rotation = superposition.getRotation();
+		double[][] expectedRotation = kabsch(reference, fragment);
+
+		double rmsd = rmsd(reference, fragment, rotation);
+		assertEquals(rmsd(reference, fragment, expectedRotation), rmsd, EPSILON);
+		assertEquals(rmsd, superposition.getRmsd(), 1e-6);
+		assertEquals(1, new Matrix(rotation).det(), EPSILON);
+	}
+
+	private void assertEquals(Matrix expected, Matrix actual) {
+		for(int i = 0; i < 3; i++) {
+			for(int j = 0; j < 3; j++) {
+				assertEquals(expected.get(i, j), actual.get(i, j), EPSILON);
+			}
+		}
+	}
+
+	/**
+	 * the reference implementation: SVD of the covariance matrix, corrected for reflections
+	 */
+	private double[][] kabsch(double[] reference, double[] fragment) {
+		Matrix referenceMatrix = new Matrix(reference, 3).transpose();
+		Matrix fragmentMatrix = new Matrix(fragment, 3).transpose();
+		SingularValueDecomposition svd = fragmentMatrix.transpose().times(referenceMatrix).svd();
+		Matrix v = svd.getV();
+		if(v.times(svd.getU().transpose()).det() < 0) {
+			for(int i = 0; i < 3; i++) {
+				v.set(i, 2, -v.get(i, 2));
+			}
+		}
+		return v.times(svd.getU().transpose()).getArray();
+	}
+
+	private double rmsd(double[] reference, double[] fragment, double[][] rotation) {
+		double[] rotated = rototranslate(fragment, rotation, new double[3]);
+		double sum = 0;
+		for(int i = 0; i < reference.length; i++) {
+			sum += (reference[i] - rotated[i]) * (reference[i] - rotated[i]);
+		}
+		return Math.sqrt(sum / (reference.length / 3));
+	}
+
+	private double[] rototranslate(double[] points, double[][] rotation, double[] translation) {
+		double[] result = new double[points.length];
+		for(int i = 0; i < points.length; i += 3) {
+			for(int k = 0; k < 3; k++) {
+				result[i + k] = rotation[k][0] * points[i] + rotation[k][1] * points[i + 1] + rotation[k][2] * points[i + 2] + translation[k];
+			}
+		}
+		return result;
+	}
+
+	private double[] randomPoints(int count, double scale) {
+		double[] points = new double[3 * count];
+		for(int i = 0; i < points.length; i++) {
+			points[i] = this.random.nextGaussian() * scale;
+		}
+		return points;
+	}
+
+	private void addNoise(double[] points, double scale) {
+		for(int i = 0; i < points.length; i++) {
+			points[i] += this.random.nextGaussian() * scale;
+		}
+	}
+
+	private double[][] randomRotation() {
+		// normalized random quaternion
+		double a = this.random.nextGaussian(), b = this.random.nextGaussian(), c = this.random.nextGaussian(), d = this.random.nextGaussian();
+		double norm = Math.sqrt(a * a + b * b + c * c + d * d);
+		a /= norm;
+		b /= norm;
+		c /= norm;
+		d /= norm;
+		return new double[][] { { a * a + b * b - c * c - d * d, 2 * (b * c - a * d), 2 * (b * d + a * c) },
+			{ 2 * (b * c + a * d), a * a - b * b + c * c - d * d, 2 * (c * d - a * b) },
+			{ 2 * (b * d - a * c), 2 * (c * d + a * b), a * a - b * b - c * c + d * d } };
+	}
+}
@@ -0,0 +1,71 @@
+package superposition.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.bioforscher.pmw.alignment.superposition.QCPSuperposition;
+import de.bioforscher.pmw.alignment.superposition.RmsdMatrix;
+import junit.framework.TestCase;
+
+public class RmsdMatrixFunctionalTest extends TestCase {
+	// spans several tiles, the last one partially filled
+	private static final int FRAGMENT_COUNT = 75;
+	private static final int FRAGMENT_LENGTH = 7;
+	private List<double[]> fragments;
+
+	@Override
+	protected void setUp() throws Exception {
+		Random random = new Random(13);
+		double[] template = new double[3 * FRAGMENT_LENGTH];
+		for(int i = 0; i < template.length; i++) {
+			template[i] = random.nextGaussian() * 4;
+		}
+		this.fragments = new ArrayList<>();
+		for(int f = 0; f < FRAGMENT_COUNT; f++) {
+			double[] fragment = new double[template.length];
+			double noise = f % 3 == 0 ? 0.1 : 2.0;
+			for(int i = 0; i < fragment.length; i++) {
+				fragment[i] = template[i] + random.nextGaussian() * noise;
+			}
+			QCPSuperposition.center(fragment);
+			this.fragments.add(fragment);
+		}
+	}
+
+	public void testAllValues() {
+		double[][] rmsds = RmsdMatrix.compute(this.fragments, Double.POSITIVE_INFINITY);
+		for(int i = 0; i < FRAGMENT_COUNT; i++) {
+			assertEquals(0, rmsds[i][i], 0.0);
+			for(int j = i + 1; j < FRAGMENT_COUNT; j++) {
+				assertEquals(new QCPSuperposition(this.fragments.get(i), this.fragments.get(j)).getRmsd(), rmsds[i][j], 0.0);
+				assertEquals(rmsds[i][j], rmsds[j][i], 0.0);
+			}
+		}
+	}
+
+	public void testCutoff() {
+		double cutoff = 1.5;
+		double[][] allRmsds = RmsdMatrix.compute(this.fragments, Double.POSITIVE_INFINITY);
+		double[][] rmsds = RmsdMatrix.compute(this.fragments, cutoff);
+		int withinCutoff = 0;
+		for(int i = 0; i < FRAGMENT_COUNT; i++) {
+			for(int j = i + 1; j < FRAGMENT_COUNT; j++) {
+				if(allRmsds[i][j] <= cutoff) {
+					assertEquals(allRmsds[i][j], rmsds[i][j], 0.0);
+					withinCutoff++;
+				} else {
+					assertEquals(Double.POSITIVE_INFINITY, rmsds[i][j], 0.0);
+				}
+			}
+		}
+		assertTrue(withinCutoff > 0);
+	}
+
+	public void testRadiusOfGyrationBound() {
+		for(int i = 1; i < FRAGMENT_COUNT; i++) {
+			double lowerBound = Math.abs(RmsdMatrix.radiusOfGyration(this.fragments.get(0)) - RmsdMatrix.radiusOfGyration(this.fragments.get(i)));
+			assertTrue(lowerBound <= new QCPSuperposition(this.fragments.get(0), this.fragments.get(i)).getRmsd() + 1e-9);
+		}
+	}
+}
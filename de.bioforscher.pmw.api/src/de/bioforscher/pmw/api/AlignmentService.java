@@ -22,6 +22,38 @@ public interface AlignmentService {
 	 */
 	Alignment alignFragments(List<Residue> reference, List<Residue> fragmentToAlign);
 	
+	/**
+	 * Computes the root-mean-square deviation of the optimal superposition of two fragments without determining the superposition itself - considerably cheaper than {@link #alignFragments(List, List)} when only the score is of interest (e.g. when screening fragments).
+	 * @param reference A fragment (collection of residues).
+	 * @param fragmentToAlign Another fragment (collection of residues).
+	 * @return The RMSD as reported by {@link Alignment#rmsd} (up to rounding).
+	 */
+	double rmsd(List<Residue> reference, List<Residue> fragmentToAlign);
+	
+	/**
+	 * Computes the RMSD of the optimal superposition of each pair of fragments (all-vs-all), e.g. to cluster the fragments of one {@link de.bioforscher.pmw.model.DefinedMotif}.
+	 * @param fragments A collection of fragments.
+	 * @param cutoff Pairs exceeding this RMSD are reported as {@link Double#POSITIVE_INFINITY} without computing their exact value, which is considerably faster for small cutoffs. Fragments of differing size are reported the same way.
+	 * @return The symmetric matrix of RMSD values, indexed like the fragments.
+	 */
+	double[][] rmsdMatrix(List<List<Residue>> fragments, double cutoff);
+	
+	/**
+	 * Prepares a collection of reference fragments for {@link #alignFragments(ReferenceSet, List, int)}, so their atoms are extracted and centered only once.
+	 * @param references A collection of fragments.
+	 * @return The prepared references.
+	 */
+	ReferenceSet prepareReferences(List<List<Residue>> references);
+	
+	/**
+	 * Aligns one fragment against each reference (in parallel) and reports the best alignments. Only the retained alignments are computed in detail, all others are merely scored.
+	 * @param references The references prepared by {@link #prepareReferences(List)}.
+	 * @param fragmentToAlign A fragment (collection of residues) - references of a different size are skipped.
+	 * @param k The number of alignments to report.
+	 * @return (At most) <code>k</code> alignments ordered by increasing RMSD, {@link Alignment#referenceIndex} identifies the reference of each.
+	 */
+	List<Alignment> alignFragments(ReferenceSet references, List<Residue> fragmentToAlign, int k);
+	
 	void transform(Protein protein, double[] translation, double[][] rotation);
 	
 	void transform(List<Atom> atoms, double[] translation, double[][] rotation);
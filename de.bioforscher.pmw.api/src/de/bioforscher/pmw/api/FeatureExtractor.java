@@ -11,7 +11,7 @@ import de.bioforscher.pmw.model.Protein;
  * <li><b>Predictions</b>: Mainly sequence-based, thus, with little requirements. Potentially, erroneous values.</li>
  * </ul>
  * Available features are defined by {@link FeatureType} - thus, feature types are only loosely coupled to algorithms. This mapping is defined in the implementation of {@link FeatureExtractor}.<br 7>
- * Results will be written to the feature list of each {@link Residue}. The computed features will be presented via the availableFeatures field of {@link Protein}.
+ * Results will be written to the {@link Protein#getFeatureMatrix()} - {@link Protein#exportFeatures()} copies them to the feature list of each {@link Residue} (done by {@link ModelPersistence} when storing a project). The computed features will be presented via the availableFeatures field of {@link Protein}.
  * @author S
  *
  */
@@ -22,4 +22,18 @@ public interface FeatureExtractor {
 	 * @param featuresToCompute the set of values to be computed
 	 */
 	void computeFeatures(Protein protein, FeatureType... featuresToCompute);
+	
+	/**
+	 * Reports how far the accessible surface area of each residue, as last computed by {@link #computeFeatures(Protein, FeatureType...)}, is estimated to deviate from sampling every atom at full resolution - only non-zero when an adaptive quality is configured. This is an estimate, no strict bound.
+	 * @param protein the protein of interest
+	 * @return the estimated deviation in A^2 of each residue (in the order of {@link ModelConverter#getResidues(Protein)}) - <code>null</code> if the accessible surface area of the protein was not computed
+	 */
+	double[] getAccessibleSurfaceAreaErrorEstimates(Protein protein);
+	
+	/**
+	 * Computes the accessible surface area of the given protein and keeps it up to date when some atoms move.
+	 * @param protein the protein to track - its feature matrix is not modified
+	 * @return the current accessible surface area of each residue, updated by reporting moved atoms
+	 */
+	IncrementalSurfaceArea trackAccessibleSurfaceArea(Protein protein);
 }
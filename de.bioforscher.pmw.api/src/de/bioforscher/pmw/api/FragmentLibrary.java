@@ -1,5 +1,34 @@
 package de.bioforscher.pmw.api;
 
-public interface FragmentLibrary {
+import java.util.List;
+
+import de.bioforscher.pmw.model.DefinedMotif;
+import de.bioforscher.pmw.model.Fragment;
+import de.bioforscher.pmw.model.Residue;
 
+/**
+ * Access to the library of structural fragments.
+ * @author S
+ *
+ */
+public interface FragmentLibrary {
+	/**
+	 * Clusters the fragments of one motif bin by their RMSD and keeps only one representative per cluster - all other
+	 * fragments are removed from the library.
+	 * @param sequenceMotif the bin to condense
+	 * @param rmsdCutoff fragments closer than this RMSD to a representative are considered redundant
+	 * @return the retained representatives
+	 */
+	List<Fragment> condenseFragments(DefinedMotif sequenceMotif, double rmsdCutoff) throws Exception;
+	
+	/**
+	 * Retrieves the fragments of one motif bin which are structurally closest to the given backbone. Candidates are
+	 * pre-selected by a shape index, only these are superimposed onto the query. The result is exact: candidates are
+	 * retrieved until the RMSD lower bound of the shape index excludes all other fragments.
+	 * @param sequenceMotif the bin to search
+	 * @param query the residues to find similar fragments for - of the length of the motif
+	 * @param k the number of fragments to retrieve
+	 * @return (at most) <code>k</code> fragments, ordered by increasing RMSD to the query
+	 */
+	List<Fragment> findClosestFragments(DefinedMotif sequenceMotif, List<Residue> query, int k) throws Exception;
 }
@@ -0,0 +1,62 @@
+package de.bioforscher.pmw.api;
+
+/**
+ * Bulk geometric operations on packed coordinates - in contrast to {@link LinearAlgebra}, which handles one vector at a
+ * time, each call processes a whole block of points. Points are given column-wise (like the
+ * {@link de.bioforscher.pmw.model.CoordinateTable}) as <code>x</code>, <code>y</code> and <code>z</code> arrays, of
+ * which the indices <code>[from, to)</code> are processed. Results are written to the given arrays at
+ * <code>i - from</code>, so no allocation takes place.<br />
+ * Per point, the arithmetic is the same as the one of {@link LinearAlgebra}, so results are identical.
+ * @author S
+ *
+ */
+public interface GeometryKernels {
+	/**
+	 * rototranslates points in place
+	 * @param translation the vector added after the rotation
+	 * @param rotation the rotation matrix
+	 * @see LinearAlgebra#transform(double[], double[], double[][])
+	 */
+	void transform(double[] x, double[] y, double[] z, int from, int to, double[] translation, double[][] rotation);
+
+	/**
+	 * computes the distances of all points to a single point
+	 * @param result the array to write the distances to
+	 */
+	void distances(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] result);
+
+	/**
+	 * computes the squared distances of all points to a single point
+	 * @param result the array to write the squared distances to
+	 */
+	void squaredDistances(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] result);
+
+	/**
+	 * determines all points closer to a single point than a cutoff
+	 * @param cutoffSquared the squared cutoff
+	 * @param mask the bitmask to write to - bit <code>i - from</code> is set iff point <code>i</code> is within the cutoff, it has to hold at least <code>(to - from + 63) / 64</code> elements
+	 * @return the number of points within the cutoff
+	 */
+	int withinCutoff(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double cutoffSquared, long[] mask);
+
+	/**
+	 * finds the first point closer to a single point than its individual cutoff (e.g. the first atom occluding a point
+	 * on the surface of another atom)
+	 * @param cutoffsSquared the squared cutoff of each point - indexed like the coordinates
+	 * @return the index of the first point within its cutoff, <code>-1</code> if there is none
+	 */
+	int firstWithin(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] cutoffsSquared);
+
+	/**
+	 * computes the scalar products of all points with a single vector (i.e. the projection onto the vector when it is
+	 * normalized)
+	 * @param result the array to write the scalar products to
+	 * @see LinearAlgebra#dotProduct(double[], double[])
+	 */
+	void dotProducts(double[] x, double[] y, double[] z, int from, int to, double vx, double vy, double vz, double[] result);
+
+	/**
+	 * @return the centroid of all points
+	 */
+	double[] centroid(double[] x, double[] y, double[] z, int from, int to);
+}
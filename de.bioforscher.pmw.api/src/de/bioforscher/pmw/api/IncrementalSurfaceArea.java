@@ -0,0 +1,33 @@
+package de.bioforscher.pmw.api;
+
+import java.util.List;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Protein;
+
+/**
+ * The accessible surface area of a protein which is kept up to date while parts of the structure move (e.g. during
+ * refinement). Only moved atoms and their spatial neighbors are recomputed, the values are identical to a full
+ * recomputation. Instances are created by {@link FeatureExtractor#trackAccessibleSurfaceArea(Protein)} and are not
+ * thread-safe.
+ * @author S
+ *
+ */
+public interface IncrementalSurfaceArea {
+	/**
+	 * @return the atoms considered (i.e. all but hydrogen atoms) - moved atoms are referenced by their index in this list
+	 */
+	List<Atom> getAtoms();
+
+	/**
+	 * @return the accessible surface area of each residue (in the order of {@link ModelConverter#getResidues(Protein)})
+	 */
+	double[] getValues();
+
+	/**
+	 * recomputes the accessible surface area after the coordinates of some atoms changed
+	 * @param movedAtoms the indices of the moved atoms in {@link #getAtoms()}
+	 * @return the change of the accessible surface area of each residue
+	 */
+	double[] update(int... movedAtoms);
+}
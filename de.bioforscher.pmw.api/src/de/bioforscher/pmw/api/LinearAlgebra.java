@@ -3,6 +3,8 @@ package de.bioforscher.pmw.api;
 /**
  * A service which implements a potpourri of linear algebraic calculations. All operations are low-level on the level of <code>double[]</code> and, by contract,
  * do never happen in place (which means they do not modify any of their arguments, but rather return a new instance to wrap the result).<br />
+ * The exception are the variants taking a <code>result</code> argument: they write into it (it may be identical to one of the inputs) and are meant for hot loops, together with the
+ * reusable scratch objects {@link Vec3} and {@link Mat3}.<br />
  * Access is provided by strictly low-level <code>double[]</code> or to process model entries such as {@link Atom} use their <code>xyz</code> field.<br />
  * There is no real point in wrapping this in an OSGi service (in contrast to a class with static methods), maybe this even degenerates performance significantly as all these functions tend to be invoked numerous time during computation/reconstruction steps.
  * @author S
@@ -17,6 +19,12 @@ public interface LinearAlgebra {
 	 */
 	double[] add(double[] v1, double[] v2);
 	
+	/**
+	 * add 2 vectors, writing to <code>result</code>
+	 * @return <code>result</code>
+	 */
+	double[] add(double[] v1, double[] v2, double[] result);
+	
 	/**
 	 * Returns the angle in radians between this vector and the vector
 	 * parameter; the return value is constrained to the range [0,PI].
@@ -54,6 +62,13 @@ public interface LinearAlgebra {
 	 */
 	double[][] rotation(double[] v1, double[] v2, double[] v3);
 	
+	/**
+	 * computes the rotation matrix needed to place the quadrilateral scaffold correctly, writing to <code>result</code>
+	 * @return <code>result</code>
+	 * @see LinearAlgebra#rotation(double[], double[], double[])
+	 */
+	Mat3 rotation(double[] v1, double[] v2, double[] v3, Mat3 result);
+	
 	/**
 	 * the squared distance between 2 points
 	 * @param v1
@@ -96,6 +111,12 @@ public interface LinearAlgebra {
 	 */
 	double[] multiply(double[] v, double scalar);
 	
+	/**
+	 * multiplies each element of the given vector with a scalar, writing to <code>result</code>
+	 * @return <code>result</code>
+	 */
+	double[] multiply(double[] v, double scalar, double[] result);
+	
 	double[] multiply(double[] v, double[][] m);
 	
 	/**
@@ -111,6 +132,12 @@ public interface LinearAlgebra {
 	 * @return a new <code>double[]</code> instance containing the normalized vector
 	 */
 	double[] normalize(double[] v);
+	
+	/**
+	 * normalizes a vector, writing to <code>result</code>
+	 * @return <code>result</code>
+	 */
+	double[] normalize(double[] v, double[] result);
 
 	/**
 	 * rototranslates a vector utilizing a given translation vector and rotation matrix
@@ -121,6 +148,13 @@ public interface LinearAlgebra {
 	 */
 	double[] transform(double[] vector, double[] translation, double[][] rotation);
 	
+	/**
+	 * rototranslates a vector, writing to <code>result</code>
+	 * @return <code>result</code>
+	 * @see LinearAlgebra#transform(double[], double[], double[][])
+	 */
+	double[] transform(double[] vector, double[] translation, double[][] rotation, double[] result);
+	
 	/**
 	 * subtracts 2 vectors
 	 * @param v1
@@ -129,6 +163,12 @@ public interface LinearAlgebra {
 	 */
 	double[] subtract(double[] v1, double[] v2);
 	
+	/**
+	 * subtracts 2 vectors, writing to <code>result</code>
+	 * @return <code>result</code>
+	 */
+	double[] subtract(double[] v1, double[] v2, double[] result);
+	
 	/**
 	 * computes the vector product between 2 vectors
 	 * @param v1
@@ -0,0 +1,93 @@
+package de.bioforscher.pmw.api;
+
+/**
+ * A mutable 3x3 matrix (e.g. a rotation) intended as reusable scratch object in hot loops - the counterpart of the
+ * <code>double[][]</code> matrices of {@link LinearAlgebra}. Instances are not thread-safe - use one per thread.
+ * @author S
+ *
+ */
+public final class Mat3 {
+	public double m00, m01, m02;
+	public double m10, m11, m12;
+	public double m20, m21, m22;
+
+	public Mat3() {
+	}
+
+	public Mat3(double[][] m) {
+		set(m);
+	}
+
+	public Mat3 set(double[][] m) {
+		this.m00 = m[0][0];
+		this.m01 = m[0][1];
+		this.m02 = m[0][2];
+		this.m10 = m[1][0];
+		this.m11 = m[1][1];
+		this.m12 = m[1][2];
+		this.m20 = m[2][0];
+		this.m21 = m[2][1];
+		this.m22 = m[2][2];
+		return this;
+	}
+
+	public Mat3 setRow(int row, double x, double y, double z) {
+		switch(row) {
+		case 0:
+			this.m00 = x;
+			this.m01 = y;
+			this.m02 = z;
+			break;
+		case 1:
+			this.m10 = x;
+			this.m11 = y;
+			this.m12 = z;
+			break;
+		case 2:
+			this.m20 = x;
+			this.m21 = y;
+			this.m22 = z;
+			break;
+		default:
+			throw new IndexOutOfBoundsException("no row " + row);
+		}
+		return this;
+	}
+
+	/**
+	 * rototranslates a vector - equal to {@link LinearAlgebra#transform(double[], double[], double[][])}
+	 * @param vector the vector to be rototranslated
+	 * @param translation the translation applied after the rotation
+	 * @param result the vector to write the result to - may be identical to <code>vector</code>
+	 * @return the result
+	 */
+	public double[] transform(double[] vector, double[] translation, double[] result) {
+		double x = vector[0];
+		double y = vector[1];
+		double z = vector[2];
+		result[0] = (this.m00 * x + this.m01 * y + this.m02 * z) + translation[0];
+		result[1] = (this.m10 * x + this.m11 * y + this.m12 * z) + translation[1];
+		result[2] = (this.m20 * x + this.m21 * y + this.m22 * z) + translation[2];
+		return result;
+	}
+
+	/**
+	 * rototranslates a vector in place
+	 * @see #transform(double[], double[], double[])
+	 */
+	public Vec3 transform(Vec3 vector, double[] translation) {
+		double x = vector.x;
+		double y = vector.y;
+		double z = vector.z;
+		return vector.set((this.m00 * x + this.m01 * y + this.m02 * z) + translation[0],
+				(this.m10 * x + this.m11 * y + this.m12 * z) + translation[1],
+				(this.m20 * x + this.m21 * y + this.m22 * z) + translation[2]);
+	}
+
+	/**
+	 * @return a new <code>double[][]</code> containing this matrix
+	 */
+	public double[][] toArray() {
+		return new double[][] { { this.m00, this.m01, this.m02 }, { this.m10, this.m11, this.m12 }, { this.m20, this.m21, this.m22 } };
+	}
+}
@@ -2,8 +2,11 @@ package de.bioforscher.pmw.api;
 
 import java.io.IOException;
 import java.io.File;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import de.bioforscher.pmw.model.Atom;
 import de.bioforscher.pmw.model.Project;
@@ -128,7 +131,8 @@ public interface ModelConverter {
 	Atom createAtom(String name, double[] xyz);
 
 	/**
-	 * creates a project instance by a given PDB structure
+	 * creates a project instance by a given PDB structure - ensembles (e.g. of NMR structures) result in one protein
+	 * per model
 	 * 
 	 * @param pdbFileContent
 	 *            binary representation of a PDB file
@@ -146,8 +150,47 @@ public interface ModelConverter {
 	 */
 	Protein createProteinByPDBId(String pdbId) throws Exception;
 	
+	/**
+	 * creates a protein instance from a local file - the format is chosen by the file extension: PDB, mmCIF
+	 * (<code>.cif</code>, <code>.mmcif</code>) or BinaryCIF (<code>.bcif</code>), gzip-compressed files
+	 * (e.g. <code>.pdb.gz</code>) are decompressed on the fly
+	 * @param file the file to parse
+	 * @return the parsed protein
+	 * @throws Exception
+	 */
 	Protein createProtein(File file) throws Exception;
 	
+	/**
+	 * @see #createProtein(File)
+	 * @param pipelined if true, the file is read and decompressed by a separate thread while being parsed - beneficial
+	 * for compressed files
+	 */
+	Protein createProtein(File file, boolean pipelined) throws IOException;
+	
+	/**
+	 * creates protein instances from a file of concatenated PDB entries (e.g. the dump of a whole data set) - entries
+	 * are separated by <code>END</code> records, the file is not loaded into memory, so its size is not limited
+	 * @param file the file to parse, may be gzip-compressed
+	 * @param consumer will be called for each protein in the order of the file
+	 * @throws IOException when reading the file fails
+	 */
+	void createProteins(File file, Consumer<Protein> consumer) throws IOException;
+	
+	/**
+	 * @see #createProteins(File, Consumer)
+	 * @param pipelined if true, the file is read and decompressed by a separate thread while being parsed
+	 */
+	void createProteins(File file, boolean pipelined, Consumer<Protein> consumer) throws IOException;
+	
+	/**
+	 * lazily creates one protein instance per model of an ensemble (e.g. of a NMR structure) - models are parsed on
+	 * demand, so they can be processed one by one without holding all of them in memory
+	 * @param file the PDB file to parse, may be gzip-compressed
+	 * @return the models in the order of the file
+	 * @throws IOException when reading the file fails
+	 */
+	Stream<Protein> createModels(File file) throws IOException;
+	
 //	/**
 //	 * uses the specified sequence to initialize a {@link Protein}-scaffold
 //	 * which can be subsequently refined<br />
@@ -232,24 +275,42 @@ public interface ModelConverter {
 	 */
 	void removeAtoms(Protein protein);
 	
-//	/**
-//	 * creates the pdbRepresentation of this {@link Protein} and updates the
-//	 * corresponding field
-//	 * 
-//	 * @param protein
-//	 *            the object whose pdbRepresentation attribute will be updated
-//	 * @return the updated pdbRepresentation - it is still set to the field of
-//	 *         the {@link Protein} object
-//	 */
-//	String updatePdbRepresentation(Protein protein);
 	/**
-	 * creates the pdbRepresentation of this {@link Protein} and updates the
-	 * corresponding fields
+	 * composes the ATOM records of this {@link Protein} - records are rendered on demand from the current state of the
+	 * atoms and neither stored nor transferred along with the protein
 	 * 
 	 * @param protein
-	 *            the object whose atom's pdbRepresentation attributes will be updated
+	 *            the protein to render
+	 * @return the PDB representation, one line per atom
+	 */
+	String composePdbRepresentation(Protein protein);
+	
+	/**
+	 * composes the ATOM records of some residues, e.g. those of a fragment
+	 * @param chainId the chain identifier to write
+	 * @param residues the residues to render
+	 * @return the PDB representation, one line per atom
+	 * @see #composePdbRepresentation(Protein)
+	 */
+	String composePdbRepresentation(String chainId, List<Residue> residues);
+	
+	/**
+	 * writes the ATOM records of this {@link Protein} to a stream without composing intermediate strings - this is
+	 * thread-safe and large structures are rendered chain-wise in parallel
+	 * @param protein the protein to write
+	 * @param outputStream the target, it will not be closed
+	 * @throws IOException when writing fails
+	 */
+	void writePdbRepresentation(Protein protein, OutputStream outputStream) throws IOException;
+	
+	/**
+	 * writes an ensemble of proteins as one PDB file of several models (MODEL/ENDMDL records) - models are rendered in
+	 * parallel
+	 * @param models the proteins to write
+	 * @param outputStream the target, it will not be closed
+	 * @throws IOException when writing fails
 	 */
-	void updatePdbRepresentation(Protein protein);
+	void writePdbRepresentation(List<Protein> models, OutputStream outputStream) throws IOException;
 	
 	/**
 	 * Ensures correct numbering of all present atoms within the structure and correct ordering in the final PDB file: N -> CA -> C -> O -> CB+.
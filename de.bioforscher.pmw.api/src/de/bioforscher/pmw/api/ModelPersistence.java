@@ -16,7 +16,8 @@ import de.bioforscher.pmw.model.Project;
 public interface ModelPersistence {
 	/**
 	 * persists the handed over {@link ModelingJob}<br />
-	 * this is done by ensuring that the internally managed list remains unique (that means, existing references for this projectId are removed beforehand) and, subsequently, the new object is added to the list
+	 * this is done by ensuring that the internally managed list remains unique (that means, existing references for this projectId are removed beforehand) and, subsequently, the new object is added to the list<br />
+	 * computed features are exported to the residues beforehand (see {@link de.bioforscher.pmw.model.Protein#exportFeatures()})
 	 * @param project
 	 */
 	void createProject(Project project) throws Exception;
@@ -29,7 +30,7 @@ public interface ModelPersistence {
 	Project retrieveProject(String projectId) throws Exception;
 	
 	/**
-	 * updates an existing entry
+	 * updates an existing entry - computed features are exported to the residues beforehand
 	 * @param project
 	 */
 	void updateProject(Project project) throws Exception;
@@ -50,8 +51,14 @@ public interface ModelPersistence {
 	List<Fragment> retrieveFragments(DefinedMotif sequenceMotif) throws Exception;
 	
 	/**
-	 * TODO design: is a fragment unique for one bin or do we store only one representative fragment - do we merge them outside or here when collisions occur
+	 * stores a fragment - fragments are not merged here, redundant fragments of one bin are removed by {@link FragmentLibrary#condenseFragments(DefinedMotif, double)}
 	 * @param fragment the fragment data to add
 	 */
 	void createFragment(Fragment fragment) throws Exception;
+	
+	/**
+	 * removes fragments identified by their _id attribute
+	 * @param fragments the fragments to be removed
+	 */
+	void deleteFragments(List<Fragment> fragments) throws Exception;
 }
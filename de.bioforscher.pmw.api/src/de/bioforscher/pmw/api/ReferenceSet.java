@@ -0,0 +1,25 @@
+package de.bioforscher.pmw.api;
+
+import java.util.List;
+
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * A collection of reference fragments which is prepared once (i.e. the atoms to align are extracted and centered), so
+ * many fragments can be aligned against it without repeating this work. Instances are created by
+ * {@link AlignmentService#prepareReferences(List)} and are immutable.
+ * @author S
+ *
+ */
+public interface ReferenceSet {
+	/**
+	 * @return the number of references
+	 */
+	int size();
+	
+	/**
+	 * @param index the position of the reference as passed to {@link AlignmentService#prepareReferences(List)}
+	 * @return the residues of the reference
+	 */
+	List<Residue> getReference(int index);
+}
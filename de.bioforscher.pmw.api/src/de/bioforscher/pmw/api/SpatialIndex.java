@@ -0,0 +1,41 @@
+package de.bioforscher.pmw.api;
+
+/**
+ * A spatial index over a fixed number of points, which answers proximity queries without comparing all points. Points
+ * are referenced by their index in the column-wise coordinates the index was created from (see
+ * {@link SpatialIndexService#createIndex(double[], double[], double[], int, double)}). The coordinates are not copied -
+ * after moving points, call {@link #rebuild()}.<br />
+ * Results are deterministic, i.e. ordered as documented. Queries are thread-safe, rebuilding is not.
+ * @author S
+ *
+ */
+public interface SpatialIndex {
+	/**
+	 * @return the number of indexed points
+	 */
+	int size();
+	
+	/**
+	 * finds all points within a sphere
+	 * @return the indices of all points whose squared distance to the given point does not exceed <code>radius * radius</code>, in ascending order
+	 */
+	int[] withinRadius(double px, double py, double pz, double radius);
+	
+	/**
+	 * finds the points closest to the given point
+	 * @param k the number of points to retrieve
+	 * @return the indices of (at most) <code>k</code> points, ordered by increasing distance (ties by index)
+	 */
+	int[] nearest(double px, double py, double pz, int k);
+	
+	/**
+	 * enumerates all pairs of points within a distance
+	 * @return all pairs <code>i &lt; j</code> whose squared distance does not exceed <code>cutoff * cutoff</code>, packed as <code>[i0, j0, i1, j1, ...]</code> and sorted by <code>i</code>, then <code>j</code>
+	 */
+	int[] pairsWithin(double cutoff);
+	
+	/**
+	 * updates the index after points were moved - the number of points must not change
+	 */
+	void rebuild();
+}
@@ -0,0 +1,16 @@
+package de.bioforscher.pmw.api;
+
+/**
+ * Creates {@link SpatialIndex} instances for point sets, e.g. the atoms of a protein.
+ * @author S
+ *
+ */
+public interface SpatialIndexService {
+	/**
+	 * indexes points given column-wise (like the {@link de.bioforscher.pmw.model.CoordinateTable})
+	 * @param count the number of points - the first <code>count</code> elements of each array are indexed
+	 * @param cellSize the typical query radius - queries of about this radius are answered fastest
+	 * @return the index, referencing (not copying) the given arrays
+	 */
+	SpatialIndex createIndex(double[] x, double[] y, double[] z, int count, double cellSize);
+}
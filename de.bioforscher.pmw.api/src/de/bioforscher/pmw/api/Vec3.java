@@ -0,0 +1,169 @@
+package de.bioforscher.pmw.api;
+
+/**
+ * A mutable 3D vector intended as reusable scratch object in hot loops. In contrast to {@link LinearAlgebra}, all
+ * operations happen in place and return this instance to allow chaining, e.g.
+ * <code>point.set(spherePoint).scale(radius).add(atom.xyz)</code>.<br />
+ * Operations are evaluated in the same order as their {@link LinearAlgebra} counterparts, so results are identical.
+ * Instances are not thread-safe - use one per thread.
+ * @author S
+ *
+ */
+public final class Vec3 {
+	public double x;
+	public double y;
+	public double z;
+
+	public Vec3() {
+	}
+
+	public Vec3(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	public Vec3(double[] v) {
+		set(v);
+	}
+
+	public Vec3 set(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	public Vec3 set(double[] v) {
+		this.x = v[0];
+		this.y = v[1];
+		this.z = v[2];
+		return this;
+	}
+
+	public Vec3 set(Vec3 v) {
+		this.x = v.x;
+		this.y = v.y;
+		this.z = v.z;
+		return this;
+	}
+
+	public Vec3 add(double[] v) {
+		this.x += v[0];
+		this.y += v[1];
+		this.z += v[2];
+		return this;
+	}
+
+	public Vec3 add(Vec3 v) {
+		this.x += v.x;
+		this.y += v.y;
+		this.z += v.z;
+		return this;
+	}
+
+	public Vec3 subtract(double[] v) {
+		this.x -= v[0];
+		this.y -= v[1];
+		this.z -= v[2];
+		return this;
+	}
+
+	public Vec3 subtract(Vec3 v) {
+		this.x -= v.x;
+		this.y -= v.y;
+		this.z -= v.z;
+		return this;
+	}
+
+	/**
+	 * sets this vector to the difference <code>v1 - v2</code>
+	 */
+	public Vec3 difference(double[] v1, double[] v2) {
+		this.x = v1[0] - v2[0];
+		this.y = v1[1] - v2[1];
+		this.z = v1[2] - v2[2];
+		return this;
+	}
+
+	public Vec3 scale(double scalar) {
+		this.x *= scalar;
+		this.y *= scalar;
+		this.z *= scalar;
+		return this;
+	}
+
+	/**
+	 * divides each component by the length of this vector
+	 */
+	public Vec3 normalize() {
+		double length = norm();
+		this.x /= length;
+		this.y /= length;
+		this.z /= length;
+		return this;
+	}
+
+	/**
+	 * sets this vector to the vector product <code>v1 x v2</code> - this instance may be one of the arguments
+	 */
+	public Vec3 cross(Vec3 v1, Vec3 v2) {
+		double x = v1.y * v2.z - v1.z * v2.y;
+		double y = v1.z * v2.x - v1.x * v2.z;
+		double z = v1.x * v2.y - v1.y * v2.x;
+		return set(x, y, z);
+	}
+
+	public double dot(double[] v) {
+		return this.x * v[0] + this.y * v[1] + this.z * v[2];
+	}
+
+	public double dot(Vec3 v) {
+		return this.x * v.x + this.y * v.y + this.z * v.z;
+	}
+
+	public double norm() {
+		return Math.sqrt(this.x * this.x + this.y * this.y + this.z * this.z);
+	}
+
+	/**
+	 * @return the squared distance to the given point
+	 */
+	public double distanceFast(double[] v) {
+		return (this.x - v[0]) * (this.x - v[0]) +
+				(this.y - v[1]) * (this.y - v[1]) +
+				(this.z - v[2]) * (this.z - v[2]);
+	}
+
+	/**
+	 * @return the squared distance to the given point
+	 */
+	public double distanceFast(Vec3 v) {
+		return (this.x - v.x) * (this.x - v.x) +
+				(this.y - v.y) * (this.y - v.y) +
+				(this.z - v.z) * (this.z - v.z);
+	}
+
+	/**
+	 * writes this vector to the given array
+	 * @return the array
+	 */
+	public double[] get(double[] result) {
+		result[0] = this.x;
+		result[1] = this.y;
+		result[2] = this.z;
+		return result;
+	}
+
+	/**
+	 * @return a new <code>double[]</code> containing this vector
+	 */
+	public double[] toArray() {
+		return new double[] { this.x, this.y, this.z };
+	}
+
+	@Override
+	public String toString() {
+		return "[" + this.x + ", " + this.y + ", " + this.z + "]";
+	}
+}
@@ -0,0 +1,223 @@
+package de.bioforscher.pmw.application;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.osgi.service.log.LogService;
+
+/**
+ * Writes log messages to the console without blocking the logging thread: messages are put into a bounded ring buffer
+ * (preallocated, no allocation per message) and printed by a background thread. When the buffer is full, messages are
+ * dropped and counted - the number of dropped messages is reported by the drain thread once there is room again.<br />
+ * Any number of threads may offer messages concurrently (each slot carries a sequence number, so producers only
+ * contend on a single compare-and-set). Messages may be offered before {@link #start()}, every message accepted before
+ * {@link #stop()} is written.
+ * @author S
+ *
+ */
+class AsyncLogSink {
+	/**
+	 * how long the drain thread sleeps when the buffer is empty
+	 */
+	private static final long DRAIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+	/**
+	 * set in <code>tail</code> once the sink is stopped, so no position can be claimed afterwards
+	 */
+	private static final long CLOSED = Long.MIN_VALUE;
+
+	private final int mask;
+	private final int[] levels;
+	private final String[] messages;
+	/**
+	 * slot <code>i</code> can be written for position <code>p</code> if its sequence is <code>p</code> and can be read
+	 * if its sequence is <code>p + 1</code>
+	 */
+	private final AtomicLongArray sequences;
+	/**
+	 * the next position to claim - or the number of claimed positions with {@link #CLOSED} set
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	/**
+	 * only accessed by the drain thread
+	 */
+	private long head;
+
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private volatile long written;
+	private long reportedDrops;
+
+	private final PrintStream out;
+	private final PrintStream err;
+	private final Thread drainThread;
+
+	/**
+	 * @param capacity the number of buffered messages - rounded up to the next power of two
+	 */
+	AsyncLogSink(int capacity) {
+		this(capacity, System.out, System.err);
+	}
+
+	/**
+	 * @param out the stream to write messages to
+	 * @param err the stream to write errors to
+	 */
+	AsyncLogSink(int capacity, PrintStream out, PrintStream err) {
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive - found " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.levels = new int[size];
+		this.messages = new String[size];
+		this.sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.out = out;
+		this.err = err;
+		this.drainThread = new Thread(this::drain, "pmw-log-sink");
+		this.drainThread.setDaemon(true);
+	}
+
+	/**
+	 * starts the drain thread
+	 */
+	void start() {
+		this.drainThread.start();
+	}
+
+	/**
+	 * enqueues a message without blocking
+	 * @return <code>false</code> if the buffer was full (or the sink is stopped) and the message was dropped
+	 */
+	boolean offer(int level, String message) {
+		long position = this.tail.get();
+		int index;
+		while(true) {
+			if(position < 0) {
+				// stopped
+				this.dropped.increment();
+				return false;
+			}
+			index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - position;
+			if(difference == 0) {
+				if(this.tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+				position = this.tail.get();
+			} else if(difference < 0) {
+				// the slot still holds a message of the previous round
+				this.dropped.increment();
+				return false;
+			} else {
+				// another producer took this position
+				position = this.tail.get();
+			}
+		}
+		this.levels[index] = level;
+		this.messages[index] = message;
+		this.sequences.lazySet(index, position + 1);
+		this.accepted.increment();
+		return true;
+	}
+
+	/**
+	 * stops the drain thread after all accepted messages were written - messages offered afterwards are dropped
+	 */
+	void stop() {
+		this.tail.getAndUpdate(position -> position | CLOSED);
+		LockSupport.unpark(this.drainThread);
+		try {
+			this.drainThread.join(STOP_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	long getAcceptedCount() {
+		return this.accepted.sum();
+	}
+
+	long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	long getWrittenCount() {
+		return this.written;
+	}
+
+	private void drain() {
+		while(true) {
+			// read the tail first - once it is closed, it is the final number of accepted messages
+			long position = this.tail.get();
+			int count = drainBuffer();
+			reportDrops();
+			if(position < 0) {
+				if(this.head == (position & ~CLOSED)) {
+					return;
+				}
+				// a producer claimed a slot but did not publish its message yet
+				Thread.yield();
+			} else if(count == 0) {
+				LockSupport.parkNanos(this, DRAIN_INTERVAL);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of messages written
+	 */
+	private int drainBuffer() {
+		int count = 0;
+		while(true) {
+			int index = (int) this.head & this.mask;
+			if(this.sequences.get(index) != this.head + 1) {
+				return count;
+			}
+			int level = this.levels[index];
+			String message = this.messages[index];
+			this.messages[index] = null;
+			// release the slot for the next round
+			this.sequences.lazySet(index, this.head + this.mask + 1);
+			this.head++;
+			write(level, message);
+			this.written++;
+			count++;
+		}
+	}
+
+	private void reportDrops() {
+		long drops = this.dropped.sum();
+		if(drops > this.reportedDrops) {
+			write(LogService.LOG_WARNING, "log buffer full - dropped " + (drops - this.reportedDrops) + " messages");
+			this.reportedDrops = drops;
+		}
+	}
+
+	private void write(int level, String message) {
+		switch (level) {
+		case LogService.LOG_DEBUG:
+			this.out.println("[DEBUG] " + message);
+			break;
+		case LogService.LOG_INFO:
+			this.out.println("[INFO] " + message);
+			break;
+		case LogService.LOG_WARNING:
+			this.out.println("[WARNING] " + message);
+			break;
+		case LogService.LOG_ERROR:
+			this.err.println("[ERROR] " + message);
+			break;
+		}
+	}
+}
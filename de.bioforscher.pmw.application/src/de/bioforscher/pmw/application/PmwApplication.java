@@ -4,7 +4,10 @@ import java.util.Base64;
 import org.osgi.dto.DTO;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogListener;
 import org.osgi.service.log.LogReaderService;
 import org.osgi.service.log.LogService;
 
@@ -42,7 +45,15 @@ public class PmwApplication implements REST {
 	 * TODO move these to config
 	 */
 	private static final boolean SUPPRESS_FRAMEWORK_MESSAGES = true;
-	private static final int LOG_LEVEL = LogService.LOG_DEBUG;
+	private static final String LOG_LEVEL_PROPERTY = "pmw.log.level";
+	private static final int LOG_LEVEL = configuredLogLevel();
+	private static final int LOG_BUFFER_CAPACITY = 4096;
+	
+	/**
+	 * console output happens on a background thread, so logging never delays requests - started on activation
+	 */
+	private final AsyncLogSink logSink = new AsyncLogSink(LOG_BUFFER_CAPACITY);
+	private final LogListener logListener = this::logged;
 	
 	@Reference
 	private FeatureExtractor featureExtractorService;
@@ -58,12 +69,26 @@ public class PmwApplication implements REST {
 	private FragmentLibrary fragmentLibrary;
 	@Reference
 	private AlignmentService alignmentService;
+	@Reference
+	private LogReaderService logReader;
 
 	//TODO implement: some 'delta' function would be nice, so not the whole model has to be transfered but rather only the model's changes
 	
 	@Activate
 	public void activate() {
 		System.out.println("starting pmw application");
+		this.logSink.start();
+		this.logReader.addLogListener(this.logListener);
+	}
+	
+	@Deactivate
+	public void deactivate() {
+		// no more messages must arrive once the sink is stopped
+		this.logReader.removeLogListener(this.logListener);
+		this.logSink.stop();
+		if(this.logSink.getDroppedCount() > 0) {
+			System.err.println("dropped " + this.logSink.getDroppedCount() + " of " + (this.logSink.getAcceptedCount() + this.logSink.getDroppedCount()) + " log messages");
+		}
 	}
 	
 	/*
@@ -80,6 +105,17 @@ public class PmwApplication implements REST {
 		return this.modelPersistenceService.retrieveProject(id);
 	}
 	
+	/**
+	 * composes the PDB representation of a project's protein - the front-end requests it separately, so coordinates are
+	 * transferred only once and no PDB records have to be stored with the project
+	 * @param id the UUID of the job requested
+	 * @return the ATOM records of the protein
+	 * @throws Exception thrown upon not finding a corresponding job
+	 */
+	public String getPdb(RESTRequest request, String id) throws Exception {
+		return this.modelConverterService.composePdbRepresentation(this.modelPersistenceService.retrieveProject(id).proteins.get(0));
+	}
+	
 	/*
 	 * the interface to request calculations from the back-end
 	 */
@@ -178,39 +214,40 @@ public class PmwApplication implements REST {
 		return SETTINGS;
 	}
 	
+	/**
+	 * @return the level configured by {@value #LOG_LEVEL_PROPERTY} (one of DEBUG, INFO, WARNING, ERROR) -
+	 * {@link LogService#LOG_INFO} if it is missing or unknown
+	 */
+	private static int configuredLogLevel() {
+		switch(System.getProperty(LOG_LEVEL_PROPERTY, "INFO").toUpperCase()) {
+		case "DEBUG":
+			return LogService.LOG_DEBUG;
+		case "WARNING":
+			return LogService.LOG_WARNING;
+		case "ERROR":
+			return LogService.LOG_ERROR;
+		default:
+			return LogService.LOG_INFO;
+		}
+	}
+	
 	/**
 	 * handles all PMW-internal logging needs
-	 * @param reader
+	 * @param e
 	 */
-	@Reference
-	void setLogReader(LogReaderService reader) {
-		reader.addLogListener(e -> {
-			String msg = e.getMessage();
-			// suppress framework messages
-			if(SUPPRESS_FRAMEWORK_MESSAGES && (msg.startsWith("ServiceEvent") || msg.startsWith("BundleEvent") || msg.startsWith("FrameworkEvent"))) {
-				return;
-			}
-			
-			// enforce correct log level
-			int level = e.getLevel();
-			if(LOG_LEVEL < level) {
-				return;
-			}
-			
-			switch (level) {
-			case LogService.LOG_DEBUG:
-				System.out.println("[DEBUG] " + msg);
-				break;
-			case LogService.LOG_INFO:
-				System.out.println("[INFO] " + msg);
-				break;
-			case LogService.LOG_WARNING:
-				System.out.println("[WARNING] " + msg);
-				break;
-			case LogService.LOG_ERROR:
-				System.err.println("[ERROR] " + msg);
-				break;
-			}
-		});
+	private void logged(LogEntry e) {
+		String msg = e.getMessage();
+		// suppress framework messages
+		if(SUPPRESS_FRAMEWORK_MESSAGES && (msg.startsWith("ServiceEvent") || msg.startsWith("BundleEvent") || msg.startsWith("FrameworkEvent"))) {
+			return;
+		}
+		
+		// enforce correct log level
+		int level = e.getLevel();
+		if(LOG_LEVEL < level) {
+			return;
+		}
+		
+		this.logSink.offer(level, msg);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package de.bioforscher.pmw.application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.service.log.LogService;
+
+import junit.framework.TestCase;
+
+public class AsyncLogSinkTest extends TestCase {
+	private static final int PRODUCERS = 8;
+	private static final int MESSAGES_PER_PRODUCER = 20000;
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+	private final PrintStream out = new PrintStream(this.output, true);
+
+	public void testConcurrentProducers() throws InterruptedException {
+		AsyncLogSink sink = new AsyncLogSink(1 << 10, this.out, this.out);
+		sink.start();
+		AtomicLong offered = new AtomicLong();
+		runProducers(sink, offered, null);
+		sink.stop();
+
+		assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, sink.getAcceptedCount() + sink.getDroppedCount());
+		assertEquals(offered.get(), sink.getAcceptedCount());
+		assertEquals(sink.getAcceptedCount(), sink.getWrittenCount());
+		// each accepted message is written exactly once
+		List<String> messages = writtenMessages();
+		assertEquals(sink.getWrittenCount(), messages.size());
+		assertEquals(messages.size(), new HashSet<>(messages).size());
+	}
+
+	public void testStopWhileProducing() throws InterruptedException {
+		for(int run = 0; run < 20; run++) {
+			this.output.reset();
+			AsyncLogSink sink = new AsyncLogSink(1 << 12, this.out, this.out);
+			sink.start();
+			AtomicLong offered = new AtomicLong();
+			CountDownLatch producing = new CountDownLatch(1);
+			Thread stopper = new Thread(() -> {
+				try {
+					producing.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				sink.stop();
+			});
+			stopper.start();
+			runProducers(sink, offered, producing);
+			stopper.join();
+
+			// messages accepted concurrently to stop() must not be lost
+			assertEquals(PRODUCERS * MESSAGES_PER_PRODUCER, sink.getAcceptedCount() + sink.getDroppedCount());
+			assertEquals(offered.get(), sink.getAcceptedCount());
+			assertEquals(sink.getAcceptedCount(), sink.getWrittenCount());
+			assertEquals(sink.getWrittenCount(), writtenMessages().size());
+		}
+	}
+
+	public void testFullBuffer() {
+		AsyncLogSink sink = new AsyncLogSink(3, this.out, this.out);
+		// not started, so nothing is drained
+		for(int i = 0; i < 10; i++) {
+			assertEquals(i < 4, sink.offer(LogService.LOG_INFO, "message " + i));
+		}
+		assertEquals(4, sink.getAcceptedCount());
+		assertEquals(6, sink.getDroppedCount());
+		sink.start();
+		sink.stop();
+		assertEquals(4, sink.getWrittenCount());
+		assertEquals(Arrays.asList("message 0", "message 1", "message 2", "message 3"), writtenMessages());
+		assertTrue(new String(this.output.toByteArray(), StandardCharsets.UTF_8).contains("dropped 6 messages"));
+		assertFalse(sink.offer(LogService.LOG_INFO, "after stop"));
+		assertEquals(7, sink.getDroppedCount());
+	}
+
+	/**
+	 * @param producing if not <code>null</code>, counted down once the producers run
+	 */
+	private void runProducers(AsyncLogSink sink, AtomicLong offered, CountDownLatch producing) throws InterruptedException {
+		List<Thread> producers = new ArrayList<>();
+		for(int p = 0; p < PRODUCERS; p++) {
+			int producer = p;
+			producers.add(new Thread(() -> {
+				for(int i = 0; i < MESSAGES_PER_PRODUCER; i++) {
+					if(sink.offer(LogService.LOG_INFO, producer + ":" + i)) {
+						offered.incrementAndGet();
+					}
+					if(producing != null && i == MESSAGES_PER_PRODUCER / 2) {
+						producing.countDown();
+					}
+				}
+			}));
+		}
+		producers.forEach(Thread::start);
+		for(Thread producer : producers) {
+			producer.join();
+		}
+	}
+
+	/**
+	 * @return the written messages without level and without reports of dropped messages
+	 */
+	private List<String> writtenMessages() {
+		List<String> messages = new ArrayList<>();
+		for(String line : new String(this.output.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator())) {
+			if(line.startsWith("[INFO] ")) {
+				messages.add(line.substring("[INFO] ".length()));
+			}
+		}
+		return messages;
+	}
+}
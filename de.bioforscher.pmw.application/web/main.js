@@ -113,9 +113,12 @@
 				$scope.proteins = project.proteins;
 				$scope.date = project.date;
 //				$scope.sequence = project.sequence;
-				// join all atom pdbRepresentations to one linked to the protein object
-				composePdbRepresentation(project.proteins[0]);
 				$scope.protein = project.proteins[0];
+				// the PDB representation is composed by the back-end on demand
+				return $http.get('/rest/pdb/' + project._id);
+			}).then(function (d) {
+				$scope.protein.pdbRepresentation = d.data;
+				$scope.pdbRecords = $scope.protein.pdbRepresentation.split("\n");
 				visualizeProteinStructure();
 				
 				// kick off scrollbar of the sequence/pdb part
@@ -127,20 +130,6 @@
 			});
 		};
 		
-		// join all atom pdbRepresentations to one linked to the protein object
-		composePdbRepresentation = function (protein) {
-			//TODO this could be realized faster using other/sophisticated approaches
-			var rep = "";
-			protein.chains.forEach(function(chain) {
-				chain.residues.forEach(function(residue) {
-					residue.atoms.forEach(function(atom) {
-						rep += atom.pdbRepresentation + "\n";
-					});
-				});
-			});
-			protein.pdbRepresentation = rep;
-		};
-		
 		/* request feature computation */
 		this.feature = function(value) {
 			// check if this computation is reasonable
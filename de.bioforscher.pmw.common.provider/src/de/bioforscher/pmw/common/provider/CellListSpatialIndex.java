@@ -0,0 +1,240 @@
+package de.bioforscher.pmw.common.provider;
+
+import java.util.Arrays;
+
+import de.bioforscher.pmw.api.SpatialIndex;
+
+/**
+ * Spatial index based on a uniform grid (cell list): the bounding box of all points is divided into cubic cells and the
+ * points are sorted by their cell (counting sort, so points of one cell remain in ascending order). Queries only visit
+ * the cells overlapping the query sphere, hence queries of about the cell size take constant time and enumerating all
+ * pairs within such a distance takes linear time.
+ * @author S
+ *
+ */
+public class CellListSpatialIndex implements SpatialIndex {
+	/**
+	 * bounds the number of cells for sparse point sets - the cell size grows accordingly
+	 */
+	private static final int MAXIMAL_CELLS_PER_POINT = 8;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final int count;
+	private final double requestedCellSize;
+
+	private double cellSize;
+	private double minX;
+	private double minY;
+	private double minZ;
+	private double maxX;
+	private double maxY;
+	private double maxZ;
+	private int cellsX;
+	private int cellsY;
+	private int cellsZ;
+	/**
+	 * the points of cell <code>c</code> are found at <code>[cellStarts[c], cellStarts[c + 1])</code> of <code>cellPoints</code>
+	 */
+	private int[] cellStarts;
+	private int[] cellPoints;
+
+	public CellListSpatialIndex(double[] x, double[] y, double[] z, int count, double cellSize) {
+		if(!(cellSize > 0)) {
+			throw new IllegalArgumentException("cell size must be positive - found " + cellSize);
+		}
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.count = count;
+		this.requestedCellSize = cellSize;
+		this.cellPoints = new int[count];
+		rebuild();
+	}
+
+	@Override
+	public int size() {
+		return this.count;
+	}
+
+	@Override
+	public void rebuild() {
+		this.minX = this.minY = this.minZ = Double.POSITIVE_INFINITY;
+		this.maxX = this.maxY = this.maxZ = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < this.count; i++) {
+			this.minX = Math.min(this.minX, this.x[i]);
+			this.minY = Math.min(this.minY, this.y[i]);
+			this.minZ = Math.min(this.minZ, this.z[i]);
+			this.maxX = Math.max(this.maxX, this.x[i]);
+			this.maxY = Math.max(this.maxY, this.y[i]);
+			this.maxZ = Math.max(this.maxZ, this.z[i]);
+		}
+		if(this.count == 0) {
+			this.minX = this.minY = this.minZ = this.maxX = this.maxY = this.maxZ = 0;
+		}
+
+		this.cellSize = this.requestedCellSize;
+		long maximalCells = Math.max(1L, (long) this.count * MAXIMAL_CELLS_PER_POINT);
+		while(true) {
+			this.cellsX = (int) ((this.maxX - this.minX) / this.cellSize) + 1;
+			this.cellsY = (int) ((this.maxY - this.minY) / this.cellSize) + 1;
+			this.cellsZ = (int) ((this.maxZ - this.minZ) / this.cellSize) + 1;
+			if((long) this.cellsX * this.cellsY * this.cellsZ <= maximalCells) {
+				break;
+			}
+			this.cellSize *= 2;
+		}
+
+		int cells = this.cellsX * this.cellsY * this.cellsZ;
+		if(this.cellStarts == null || this.cellStarts.length != cells + 1) {
+			this.cellStarts = new int[cells + 1];
+		} else {
+			Arrays.fill(this.cellStarts, 0);
+		}
+		// counting sort by cell
+		int[] cellOfPoint = new int[this.count];
+		for(int i = 0; i < this.count; i++) {
+			cellOfPoint[i] = cell(cell(this.x[i], this.minX, this.cellsX), cell(this.y[i], this.minY, this.cellsY), cell(this.z[i], this.minZ, this.cellsZ));
+			this.cellStarts[cellOfPoint[i] + 1]++;
+		}
+		for(int c = 0; c < cells; c++) {
+			this.cellStarts[c + 1] += this.cellStarts[c];
+		}
+		int[] cursors = Arrays.copyOf(this.cellStarts, cells);
+		for(int i = 0; i < this.count; i++) {
+			this.cellPoints[cursors[cellOfPoint[i]]++] = i;
+		}
+	}
+
+	@Override
+	public int[] withinRadius(double px, double py, double pz, double radius) {
+		final double radiusSquared = radius * radius;
+		int[] result = new int[16];
+		int resultCount = 0;
+		final int fromX = cell(px - radius, this.minX, this.cellsX), toX = cell(px + radius, this.minX, this.cellsX);
+		final int fromY = cell(py - radius, this.minY, this.cellsY), toY = cell(py + radius, this.minY, this.cellsY);
+		final int fromZ = cell(pz - radius, this.minZ, this.cellsZ), toZ = cell(pz + radius, this.minZ, this.cellsZ);
+		for(int cx = fromX; cx <= toX; cx++) {
+			for(int cy = fromY; cy <= toY; cy++) {
+				for(int cz = fromZ; cz <= toZ; cz++) {
+					int c = cell(cx, cy, cz);
+					for(int p = this.cellStarts[c]; p < this.cellStarts[c + 1]; p++) {
+						int i = this.cellPoints[p];
+						if(squaredDistance(i, px, py, pz) <= radiusSquared) {
+							if(resultCount == result.length) {
+								result = Arrays.copyOf(result, resultCount << 1);
+							}
+							result[resultCount++] = i;
+						}
+					}
+				}
+			}
+		}
+		result = Arrays.copyOf(result, resultCount);
+		Arrays.sort(result);
+		return result;
+	}
+
+	@Override
+	public int[] nearest(double px, double py, double pz, int k) {
+		if(k <= 0 || this.count == 0) {
+			return new int[0];
+		}
+		// all points are within this distance
+		final double dx = Math.max(Math.abs(px - this.minX), Math.abs(px - this.maxX));
+		final double dy = Math.max(Math.abs(py - this.minY), Math.abs(py - this.maxY));
+		final double dz = Math.max(Math.abs(pz - this.minZ), Math.abs(pz - this.maxZ));
+		final double maximalRadius = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		// grow the search sphere until it contains k points - these include the k nearest ones
+		double radius = this.cellSize;
+		int[] candidates = withinRadius(px, py, pz, radius);
+		while(candidates.length < k) {
+			if(radius >= maximalRadius) {
+				// there are less than k points - take all of them
+				candidates = withinRadius(px, py, pz, Double.POSITIVE_INFINITY);
+				break;
+			}
+			radius *= 2;
+			candidates = withinRadius(px, py, pz, radius);
+		}
+
+		final double[] distances = new double[candidates.length];
+		Integer[] order = new Integer[candidates.length];
+		for(int c = 0; c < candidates.length; c++) {
+			distances[c] = squaredDistance(candidates[c], px, py, pz);
+			order[c] = c;
+		}
+		// candidates are in ascending order, so the stable sort breaks ties by index
+		Arrays.sort(order, (c1, c2) -> Double.compare(distances[c1], distances[c2]));
+		int[] result = new int[Math.min(k, candidates.length)];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = candidates[order[i]];
+		}
+		return result;
+	}
+
+	@Override
+	public int[] pairsWithin(double cutoff) {
+		final double cutoffSquared = cutoff * cutoff;
+		final int range = (int) Math.ceil(cutoff / this.cellSize);
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		for(int cx = 0; cx < this.cellsX; cx++) {
+			for(int cy = 0; cy < this.cellsY; cy++) {
+				for(int cz = 0; cz < this.cellsZ; cz++) {
+					final int c = cell(cx, cy, cz);
+					if(this.cellStarts[c] == this.cellStarts[c + 1]) {
+						continue;
+					}
+					for(int nx = Math.max(0, cx - range); nx <= Math.min(this.cellsX - 1, cx + range); nx++) {
+						for(int ny = Math.max(0, cy - range); ny <= Math.min(this.cellsY - 1, cy + range); ny++) {
+							for(int nz = Math.max(0, cz - range); nz <= Math.min(this.cellsZ - 1, cz + range); nz++) {
+								final int n = cell(nx, ny, nz);
+								// each pair of cells is visited once
+								if(n < c) {
+									continue;
+								}
+								for(int p = this.cellStarts[c]; p < this.cellStarts[c + 1]; p++) {
+									final int i = this.cellPoints[p];
+									for(int q = n == c ? p + 1 : this.cellStarts[n]; q < this.cellStarts[n + 1]; q++) {
+										final int j = this.cellPoints[q];
+										if(squaredDistance(j, this.x[i], this.y[i], this.z[i]) <= cutoffSquared) {
+											if(pairCount == pairs.length) {
+												pairs = Arrays.copyOf(pairs, pairCount << 1);
+											}
+											pairs[pairCount++] = i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+										}
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		Arrays.sort(pairs, 0, pairCount);
+		int[] result = new int[2 * pairCount];
+		for(int p = 0; p < pairCount; p++) {
+			result[2 * p] = (int) (pairs[p] >>> 32);
+			result[2 * p + 1] = (int) pairs[p];
+		}
+		return result;
+	}
+
+	private int cell(double coordinate, double min, int cells) {
+		int cell = (int) Math.floor((coordinate - min) / this.cellSize);
+		return cell < 0 ? 0 : cell >= cells ? cells - 1 : cell;
+	}
+
+	private int cell(int cx, int cy, int cz) {
+		return (cx * this.cellsY + cy) * this.cellsZ + cz;
+	}
+
+	/**
+	 * same order of evaluation as {@link GeometryKernelsImpl}
+	 */
+	private double squaredDistance(int i, double px, double py, double pz) {
+		return (px - this.x[i]) * (px - this.x[i]) + (py - this.y[i]) * (py - this.y[i]) + (pz - this.z[i]) * (pz - this.z[i]);
+	}
+}
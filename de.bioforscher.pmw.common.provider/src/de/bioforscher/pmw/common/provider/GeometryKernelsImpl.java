@@ -0,0 +1,130 @@
+package de.bioforscher.pmw.common.provider;
+
+import org.osgi.service.component.annotations.Component;
+
+import de.bioforscher.pmw.api.GeometryKernels;
+
+/**
+ * Scalar implementation of the geometry kernels. Loops are unrolled by 4 and work on the column-wise coordinates
+ * without bounds-changing indirections, so the JIT can keep the block in registers and apply superword
+ * vectorization where the platform supports it.
+ * @author S
+ *
+ */
+@Component(name = "de.bioforscher.pmw.geometry.kernels")
+public class GeometryKernelsImpl implements GeometryKernels {
+	private static final int UNROLL = 4;
+
+	@Override
+	public void transform(double[] x, double[] y, double[] z, int from, int to, double[] translation, double[][] rotation) {
+		final double r00 = rotation[0][0], r01 = rotation[0][1], r02 = rotation[0][2];
+		final double r10 = rotation[1][0], r11 = rotation[1][1], r12 = rotation[1][2];
+		final double r20 = rotation[2][0], r21 = rotation[2][1], r22 = rotation[2][2];
+		final double tx = translation[0], ty = translation[1], tz = translation[2];
+		for(int i = from; i < to; i++) {
+			final double xi = x[i];
+			final double yi = y[i];
+			final double zi = z[i];
+			x[i] = r00 * xi + r01 * yi + r02 * zi + tx;
+			y[i] = r10 * xi + r11 * yi + r12 * zi + ty;
+			z[i] = r20 * xi + r21 * yi + r22 * zi + tz;
+		}
+	}
+
+	@Override
+	public void distances(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] result) {
+		squaredDistances(x, y, z, from, to, px, py, pz, result);
+		for(int i = 0; i < to - from; i++) {
+			result[i] = Math.sqrt(result[i]);
+		}
+	}
+
+	@Override
+	public void squaredDistances(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] result) {
+		int i = from;
+		for(; i + UNROLL <= to; i += UNROLL) {
+			result[i - from] = squaredDistance(x[i], y[i], z[i], px, py, pz);
+			result[i - from + 1] = squaredDistance(x[i + 1], y[i + 1], z[i + 1], px, py, pz);
+			result[i - from + 2] = squaredDistance(x[i + 2], y[i + 2], z[i + 2], px, py, pz);
+			result[i - from + 3] = squaredDistance(x[i + 3], y[i + 3], z[i + 3], px, py, pz);
+		}
+		for(; i < to; i++) {
+			result[i - from] = squaredDistance(x[i], y[i], z[i], px, py, pz);
+		}
+	}
+
+	@Override
+	public int withinCutoff(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double cutoffSquared, long[] mask) {
+		int words = (to - from + 63) >>> 6;
+		int count = 0;
+		for(int word = 0; word < words; word++) {
+			int start = from + (word << 6);
+			int end = Math.min(start + 64, to);
+			long bits = 0;
+			for(int i = start; i < end; i++) {
+				// branch-free - the comparison is turned into a bit
+				long within = squaredDistance(x[i], y[i], z[i], px, py, pz) < cutoffSquared ? 1L : 0L;
+				bits |= within << (i - start);
+			}
+			mask[word] = bits;
+			count += Long.bitCount(bits);
+		}
+		return count;
+	}
+
+	@Override
+	public int firstWithin(double[] x, double[] y, double[] z, int from, int to, double px, double py, double pz, double[] cutoffsSquared) {
+		int i = from;
+		for(; i + UNROLL <= to; i += UNROLL) {
+			boolean within0 = squaredDistance(x[i], y[i], z[i], px, py, pz) < cutoffsSquared[i];
+			boolean within1 = squaredDistance(x[i + 1], y[i + 1], z[i + 1], px, py, pz) < cutoffsSquared[i + 1];
+			boolean within2 = squaredDistance(x[i + 2], y[i + 2], z[i + 2], px, py, pz) < cutoffsSquared[i + 2];
+			boolean within3 = squaredDistance(x[i + 3], y[i + 3], z[i + 3], px, py, pz) < cutoffsSquared[i + 3];
+			// test the whole block at once, resolve the exact index only on a hit
+			if(within0 | within1 | within2 | within3) {
+				return within0 ? i : within1 ? i + 1 : within2 ? i + 2 : i + 3;
+			}
+		}
+		for(; i < to; i++) {
+			if(squaredDistance(x[i], y[i], z[i], px, py, pz) < cutoffsSquared[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void dotProducts(double[] x, double[] y, double[] z, int from, int to, double vx, double vy, double vz, double[] result) {
+		int i = from;
+		for(; i + UNROLL <= to; i += UNROLL) {
+			result[i - from] = vx * x[i] + vy * y[i] + vz * z[i];
+			result[i - from + 1] = vx * x[i + 1] + vy * y[i + 1] + vz * z[i + 1];
+			result[i - from + 2] = vx * x[i + 2] + vy * y[i + 2] + vz * z[i + 2];
+			result[i - from + 3] = vx * x[i + 3] + vy * y[i + 3] + vz * z[i + 3];
+		}
+		for(; i < to; i++) {
+			result[i - from] = vx * x[i] + vy * y[i] + vz * z[i];
+		}
+	}
+
+	@Override
+	public double[] centroid(double[] x, double[] y, double[] z, int from, int to) {
+		double sumX = 0;
+		double sumY = 0;
+		double sumZ = 0;
+		for(int i = from; i < to; i++) {
+			sumX += x[i];
+			sumY += y[i];
+			sumZ += z[i];
+		}
+		int count = to - from;
+		return new double[] { sumX / count, sumY / count, sumZ / count };
+	}
+
+	/**
+	 * same order of evaluation as {@link LinearAlgebraImpl#distanceFast(double[], double[])}
+	 */
+	private static double squaredDistance(double x, double y, double z, double px, double py, double pz) {
+		return (px - x) * (px - x) + (py - y) * (py - y) + (pz - z) * (pz - z);
+	}
+}
@@ -4,7 +4,9 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
 import de.bioforscher.pmw.api.LinearAlgebra;
+import de.bioforscher.pmw.api.Mat3;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.Vec3;
 
 @Component(name = "de.bioforscher.pmw.linear.algebra")
 public class LinearAlgebraImpl implements LinearAlgebra {
@@ -15,6 +17,14 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 	public double[] add(double[] v1, double[] v2) {
 		return new double[] { v1[0] + v2[0], v1[1] + v2[1], v1[2] + v2[2] };
 	}
+	
+	@Override
+	public double[] add(double[] v1, double[] v2, double[] result) {
+		result[0] = v1[0] + v2[0];
+		result[1] = v1[1] + v2[1];
+		result[2] = v1[2] + v2[2];
+		return result;
+	}
 
 	@Override
 	public double angle(double[] v1, double[] v2) {
@@ -73,6 +83,14 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 		return new double[] { v[0] * scalar, v[1] * scalar, v[2] * scalar};
 	}
 	
+	@Override
+	public double[] multiply(double[] v, double scalar, double[] result) {
+		result[0] = v[0] * scalar;
+		result[1] = v[1] * scalar;
+		result[2] = v[2] * scalar;
+		return result;
+	}
+	
 	@Override
 	public double[] multiply(double[] v, double[][] m) {
 		//TODO maybe some dedicated version for 3d vectors would be nice
@@ -99,6 +117,15 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 		double length = norm(v);
 		return new double[] { v[0] / length, v[1] / length, v[2] / length };
 	}
+	
+	@Override
+	public double[] normalize(double[] v, double[] result) {
+		double length = norm(v);
+		result[0] = v[0] / length;
+		result[1] = v[1] / length;
+		result[2] = v[2] / length;
+		return result;
+	}
 
 	@Override
 	public double[][] rotation(double[] v1, double[] v2, double[] v3) {
@@ -113,6 +140,20 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 	    		difference13m[0] * difference13p[1] - difference13m[1] * difference13p[0]
 	    	}};
 	}
+	
+	@Override
+	public Mat3 rotation(double[] v1, double[] v2, double[] v3, Mat3 result) {
+		// local scratch objects do not escape and, thus, are not allocated on the heap after compilation
+		Vec3 difference21 = new Vec3().difference(v2, v1).normalize();
+		Vec3 difference23 = new Vec3().difference(v2, v3).normalize();
+		Vec3 difference13m = new Vec3().set(difference21).subtract(difference23).normalize();
+		Vec3 difference13p = difference21.add(difference23).normalize();
+		
+		result.setRow(0, difference13m.x, difference13m.y, difference13m.z);
+		result.setRow(1, difference13p.x, difference13p.y, difference13p.z);
+		Vec3 normal = difference23.cross(difference13m, difference13p);
+		return result.setRow(2, normal.x, normal.y, normal.z);
+	}
 
 	@Override
 	public double[] transform(double[] vector, double[] translation, double[][] rotation) {
@@ -123,6 +164,17 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 		return result;
 	}
 	
+	@Override
+	public double[] transform(double[] vector, double[] translation, double[][] rotation, double[] result) {
+		double x = vector[0];
+		double y = vector[1];
+		double z = vector[2];
+		result[0] = (rotation[0][0] * x + rotation[0][1] * y + rotation[0][2] * z) + translation[0];
+		result[1] = (rotation[1][0] * x + rotation[1][1] * y + rotation[1][2] * z) + translation[1];
+		result[2] = (rotation[2][0] * x + rotation[2][1] * y + rotation[2][2] * z) + translation[2];
+		return result;
+	}
+	
 //	@Override
 //	public double[] transform(double[] v, double[] translation, double[][] rotation) {
 //		return add(multiply(v, rotation), translation);
@@ -132,6 +184,14 @@ public class LinearAlgebraImpl implements LinearAlgebra {
 	public double[] subtract(double[] v1, double[] v2) {
 		return new double[] { v1[0] - v2[0], v1[1] - v2[1], v1[2] - v2[2] };
 	}
+	
+	@Override
+	public double[] subtract(double[] v1, double[] v2, double[] result) {
+		result[0] = v1[0] - v2[0];
+		result[1] = v1[1] - v2[1];
+		result[2] = v1[2] - v2[2];
+		return result;
+	}
 
 	@Override
 	public double torsionAngle(double[] v1, double[] v2, double[] v3, double[] v4) {
@@ -0,0 +1,19 @@
+package de.bioforscher.pmw.common.provider;
+
+import org.osgi.service.component.annotations.Component;
+
+import de.bioforscher.pmw.api.SpatialIndex;
+import de.bioforscher.pmw.api.SpatialIndexService;
+
+/**
+ * Provides cell list based spatial indices.
+ * @author S
+ *
+ */
+@Component(name = "de.bioforscher.pmw.spatial.index")
+public class SpatialIndexServiceImpl implements SpatialIndexService {
+	@Override
+	public SpatialIndex createIndex(double[] x, double[] y, double[] z, int count, double cellSize) {
+		return new CellListSpatialIndex(x, y, z, count, cellSize);
+	}
+}
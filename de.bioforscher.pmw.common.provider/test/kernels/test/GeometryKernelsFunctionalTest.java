@@ -0,0 +1,98 @@
+package kernels.test;
+
+import java.util.Random;
+
+import de.bioforscher.pmw.common.provider.GeometryKernelsImpl;
+import de.bioforscher.pmw.common.provider.LinearAlgebraImpl;
+import junit.framework.TestCase;
+
+public class GeometryKernelsFunctionalTest extends TestCase {
+	// not a multiple of the unrolling, so the remainder loops are covered as well
+	private static final int POINT_COUNT = 103;
+	private static final int FROM = 2;
+	private final GeometryKernelsImpl geometryKernels = new GeometryKernelsImpl();
+	private final LinearAlgebraImpl linearAlgebra = new LinearAlgebraImpl();
+	private double[][] points;
+	private double[] x;
+	private double[] y;
+	private double[] z;
+
+	@Override
+	protected void setUp() throws Exception {
+		Random random = new Random(42);
+		this.points = new double[POINT_COUNT][];
+		this.x = new double[POINT_COUNT];
+		this.y = new double[POINT_COUNT];
+		this.z = new double[POINT_COUNT];
+		for(int i = 0; i < POINT_COUNT; i++) {
+			this.points[i] = new double[] { random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20 };
+			this.x[i] = this.points[i][0];
+			this.y[i] = this.points[i][1];
+			this.z[i] = this.points[i][2];
+		}
+	}
+
+	public void testTransform() {
+		double[] translation = { 1.5, -2.0, 3.25 };
+		double[][] rotation = this.linearAlgebra.rotation(new double[] { 0.3, 0.8, -0.2 }, new double[] { 1, 2, 3 }, new double[] { -1, 0.5, 2 });
+		this.geometryKernels.transform(this.x, this.y, this.z, FROM, POINT_COUNT, translation, rotation);
+		for(int i = 0; i < POINT_COUNT; i++) {
+			double[] expected = i < FROM ? this.points[i] : this.linearAlgebra.transform(this.points[i], translation, rotation);
+			assertEquals(expected[0], this.x[i], 0.0);
+			assertEquals(expected[1], this.y[i], 0.0);
+			assertEquals(expected[2], this.z[i], 0.0);
+		}
+	}
+
+	public void testDistances() {
+		double[] point = { 0.5, 1.0, -3.0 };
+		double[] distances = new double[POINT_COUNT - FROM];
+		double[] squaredDistances = new double[POINT_COUNT - FROM];
+		this.geometryKernels.distances(this.x, this.y, this.z, FROM, POINT_COUNT, point[0], point[1], point[2], distances);
+		this.geometryKernels.squaredDistances(this.x, this.y, this.z, FROM, POINT_COUNT, point[0], point[1], point[2], squaredDistances);
+		for(int i = FROM; i < POINT_COUNT; i++) {
+			assertEquals(this.linearAlgebra.distance(this.points[i], point), distances[i - FROM], 0.0);
+			assertEquals(this.linearAlgebra.distanceFast(this.points[i], point), squaredDistances[i - FROM], 0.0);
+		}
+	}
+
+	public void testCutoffs() {
+		double[] point = { 0.5, 1.0, -3.0 };
+		double cutoffSquared = 15 * 15;
+		long[] mask = new long[(POINT_COUNT - FROM + 63) / 64];
+		int count = this.geometryKernels.withinCutoff(this.x, this.y, this.z, FROM, POINT_COUNT, point[0], point[1], point[2], cutoffSquared, mask);
+		int expectedCount = 0;
+		for(int i = FROM; i < POINT_COUNT; i++) {
+			boolean within = this.linearAlgebra.distanceFast(this.points[i], point) < cutoffSquared;
+			assertEquals(within, (mask[(i - FROM) >>> 6] & (1L << (i - FROM))) != 0);
+			expectedCount += within ? 1 : 0;
+		}
+		assertEquals(expectedCount, count);
+		assertTrue(count > 0 && count < POINT_COUNT - FROM);
+
+		double[] cutoffsSquared = new double[POINT_COUNT];
+		assertEquals(-1, this.geometryKernels.firstWithin(this.x, this.y, this.z, FROM, POINT_COUNT, point[0], point[1], point[2], cutoffsSquared));
+		cutoffsSquared[POINT_COUNT - 2] = Double.POSITIVE_INFINITY;
+		cutoffsSquared[POINT_COUNT - 6] = Double.POSITIVE_INFINITY;
+		assertEquals(POINT_COUNT - 6, this.geometryKernels.firstWithin(this.x, this.y, this.z, FROM, POINT_COUNT, point[0], point[1], point[2], cutoffsSquared));
+	}
+
+	public void testProjections() {
+		double[] vector = this.linearAlgebra.normalize(new double[] { 1, -2, 0.5 });
+		double[] projections = new double[POINT_COUNT - FROM];
+		this.geometryKernels.dotProducts(this.x, this.y, this.z, FROM, POINT_COUNT, vector[0], vector[1], vector[2], projections);
+		for(int i = FROM; i < POINT_COUNT; i++) {
+			assertEquals(this.linearAlgebra.dotProduct(vector, this.points[i]), projections[i - FROM], 0.0);
+		}
+
+		double[] centroid = this.geometryKernels.centroid(this.x, this.y, this.z, FROM, POINT_COUNT);
+		double[] expected = new double[3];
+		for(int i = FROM; i < POINT_COUNT; i++) {
+			expected = this.linearAlgebra.add(expected, this.points[i]);
+		}
+		expected = this.linearAlgebra.divide(expected, POINT_COUNT - FROM);
+		assertEquals(expected[0], centroid[0], 1e-12);
+		assertEquals(expected[1], centroid[1], 1e-12);
+		assertEquals(expected[2], centroid[2], 1e-12);
+	}
+}
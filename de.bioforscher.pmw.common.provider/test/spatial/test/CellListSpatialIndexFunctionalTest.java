@@ -0,0 +1,115 @@
+package spatial.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import de.bioforscher.pmw.api.SpatialIndex;
+import de.bioforscher.pmw.common.provider.SpatialIndexServiceImpl;
+import junit.framework.TestCase;
+
+public class CellListSpatialIndexFunctionalTest extends TestCase {
+	private static final int POINT_COUNT = 500;
+	private static final double CELL_SIZE = 3.0;
+	private final Random random = new Random(42);
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private SpatialIndex index;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.x = new double[POINT_COUNT];
+		this.y = new double[POINT_COUNT];
+		this.z = new double[POINT_COUNT];
+		for(int i = 0; i < POINT_COUNT; i++) {
+			this.x[i] = this.random.nextDouble() * 40 - 20;
+			this.y[i] = this.random.nextDouble() * 30 - 10;
+			this.z[i] = this.random.nextDouble() * 20;
+		}
+		this.index = new SpatialIndexServiceImpl().createIndex(this.x, this.y, this.z, POINT_COUNT, CELL_SIZE);
+	}
+
+	public void testWithinRadius() {
+		for(int query = 0; query < 100; query++) {
+			double[] point = randomPoint();
+			double radius = this.random.nextDouble() * 10;
+			assertTrue(Arrays.equals(bruteForceWithinRadius(point, radius), this.index.withinRadius(point[0], point[1], point[2], radius)));
+		}
+	}
+
+	public void testNearest() {
+		for(int query = 0; query < 100; query++) {
+			double[] point = randomPoint();
+			int k = 1 + this.random.nextInt(20);
+			assertTrue(Arrays.equals(bruteForceNearest(point, k), this.index.nearest(point[0], point[1], point[2], k)));
+		}
+		// more points requested than indexed
+		assertEquals(POINT_COUNT, this.index.nearest(100, 100, 100, POINT_COUNT + 1).length);
+	}
+
+	public void testPairsWithin() {
+		for(double cutoff : new double[] { 1.5, CELL_SIZE, 7.0 }) {
+			assertTrue(Arrays.equals(bruteForcePairsWithin(cutoff), this.index.pairsWithin(cutoff)));
+		}
+	}
+
+	public void testRebuild() {
+		for(int i = 0; i < POINT_COUNT; i++) {
+			this.x[i] *= 2;
+			this.z[i] -= 50;
+		}
+		this.index.rebuild();
+		testWithinRadius();
+		testPairsWithin();
+	}
+
+	public void testEmptyIndex() {
+		SpatialIndex emptyIndex = new SpatialIndexServiceImpl().createIndex(new double[0], new double[0], new double[0], 0, CELL_SIZE);
+		assertEquals(0, emptyIndex.withinRadius(0, 0, 0, 10).length);
+		assertEquals(0, emptyIndex.nearest(0, 0, 0, 3).length);
+		assertEquals(0, emptyIndex.pairsWithin(10).length);
+	}
+
+	private double[] randomPoint() {
+		return new double[] { this.random.nextDouble() * 50 - 25, this.random.nextDouble() * 40 - 15, this.random.nextDouble() * 30 - 5 };
+	}
+
+	private double squaredDistance(int i, double[] point) {
+		return (point[0] - this.x[i]) * (point[0] - this.x[i]) + (point[1] - this.y[i]) * (point[1] - this.y[i]) + (point[2] - this.z[i]) * (point[2] - this.z[i]);
+	}
+
+	private int[] bruteForceWithinRadius(double[] point, double radius) {
+		List<Integer> result = new ArrayList<>();
+		for(int i = 0; i < POINT_COUNT; i++) {
+			if(squaredDistance(i, point) <= radius * radius) {
+				result.add(i);
+			}
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private int[] bruteForceNearest(double[] point, int k) {
+		List<Integer> result = new ArrayList<>();
+		for(int i = 0; i < POINT_COUNT; i++) {
+			result.add(i);
+		}
+		result.sort(Comparator.comparingDouble((Integer i) -> squaredDistance(i, point)).thenComparingInt(i -> i));
+		return result.stream().limit(k).mapToInt(Integer::intValue).toArray();
+	}
+
+	private int[] bruteForcePairsWithin(double cutoff) {
+		List<Integer> result = new ArrayList<>();
+		for(int i = 0; i < POINT_COUNT; i++) {
+			for(int j = i + 1; j < POINT_COUNT; j++) {
+				if(squaredDistance(j, new double[] { this.x[i], this.y[i], this.z[i] }) <= cutoff * cutoff) {
+					result.add(i);
+					result.add(j);
+				}
+			}
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+}
@@ -14,6 +14,7 @@ import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.Annotator;
 import de.bioforscher.pmw.feature.extractor.core.InplaceExecution;
 import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.FeatureMatrix;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.Residue;
@@ -68,6 +69,7 @@ public class DSSP extends AbstractFeatureProvider implements InplaceExecution, A
 
 	@Override
 	public void parse(Protein protein, File outputFile) throws IOException {
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
 		for (String line : Files.readAllLines(outputFile.toPath())) {
             if (line.length() != 136 || line.charAt(13) == '!') {
                 continue;
@@ -75,8 +77,8 @@ public class DSSP extends AbstractFeatureProvider implements InplaceExecution, A
             try {
                 Chain chain = protein.chains.stream().filter(findChain(line)).findFirst().get();
                 Residue residue = chain.residues.stream().filter(findResidue(line)).findFirst().get();
-                residue.features.put(FeatureType.SECONDARY_STRUCTURE.name(), wrapInArray(Character.getNumericValue(line.substring(16, 17).charAt(0))));
-                residue.features.put(FeatureType.ACCESSIBLE_SURFACE_AREA.name(), wrapInArray(Double.parseDouble(line.substring(34, 38).trim())));
+                featureMatrix.setValue(FeatureType.SECONDARY_STRUCTURE, residue, Character.getNumericValue(line.substring(16, 17).charAt(0)));
+                featureMatrix.setValue(FeatureType.ACCESSIBLE_SURFACE_AREA, residue, Double.parseDouble(line.substring(34, 38).trim()));
             } catch (NoSuchElementException e) {
 //                e.printStackTrace();
                 System.err.println("parsing dssp results failed for: " + line);
@@ -1,14 +1,20 @@
 package de.bioforscher.pmw.feature.extractor.asa;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
+import de.bioforscher.pmw.api.GeometryKernels;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.SpatialIndex;
+import de.bioforscher.pmw.api.SpatialIndexService;
 import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.Annotator;
 import de.bioforscher.pmw.feature.extractor.core.Element;
@@ -37,13 +43,55 @@ import de.bioforscher.pmw.model.Residue;
  *
  */
 public class AccessibleSurfaceAreaCalculator extends AbstractFeatureProvider implements Annotator {
+	/**
+	 * Trade-off between accuracy and speed, defined by the number of points sampled on the sphere of each atom.
+	 */
+	public enum Quality {
+		/**
+		 * sufficient to decide whether a residue is buried
+		 */
+		FAST(FAST_N_SPHERE_POINTS, FAST_N_SPHERE_POINTS),
+		DEFAULT(DEFAULT_N_SPHERE_POINTS, DEFAULT_N_SPHERE_POINTS),
+		PRECISE(PRECISE_N_SPHERE_POINTS, PRECISE_N_SPHERE_POINTS),
+		/**
+		 * samples each atom coarsely and only refines atoms which are partially accessible - atoms completely buried (or
+		 * exposed) by the coarse sampling keep their coarse value, the resulting error is estimated by
+		 * {@link AccessibleSurfaceAreaCalculator#getErrorEstimates()}
+		 */
+		ADAPTIVE(FAST_N_SPHERE_POINTS, DEFAULT_N_SPHERE_POINTS);
+
+		private final int coarseSpherePoints;
+		private final int spherePoints;
+
+		private Quality(int coarseSpherePoints, int spherePoints) {
+			this.coarseSpherePoints = coarseSpherePoints;
+			this.spherePoints = spherePoints;
+		}
+
+		public boolean isAdaptive() {
+			return this.coarseSpherePoints < this.spherePoints;
+		}
+	}
+
+	private final GeometryKernels geometryKernels;
+	private final SpatialIndexService spatialIndexService;
+	private final Quality quality;
 
-	public AccessibleSurfaceAreaCalculator(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
+	public AccessibleSurfaceAreaCalculator(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter, GeometryKernels geometryKernels, SpatialIndexService spatialIndexService) {
+		this(featureExtractor, logger, linearAlgebra, modelConverter, geometryKernels, spatialIndexService, Quality.DEFAULT);
+	}
+
+	public AccessibleSurfaceAreaCalculator(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter, GeometryKernels geometryKernels, SpatialIndexService spatialIndexService, Quality quality) {
 		super(featureExtractor, logger, linearAlgebra, modelConverter, new FeatureType[] { FeatureType.ACCESSIBLE_SURFACE_AREA });
+		this.geometryKernels = geometryKernels;
+		this.spatialIndexService = spatialIndexService;
+		this.quality = quality;
 	}
 	
 	// Bosco uses as default 960, Shrake and Rupley seem to use in their paper 92 (not sure if this is actually the same parameter)
 	public static final int DEFAULT_N_SPHERE_POINTS = 960;
+	public static final int FAST_N_SPHERE_POINTS = 92;
+	public static final int PRECISE_N_SPHERE_POINTS = 3840;
 	public static final double DEFAULT_PROBE_SIZE = 1.4;
 
 	// Chothia's amino acid atoms vdw radii
@@ -54,62 +102,193 @@ public class AccessibleSurfaceAreaCalculator extends AbstractFeatureProvider imp
 	public static final double SULFUR_VDW = 1.85;
 	public static final double OXIGEN_VDW = 1.40;
 
+	/**
+	 * the points on the unit sphere for each number of points, packed as <code>{ x, y, z }</code> - they only depend on
+	 * the number of points, so they are generated once
+	 */
+	private static final Map<Integer, double[][]> SPHERE_POINTS = new ConcurrentHashMap<>();
+
 	private double probe;
 	
-	private List<double[]> spherePoints;
-	private double cons;
+	/**
+	 * the points sampled for each atom, packed as <code>{ x, y, z }</code>
+	 */
+	private double[][] spherePoints;
+	/**
+	 * the points sampled first in adaptive mode
+	 */
+	private double[][] coarseSpherePoints;
+	/**
+	 * in adaptive mode: whether the coarse sampling of an atom was ambiguous and had to be refined, indexed like <code>atoms</code>
+	 */
+	private boolean[] refined;
+	/**
+	 * the estimated deviation of each residue's value from the value obtained by sampling all atoms at full resolution
+	 */
+	private double[] errorEstimates;
 	private List<Atom> atoms;
 	private List<Residue> residues;
 	/**
-	 * mapping between atoms (identified by their pdbSerial) and their atom radius (which depends on covalent bounds to the particular atom)
+	 * the radius of each atom (which depends on covalent bounds to the particular atom), indexed like <code>atoms</code>
+	 */
+	private double[] atomRadii;
+	/**
+	 * the atoms of residue <code>i</code> are found at the indices <code>[residueOffsets[i], residueOffsets[i + 1])</code> of <code>atoms</code>
 	 */
-	private Map<Integer, Double> atomRadii;
+	private int[] residueOffsets;
+	/**
+	 * all atoms, for neighbor queries - the index is backed by the packed coordinates
+	 */
+	private SpatialIndex atomIndex;
+	private double[] atomX;
+	private double[] atomY;
+	private double[] atomZ;
+	/**
+	 * the largest value of <code>atomRadii</code>
+	 */
+	private double maximalAtomRadius;
 	
 	@Override
 	protected void computeFeatureInternal(Protein protein) {
+		prepare(protein);
+		
+		// residues are indexed in the same order by the feature matrix - each index is written by exactly one thread
+		final double[] asaValues = protein.getFeatureMatrix().getValues(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		IntStream.range(0, this.residues.size()).parallel().forEach(i -> {
+			asaValues[i] = IntStream.range(this.residueOffsets[i], this.residueOffsets[i + 1]).mapToDouble(this::calcSingleAsa).sum();
+		});
+		
+		this.errorEstimates = new double[this.residues.size()];
+		if(this.quality.isAdaptive()) {
+			reportErrorEstimates();
+		}
+	}
+
+	/**
+	 * determines the atoms and their radii, indexes the atoms and provides the sphere points
+	 */
+	void prepare(Protein protein) {
 		this.probe = DEFAULT_PROBE_SIZE;
 
 		this.residues = this.modelConverter.getResidues(protein);
 		this.atoms = new ArrayList<>();
-		this.atomRadii = new HashMap<>();
-		// initialising the radii by looking them up through AtomRadii
-		for(Residue residue : this.residues) {
+		this.residueOffsets = new int[this.residues.size() + 1];
+		double[] atomRadii = new double[16];
+		// the radius only depends on the amino acid and the atom name, so it is determined once per atom type
+		Map<String, Double> radiusOfAtomType = new HashMap<>();
+		for(int residueIndex = 0; residueIndex < this.residues.size(); residueIndex++) {
+			Residue residue = this.residues.get(residueIndex);
 			for(Atom atom : residue.atoms) {
 				// skip hydrogen
 				if(atom.element.equals("H") || atom.element.equals("D")) {
 					continue;
 				}
 				
-				this.atomRadii.put(atom.pdbSerial, determineRadius(residue, atom));
+				if(this.atoms.size() == atomRadii.length) {
+					atomRadii = Arrays.copyOf(atomRadii, atomRadii.length << 1);
+				}
+				atomRadii[this.atoms.size()] = radiusOfAtomType.computeIfAbsent(residue.aminoAcid + " " + atom.element + " " + atom.name, key -> determineRadius(residue, atom));
 				// we add them explicitly here to ensure they are non-hydrogen atoms
 				this.atoms.add(atom);
 			}
+			this.residueOffsets[residueIndex + 1] = this.atoms.size();
 		}
+		this.atomRadii = atomRadii;
+		indexAtoms();
 		
 		// initialising the sphere points to sample
-		this.spherePoints = generateSpherePoints(DEFAULT_N_SPHERE_POINTS);
-		this.cons = 4.0 * Math.PI / DEFAULT_N_SPHERE_POINTS;
-		
-		this.residues.parallelStream().forEach(r -> {
-			r.features.put(FeatureType.ACCESSIBLE_SURFACE_AREA.name(), wrapInArray(r.atoms.stream().mapToDouble(this::calcSingleAsa).sum()));
-		});
+		this.spherePoints = SPHERE_POINTS.computeIfAbsent(this.quality.spherePoints, AccessibleSurfaceAreaCalculator::generateSpherePoints);
+		this.coarseSpherePoints = SPHERE_POINTS.computeIfAbsent(this.quality.coarseSpherePoints, AccessibleSurfaceAreaCalculator::generateSpherePoints);
+		this.refined = new boolean[this.atoms.size()];
+	}
+
+	Quality getQuality() {
+		return this.quality;
+	}
+
+	/**
+	 * @return the atoms considered (i.e. all but hydrogen atoms), ordered by residue
+	 */
+	List<Atom> getAtoms() {
+		return this.atoms;
+	}
+
+	/**
+	 * @return the atoms of residue <code>i</code> are found at the indices <code>[residueOffsets[i], residueOffsets[i + 1])</code>
+	 */
+	int[] getResidueOffsets() {
+		return this.residueOffsets;
+	}
+
+	/**
+	 * @return for each residue the estimated deviation of its accessible surface area from the value obtained by
+	 * sampling all atoms with the full number of points - only non-zero in adaptive mode, see
+	 * {@link #reportErrorEstimates()} for why this is no strict bound
+	 */
+	public double[] getErrorEstimates() {
+		return this.errorEstimates;
+	}
+
+	/**
+	 * An atom keeps its coarse value when all its coarse points are buried (or all are exposed). Then, any exposed (or
+	 * buried) patch of its surface lies in a gap between the coarse points. The deviation of such an atom is estimated
+	 * by the area of the largest spherical cap containing no coarse point. This is an estimate rather than a bound: an
+	 * atom may have several patches, patches need not be caps, and the cap itself is only approximated by the sampled
+	 * points (see {@link #largestGapFraction(double[][], double[][])}).
+	 */
+	private void reportErrorEstimates() {
+		double gapFraction = largestGapFraction(this.coarseSpherePoints, this.spherePoints);
+		int refinedAtoms = 0;
+		double totalErrorEstimate = 0;
+		for(int residueIndex = 0; residueIndex < this.residues.size(); residueIndex++) {
+			for(int k = this.residueOffsets[residueIndex]; k < this.residueOffsets[residueIndex + 1]; k++) {
+				if(this.refined[k]) {
+					refinedAtoms++;
+				} else {
+					double radius = this.probe + this.atomRadii[k];
+					this.errorEstimates[residueIndex] += 4.0 * Math.PI * radius * radius * gapFraction;
+				}
+			}
+			totalErrorEstimate += this.errorEstimates[residueIndex];
+		}
+		this.logger.log(LogService.LOG_INFO, "adaptive ASA refined " + refinedAtoms + " of " + this.atoms.size() + " atoms - estimated error relative to "
+				+ this.spherePoints[0].length + " sphere points: " + totalErrorEstimate + " A^2 in total, at most " + Arrays.stream(this.errorEstimates).max().orElse(0) + " A^2 per residue");
+	}
+
+	/**
+	 * @return the fraction of the sphere's surface covered by the largest cap containing no coarse point - approximated
+	 * by the point of the fine set farthest from all coarse points, which underestimates the true cap
+	 */
+	private static double largestGapFraction(double[][] coarsePoints, double[][] finePoints) {
+		double minimalCosine = 1;
+		for(int i = 0; i < finePoints[0].length; i++) {
+			double maximalCosine = -1;
+			for(int j = 0; j < coarsePoints[0].length; j++) {
+				maximalCosine = Math.max(maximalCosine, finePoints[0][i] * coarsePoints[0][j] + finePoints[1][i] * coarsePoints[1][j] + finePoints[2][i] * coarsePoints[2][j]);
+			}
+			minimalCosine = Math.min(minimalCosine, maximalCosine);
+		}
+		// area of the cap relative to the whole sphere
+		return (1 - minimalCosine) / 2;
 	}
 
 	/**
 	 * Returns list of 3d coordinates of points on a sphere using the
 	 * Golden Section Spiral algorithm.
 	 * @param nSpherePoints the number of points to be used in generating the spherical dot-density
-	 * @return
+	 * @return the coordinates of the points, packed as <code>{ x, y, z }</code>
 	 */
-	private List<double[]> generateSpherePoints(int nSpherePoints) {
-		List<double[]> points = new ArrayList<>();
+	private static double[][] generateSpherePoints(int nSpherePoints) {
+		double[][] points = new double[3][nSpherePoints];
 		double inc = Math.PI * (3.0 - Math.sqrt(5.0));
 		double offset = 2.0 / nSpherePoints;
 		for (int k = 0 ; k < nSpherePoints; k++) {
 			double y = k * offset - 1.0 + (offset / 2.0);
 			double r = Math.sqrt(1.0 - y * y);
 			double phi = k * inc;
-			points.add(new double[] { Math.cos(phi) * r, y, Math.sin(phi) * r });
+			points[0][k] = Math.cos(phi) * r;
+			points[1][k] = y;
+			points[2][k] = Math.sin(phi) * r;
 		}
 		return points;
 	}
@@ -155,51 +334,154 @@ public class AccessibleSurfaceAreaCalculator extends AbstractFeatureProvider imp
 	}
 	
 
+	private void indexAtoms() {
+		int atomCount = this.atoms.size();
+		this.atomX = new double[atomCount];
+		this.atomY = new double[atomCount];
+		this.atomZ = new double[atomCount];
+		this.maximalAtomRadius = 0;
+		for(int i = 0; i < atomCount; i++) {
+			double[] xyz = this.atoms.get(i).xyz;
+			this.atomX[i] = xyz[0];
+			this.atomY[i] = xyz[1];
+			this.atomZ[i] = xyz[2];
+			this.maximalAtomRadius = Math.max(this.maximalAtomRadius, this.atomRadii[i]);
+		}
+		// cells of the size of the largest neighbor distance
+		this.atomIndex = this.spatialIndexService.createIndex(this.atomX, this.atomY, this.atomZ, atomCount, 2 * (this.maximalAtomRadius + this.probe));
+	}
+
+	/**
+	 * updates the index after atoms moved
+	 * @param movedAtoms the indices of the atoms whose coordinates changed
+	 */
+	void moveAtoms(int[] movedAtoms) {
+		for(int i : movedAtoms) {
+			double[] xyz = this.atoms.get(i).xyz;
+			this.atomX[i] = xyz[0];
+			this.atomY[i] = xyz[1];
+			this.atomZ[i] = xyz[2];
+		}
+		this.atomIndex.rebuild();
+	}
+
+	/**
+	 * @param j index of an atom
+	 * @return the indices of all atoms which may have atom j as neighbor - based on the coordinates of the last update
+	 * of the index, so this includes the neighbors at the previous position of a moved atom when called before
+	 * {@link #moveAtoms(int[])}
+	 */
+	int[] findPotentialNeighbors(int j) {
+		return this.atomIndex.withinRadius(this.atomX[j], this.atomY[j], this.atomZ[j], 2 * (this.maximalAtomRadius + this.probe) * (1 + 1e-9));
+	}
+
 	/**
 	 * Returns list of indices of atoms within probe distance to atom k.
 	 * @param k index of atom for which we want neighbor indices
 	 */
-	private List<Atom> findNeighbors(Atom atom) {
-		List<Atom> neighborAtoms = new ArrayList<>();
-		double radius = this.atomRadii.get(atom.pdbSerial) + this.probe + this.probe;
-//		for(Atom potentialNeighbor : this.atoms) {
-		for(int i = 0; i < this.atoms.size(); i++) {
-			Atom potentialNeighbor = this.atoms.get(i);
-			if(potentialNeighbor.equals(atom)) {
+	int[] findNeighbors(int k) {
+		double[] xyz = this.atoms.get(k).xyz;
+		double radius = this.atomRadii[k] + this.probe + this.probe;
+		// candidates are all atoms within the largest possible neighbor distance (slightly enlarged to be safe against rounding), in ascending order
+		int[] candidates = this.atomIndex.withinRadius(xyz[0], xyz[1], xyz[2], (radius + this.maximalAtomRadius) * (1 + 1e-9));
+		int[] neighborIndices = new int[candidates.length];
+		int neighborCount = 0;
+		for(int i : candidates) {
+			if(i == k) {
 				continue;
 			}
 			
-			double distance = this.linearAlgebra.distance(potentialNeighbor.xyz, atom.xyz);
-			if(distance < radius + this.atomRadii.get(potentialNeighbor.pdbSerial)) {
-				neighborAtoms.add(potentialNeighbor);
+			double distance = this.linearAlgebra.distance(this.atoms.get(i).xyz, xyz);
+			if(distance < radius + this.atomRadii[i]) {
+				neighborIndices[neighborCount++] = i;
 			}
 		}
-		return neighborAtoms;
+		return Arrays.copyOf(neighborIndices, neighborCount);
+	}
+
+	private double calcSingleAsa(int k) {
+		int[] neighborIndices = findNeighbors(k);
+		if(this.quality.isAdaptive()) {
+			int coarsePoints = this.coarseSpherePoints[0].length;
+			int accessibleCoarsePoints = countAccessiblePoints(this.coarseSpherePoints, k, neighborIndices, null, null);
+			if(accessibleCoarsePoints == 0 || accessibleCoarsePoints == coarsePoints) {
+				return area(k, accessibleCoarsePoints, coarsePoints);
+			}
+			this.refined[k] = true;
+		}
+		return computeArea(k, neighborIndices, null, null);
+	}
+
+	/**
+	 * computes the accessible surface area of an atom (sampled by the full set of sphere points)
+	 * @param k index of the atom
+	 * @param neighborIndices the neighbors of the atom as determined by {@link #findNeighbors(int)}
+	 * @param occluders if not <code>null</code>: the index of the atom occluding each sphere point, <code>-1</code> for
+	 * accessible points - will be updated
+	 * @param movedAtoms if not <code>null</code>: only points which were accessible or occluded by a moved atom are
+	 * tested again, all others stay occluded by the same atom (which requires atom k not to be moved)
+	 */
+	double computeArea(int k, int[] neighborIndices, int[] occluders, boolean[] movedAtoms) {
+		return area(k, countAccessiblePoints(this.spherePoints, k, neighborIndices, occluders, movedAtoms), this.spherePoints[0].length);
+	}
+
+	int getNumberOfSpherePoints() {
+		return this.spherePoints[0].length;
+	}
+
+	private double area(int k, int accessiblePoints, int spherePoints) {
+		double radius = this.probe + this.atomRadii[k];
+		return (4.0 * Math.PI / spherePoints) * accessiblePoints * radius * radius;
 	}
 
-	private double calcSingleAsa(Atom atom) {
-		List<Atom> neighborAtoms = findNeighbors(atom);
-		double radius = this.probe + this.atomRadii.get(atom.pdbSerial);
+	private int countAccessiblePoints(double[][] spherePoints, int k, int[] neighborIndices, int[] occluders, boolean[] movedAtoms) {
+		// pack the neighbors and their squared radii, so each sphere point is tested by a single kernel call
+		int neighborCount = neighborIndices.length;
+		double[] neighborX = new double[neighborCount];
+		double[] neighborY = new double[neighborCount];
+		double[] neighborZ = new double[neighborCount];
+		double[] neighborRadiiSquared = new double[neighborCount];
+		for(int j = 0; j < neighborCount; j++) {
+			double[] neighborXyz = this.atoms.get(neighborIndices[j]).xyz;
+			neighborX[j] = neighborXyz[0];
+			neighborY[j] = neighborXyz[1];
+			neighborZ[j] = neighborXyz[2];
+			double r = this.atomRadii[neighborIndices[j]] + this.probe;
+			neighborRadiiSquared[j] = r * r;
+		}
+		double[] xyz = this.atoms.get(k).xyz;
+		double radius = this.probe + this.atomRadii[k];
+		double[] spherePointsX = spherePoints[0];
+		double[] spherePointsY = spherePoints[1];
+		double[] spherePointsZ = spherePoints[2];
 		int accessiblePoints = 0;
+		// consecutive points of the spiral are close to each other, so the neighbor occluding the previous point is likely to occlude the next one as well
+		int lastOccluder = -1;
 
-//		for (double[] point : this.spherePoints) {
-		for(int i = 0; i < this.spherePoints.size(); i++) {
-			double[] point = this.spherePoints.get(i);
-			boolean isAccessible = true;
-			double[] testPoint = this.linearAlgebra.add(this.linearAlgebra.multiply(point, radius), atom.xyz);
-			for(Atom neighborAtom : neighborAtoms) {
-				double r = this.atomRadii.get(neighborAtom.pdbSerial) + this.probe;
-				double differenceSquared = this.linearAlgebra.distanceFast(testPoint, neighborAtom.xyz);
-				if (differenceSquared < r * r) {
-					isAccessible = false;
-					break;
+		for(int i = 0; i < spherePointsX.length; i++) {
+			if(movedAtoms != null && occluders[i] >= 0 && !movedAtoms[occluders[i]]) {
+				// neither this atom nor its occluder moved
+				continue;
+			}
+			double testX = spherePointsX[i] * radius + xyz[0];
+			double testY = spherePointsY[i] * radius + xyz[1];
+			double testZ = spherePointsZ[i] * radius + xyz[2];
+			if(lastOccluder >= 0 && (testX - neighborX[lastOccluder]) * (testX - neighborX[lastOccluder]) + (testY - neighborY[lastOccluder]) * (testY - neighborY[lastOccluder]) +
+					(testZ - neighborZ[lastOccluder]) * (testZ - neighborZ[lastOccluder]) < neighborRadiiSquared[lastOccluder]) {
+				if(occluders != null) {
+					occluders[i] = neighborIndices[lastOccluder];
 				}
+				continue;
 			}
-			if (isAccessible) {
+			// accessible when not occluded by any neighbor
+			lastOccluder = this.geometryKernels.firstWithin(neighborX, neighborY, neighborZ, 0, neighborCount, testX, testY, testZ, neighborRadiiSquared);
+			if(lastOccluder < 0) {
 				accessiblePoints++;
 			}
+			if(occluders != null) {
+				occluders[i] = lastOccluder < 0 ? -1 : neighborIndices[lastOccluder];
+			}
 		}
-
-		return this.cons * accessiblePoints * radius * radius;
+		return accessiblePoints;
 	}
 }
@@ -0,0 +1,137 @@
+package de.bioforscher.pmw.feature.extractor.asa;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import de.bioforscher.pmw.api.IncrementalSurfaceArea;
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Protein;
+
+/**
+ * Keeps the occluding atom of each sphere point of each atom. When atoms move, a sphere point of an atom which did not
+ * move can only change its state if it was accessible or occluded by a moved atom - all other points are skipped. Moved
+ * atoms are recomputed completely.<br />
+ * This needs 4 bytes per sphere point and atom, so {@link AccessibleSurfaceAreaCalculator.Quality#FAST} should be
+ * preferred for large structures.
+ * @author S
+ *
+ */
+public class IncrementalAccessibleSurfaceArea implements IncrementalSurfaceArea {
+	private final AccessibleSurfaceAreaCalculator calculator;
+	private final List<Atom> atoms;
+	private final int[] residueOffsets;
+	/**
+	 * the residue each atom belongs to, indexed like <code>atoms</code>
+	 */
+	private final int[] residueOfAtom;
+	private final int[][] neighbors;
+	/**
+	 * the index of the atom occluding each sphere point of each atom, <code>-1</code> for accessible points
+	 */
+	private final int[][] occluders;
+	private final double[] atomAreas;
+	private final double[] values;
+
+	/**
+	 * @param calculator the calculator to use - its quality must not be adaptive
+	 * @param protein the protein to track
+	 */
+	public IncrementalAccessibleSurfaceArea(AccessibleSurfaceAreaCalculator calculator, Protein protein) {
+		if(calculator.getQuality().isAdaptive()) {
+			throw new IllegalArgumentException("incremental computation is not supported for quality " + calculator.getQuality());
+		}
+		this.calculator = calculator;
+		this.calculator.prepare(protein);
+		this.atoms = calculator.getAtoms();
+		this.residueOffsets = calculator.getResidueOffsets();
+		this.residueOfAtom = new int[this.atoms.size()];
+		for(int residueIndex = 0; residueIndex < this.residueOffsets.length - 1; residueIndex++) {
+			for(int k = this.residueOffsets[residueIndex]; k < this.residueOffsets[residueIndex + 1]; k++) {
+				this.residueOfAtom[k] = residueIndex;
+			}
+		}
+
+		this.neighbors = new int[this.atoms.size()][];
+		this.occluders = new int[this.atoms.size()][];
+		this.atomAreas = new double[this.atoms.size()];
+		// each atom is written by exactly one thread
+		IntStream.range(0, this.atoms.size()).parallel().forEach(k -> {
+			this.neighbors[k] = calculator.findNeighbors(k);
+			this.occluders[k] = new int[calculator.getNumberOfSpherePoints()];
+			this.atomAreas[k] = calculator.computeArea(k, this.neighbors[k], this.occluders[k], null);
+		});
+		this.values = new double[this.residueOffsets.length - 1];
+		for(int residueIndex = 0; residueIndex < this.values.length; residueIndex++) {
+			this.values[residueIndex] = sumAreas(residueIndex);
+		}
+	}
+
+	@Override
+	public List<Atom> getAtoms() {
+		return this.atoms;
+	}
+
+	@Override
+	public double[] getValues() {
+		return this.values;
+	}
+
+	@Override
+	public double[] update(int... movedAtoms) {
+		boolean[] moved = new boolean[this.atoms.size()];
+		boolean[] affected = new boolean[this.atoms.size()];
+		for(int j : movedAtoms) {
+			moved[j] = true;
+			affected[j] = true;
+		}
+		// atoms close to the previous or the new position of a moved atom
+		markPotentialNeighbors(movedAtoms, affected);
+		this.calculator.moveAtoms(movedAtoms);
+		markPotentialNeighbors(movedAtoms, affected);
+
+		boolean[] affectedResidues = new boolean[this.values.length];
+		IntStream.range(0, this.atoms.size()).filter(k -> affected[k]).parallel().forEach(k -> {
+			int[] neighborIndices = this.calculator.findNeighbors(k);
+			if(!moved[k] && !containsMoved(this.neighbors[k], moved) && !containsMoved(neighborIndices, moved)) {
+				return;
+			}
+			this.neighbors[k] = neighborIndices;
+			this.atomAreas[k] = this.calculator.computeArea(k, neighborIndices, this.occluders[k], moved[k] ? null : moved);
+			affectedResidues[this.residueOfAtom[k]] = true;
+		});
+
+		double[] deltas = new double[this.values.length];
+		for(int residueIndex = 0; residueIndex < this.values.length; residueIndex++) {
+			if(affectedResidues[residueIndex]) {
+				double value = sumAreas(residueIndex);
+				deltas[residueIndex] = value - this.values[residueIndex];
+				this.values[residueIndex] = value;
+			}
+		}
+		return deltas;
+	}
+
+	private void markPotentialNeighbors(int[] movedAtoms, boolean[] affected) {
+		for(int j : movedAtoms) {
+			for(int k : this.calculator.findPotentialNeighbors(j)) {
+				affected[k] = true;
+			}
+		}
+	}
+
+	private static boolean containsMoved(int[] atomIndices, boolean[] moved) {
+		for(int i : atomIndices) {
+			if(moved[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * sums in the same order as {@link AccessibleSurfaceAreaCalculator}, so the values are identical
+	 */
+	private double sumAreas(int residueIndex) {
+		return IntStream.range(this.residueOffsets[residueIndex], this.residueOffsets[residueIndex + 1]).mapToDouble(k -> this.atomAreas[k]).sum();
+	}
+}
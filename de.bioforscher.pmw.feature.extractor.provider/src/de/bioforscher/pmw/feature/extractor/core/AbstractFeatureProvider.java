@@ -2,23 +2,24 @@ package de.bioforscher.pmw.feature.extractor.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.stream.DoubleStream;
-import java.util.stream.Stream;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
 import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.FeatureMatrix;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Protein;
 
 public abstract class AbstractFeatureProvider implements FeatureProvider {
 
 	protected FeatureExtractor featureExtractor;
-	protected LogService logger;
+	/**
+	 * checks the level before messages are created - pass expensive messages as supplier
+	 */
+	protected ProviderLogger logger;
 	protected ModelConverter modelConverter;
 	protected LinearAlgebra linearAlgebra;
 	private final FeatureType[] PROVIDED_FEATURES;
@@ -27,7 +28,7 @@ public abstract class AbstractFeatureProvider implements FeatureProvider {
 	public AbstractFeatureProvider(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra,
 			ModelConverter modelConverter, FeatureType[] providedFeatures, FeatureType... requiredFeatures) {
 		this.featureExtractor = featureExtractor;
-		this.logger = logger;
+		this.logger = new ProviderLogger(logger);
 		this.linearAlgebra = linearAlgebra;
 		this.modelConverter = modelConverter;
 		this.PROVIDED_FEATURES = providedFeatures;
@@ -35,15 +36,10 @@ public abstract class AbstractFeatureProvider implements FeatureProvider {
 	}
 
 	protected void assignBaseline(Protein protein, FeatureType[] featureType) {
-		this.modelConverter.getResidues(protein).forEach(r -> {
-			Stream.of(featureType).forEach(ft -> {
-				r.features.put(ft.name(), wrapInArray(0.0));
-			});
-		});
-	}
-
-	protected double[] wrapInArray(double value) {
-		return new double[] { value, 0.0 };
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
+		for(FeatureType ft : featureType) {
+			featureMatrix.clear(ft);
+		}
 	}
 
 	// protected Feature wrapInFeature(double value) {
@@ -150,23 +146,15 @@ public abstract class AbstractFeatureProvider implements FeatureProvider {
 	}
 
 	protected void normalizeValues(Protein protein) {
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
 		for (FeatureType featureType : this.getProvidedFeatures()) {
-			DoubleSummaryStatistics summary;
 			if(featureType.isDiscrete()) {
 				// in case of discrete features, normalize by the number of entries in the given/backing enum
-				summary = DoubleStream.of(0, featureType.getNumberOfDiscreteValues() - 1).summaryStatistics();
+				featureMatrix.normalize(featureType, 0, featureType.getNumberOfDiscreteValues() - 1);
 			} else {
-				// if we have actually interesting values: create statistic
-				summary = this.modelConverter.getResidues(protein).stream().map(r -> r.features.get(featureType.name())).mapToDouble(r -> r[0]).summaryStatistics();
-			}		
-
-			this.modelConverter.getResidues(protein).stream().map(r -> r.features.get(featureType.name())).forEach(f -> {
-				f[1] = (f[0] - summary.getMin()) / (summary.getMax() - summary.getMin());
-				// some safety net, so no NaNs are propagated to the front-end
-				if (Double.isNaN(f[1])) {
-					f[1] = 0.0;
-				}
-			});
+				// if we have actually interesting values: normalize by the observed range
+				featureMatrix.normalize(featureType);
+			}
 		}
 	}
 
@@ -0,0 +1,64 @@
+package de.bioforscher.pmw.feature.extractor.core;
+
+import java.util.function.Supplier;
+
+import org.osgi.service.log.LogService;
+
+/**
+ * Facade of the {@link LogService} for computations. The level is checked before anything is passed to the log
+ * service, and messages given as {@link Supplier} are only created when their level is enabled - so logging in hot
+ * loops costs nothing when e.g. debug output is disabled.<br />
+ * The level is configured by the system property {@value #LOG_LEVEL_PROPERTY} (one of DEBUG, INFO, WARNING, ERROR)
+ * and defaults to INFO.
+ * @author S
+ *
+ */
+public class ProviderLogger {
+	public static final String LOG_LEVEL_PROPERTY = "pmw.log.level";
+	private final LogService logService;
+	private final int level;
+
+	public ProviderLogger(LogService logService) {
+		this(logService, configuredLevel());
+	}
+
+	/**
+	 * @param level the most verbose level to pass on, e.g. {@link LogService#LOG_INFO}
+	 */
+	public ProviderLogger(LogService logService, int level) {
+		this.logService = logService;
+		this.level = level;
+	}
+
+	/**
+	 * @return the level configured by {@value #LOG_LEVEL_PROPERTY} - {@link LogService#LOG_INFO} if it is missing or unknown
+	 */
+	public static int configuredLevel() {
+		switch(System.getProperty(LOG_LEVEL_PROPERTY, "INFO").toUpperCase()) {
+		case "DEBUG":
+			return LogService.LOG_DEBUG;
+		case "WARNING":
+			return LogService.LOG_WARNING;
+		case "ERROR":
+			return LogService.LOG_ERROR;
+		default:
+			return LogService.LOG_INFO;
+		}
+	}
+
+	public boolean isLoggable(int level) {
+		return level <= this.level;
+	}
+
+	public void log(int level, String message) {
+		if(isLoggable(level)) {
+			this.logService.log(level, message);
+		}
+	}
+
+	public void log(int level, Supplier<String> message) {
+		if(isLoggable(level)) {
+			this.logService.log(level, message.get());
+		}
+	}
+}
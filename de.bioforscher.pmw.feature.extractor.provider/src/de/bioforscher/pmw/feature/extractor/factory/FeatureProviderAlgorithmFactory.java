@@ -2,17 +2,21 @@ package de.bioforscher.pmw.feature.extractor.factory;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
+import de.bioforscher.pmw.api.GeometryKernels;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.SpatialIndexService;
 import de.bioforscher.pmw.feature.extractor.algorithm.impl.DSSP;
 import de.bioforscher.pmw.feature.extractor.algorithm.impl.DefaultHelixAnnotator;
 import de.bioforscher.pmw.feature.extractor.algorithm.impl.DefaultHelixInteractionAnnotator;
 import de.bioforscher.pmw.feature.extractor.algorithm.impl.DefaultResidueContactAnnotator;
 import de.bioforscher.pmw.feature.extractor.asa.AccessibleSurfaceAreaCalculator;
+import de.bioforscher.pmw.feature.extractor.asa.IncrementalAccessibleSurfaceArea;
 import de.bioforscher.pmw.feature.extractor.core.FeatureProvider;
 import de.bioforscher.pmw.feature.extractor.motif.DefaultSequenceMotifAnnotator;
 import de.bioforscher.pmw.feature.extractor.sse.SecondaryStructureElementAnnotator;
 import de.bioforscher.pmw.feature.extractor.topology.ANVIL;
+import de.bioforscher.pmw.model.Protein;
 
 @SuppressWarnings("deprecation")
 public class FeatureProviderAlgorithmFactory {
@@ -20,20 +24,32 @@ public class FeatureProviderAlgorithmFactory {
 	private LogService logger;
 	private LinearAlgebra linearAlgebra;
 	private ModelConverter modelConverter;
+	private GeometryKernels geometryKernels;
+	private SpatialIndexService spatialIndexService;
 	
-	public FeatureProviderAlgorithmFactory(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
+	public FeatureProviderAlgorithmFactory(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter, GeometryKernels geometryKernels, SpatialIndexService spatialIndexService) {
 		this.featureExtractor = featureExtractor;
 		this.logger = logger;
 		this.linearAlgebra = linearAlgebra;
 		this.modelConverter = modelConverter;
+		this.geometryKernels = geometryKernels;
+		this.spatialIndexService = spatialIndexService;
 	}
 	
 	public FeatureProvider createSecondaryStructureAnnotator() {
-		return new SecondaryStructureElementAnnotator(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter);
+		return new SecondaryStructureElementAnnotator(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter, this.spatialIndexService);
 	}
 	
 	public FeatureProvider createAccessibleSurfaceAreaCalculator() {
-		return new AccessibleSurfaceAreaCalculator(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter);
+		return createAccessibleSurfaceAreaCalculator(AccessibleSurfaceAreaCalculator.Quality.DEFAULT);
+	}
+	
+	public AccessibleSurfaceAreaCalculator createAccessibleSurfaceAreaCalculator(AccessibleSurfaceAreaCalculator.Quality quality) {
+		return new AccessibleSurfaceAreaCalculator(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter, this.geometryKernels, this.spatialIndexService, quality);
+	}
+	
+	public IncrementalAccessibleSurfaceArea createIncrementalAccessibleSurfaceArea(Protein protein, AccessibleSurfaceAreaCalculator.Quality quality) {
+		return new IncrementalAccessibleSurfaceArea(new AccessibleSurfaceAreaCalculator(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter, this.geometryKernels, this.spatialIndexService, quality), protein);
 	}
 	
 	public FeatureProvider createDefaultHelixAnnotator() {
@@ -57,6 +73,6 @@ public class FeatureProviderAlgorithmFactory {
 	}
 
 	public FeatureProvider createAnvilInstance() {
-		return new ANVIL(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter);
+		return new ANVIL(this.featureExtractor, this.logger, this.linearAlgebra, this.modelConverter, this.geometryKernels, this.spatialIndexService);
 	}
 }
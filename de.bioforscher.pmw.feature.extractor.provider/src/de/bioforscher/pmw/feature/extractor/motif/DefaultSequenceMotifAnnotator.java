@@ -11,6 +11,7 @@ import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.Annotator;
 import de.bioforscher.pmw.model.Chain;
 import de.bioforscher.pmw.model.DefinedMotif;
+import de.bioforscher.pmw.model.FeatureMatrix;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Fragment;
 import de.bioforscher.pmw.model.Motif;
@@ -31,6 +32,7 @@ public class DefaultSequenceMotifAnnotator extends AbstractFeatureProvider imple
     
 	@Override
 	protected void computeFeatureInternal(Protein protein) {
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
 		for (Chain chain : protein.chains) {
             int chainLength = chain.residues.size();
             for (int resNum = 0; resNum < chainLength; resNum++) {
@@ -64,16 +66,16 @@ public class DefaultSequenceMotifAnnotator extends AbstractFeatureProvider imple
                     Motif motif = new Motif();
                     motif.startResidueId = startResidue.residueId;
                     motif.endResidueId = endResidue.residueId;
-                    markResiduesAsPartOfSequenceMotif(sublist);
+                    markResiduesAsPartOfSequenceMotif(featureMatrix, sublist);
                     // when membrane topology information is available, annotate the motifs topology
                     if(protein.availableFeatures.contains(FeatureType.MEMBRANE_TOPOLOGY)) {
-                    	double startResidueTopology = startResidue.features.get(FeatureType.MEMBRANE_TOPOLOGY)[0];
-                    	motif.topology = startResidueTopology == endResidue.features.get(FeatureType.MEMBRANE_TOPOLOGY)[0]
+                    	double startResidueTopology = featureMatrix.getValue(FeatureType.MEMBRANE_TOPOLOGY, startResidue);
+                    	motif.topology = startResidueTopology == featureMatrix.getValue(FeatureType.MEMBRANE_TOPOLOGY, endResidue)
                             ? startResidueTopology : Topology.TRANSITION.ordinal();
                     }
                     motif.sequence = extractSequence(sublist);
                     motif.definition = candidate;
-                    this.logger.log(LogService.LOG_DEBUG, "found " + motif);
+                    this.logger.log(LogService.LOG_DEBUG, () -> "found " + motif);
                     protein.motifs.add(motif);
                     
                     Fragment fragment = Fragment.of(protein, chain, sublist, extractSequence(sublist), candidate);
@@ -87,9 +89,9 @@ public class DefaultSequenceMotifAnnotator extends AbstractFeatureProvider imple
 		return sublist.stream().map(r -> this.modelConverter.convertToOneLetterCode(r.aminoAcid)).collect(Collectors.joining());
 	}
 	
-	private void markResiduesAsPartOfSequenceMotif(List<Residue> sublist) {
+	private void markResiduesAsPartOfSequenceMotif(FeatureMatrix featureMatrix, List<Residue> sublist) {
 		sublist.forEach(r -> {
-	        r.features.put(FeatureType.MOTIF_ANNOTATION.name(), wrapInArray(SEQUENCE_MOTIF_VALUE));
+	        featureMatrix.setValue(FeatureType.MOTIF_ANNOTATION, r, SEQUENCE_MOTIF_VALUE);
 		});		
 	}
 }
@@ -1,12 +1,21 @@
 package de.bioforscher.pmw.feature.extractor.provider;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
+import de.bioforscher.pmw.api.GeometryKernels;
+import de.bioforscher.pmw.api.IncrementalSurfaceArea;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.SpatialIndexService;
+import de.bioforscher.pmw.feature.extractor.asa.AccessibleSurfaceAreaCalculator;
 import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.FeatureProvider;
 import de.bioforscher.pmw.feature.extractor.factory.FeatureProviderAlgorithmFactory;
@@ -24,26 +33,65 @@ public class FeatureExtractorImpl implements FeatureExtractor {
 	private ModelConverter modelConverter;
 	@Reference
 	private LogService logger;
+	@Reference
+	private GeometryKernels geometryKernels;
+	@Reference
+	private SpatialIndexService spatialIndexService;
 	private FeatureProviderAlgorithmFactory factory;
+	/**
+	 * configuration of the ASA computation - the component's PID is its name
+	 */
+	private static final String ASA_QUALITY = "asa.quality";
+	/**
+	 * the quality used when ASA is not requested itself, but only computed as requirement of another feature (e.g. the burial decision of ANVIL) -
+	 * such values are discarded once the feature depending on them is computed
+	 */
+	private static final String ASA_REQUIREMENT_QUALITY = "asa.requirementQuality";
+	private AccessibleSurfaceAreaCalculator.Quality asaQuality;
+	private AccessibleSurfaceAreaCalculator.Quality asaRequirementQuality;
+	/**
+	 * the error estimates of the last ASA computation of each protein - proteins are compared by identity and not kept
+	 * alive by this map
+	 */
+	private final Map<Protein, double[]> asaErrorEstimates = Collections.synchronizedMap(new WeakHashMap<>());
 	
 	@Activate
-	public void activate() {
-		this.factory = new FeatureProviderAlgorithmFactory(this, this.logger, this.linearAlgebra, this.modelConverter);
+	public void activate(Map<String, Object> properties) {
+		this.factory = new FeatureProviderAlgorithmFactory(this, this.logger, this.linearAlgebra, this.modelConverter, this.geometryKernels, this.spatialIndexService);
+		this.asaQuality = AccessibleSurfaceAreaCalculator.Quality.valueOf(String.valueOf(properties.getOrDefault(ASA_QUALITY, AccessibleSurfaceAreaCalculator.Quality.DEFAULT)));
+		this.asaRequirementQuality = AccessibleSurfaceAreaCalculator.Quality.valueOf(String.valueOf(properties.getOrDefault(ASA_REQUIREMENT_QUALITY, AccessibleSurfaceAreaCalculator.Quality.FAST)));
 	}
 	
 	@Override
 	public void computeFeatures(Protein protein, FeatureType... featuresToCompute) {
+		computeFeatures(protein, this.asaQuality, featuresToCompute);
+	}
+	
+	@Override
+	public double[] getAccessibleSurfaceAreaErrorEstimates(Protein protein) {
+		return this.asaErrorEstimates.get(protein);
+	}
+	
+	@Override
+	public IncrementalSurfaceArea trackAccessibleSurfaceArea(Protein protein) {
+		// the adaptive mode decides per atom which points to sample, which cannot be tracked - use its reference instead
+		return this.factory.createIncrementalAccessibleSurfaceArea(protein, this.asaQuality.isAdaptive() ? AccessibleSurfaceAreaCalculator.Quality.DEFAULT : this.asaQuality);
+	}
+	
+	private void computeFeatures(Protein protein, AccessibleSurfaceAreaCalculator.Quality asaQuality, FeatureType... featuresToCompute) {
 		//TODO: added later-on, disabled for testing - however, this should probably be pivoted to a more fine-grained dependency on reconstruction levels 
 //		boolean hasCoordinates = !protein.getReconstructionLevel().equals(ReconstructionLevel.NONE);
 		for(FeatureType featureOption : featuresToCompute) {
 			// retrieve suitable FeatureProvider
 			FeatureProvider featureProvider = null;
+			AccessibleSurfaceAreaCalculator asaCalculator = null;
 			switch (featureOption) {
 			case MOTIF_ANNOTATION:
 				featureProvider = this.factory.createDefaultSequenceMotifAnnotator();
 				break;
 			case ACCESSIBLE_SURFACE_AREA:
-				featureProvider = this.factory.createAccessibleSurfaceAreaCalculator();
+				asaCalculator = this.factory.createAccessibleSurfaceAreaCalculator(asaQuality);
+				featureProvider = asaCalculator;
 				break;
 			case SECONDARY_STRUCTURE:
 				featureProvider = this.factory.createSecondaryStructureAnnotator();
@@ -66,9 +114,27 @@ public class FeatureExtractorImpl implements FeatureExtractor {
 			
 			// recursively generate required features
 			FeatureType[] missingFeatures = featureProvider.checkForMissingRequirements(protein);
-			computeFeatures(protein, missingFeatures);
+			computeFeatures(protein, this.asaRequirementQuality, missingFeatures);
 			this.logger.log(LogService.LOG_INFO, "using " + featureProvider.getClass().getSimpleName() + " to generate " + featureOption);
 			featureProvider.computeFeature(protein);
+			if(asaCalculator != null) {
+				this.asaErrorEstimates.put(protein, asaCalculator.getErrorEstimates());
+			}
+			discardRequirementQualityValues(protein, missingFeatures);
+		}
+	}
+	
+	/**
+	 * ASA computed at a lower quality than configured must neither be flagged as available nor be exported - otherwise
+	 * it would be indistinguishable from ASA requested explicitly
+	 * @param computedRequirements the requirements just computed for a feature
+	 */
+	private void discardRequirementQualityValues(Protein protein, FeatureType[] computedRequirements) {
+		if(this.asaRequirementQuality == this.asaQuality || !Arrays.asList(computedRequirements).contains(FeatureType.ACCESSIBLE_SURFACE_AREA)) {
+			return;
 		}
+		protein.availableFeatures.remove(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		protein.getFeatureMatrix().clear(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		this.asaErrorEstimates.remove(protein);
 	}
 }
@@ -1,20 +1,21 @@
 package de.bioforscher.pmw.feature.extractor.sse;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.SpatialIndexService;
 import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.Annotator;
 import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.FeatureMatrix;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.Residue;
@@ -88,11 +89,18 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 	private List<Ladder> ladders;
 	private List<BetaBridge> bridges;
 	private Map<Residue, SecStrucState> states;
+	/**
+	 * all pairs of residues whose CA atoms are within {@link #CA_MIN_DIST}, packed as <code>i0, j0, i1, j1, ...</code>
+	 * with <code>i &lt; j</code> and sorted by <code>i</code>, then <code>j</code> - shared by H-bond and bridge detection
+	 */
+	private int[] candidatePairs;
+	private final SpatialIndexService spatialIndexService;
 
 	public SecondaryStructureElementAnnotator(FeatureExtractor featureExtractor, LogService logger,
-			LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
+			LinearAlgebra linearAlgebra, ModelConverter modelConverter, SpatialIndexService spatialIndexService) {
 		super(featureExtractor, logger, linearAlgebra, modelConverter,
 				new FeatureType[] { FeatureType.SECONDARY_STRUCTURE });
+		this.spatialIndexService = spatialIndexService;
 		this.ladders = new ArrayList<>();
 		this.bridges = new ArrayList<>();
 		this.states = new HashMap<>();
@@ -105,6 +113,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 		this.residues.forEach(r -> this.states.put(r, new SecStrucState(DSSPSecondaryStructureElement.COIL)));
 
 		calculateHAtoms();
+		findCandidatePairs();
 		calculateHBonds();
 		calculateDihedralAngles();
 		calculateTurns();
@@ -113,8 +122,9 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 		detectStrands();
 		
 		// assign states as features
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
 		this.states.keySet().forEach(k -> {
-			k.features.put(FeatureType.SECONDARY_STRUCTURE.name(), wrapInArray(mapToReducedSecondaryStructure(k).ordinal()));
+			featureMatrix.setValue(FeatureType.SECONDARY_STRUCTURE, k, mapToReducedSecondaryStructure(k).ordinal());
 		});
 		
 		// clean up pseudo-hydrogen atoms
@@ -153,10 +163,10 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 	}
 	
 	private void updateSheets() {
-		this.logger.log(LogService.LOG_DEBUG, " got " + this.ladders.size() + " ladders!");
+		this.logger.log(LogService.LOG_DEBUG, () -> " got " + this.ladders.size() + " ladders!");
 
 		for(Ladder ladder : this.ladders){
-			this.logger.log(LogService.LOG_DEBUG, ladder.toString());
+			this.logger.log(LogService.LOG_DEBUG, () -> ladder.toString());
 
 			for (int lcount = ladder.getFrom(); lcount <= ladder.getTo(); lcount++) {
 				SecStrucState state = this.states.get(this.residues.get(lcount));
@@ -218,7 +228,9 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 				if(hasBulge(l1, l2)) {
 					l1.setConnectedTo(j);
 					l2.setConnectedFrom(i);
-					this.logger.log(LogService.LOG_DEBUG, "Bulge from " + i + " to " + j);
+					int from = i;
+					int to = j;
+					this.logger.log(LogService.LOG_DEBUG, () -> "Bulge from " + from + " to " + to);
 				}
 			}
 		}
@@ -344,71 +356,23 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 	 * Optimised to use the contact set
 	 */
 	private void findBridges() {
-		List<int[]> outList = new ArrayList<>();
-
-		for (int i = 0; i < this.residues.size() - 1; i++) {
-			for (int j = i + 1; j < this.residues.size(); j++) {
-				Residue res1 = this.residues.get(i);
-				Residue res2 = this.residues.get(j);
-				double distance = this.linearAlgebra.distanceFast(
-						this.modelConverter.getCA(res1).xyz,
-						this.modelConverter.getCA(res2).xyz);
-				if (distance > CA_MIN_DIST_SQUARED) {
-					continue;
-				}
-				// If i>j switch them over
-				if(i > j){
-					// Switch them over
-					int old = i;
-					i = j;
-					j = old;
-				}
-				// Only these
-				if(j < i + 3){
-					continue;
-				}
-				// If it's the first
-				if(i == 0){
-					continue;
-				}
-				if(j == 0){
-					continue;
-				}
-				// If it's the last
-				if(i == this.residues.size() - 1){
-					continue;
-				}
-				if(j == this.residues.size() - 1){
-					continue;
-				}
-	
-				int[] thisPair = new int[] { i, j };
-				outList.add(thisPair);
+		// candidate pairs are already sorted
+		for (int p = 0; p < this.candidatePairs.length; p += 2) {
+			int i = this.candidatePairs[p];
+			int j = this.candidatePairs[p + 1];
+			// Only these
+			if(j < i + 3){
+				continue;
 			}
-		}
-
-		Collections.sort(outList, new Comparator<int[]>() {
-			@Override
-			public int compare(int[] o1, int[] o2) {
-				if(o1[0] < o2[0]) {
-					return -1;
-				} else if(o1[0] > o2[0]) {
-					return +1;
-				} else {
-					if(o1[1] < o2[1]) {
-						return -1;
-					} else if(o1[1] > o2[1]) {
-						return +1;
-					} else {
-						return 0;
-					}
-				}
+			// If it's the first
+			if(i == 0){
+				continue;
+			}
+			// If it's the last
+			if(j == this.residues.size() - 1){
+				continue;
 			}
-		});
 
-		for(int[] p : outList){
-			int i = p[0];
-			int j = p[1];
 			BridgeType btype = null;
 			// Now do the bonding
 			if((isBonded(i-1,j) && isBonded(j,i+1)) ||
@@ -432,7 +396,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 		boolean b2 = this.states.get(this.residues.get(j)).addBridge(bridge);
 
 		if (!b1 && !b2) {
-			this.logger.log(LogService.LOG_DEBUG, "Ignoring Bridge between residues" + i + " and " + j + ". DSSP assignment might differ.");
+			this.logger.log(LogService.LOG_DEBUG, () -> "Ignoring Bridge between residues" + i + " and " + j + ". DSSP assignment might differ.");
 		}
 
 		this.bridges.add(bridge);
@@ -535,7 +499,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 	 */
 	private void checkSetHelix(int n, DSSPSecondaryStructureElement type) {
 		int idx = n - 3;
-		this.logger.log(LogService.LOG_DEBUG, "Set helix " + type + " " + n + " " + idx);
+		this.logger.log(LogService.LOG_DEBUG, () -> "Set helix " + type + " " + n + " " + idx);
 
 		for (int i = 1; i < this.residues.size() - n; i++) {
 			SecStrucState state = this.states.get(this.residues.get(i));
@@ -578,7 +542,9 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 				// Check for H bond from NH(i+n) to CO(i)
 				if (isBonded(i, i + turn)) {
-					this.logger.log(LogService.LOG_DEBUG, "Turn at (" + i + "," + (i + turn) + ") turn " + turn);
+					int start = i;
+					int length = turn;
+					this.logger.log(LogService.LOG_DEBUG, () -> "Turn at (" + start + "," + (start + length) + ") turn " + length);
 					this.states.get(this.residues.get(i)).setTurn('>', turn);
 					this.states.get(this.residues.get(i + turn)).setTurn('<', turn);
 					// Bracketed residues get the helix number
@@ -624,7 +590,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 				|| (acc1p == i && acc1e < HBONDHIGHENERGY) || (acc2p == i && acc2e < HBONDHIGHENERGY);
 
 		if (hbond) {
-			this.logger.log(LogService.LOG_DEBUG, "*** H-bond from CO of " + i + " to NH of " + j);
+			this.logger.log(LogService.LOG_DEBUG, () -> "*** H-bond from CO of " + i + " to NH of " + j);
 			return true;
 		}
 		return false;
@@ -662,54 +628,74 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 		}
 	}
 
+	/**
+	 * finds all pairs of residues whose CA atoms are close enough to form H-bonds by a single pass over a cell list
+	 */
+	private void findCandidatePairs() {
+		int residueCount = this.residues.size();
+		double[] x = new double[residueCount];
+		double[] y = new double[residueCount];
+		double[] z = new double[residueCount];
+		for (int i = 0; i < residueCount; i++) {
+			double[] ca = this.modelConverter.getCA(this.residues.get(i)).xyz;
+			x[i] = ca[0];
+			y[i] = ca[1];
+			z[i] = ca[2];
+		}
+		this.candidatePairs = this.spatialIndexService.createIndex(x, y, z, residueCount, CA_MIN_DIST).pairsWithin(CA_MIN_DIST);
+	}
+
 	/**
 	 * Calculate the HBonds between different groups. see Creighton page 147 f
 	 * Modified to use only the contact map
 	 */
 	private void calculateHBonds() {
-		/**
-		 * More efficient method for calculating C-Alpha pairs
-		 */
-		for (int i = 0; i < this.residues.size() - 1; i++) {
-			for (int j = i + 1; j < this.residues.size(); j++) {
-				Residue res1 = this.residues.get(i);
-				Residue res2 = this.residues.get(j);
-				double squaredDistance = this.linearAlgebra.distanceFast(
-						this.modelConverter.getCA(res1).xyz,
-						this.modelConverter.getCA(res2).xyz);
-				// TODO: check this
-				if (squaredDistance > CA_MIN_DIST_SQUARED) {
-					continue;
-				}
-				checkAddHBond(res1, res2);
-				if (j != (i + 1)) {
-					checkAddHBond(res2, res1);
-				}
+		// the energies of both directions of each candidate pair are independent of each other - NaN if there is no H-bond to consider
+		final double[] energies = new double[this.candidatePairs.length];
+		IntStream.range(0, this.candidatePairs.length / 2).parallel().forEach(p -> {
+			int i = this.candidatePairs[2 * p];
+			int j = this.candidatePairs[2 * p + 1];
+			energies[2 * p] = checkHBondEnergy(this.residues.get(i), this.residues.get(j));
+			energies[2 * p + 1] = j != (i + 1) ? checkHBondEnergy(this.residues.get(j), this.residues.get(i)) : Double.NaN;
+		});
+
+		// each state keeps the two lowest energies, so they are tracked in the order of the original pairwise loop to resolve ties identically
+		for (int p = 0; p < this.candidatePairs.length; p += 2) {
+			Residue res1 = this.residues.get(this.candidatePairs[p]);
+			Residue res2 = this.residues.get(this.candidatePairs[p + 1]);
+			if (!Double.isNaN(energies[p])) {
+				trackHBondEnergy(res1, res2, energies[p]);
+			}
+			if (!Double.isNaN(energies[p + 1])) {
+				trackHBondEnergy(res2, res1, energies[p + 1]);
 			}
 		}
 	}
 
-	private void checkAddHBond(Residue res1, Residue res2) {
+	/**
+	 * @return the energy of the H-bond from the NH of res1 to the CO of res2, NaN if no such bond can be formed
+	 */
+	private double checkHBondEnergy(Residue res1, Residue res2) {
 		if (res1.aminoAcid.equals("PRO")) {
-			this.logger.log(LogService.LOG_DEBUG, "Ignore: PRO " + res1.residueNumber);
-			return;
+			this.logger.log(LogService.LOG_DEBUG, () -> "Ignore: PRO " + res1.residueNumber);
+			return Double.NaN;
 		}
 		if (!hasBackboneHydrogen(res1)) {
-			this.logger.log(LogService.LOG_DEBUG, "Residue " + res1.residueNumber + " has no H");
-			return;
+			this.logger.log(LogService.LOG_DEBUG, () -> "Residue " + res1.residueNumber + " has no H");
+			return Double.NaN;
 		}
 
-		double energy = 0;
+		double energy;
 
 		try {
 			energy = calculateHBondEnergy(res1, res2);
 		} catch (Exception e) {
 			this.logger.log(LogService.LOG_WARNING, "Energy calculation failed" + e);
-			return;
+			return Double.NaN;
 		}
-		this.logger.log(LogService.LOG_DEBUG, "Energy between positions (" + res1.residueNumber + "," + res2.residueNumber + "): " + energy);
+		this.logger.log(LogService.LOG_DEBUG, () -> "Energy between positions (" + res1.residueNumber + "," + res2.residueNumber + "): " + energy);
 
-		trackHBondEnergy(res1, res2, energy);
+		return energy;
 	}
 
 	/**
@@ -718,7 +704,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 	 */
 	private void trackHBondEnergy(Residue res1, Residue res2, double energy) {
 		if (res1.aminoAcid.equals("PRO")) {
-			this.logger.log(LogService.LOG_DEBUG, "Ignore: PRO " + res1.residueNumber);
+			this.logger.log(LogService.LOG_DEBUG, () -> "Ignore: PRO " + res1.residueNumber);
 			return;
 		}
 
@@ -734,7 +720,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 		// Acceptor: N-H-->O
 		if (energy < acc1e) {
-			this.logger.log(LogService.LOG_DEBUG, energy + "<" + acc1e);
+			this.logger.log(LogService.LOG_DEBUG, () -> energy + "<" + acc1e);
 			state1.setAccept2(state1.getAccept1());
 
 			HBond bond = new HBond();
@@ -743,7 +729,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 			state1.setAccept1(bond);
 		} else if (energy < acc2e) {
-			this.logger.log(LogService.LOG_DEBUG, energy + "<" + acc2e);
+			this.logger.log(LogService.LOG_DEBUG, () -> energy + "<" + acc2e);
 
 			HBond bond = new HBond();
 			bond.setEnergy(energy);
@@ -754,7 +740,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 		// The other side of the bond: donor O-->N-H
 		if (energy < don1e) {
-			this.logger.log(LogService.LOG_DEBUG, energy + "<" + don1e);
+			this.logger.log(LogService.LOG_DEBUG, () -> energy + "<" + don1e);
 			state2.setDonor2(state2.getDonor1());
 
 			HBond bond = new HBond();
@@ -763,7 +749,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 			state2.setDonor1(bond);
 		} else if (energy < don2e) {
-			this.logger.log(LogService.LOG_DEBUG, energy + "<" + don2e);
+			this.logger.log(LogService.LOG_DEBUG, () -> energy + "<" + don2e);
 
 			HBond bond = new HBond();
 			bond.setEnergy(energy);
@@ -797,7 +783,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 		double dho = this.linearAlgebra.distance(o, h);
 		double dnc = this.linearAlgebra.distance(c, n);
 
-		this.logger.log(LogService.LOG_DEBUG, "     cccc: " + res1.residueNumber + " " + res1.aminoAcid + " " + res2.residueNumber + " " + 
+		this.logger.log(LogService.LOG_DEBUG, () -> "     cccc: " + res1.residueNumber + " " + res1.aminoAcid + " " + res2.residueNumber + " " + 
 				res2.aminoAcid + String.format( " O (" + oAtom.pdbSerial + ")..N (" + nAtom.pdbSerial + 
 						"):%4.1f  |  ho:%4.1f - hc:%4.1f + nc:%4.1f - no:%4.1f ", dno, dho, dhc, dnc, dno));
 
@@ -811,7 +797,7 @@ public class SecondaryStructureElementAnnotator extends AbstractFeatureProvider
 
 		double energy = e1 + e2;
 
-		this.logger.log(LogService.LOG_DEBUG, String.format("      N (%d) O(%d): %4.1f : %4.2f ", nAtom.pdbSerial, oAtom.pdbSerial,
+		this.logger.log(LogService.LOG_DEBUG, () -> String.format("      N (%d) O(%d): %4.1f : %4.2f ", nAtom.pdbSerial, oAtom.pdbSerial,
 				(float) dno, energy));
 
 		// Avoid too strong energy
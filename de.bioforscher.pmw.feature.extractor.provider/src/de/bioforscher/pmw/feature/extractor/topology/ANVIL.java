@@ -5,15 +5,21 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.FeatureExtractor;
+import de.bioforscher.pmw.api.GeometryKernels;
 import de.bioforscher.pmw.api.LinearAlgebra;
 import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.api.SpatialIndex;
+import de.bioforscher.pmw.api.SpatialIndexService;
+import de.bioforscher.pmw.api.Vec3;
 import de.bioforscher.pmw.feature.extractor.core.AbstractFeatureProvider;
 import de.bioforscher.pmw.feature.extractor.core.Annotator;
 import de.bioforscher.pmw.model.Atom;
 import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.CoordinateTable;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Membrane;
 import de.bioforscher.pmw.model.Protein;
@@ -78,6 +84,10 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 	private static final double DEFAULT_MAXTHICK = 40.0;
 	private static final double DEFAULT_AFILTER = 40.0;
 	private static final double DEFAULT_DENSITY_OF_MEMBRANE_POINTS = 2.0;
+	/**
+	 * about the distance of consecutive CA atoms
+	 */
+	private static final double CA_CELL_SIZE = 4.0;
 	
 	/**
 	 * parameters
@@ -94,15 +104,34 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 	 */
 	private Protein protein;
 	private double[] centerOfMass;
+	/**
+	 * coordinates of all CA atoms, packed column-wise
+	 */
+	private double[] caX;
+	private double[] caY;
+	private double[] caZ;
+	/**
+	 * all CA atoms, for nearest neighbor queries
+	 */
+	private SpatialIndex caIndex;
 	private double maximalExtent;
+	/**
+	 * the accessible surface area of each residue
+	 */
+	private double[] asa;
 //	private FeatureType asaIndex;
 	private int hphobtotal;
 	private int hphiltotal;
 	private PotentialMembrane membrane;
 	
-	public ANVIL(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
+	private final GeometryKernels geometryKernels;
+	private final SpatialIndexService spatialIndexService;
+	
+	public ANVIL(FeatureExtractor featureExtractor, LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter, GeometryKernels geometryKernels, SpatialIndexService spatialIndexService) {
 		// provides membrane topology information, depends on ASA annotation
     	super(featureExtractor, logger, linearAlgebra, modelConverter, new FeatureType[] { FeatureType.MEMBRANE_TOPOLOGY }, FeatureType.ACCESSIBLE_SURFACE_AREA);
+    	this.geometryKernels = geometryKernels;
+    	this.spatialIndexService = spatialIndexService;
     }
 
 	@Override
@@ -116,9 +145,11 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 		this.density = DEFAULT_DENSITY_OF_MEMBRANE_POINTS;
 		
 		this.protein = protein;
+		this.asa = protein.getFeatureMatrix().getValues(FeatureType.ACCESSIBLE_SURFACE_AREA);
 //		this.asaIndex = FeatureType.ACCESSIBLE_SURFACE_AREA;
 //		this.asaIndex = this.modelConverter.determineFeatureIndex(protein, FeatureType.ACCESSIBLE_SURFACE_AREA);
 		this.centerOfMass = centerOfMass(this.protein);
+		packCACoordinates(protein);
 		// extent maximal extent some more
 		this.maximalExtent = 1.2 * maximalExtent(protein, this.centerOfMass);
 		int[] hphobHphil = hphobHphil();
@@ -135,32 +166,32 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 		PotentialMembrane alternativeMembrane = processSpherePoints(findProximateAxes(initialMembrane));
 //		System.out.println("refined quality: " + alternativeMembrane.qmax);
 		
-		this.logger.log(LogService.LOG_DEBUG, "membrane inclination did " + (initialMembrane.qmax > alternativeMembrane.qmax ? "not " : "") + "improve");
+		this.logger.log(LogService.LOG_DEBUG, () -> "membrane inclination did " + (initialMembrane.qmax > alternativeMembrane.qmax ? "not " : "") + "improve");
 		this.membrane = initialMembrane.qmax > alternativeMembrane.qmax ? initialMembrane : alternativeMembrane;
 		
 		this.logger.log(LogService.LOG_DEBUG, "adjusting thickness");
 		this.step = 0.3;
 		double thickness = this.linearAlgebra.distance(this.membrane.c1, this.membrane.c2);
-		this.logger.log(LogService.LOG_DEBUG, "membrane thickness is " + thickness + " A");
+		this.logger.log(LogService.LOG_DEBUG, () -> "membrane thickness is " + thickness + " A");
 		//TODO: implement adaptation of membrane thickness
 		
 		assignTopology();
 		placeMembraneMolecules(this.protein);
 	}
 
-	private double[] centerOfMass(Protein protein2) {
+	private double[] centerOfMass(Protein protein) {
+		final CoordinateTable table = CoordinateTable.of(protein);
+		final double[] x = table.getX();
+		final double[] y = table.getY();
+		final double[] z = table.getZ();
 		int atomCount = 0;
 		double[] coordinates = { 0, 0, 0 };
-		for(Chain c : protein.chains) {
-			for(Residue g : c.residues) {
-				for(Atom a : g.atoms) {
-					if(a.name.equals(ModelConverter.BACKBONE_CA_NAME)) {
-						coordinates[0] += a.xyz[0];
-						coordinates[1] += a.xyz[1];
-						coordinates[2] += a.xyz[2];
-						atomCount++;
-					}
-				}
+		for(int i = 0; i < table.getAtomCount(); i++) {
+			if(table.getAtomNameCode(i) == CoordinateTable.CA_CODE) {
+				coordinates[0] += x[i];
+				coordinates[1] += y[i];
+				coordinates[2] += z[i];
+				atomCount++;
 			}
 		}
 		return new double[] {
@@ -170,33 +201,41 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 		};
 	}
 	
-	/**
-	 * tests whether a point is in the corridor described by the given membrane
-	 * TODO: streamline this cascade of call once we know if other classes will depend on this functionality
-	 * @param pointToTest
-	 * @param membrane
-	 * @return true iff the point is embedded in the membrane
-	 */
-	private boolean isInSpace(Residue residue, Membrane membrane) {
-		return isInSpace(this.modelConverter.getCA(residue).xyz, membrane);
+	private void packCACoordinates(Protein protein) {
+		List<Residue> residues = this.modelConverter.getResidues(protein);
+		this.caX = new double[residues.size()];
+		this.caY = new double[residues.size()];
+		this.caZ = new double[residues.size()];
+		for(int i = 0; i < residues.size(); i++) {
+			double[] xyz = this.modelConverter.getCA(residues.get(i)).xyz;
+			this.caX[i] = xyz[0];
+			this.caY[i] = xyz[1];
+			this.caZ[i] = xyz[2];
+		}
+		this.caIndex = this.spatialIndexService.createIndex(this.caX, this.caY, this.caZ, residues.size(), CA_CELL_SIZE);
 	}
 	
-	private boolean isInSpace(double[] pointToTest, Membrane membrane) {
-		return isInSpace(pointToTest, membrane.normalVector, membrane.planePoint1, membrane.planePoint2);
-	}
-
 	/**
 	 * returns true iff the point is in between two planes defined by the vector diamVector and each passes through p1 respectively p2<br /><br />
 	 * defined by ANVIL
-	 * @return
+	 * @param projection the scalar product of the point to test and the normalized vector diamVector
+	 * @param d1 the negative scalar product of the normalized vector diamVector and p1
+	 * @param d2 the negative scalar product of the normalized vector diamVector and p2
+	 * @return true iff the point is embedded in the membrane
 	 */
-	private boolean isInSpace(double[] pointToTest, double[] normalVector, double[] planePoint1, double[] planePoint2) {
-		normalVector = this.linearAlgebra.normalize(normalVector);
-		final double d1 = - this.linearAlgebra.dotProduct(normalVector, planePoint1);
-		final double d2 = - this.linearAlgebra.dotProduct(normalVector, planePoint2);
-		final double d = - this.linearAlgebra.dotProduct(normalVector, pointToTest);
+	private boolean isInSpace(double projection, double d1, double d2) {
+		final double d = - projection;
 		return d > Math.min(d1, d2) && d < Math.max(d1, d2);
 	}
+	
+	/**
+	 * projects all CA atoms onto the given normal vector
+	 * @param normalVector the normalized axis
+	 * @param projections the array to write the projections to
+	 */
+	private void projectCAAtoms(Vec3 normalVector, double[] projections) {
+		this.geometryKernels.dotProducts(this.caX, this.caY, this.caZ, 0, this.caX.length, normalVector.x, normalVector.y, normalVector.z, projections);
+	}
 
 	/**
 	 * computes the maximal extent of this protein in any given spatial direction to the center of mass of this structure
@@ -212,21 +251,15 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 	/**
 	 * computes the distance of the proposed membrane molecule to the protein - this can be used to ensure that no membrane molecules are placed within the protein
 	 * @param atom
-	 * @param protein
 	 * @return the minimal squared distance of this atom to any CA atom of the protein
 	 */
-	private double minimalSquaredDistanceToProteinCAAtom(double[] atom, Protein protein) {
-//		double minDistance = Double.MAX_VALUE;
-//		for(Chain c : protein.chains) {
-//			for(Residue r : c.residues) {
-//				double distance = this.linearAlgebra.distanceFast(atom, this.modelConverter.getCA(r).xyz);
-//				if(distance < minDistance) {
-//					minDistance = distance;
-//				}
-//			}
-//		}
-		return protein.chains.stream().flatMap(c -> c.residues.stream()).mapToDouble(r ->
-			this.linearAlgebra.distanceFast(this.modelConverter.getCA(r).xyz, atom)).min().getAsDouble();
+	private double minimalSquaredDistanceToProteinCAAtom(double[] atom) {
+		int[] nearest = this.caIndex.nearest(atom[0], atom[1], atom[2], 1);
+		if(nearest.length == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		int ca = nearest[0];
+		return (atom[0] - this.caX[ca]) * (atom[0] - this.caX[ca]) + (atom[1] - this.caY[ca]) * (atom[1] - this.caY[ca]) + (atom[2] - this.caZ[ca]) * (atom[2] - this.caZ[ca]);
 	}
 	
 	private void assignTopology() {
@@ -238,11 +271,14 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 		membrane.planePoint2 = this.membrane.c2;
 		membrane.spherePoint = this.membrane.point;
 		this.protein.membrane = membrane;
-		for(Chain c : this.protein.chains) {
-			for(Residue r : c.residues) {
-				double value = isInSpace(r, membrane) ? Topology.TRANSMEMBRANE.ordinal() : Topology.NON_TRANSMEMBRANE.ordinal();
-				r.features.put(FeatureType.MEMBRANE_TOPOLOGY.name(), wrapInArray(value));
-			}
+		double[] topology = this.protein.getFeatureMatrix().getValues(FeatureType.MEMBRANE_TOPOLOGY);
+		Vec3 normalVector = new Vec3(membrane.normalVector).normalize();
+		double d1 = - normalVector.dot(membrane.planePoint1);
+		double d2 = - normalVector.dot(membrane.planePoint2);
+		double[] projections = new double[this.caX.length];
+		projectCAAtoms(normalVector, projections);
+		for(int residueIndex = 0; residueIndex < projections.length; residueIndex++) {
+			topology[residueIndex] = isInSpace(projections[residueIndex], d1, d2) ? Topology.TRANSMEMBRANE.ordinal() : Topology.NON_TRANSMEMBRANE.ordinal();
 		}
 	}
 
@@ -255,19 +291,19 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 		double radius = this.maximalExtent * this.maximalExtent;
 		Membrane membrane = protein.membrane;
 		double[] normalVector = membrane.normalVector;
+		// candidates are only copied once accepted
+		double[] atom = new double[3];
 		for(double[] layer : Arrays.asList(membrane.planePoint1, membrane.planePoint2)) {
 			double d = - this.linearAlgebra.dotProduct(normalVector, layer);
 			for(double i = -1000; i < 1000; i += this.density) {
 				for(double j = -1000; j < 1000; j += this.density) {
-					double[] atom = new double[] { i, j, 0 };
-					try {
-						atom[2] = -(d + i * normalVector[0] + j * normalVector[1]) / normalVector[2];
-					} catch (ArithmeticException e) {
-					}
+					atom[0] = i;
+					atom[1] = j;
+					atom[2] = -(d + i * normalVector[0] + j * normalVector[1]) / normalVector[2];
 					
 					// distance cutoff is also squared
-					if(this.linearAlgebra.distanceFast(atom, layer) <= radius && minimalSquaredDistanceToProteinCAAtom(atom, protein) > 12.0) {
-						membrane.membraneMolecules.add(atom);
+					if(this.linearAlgebra.distanceFast(atom, layer) <= radius && minimalSquaredDistanceToProteinCAAtom(atom) > 12.0) {
+						membrane.membraneMolecules.add(atom.clone());
 					}
 				}
 			}
@@ -275,80 +311,101 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 	}
 
 	/**
-	 * find the best possible solution among all proposed spherePoints
+	 * find the best possible solution among all proposed spherePoints - axes are evaluated in parallel, ties are won by
+	 * the axis proposed first, so the result is the same as that of evaluating the axes one after another
 	 * @param spherePoints axes to check
 	 * @return the best possible membrane, embedding as many residues as possible
 	 */
 	private PotentialMembrane processSpherePoints(List<double[]> spherePoints) {
+		// the best membrane of each axis - each entry is written by exactly one thread
+		PotentialMembrane[] axisMembranes = new PotentialMembrane[spherePoints.size()];
+		IntStream.range(0, spherePoints.size()).parallel().forEach(spIndex ->
+			axisMembranes[spIndex] = processSpherePoint(spherePoints.get(spIndex)));
+		
+		// best performing membrane
+		PotentialMembrane membrane = null;
+		for(PotentialMembrane axisMembrane : axisMembranes) {
+			if(axisMembrane != null && (membrane == null || axisMembrane.qmax > membrane.qmax)) {
+				membrane = axisMembrane;
+			}
+		}
+		return membrane;
+	}
+	
+	/**
+	 * find the best possible membrane for one axis
+	 * @param spherePoint the point defining the axis through the center of mass
+	 * @return the membrane of the highest score (the first one on ties), <code>null</code> if no slice embeds any hydrophobic residue
+	 */
+	private PotentialMembrane processSpherePoint(double[] spherePoint) {
 		// best performing membrane
 		PotentialMembrane membrane = null;
 		// best performing membrane's score
 		double qmax = 0;
 		
+		double[] projections = new double[this.caX.length];
+		
 		// construct slices of thickness 1.0 along the axis connecting the centerOfMass and the spherePoint
-		for(int spIndex = 0; spIndex < spherePoints.size(); spIndex++) {
-//			if(spIndex % 100 == 0) {
-//				System.out.println(spIndex + " / " + spherePoints.size());
-//			}
-			double[] spherePoint = spherePoints.get(spIndex);
-			double[] diam = this.linearAlgebra.multiply(this.linearAlgebra.subtract(this.centerOfMass, spherePoint), 2.0);
-			double diamNorm = this.linearAlgebra.norm(diam);
+		double[] diam = this.linearAlgebra.multiply(this.linearAlgebra.subtract(this.centerOfMass, spherePoint), 2.0);
+		double diamNorm = this.linearAlgebra.norm(diam);
+		// all slices along this axis share the normal vector - project the CA atoms once
+		Vec3 normalVector = new Vec3(diam).normalize();
+		projectCAAtoms(normalVector, projections);
+		
+		List<PotentialMembrane> qvartemp = new ArrayList<>();
+		
+		for(double i = 0; i < diamNorm - this.step; i += this.step) {
+			double dPointC1 = i;
+			double dPointC2 = i + this.step;
 			
-			List<PotentialMembrane> qvartemp = new ArrayList<>();
+			double[] c1 = thales(diam, dPointC1, spherePoint);
+			double[] c2 = thales(diam, dPointC2, spherePoint);
 			
-			for(double i = 0; i < diamNorm - this.step; i += this.step) {
-				double dPointC1 = i;
-				double dPointC2 = i + this.step;
-				
-				double[] c1 = thales(diam, dPointC1, spherePoint);
-				double[] c2 = thales(diam, dPointC2, spherePoint);
-				
-				// evaluate how well this membrane slice embeddeds the peculiar residues
-				int[] hphobHphil = hphobHphil(true, diam, c1, c2);
-				
-				qvartemp.add(new PotentialMembrane(c1, c2, hphobHphil));
-			}
+			// evaluate how well this membrane slice embeddeds the peculiar residues
+			int[] hphobHphil = hphobHphil(true, normalVector, projections, c1, c2);
 			
-			int jmax = (int) ((this.minthick / this.step) - 1);
+			qvartemp.add(new PotentialMembrane(c1, c2, hphobHphil));
+		}
+		
+		int jmax = (int) ((this.minthick / this.step) - 1);
 	
-			for(double width = 0; width < this.maxthick; width = (jmax + 1) * this.step) {
-//				System.out.println(width + " / " + this.maxthick);
-	            int imax = qvartemp.size() - 1 - jmax;
-	            
-	            for(int i = 0; i < imax; i++) {
-	            	double[] c1 = qvartemp.get(i).c1;
-	            	double[] c2 = qvartemp.get(i + jmax).c2;
+		for(double width = 0; width < this.maxthick; width = (jmax + 1) * this.step) {
+//			System.out.println(width + " / " + this.maxthick);
+	        int imax = qvartemp.size() - 1 - jmax;
+	        
+	        for(int i = 0; i < imax; i++) {
+	        	double[] c1 = qvartemp.get(i).c1;
+	        	double[] c2 = qvartemp.get(i + jmax).c2;
 //	            	System.out.println("distance between points is " + distance(c1, c2));
-	           
-	            	double hphob = 0;
-	            	double hphil = 0;
-	            	double total = 0;
-	            	
-	            	for(int j = 0; j < jmax; j++) {
-	            		PotentialMembrane ij = qvartemp.get(i + j);
-	            		if(j == 0 || j == jmax - 1) {
-	            			hphob += 0.5 * ij.hphob;
-	            			hphil += 0.5 * ij.hphil;
-	            		} else {
-	            			hphob += ij.hphob;
-	            			hphil += ij.hphil;
-	            		}
-	            		total += ij.total;
-	            	}
-	            	
-	            	if(hphob > 0) {
-	            		double qvaltest = qValue(hphil, hphob, this.hphiltotal, this.hphobtotal);
+	       
+	        	double hphob = 0;
+	        	double hphil = 0;
+	        	double total = 0;
+	        	
+	        	for(int j = 0; j < jmax; j++) {
+	        		PotentialMembrane ij = qvartemp.get(i + j);
+	        		if(j == 0 || j == jmax - 1) {
+	        			hphob += 0.5 * ij.hphob;
+	        			hphil += 0.5 * ij.hphil;
+	        		} else {
+	        			hphob += ij.hphob;
+	        			hphil += ij.hphil;
+	        		}
+	        		total += ij.total;
+	        	}
+	        	
+	        	if(hphob > 0) {
+	        		double qvaltest = qValue(hphil, hphob, this.hphiltotal, this.hphobtotal);
 //	            		System.out.println("membrane " + c1 + " -> " + c2 + ": " + qvaltest);
-	            		if(qvaltest > qmax) {
-	            			qmax = qvaltest;
-	            			membrane = new PotentialMembrane(spherePoint, c1, c2, hphob, hphil, total, qmax);
-	            		}
-	            	}
-	            }
-	            jmax++;
-			}
+	        		if(qvaltest > qmax) {
+	        			qmax = qvaltest;
+	        			membrane = new PotentialMembrane(spherePoint, c1, c2, hphob, hphil, total, qmax);
+	        		}
+	        	}
+	        }
+	        jmax++;
 		}
-		
+
 		return membrane;
 	}
 
@@ -379,31 +436,40 @@ public class ANVIL extends AbstractFeatureProvider implements Annotator {
 	private int[] hphobHphil() {
 		// delegate the more fine-grained impl when not interested in the placement of a residue relative
 		// to the potential membrane plane
-		return hphobHphil(false, null, null, null);
+		return hphobHphil(false, null, null, null, null);
 	}
 	
 	/**
 	 * counts how well hydrophobic and hydrophilic residues exposed to the solvent are embedded by the membrane
 	 * @param checkMembranePlane when false residues only need to be exposed in order to count (this is used for the initial 'global' counting of hydrophobic/hydrophilic residues within the structure)
-	 * @param diam parameters describing the membrane placement
+	 * @param normalVector the normalized vector diam describing the membrane placement
+	 * @param projections the projections of all CA atoms onto the normal vector
 	 * @param c1 parameters describing the membrane placement
 	 * @param c2 parameters describing the membrane placement
 	 * @return [countOfHydrophobicResidues, countOfHydrophilicResidues]
 	 */
-	private int[] hphobHphil(boolean checkMembranePlane, double[] diam, double[] c1, double[] c2) {
+	private int[] hphobHphil(boolean checkMembranePlane, Vec3 normalVector, double[] projections, double[] c1, double[] c2) {
 		int[] hphobHphil = { 0, 0 };
+		int residueIndex = -1;
+		double d1 = 0;
+		double d2 = 0;
+		if(checkMembranePlane) {
+			d1 = - normalVector.dot(c1);
+			d2 = - normalVector.dot(c2);
+		}
 
 	    for(Chain chain : this.protein.chains) {
 	    	for(Residue residue : chain.residues) {
+	    		residueIndex++;
 	    		// skip residues with too low ASA values - in the original code this is 
 				// checked after determining whether the residue is within the membrane 
 				// but this check should be way faster and, thus, reduce computational load
-	    		if(residue.features.get(FeatureType.ACCESSIBLE_SURFACE_AREA.name())[0] < this.afilter) {
+	    		if(this.asa[residueIndex] < this.afilter) {
 	    			continue;
 	    		}
 	    		
 	    		// give the option to ignore the membrane placement
-	    		if(checkMembranePlane && !isInSpace(this.modelConverter.getCA(residue).xyz, diam, c1, c2)) {
+	    		if(checkMembranePlane && !isInSpace(projections[residueIndex], d1, d2)) {
 	    			continue;
 	    		}
 	    		
@@ -0,0 +1,43 @@
+package asa.test;
+
+import java.io.IOException;
+import java.util.List;
+
+import core.test.FeatureProviderFixture;
+import de.bioforscher.pmw.feature.extractor.asa.AccessibleSurfaceAreaCalculator;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.FeatureMatrix;
+import de.bioforscher.pmw.model.FeatureType;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import junit.framework.TestCase;
+
+public class AccessibleSurfaceAreaCalculatorFunctionalTest extends TestCase {
+	private static final String REFERENCE_PATH = "asa/test/4cha.asa";
+	private FeatureProviderFixture fixture;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.fixture = FeatureProviderFixture.get();
+	}
+
+	public void testReferenceValues() throws IOException {
+		Protein protein = this.fixture.createProtein();
+		this.fixture.getFactory().createAccessibleSurfaceAreaCalculator(AccessibleSurfaceAreaCalculator.Quality.DEFAULT).computeFeature(protein);
+
+		List<String> reference = FeatureProviderFixture.readLines(REFERENCE_PATH);
+		FeatureMatrix featureMatrix = protein.getFeatureMatrix();
+		assertEquals(reference.size(), featureMatrix.getResidueCount());
+		int residueIndex = 0;
+		for(Chain chain : protein.chains) {
+			for(Residue residue : chain.residues) {
+				String[] split = reference.get(residueIndex).split(" ");
+				assertEquals(split[0], chain.chainId + residue.residueNumber);
+				// neighbor search, radii and sphere points changed, the sampled points and their summation order did not
+				assertEquals(split[0], Double.parseDouble(split[1]), featureMatrix.getValue(FeatureType.ACCESSIBLE_SURFACE_AREA, residue), 0.0);
+				residueIndex++;
+			}
+		}
+		assertTrue(protein.availableFeatures.contains(FeatureType.ACCESSIBLE_SURFACE_AREA));
+	}
+}
@@ -0,0 +1,96 @@
+package asa.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import core.test.FeatureProviderFixture;
+import de.bioforscher.pmw.api.IncrementalSurfaceArea;
+import de.bioforscher.pmw.feature.extractor.asa.AccessibleSurfaceAreaCalculator;
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.FeatureType;
+import de.bioforscher.pmw.model.Protein;
+import junit.framework.TestCase;
+
+public class IncrementalAccessibleSurfaceAreaFunctionalTest extends TestCase {
+	private static final int NUMBER_OF_MOVES = 12;
+	private FeatureProviderFixture fixture;
+	private Protein protein;
+	private IncrementalSurfaceArea incrementalSurfaceArea;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.fixture = FeatureProviderFixture.get();
+		this.protein = this.fixture.createProtein();
+		this.incrementalSurfaceArea = this.fixture.getFactory().createIncrementalAccessibleSurfaceArea(this.protein, AccessibleSurfaceAreaCalculator.Quality.DEFAULT);
+	}
+
+	public void testInitialValues() {
+		assertEqualsFullComputation();
+	}
+
+	public void testRandomMoves() {
+		Random random = new Random(42);
+		List<Atom> atoms = this.incrementalSurfaceArea.getAtoms();
+		int changedValues = 0;
+		for(int move = 0; move < NUMBER_OF_MOVES; move++) {
+			// a contiguous stretch (e.g. a fragment) or a single atom, shifted by up to 3 A per axis
+			int first = random.nextInt(atoms.size());
+			int count = move % 3 == 0 ? 1 : 1 + random.nextInt(40);
+			int[] movedAtoms = new int[Math.min(count, atoms.size() - first)];
+			double[] shift = { 6 * random.nextDouble() - 3, 6 * random.nextDouble() - 3, 6 * random.nextDouble() - 3 };
+			for(int i = 0; i < movedAtoms.length; i++) {
+				movedAtoms[i] = first + i;
+				double[] xyz = atoms.get(first + i).xyz;
+				for(int axis = 0; axis < 3; axis++) {
+					xyz[axis] += shift[axis];
+				}
+			}
+
+			double[] previousValues = this.incrementalSurfaceArea.getValues().clone();
+			double[] deltas = this.incrementalSurfaceArea.update(movedAtoms);
+			double[] values = this.incrementalSurfaceArea.getValues();
+			for(int residueIndex = 0; residueIndex < values.length; residueIndex++) {
+				assertEquals(values[residueIndex] - previousValues[residueIndex], deltas[residueIndex], 0.0);
+				if(deltas[residueIndex] != 0) {
+					changedValues++;
+				}
+			}
+			assertEqualsFullComputation();
+		}
+		assertTrue(changedValues > NUMBER_OF_MOVES);
+	}
+
+	public void testMovingBack() {
+		List<Atom> atoms = this.incrementalSurfaceArea.getAtoms();
+		double[] initialValues = this.incrementalSurfaceArea.getValues().clone();
+		List<double[]> initialCoordinates = new ArrayList<>();
+		int[] movedAtoms = { 100, 101, 102, 103 };
+		for(int k : movedAtoms) {
+			initialCoordinates.add(atoms.get(k).xyz.clone());
+			atoms.get(k).xyz[0] += 4;
+		}
+		this.incrementalSurfaceArea.update(movedAtoms);
+		for(int i = 0; i < movedAtoms.length; i++) {
+			System.arraycopy(initialCoordinates.get(i), 0, atoms.get(movedAtoms[i]).xyz, 0, 3);
+		}
+		this.incrementalSurfaceArea.update(movedAtoms);
+		for(int residueIndex = 0; residueIndex < initialValues.length; residueIndex++) {
+			assertEquals(initialValues[residueIndex], this.incrementalSurfaceArea.getValues()[residueIndex], 0.0);
+		}
+	}
+
+	/**
+	 * compares the tracked values to those of a full computation with the current coordinates - they have to be
+	 * identical, not just close
+	 */
+	private void assertEqualsFullComputation() {
+		this.fixture.getFactory().createAccessibleSurfaceAreaCalculator(AccessibleSurfaceAreaCalculator.Quality.DEFAULT).computeFeature(this.protein);
+		double[] expected = this.protein.getFeatureMatrix().getValues(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		double[] values = this.incrementalSurfaceArea.getValues();
+		assertEquals(expected.length, values.length);
+		for(int residueIndex = 0; residueIndex < values.length; residueIndex++) {
+			assertEquals(expected[residueIndex], values[residueIndex], 0.0);
+		}
+	}
+}
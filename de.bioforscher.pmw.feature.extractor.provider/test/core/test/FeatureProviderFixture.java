@@ -0,0 +1,116 @@
+package core.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.log.LogService;
+
+import de.bioforscher.pmw.common.provider.GeometryKernelsImpl;
+import de.bioforscher.pmw.common.provider.LinearAlgebraImpl;
+import de.bioforscher.pmw.common.provider.SpatialIndexServiceImpl;
+import de.bioforscher.pmw.feature.extractor.factory.FeatureProviderAlgorithmFactory;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.provider.ModelConverterImpl;
+
+/**
+ * Wires the feature providers with the actual services - like the feature extractor component does - and provides the
+ * structure and reference values shared by the tests of all providers.
+ * @author S
+ *
+ */
+public final class FeatureProviderFixture {
+	// local file to parse
+	private static final String PDB_PATH = "core/test/4cha.pdb";
+	private static FeatureProviderFixture instance;
+	private final ModelConverterImpl modelConverter = new ModelConverterImpl();
+	private final FeatureProviderAlgorithmFactory factory;
+
+	private FeatureProviderFixture() throws IOException {
+		Map<String, Object> properties = new HashMap<>();
+		// nothing is fetched, the cache is merely required for activation
+		properties.put("structureCache.directory", Files.createTempDirectory("structures").toString());
+		properties.put("structureCache.offline", true);
+		this.modelConverter.activate(properties);
+		this.factory = new FeatureProviderAlgorithmFactory(null, new SilentLogService(), new LinearAlgebraImpl(), this.modelConverter,
+				new GeometryKernelsImpl(), new SpatialIndexServiceImpl());
+	}
+
+	/**
+	 * @return the fixture shared by all tests - the services are stateless
+	 */
+	public static synchronized FeatureProviderFixture get() throws IOException {
+		if(instance == null) {
+			instance = new FeatureProviderFixture();
+		}
+		return instance;
+	}
+
+	public FeatureProviderAlgorithmFactory getFactory() {
+		return this.factory;
+	}
+
+	public ModelConverterImpl getModelConverter() {
+		return this.modelConverter;
+	}
+
+	/**
+	 * @return a freshly parsed instance of 4CHA
+	 */
+	public Protein createProtein() throws IOException {
+		return this.modelConverter.createProtein(new File(getResourceAsFilepath(PDB_PATH)));
+	}
+
+	/**
+	 * @param filename a resource of expected values
+	 * @return its lines, except empty ones and comments (starting with '#')
+	 */
+	public static List<String> readLines(String filename) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for(String line : Files.readAllLines(Paths.get(getResourceAsFilepath(filename)), StandardCharsets.US_ASCII)) {
+			if(!line.isEmpty() && !line.startsWith("#")) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	private static String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+
+	/**
+	 * discards all messages - the providers log progress, which is of no interest here
+	 */
+	@SuppressWarnings("rawtypes")
+	private static class SilentLogService implements LogService {
+		@Override
+		public void log(int level, String message) {
+		}
+
+		@Override
+		public void log(int level, String message, Throwable exception) {
+		}
+
+		@Override
+		public void log(ServiceReference sr, int level, String message) {
+		}
+
+		@Override
+		public void log(ServiceReference sr, int level, String message, Throwable exception) {
+		}
+	}
+}
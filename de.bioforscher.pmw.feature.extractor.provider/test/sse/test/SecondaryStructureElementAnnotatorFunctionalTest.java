@@ -0,0 +1,60 @@
+package sse.test;
+
+import java.io.IOException;
+import java.util.List;
+
+import core.test.FeatureProviderFixture;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.FeatureMatrix;
+import de.bioforscher.pmw.model.FeatureType;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.SecondaryStructure;
+import junit.framework.TestCase;
+
+public class SecondaryStructureElementAnnotatorFunctionalTest extends TestCase {
+	private static final String REFERENCE_PATH = "sse/test/4cha.sse";
+	/**
+	 * H-bond energies are evaluated in parallel, so each run may merge them in another order
+	 */
+	private static final int NUMBER_OF_RUNS = 3;
+	private FeatureProviderFixture fixture;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.fixture = FeatureProviderFixture.get();
+	}
+
+	public void testReferenceAssignment() throws IOException {
+		List<String> reference = FeatureProviderFixture.readLines(REFERENCE_PATH);
+		for(int run = 0; run < NUMBER_OF_RUNS; run++) {
+			Protein protein = this.fixture.createProtein();
+			int atomCount = countAtoms(protein);
+			this.fixture.getFactory().createSecondaryStructureAnnotator().computeFeature(protein);
+
+			FeatureMatrix featureMatrix = protein.getFeatureMatrix();
+			assertEquals(reference.size(), featureMatrix.getResidueCount());
+			int residueIndex = 0;
+			for(Chain chain : protein.chains) {
+				for(Residue residue : chain.residues) {
+					String[] split = reference.get(residueIndex).split(" ");
+					assertEquals(split[0], chain.chainId + residue.residueNumber);
+					assertEquals(split[0], SecondaryStructure.valueOf(split[1]).ordinal(), featureMatrix.getValue(FeatureType.SECONDARY_STRUCTURE, residue), 0.0);
+					residueIndex++;
+				}
+			}
+			// pseudo-hydrogen atoms are only added for the computation
+			assertEquals(atomCount, countAtoms(protein));
+		}
+	}
+
+	private int countAtoms(Protein protein) {
+		int atomCount = 0;
+		for(Chain chain : protein.chains) {
+			for(Residue residue : chain.residues) {
+				atomCount += residue.atoms.size();
+			}
+		}
+		return atomCount;
+	}
+}
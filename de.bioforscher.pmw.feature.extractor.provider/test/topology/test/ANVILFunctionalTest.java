@@ -0,0 +1,70 @@
+package topology.test;
+
+import java.io.IOException;
+import java.util.List;
+
+import core.test.FeatureProviderFixture;
+import de.bioforscher.pmw.feature.extractor.asa.AccessibleSurfaceAreaCalculator;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.FeatureMatrix;
+import de.bioforscher.pmw.model.FeatureType;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.Topology;
+import junit.framework.TestCase;
+
+public class ANVILFunctionalTest extends TestCase {
+	private static final String REFERENCE_PATH = "topology/test/4cha.topology";
+	/**
+	 * axes are evaluated in parallel, so each run may complete them in another order
+	 */
+	private static final int NUMBER_OF_RUNS = 3;
+	/*
+	 * the membrane placed by the former sequential axis search - several of the refined axes of 4CHA achieve the best
+	 * score, so another tie-break yields another normal vector
+	 */
+	private static final double[] NORMAL_VECTOR = { -5.928125090238797, 18.998633287776258, -1.9771864128303918 };
+	private static final double[] PLANE_POINT_1 = { 11.539498888076924, -16.2780102096147, 35.11198373915514 };
+	private static final double[] PLANE_POINT_2 = { 17.46762397831572, -35.27664349739096, 37.089170151985535 };
+	private static final double[] SPHERE_POINT = { -5.948470128127528, 39.76795798932526, 29.279283821305484 };
+	private FeatureProviderFixture fixture;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.fixture = FeatureProviderFixture.get();
+	}
+
+	public void testReferenceMembrane() throws IOException {
+		List<String> reference = FeatureProviderFixture.readLines(REFERENCE_PATH);
+		for(int run = 0; run < NUMBER_OF_RUNS; run++) {
+			Protein protein = this.fixture.createProtein();
+			// the quality the feature extractor computes the required ASA with
+			this.fixture.getFactory().createAccessibleSurfaceAreaCalculator(AccessibleSurfaceAreaCalculator.Quality.FAST).computeFeature(protein);
+			this.fixture.getFactory().createAnvilInstance().computeFeature(protein);
+
+			assertEquals(NORMAL_VECTOR, protein.membrane.normalVector);
+			assertEquals(PLANE_POINT_1, protein.membrane.planePoint1);
+			assertEquals(PLANE_POINT_2, protein.membrane.planePoint2);
+			assertEquals(SPHERE_POINT, protein.membrane.spherePoint);
+
+			FeatureMatrix featureMatrix = protein.getFeatureMatrix();
+			assertEquals(reference.size(), featureMatrix.getResidueCount());
+			int residueIndex = 0;
+			for(Chain chain : protein.chains) {
+				for(Residue residue : chain.residues) {
+					String[] split = reference.get(residueIndex).split(" ");
+					assertEquals(split[0], chain.chainId + residue.residueNumber);
+					assertEquals(split[0], Topology.valueOf(split[1]).ordinal(), featureMatrix.getValue(FeatureType.MEMBRANE_TOPOLOGY, residue), 0.0);
+					residueIndex++;
+				}
+			}
+		}
+	}
+
+	private static void assertEquals(double[] expected, double[] actual) {
+		assertEquals(expected.length, actual.length);
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], 0.0);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package de.bioforscher.pmw.fragment.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory index of fragment shapes. Each fragment is described by the distances between all pairs of its CA atoms -
+ * this descriptor does not depend on the position or orientation of the fragment, so no superposition is needed to
+ * compare two fragments. Descriptors are organized in a vantage-point tree, which answers k-nearest-neighbor queries
+ * (in terms of the euclidean distance of descriptors) in logarithmic time.<br />
+ * The descriptor distance is a cheap pre-filter for the RMSD: for fragments of <code>n</code> atoms
+ * <code>rmsd &gt;= descriptorDistance / sqrt(2 * n * (n - 1))</code> (see {@link #rmsdLowerBound(double)}).
+ * @author S
+ *
+ */
+public class ShapeIndex {
+	private final int atomCount;
+	private final double[][] descriptors;
+	/**
+	 * the tree is implicit: the node of the range <code>[from, to)</code> has the vantage point <code>order[from]</code>,
+	 * its inner subtree covers <code>[from + 1, mid)</code>, its outer subtree <code>[mid, to)</code>
+	 */
+	private final int[] order;
+	/**
+	 * the maximal distance of the inner subtree to the vantage point of a node, indexed by <code>from</code>
+	 */
+	private final double[] innerRadii;
+	/**
+	 * the minimal distance of the outer subtree to the vantage point of a node, indexed by <code>from</code>
+	 */
+	private final double[] outerRadii;
+
+	/**
+	 * @param fragments the CA coordinates of each fragment - all fragments must be of equal length
+	 */
+	public ShapeIndex(List<List<double[]>> fragments) {
+		this.atomCount = fragments.isEmpty() ? 0 : fragments.get(0).size();
+		this.descriptors = new double[fragments.size()][];
+		for(int i = 0; i < this.descriptors.length; i++) {
+			if(fragments.get(i).size() != this.atomCount) {
+				throw new IllegalArgumentException("cannot index fragments of differing length - found " + this.atomCount + " and " + fragments.get(i).size());
+			}
+			this.descriptors[i] = describe(fragments.get(i));
+		}
+		this.order = IntStream.range(0, this.descriptors.length).toArray();
+		this.innerRadii = new double[this.descriptors.length];
+		this.outerRadii = new double[this.descriptors.length];
+		build(0, this.order.length);
+	}
+
+	/**
+	 * computes the shape descriptor of a fragment
+	 * @param caCoordinates the CA coordinates of the fragment
+	 * @return the distances of all pairs of CA atoms
+	 */
+	public static double[] describe(List<double[]> caCoordinates) {
+		int count = caCoordinates.size();
+		double[] descriptor = new double[count * (count - 1) / 2];
+		int index = 0;
+		for(int i = 0; i < count; i++) {
+			double[] ca1 = caCoordinates.get(i);
+			for(int j = i + 1; j < count; j++) {
+				double[] ca2 = caCoordinates.get(j);
+				descriptor[index++] = Math.sqrt((ca1[0] - ca2[0]) * (ca1[0] - ca2[0]) + (ca1[1] - ca2[1]) * (ca1[1] - ca2[1]) + (ca1[2] - ca2[2]) * (ca1[2] - ca2[2]));
+			}
+		}
+		return descriptor;
+	}
+
+	/**
+	 * each pairwise distance changes by at most the sum of the deviations of both atoms, so the descriptor distance is
+	 * bounded by <code>sqrt(2 * n * (n - 1)) * rmsd</code>
+	 * @param descriptorDistance the distance of two descriptors
+	 * @return the lower bound of the RMSD of the optimal superposition of both fragments
+	 */
+	public double rmsdLowerBound(double descriptorDistance) {
+		return this.atomCount < 2 ? 0 : descriptorDistance / Math.sqrt(2.0 * this.atomCount * (this.atomCount - 1));
+	}
+
+	/**
+	 * @param descriptor the descriptor of the query (see {@link #describe(List)})
+	 * @param index the index of an indexed fragment
+	 * @return the distance of both descriptors
+	 */
+	public double descriptorDistance(double[] descriptor, int index) {
+		return distance(descriptor, this.descriptors[index]);
+	}
+
+	public int size() {
+		return this.descriptors.length;
+	}
+
+	/**
+	 * finds the fragments with the most similar shape
+	 * @param caCoordinates the CA coordinates of the query - of the same length as the indexed fragments
+	 * @param k the number of fragments to retrieve
+	 * @return the indices of (at most) <code>k</code> fragments, ordered by increasing descriptor distance
+	 */
+	public List<Integer> findNearest(List<double[]> caCoordinates, int k) {
+		if(caCoordinates.size() != this.atomCount && size() > 0) {
+			throw new IllegalArgumentException("query of length " + caCoordinates.size() + " does not match indexed fragments of length " + this.atomCount);
+		}
+		double[] query = describe(caCoordinates);
+		// the current candidates, the farthest one on top
+		PriorityQueue<Neighbor> neighbors = new PriorityQueue<>(Comparator.comparingDouble((Neighbor n) -> n.distance).reversed());
+		if(k > 0) {
+			search(query, k, 0, this.order.length, neighbors);
+		}
+		List<Neighbor> sortedNeighbors = new ArrayList<>(neighbors);
+		Collections.sort(sortedNeighbors, Comparator.comparingDouble((Neighbor n) -> n.distance).thenComparingInt(n -> n.index));
+		List<Integer> indices = new ArrayList<>(sortedNeighbors.size());
+		sortedNeighbors.forEach(n -> indices.add(n.index));
+		return indices;
+	}
+
+	private void build(int from, int to) {
+		if(to - from <= 1) {
+			return;
+		}
+		// sort all other points of the range by their distance to the vantage point
+		final double[] vantagePoint = this.descriptors[this.order[from]];
+		Neighbor[] others = new Neighbor[to - from - 1];
+		for(int i = 0; i < others.length; i++) {
+			int index = this.order[from + 1 + i];
+			others[i] = new Neighbor(index, distance(vantagePoint, this.descriptors[index]));
+		}
+		Arrays.sort(others, Comparator.comparingDouble((Neighbor n) -> n.distance));
+		for(int i = 0; i < others.length; i++) {
+			this.order[from + 1 + i] = others[i].index;
+		}
+		int mid = middle(from, to);
+		this.innerRadii[from] = mid > from + 1 ? others[mid - from - 2].distance : 0;
+		this.outerRadii[from] = mid < to ? others[mid - from - 1].distance : 0;
+		build(from + 1, mid);
+		build(mid, to);
+	}
+
+	private static int middle(int from, int to) {
+		return from + 1 + (to - from - 1) / 2;
+	}
+
+	private void search(double[] query, int k, int from, int to, PriorityQueue<Neighbor> neighbors) {
+		if(from >= to) {
+			return;
+		}
+		int index = this.order[from];
+		double distance = distance(query, this.descriptors[index]);
+		if(neighbors.size() < k) {
+			neighbors.add(new Neighbor(index, distance));
+		} else if(distance < neighbors.peek().distance) {
+			neighbors.poll();
+			neighbors.add(new Neighbor(index, distance));
+		}
+
+		int mid = middle(from, to);
+		// descend into the more promising subtree first, the other one is only visited if it may still contain closer points
+		if(distance <= this.innerRadii[from]) {
+			search(query, k, from + 1, mid, neighbors);
+			if(mid < to && distance + radius(neighbors, k) >= this.outerRadii[from]) {
+				search(query, k, mid, to, neighbors);
+			}
+		} else {
+			search(query, k, mid, to, neighbors);
+			if(mid > from + 1 && distance - radius(neighbors, k) <= this.innerRadii[from]) {
+				search(query, k, from + 1, mid, neighbors);
+			}
+		}
+	}
+
+	private static double radius(PriorityQueue<Neighbor> neighbors, int k) {
+		return neighbors.size() < k ? Double.POSITIVE_INFINITY : neighbors.peek().distance;
+	}
+
+	private static double distance(double[] descriptor1, double[] descriptor2) {
+		double sum = 0;
+		for(int i = 0; i < descriptor1.length; i++) {
+			double difference = descriptor1[i] - descriptor2[i];
+			sum += difference * difference;
+		}
+		return Math.sqrt(sum);
+	}
+
+	private static class Neighbor {
+		private final int index;
+		private final double distance;
+
+		private Neighbor(int index, double distance) {
+			this.index = index;
+			this.distance = distance;
+		}
+	}
+}
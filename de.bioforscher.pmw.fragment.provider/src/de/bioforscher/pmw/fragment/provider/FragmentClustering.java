@@ -0,0 +1,74 @@
+package de.bioforscher.pmw.fragment.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sphere exclusion clustering (Butina 1999) on a distance matrix: the element with the most unassigned neighbors
+ * (i.e. elements closer than the cutoff) becomes the representative of a new cluster, which absorbs these neighbors.
+ * This is repeated until every element is assigned. Ties are broken by the lower index, so the result is
+ * deterministic.
+ * @author S
+ *
+ */
+public class FragmentClustering {
+	private final double[][] distances;
+	private final double cutoff;
+
+	/**
+	 * @param distances the symmetric distance matrix
+	 * @param cutoff elements closer than this distance are neighbors
+	 */
+	public FragmentClustering(double[][] distances, double cutoff) {
+		this.distances = distances;
+		this.cutoff = cutoff;
+	}
+
+	/**
+	 * @return the indices of the cluster representatives, in the order the clusters were formed
+	 */
+	public List<Integer> selectRepresentatives() {
+		final int size = this.distances.length;
+		final boolean[] assigned = new boolean[size];
+		final int[] neighborCounts = new int[size];
+		for(int i = 0; i < size; i++) {
+			for(int j = i + 1; j < size; j++) {
+				if(isNeighbor(i, j)) {
+					neighborCounts[i]++;
+					neighborCounts[j]++;
+				}
+			}
+		}
+
+		List<Integer> representatives = new ArrayList<>();
+		for(int remaining = size; remaining > 0;) {
+			int representative = -1;
+			for(int i = 0; i < size; i++) {
+				if(!assigned[i] && (representative < 0 || neighborCounts[i] > neighborCounts[representative])) {
+					representative = i;
+				}
+			}
+			representatives.add(representative);
+			assigned[representative] = true;
+			remaining--;
+			for(int member = 0; member < size; member++) {
+				if(assigned[member] || !isNeighbor(representative, member)) {
+					continue;
+				}
+				assigned[member] = true;
+				remaining--;
+				// the member is no longer available to other clusters
+				for(int k = 0; k < size; k++) {
+					if(!assigned[k] && isNeighbor(member, k)) {
+						neighborCounts[k]--;
+					}
+				}
+			}
+		}
+		return representatives;
+	}
+
+	private boolean isNeighbor(int i, int j) {
+		return this.distances[i][j] <= this.cutoff;
+	}
+}
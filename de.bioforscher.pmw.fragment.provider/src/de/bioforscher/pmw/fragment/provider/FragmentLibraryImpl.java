@@ -6,6 +6,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.osgi.service.component.annotations.Activate;
@@ -13,13 +18,17 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.log.LogService;
 
+import de.bioforscher.pmw.api.AlignmentService;
 import de.bioforscher.pmw.api.FeatureExtractor;
 import de.bioforscher.pmw.api.FragmentLibrary;
+import de.bioforscher.pmw.fragment.index.ShapeIndex;
 import de.bioforscher.pmw.api.ModelConverter;
 import de.bioforscher.pmw.api.ModelPersistence;
+import de.bioforscher.pmw.model.DefinedMotif;
 import de.bioforscher.pmw.model.FeatureType;
 import de.bioforscher.pmw.model.Fragment;
 import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
 
 @Component(name = "de.bioforscher.pmw.fragmentlibrary")
 public class FragmentLibraryImpl implements FragmentLibrary {
@@ -31,6 +40,11 @@ public class FragmentLibraryImpl implements FragmentLibrary {
 	 * standard PDBTM id list - non-redundant, alpha-helical
 	 */
 	public static final String PDBTM_IDS = "de/bioforscher/pmw/fragment/provider/pdbtm_ids.dat";
+	/**
+	 * the number of candidates initially retrieved from the shape index per requested fragment - it is doubled as long
+	 * as the remaining fragments may still be closer than the current k-th candidate
+	 */
+	private static final int CANDIDATE_FACTOR = 4;
 
 	@Reference
 	private ModelPersistence modelPersistence;
@@ -40,6 +54,12 @@ public class FragmentLibraryImpl implements FragmentLibrary {
 	private ModelConverter modelConverter;
 	@Reference
 	private FeatureExtractor featureExtractor;
+	@Reference
+	private AlignmentService alignmentService;
+	/**
+	 * the shape index of each motif bin, created on first access
+	 */
+	private final Map<DefinedMotif, IndexedFragments> shapeIndices = new ConcurrentHashMap<>();
 	
 	@Activate
 	public void activate() throws Exception {
@@ -54,6 +74,87 @@ public class FragmentLibraryImpl implements FragmentLibrary {
 		}
 	}
 	
+	@Override
+	public List<Fragment> condenseFragments(DefinedMotif sequenceMotif, double rmsdCutoff) throws Exception {
+		List<Fragment> fragments = this.modelPersistence.retrieveFragments(sequenceMotif);
+		double[][] rmsds = this.alignmentService.rmsdMatrix(fragments.stream().map(f -> f.residues).collect(Collectors.toList()), rmsdCutoff);
+		List<Integer> representativeIndices = new FragmentClustering(rmsds, rmsdCutoff).selectRepresentatives();
+		
+		List<Fragment> representatives = representativeIndices.stream().map(fragments::get).collect(Collectors.toList());
+		List<Fragment> redundantFragments = new ArrayList<>(fragments);
+		redundantFragments.removeAll(representatives);
+		this.logger.log(LogService.LOG_INFO, "condensing " + fragments.size() + " fragments of " + sequenceMotif + " to " + representatives.size() + " representatives");
+		if(!redundantFragments.isEmpty()) {
+			this.modelPersistence.deleteFragments(redundantFragments);
+		}
+		this.shapeIndices.remove(sequenceMotif);
+		return representatives;
+	}
+	
+	@Override
+	public List<Fragment> findClosestFragments(DefinedMotif sequenceMotif, List<Residue> query, int k) throws Exception {
+		if(k <= 0) {
+			return new ArrayList<>();
+		}
+		IndexedFragments indexedFragments = this.shapeIndices.computeIfAbsent(sequenceMotif, this::indexFragments);
+		ShapeIndex index = indexedFragments.index;
+		List<double[]> caCoordinates = extractCACoordinates(query);
+		double[] descriptor = ShapeIndex.describe(caCoordinates);
+		
+		// cheap pre-filter by shape, exact superposition of the candidates only
+		Map<Integer, Double> rmsds = new ConcurrentHashMap<>();
+		int candidateCount = CANDIDATE_FACTOR * k;
+		while(true) {
+			List<Integer> candidates = index.findNearest(caCoordinates, candidateCount);
+			candidates.parallelStream()
+					.filter(i -> !rmsds.containsKey(i))
+					.forEach(i -> rmsds.put(i, this.alignmentService.rmsd(query, indexedFragments.fragments.get(i).residues)));
+			if(candidateCount >= index.size()) {
+				break;
+			}
+			// all remaining fragments are at least as far from the query as the last candidate
+			double remainingLowerBound = index.rmsdLowerBound(index.descriptorDistance(descriptor, candidates.get(candidates.size() - 1)));
+			double kthRmsd = rmsds.values().stream().sorted().skip(k - 1).findFirst().orElse(Double.POSITIVE_INFINITY);
+			if(remainingLowerBound >= kthRmsd) {
+				break;
+			}
+			candidateCount *= 2;
+		}
+		return rmsds.keySet().stream()
+				.sorted(Comparator.comparingDouble((Integer i) -> rmsds.get(i)).thenComparingInt(i -> i))
+				.limit(k)
+				.map(indexedFragments.fragments::get)
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * called at most once per motif bin until the bin is condensed
+	 */
+	private IndexedFragments indexFragments(DefinedMotif sequenceMotif) {
+		try {
+			return new IndexedFragments(this.modelPersistence.retrieveFragments(sequenceMotif));
+		} catch (Exception e) {
+			throw new IllegalStateException("cannot retrieve fragments of " + sequenceMotif, e);
+		}
+	}
+	
+	private List<double[]> extractCACoordinates(List<Residue> residues) {
+		return residues.stream().map(r -> this.modelConverter.getCA(r).xyz).collect(Collectors.toList());
+	}
+	
+	/**
+	 * the fragments of one motif bin and their shape index
+	 */
+	private class IndexedFragments {
+		private final List<Fragment> fragments;
+		private final ShapeIndex index;
+		
+		private IndexedFragments(List<Fragment> fragments) {
+			this.fragments = fragments;
+			this.index = new ShapeIndex(fragments.stream().map(f -> extractCACoordinates(f.residues)).collect(Collectors.toList()));
+		}
+	}
+	
 	@SuppressWarnings("unused")
 	private void createFragmentLibrary() {
 		InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(PDBTM_IDS);
@@ -94,7 +195,7 @@ public class FragmentLibraryImpl implements FragmentLibrary {
 			}
 			
 			File fragmentFile = new File(motifDir + "/" + fragment._id + ".pdb");
-			String fragmentFileContent = fragment.residues.stream().flatMap(r -> r.atoms.stream()).map(a -> a.pdbRepresentation).collect(Collectors.joining(System.lineSeparator()));
+			String fragmentFileContent = this.modelConverter.composePdbRepresentation(chainId, fragment.residues);
 			try {
 				System.out.println("writing file: " + fragmentFile.getAbsolutePath());
 				Files.write(fragmentFile.toPath(), fragmentFileContent.getBytes());
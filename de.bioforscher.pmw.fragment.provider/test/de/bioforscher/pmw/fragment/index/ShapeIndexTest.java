@@ -0,0 +1,82 @@
+package de.bioforscher.pmw.fragment.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import junit.framework.TestCase;
+
+public class ShapeIndexTest extends TestCase {
+	private static final int FRAGMENT_LENGTH = 6;
+	private final Random random = new Random(3);
+	private List<List<double[]>> fragments;
+	private ShapeIndex index;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.fragments = new ArrayList<>();
+		for(int i = 0; i < 500; i++) {
+			this.fragments.add(randomFragment());
+		}
+		this.index = new ShapeIndex(this.fragments);
+	}
+
+	public void testFindNearest() {
+		for(int query = 0; query < 20; query++) {
+			List<double[]> queryFragment = randomFragment();
+			double[] descriptor = ShapeIndex.describe(queryFragment);
+			List<Integer> expected = IntStream.range(0, this.fragments.size()).boxed()
+					.sorted(Comparator.comparingDouble((Integer i) -> distance(descriptor, ShapeIndex.describe(this.fragments.get(i)))).thenComparingInt(i -> i))
+					.limit(7)
+					.collect(Collectors.toList());
+			assertEquals(expected, this.index.findNearest(queryFragment, 7));
+			int nearest = expected.get(0);
+			assertEquals(distance(descriptor, ShapeIndex.describe(this.fragments.get(nearest))), this.index.descriptorDistance(descriptor, nearest), 0.0);
+		}
+		assertEquals(this.fragments.size(), this.index.findNearest(randomFragment(), 1000).size());
+		assertTrue(this.index.findNearest(randomFragment(), 0).isEmpty());
+	}
+
+	public void testRototranslatedFragment() {
+		// the descriptor does not depend on the placement of a fragment
+		List<double[]> fragment = this.fragments.get(42);
+		double angle = 1.1;
+		List<double[]> moved = fragment.stream()
+				.map(ca -> new double[] { Math.cos(angle) * ca[0] - Math.sin(angle) * ca[1] + 3, Math.sin(angle) * ca[0] + Math.cos(angle) * ca[1] - 7, ca[2] + 12 })
+				.collect(Collectors.toList());
+		assertEquals(0, distance(ShapeIndex.describe(fragment), ShapeIndex.describe(moved)), 1e-9);
+		assertEquals(42, (int) this.index.findNearest(moved, 1).get(0));
+		assertEquals(0, this.index.rmsdLowerBound(0), 0.0);
+	}
+
+	public void testDifferingLength() {
+		try {
+			this.index.findNearest(this.fragments.get(0).subList(0, 3), 1);
+			fail("query of differing length was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private List<double[]> randomFragment() {
+		List<double[]> fragment = new ArrayList<>();
+		double[] ca = new double[3];
+		for(int i = 0; i < FRAGMENT_LENGTH; i++) {
+			// consecutive CA atoms are about 3.8 A apart
+			ca = new double[] { ca[0] + this.random.nextGaussian() * 2.2, ca[1] + this.random.nextGaussian() * 2.2, ca[2] + this.random.nextGaussian() * 2.2 };
+			fragment.add(ca);
+		}
+		return fragment;
+	}
+
+	private double distance(double[] descriptor1, double[] descriptor2) {
+		double sum = 0;
+		for(int i = 0; i < descriptor1.length; i++) {
+			sum += (descriptor1[i] - descriptor2[i]) * (descriptor1[i] - descriptor2[i]);
+		}
+		return Math.sqrt(sum);
+	}
+}
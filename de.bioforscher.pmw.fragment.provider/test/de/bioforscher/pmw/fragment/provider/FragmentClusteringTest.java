@@ -0,0 +1,32 @@
+package de.bioforscher.pmw.fragment.provider;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class FragmentClusteringTest extends TestCase {
+	private static final double INF = Double.POSITIVE_INFINITY;
+
+	public void testSelectRepresentatives() {
+		// element 1 is close to 0, 2 and 3 - elements 4 and 5 form a pair, 6 is a singleton
+		double[][] distances = {
+			{ 0.0, 0.5, 1.5, 1.5, INF, INF, INF },
+			{ 0.5, 0.0, 0.5, 0.8, INF, INF, INF },
+			{ 1.5, 0.5, 0.0, 1.5, INF, INF, INF },
+			{ 1.5, 0.8, 1.5, 0.0, INF, INF, INF },
+			{ INF, INF, INF, INF, 0.0, 0.9, INF },
+			{ INF, INF, INF, INF, 0.9, 0.0, INF },
+			{ INF, INF, INF, INF, INF, INF, 0.0 } };
+		List<Integer> representatives = new FragmentClustering(distances, 1.0).selectRepresentatives();
+		assertEquals(Arrays.asList(1, 4, 6), representatives);
+	}
+
+	public void testDisjointElements() {
+		double[][] distances = {
+			{ 0.0, 2.0, 2.0 },
+			{ 2.0, 0.0, 2.0 },
+			{ 2.0, 2.0, 0.0 } };
+		assertEquals(Arrays.asList(0, 1, 2), new FragmentClustering(distances, 1.0).selectRepresentatives());
+	}
+}
@@ -0,0 +1,141 @@
+package de.bioforscher.pmw.model.converter.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * Binary representation of parsed structures - covers exactly the information extracted by the PDB parsers, so loading
+ * a structure does not require parsing text again. Recurring strings (atom names, elements, residue names) are stored
+ * once and referenced by index.
+ * @author S
+ *
+ */
+class ProteinSerializer {
+	/**
+	 * identifies the format - change whenever the layout changes, so outdated files are ignored
+	 */
+	static final int VERSION = 1;
+	private static final int MAGIC = 0x504D5750;
+	private static final int NULL_STRING = -2;
+
+	void write(Protein protein, DataOutputStream outputStream) throws IOException {
+		outputStream.writeInt(MAGIC);
+		outputStream.writeInt(VERSION);
+		writeNullableString(outputStream, protein.name);
+		writeNullableString(outputStream, protein.title);
+
+		Map<String, Integer> strings = new HashMap<>();
+		outputStream.writeInt(protein.chains.size());
+		for(Chain chain : protein.chains) {
+			writeString(outputStream, strings, chain.chainId);
+			outputStream.writeInt(chain.residues.size());
+			for(Residue residue : chain.residues) {
+				writeString(outputStream, strings, residue.aminoAcid);
+				outputStream.writeInt(residue.residueNumber);
+				outputStream.writeInt(residue.atoms.size());
+				for(Atom atom : residue.atoms) {
+					writeString(outputStream, strings, atom.name);
+					writeString(outputStream, strings, atom.element);
+					outputStream.writeInt(atom.pdbSerial);
+					outputStream.writeFloat(atom.occupancy);
+					outputStream.writeFloat(atom.tempFactor);
+					outputStream.writeDouble(atom.xyz[0]);
+					outputStream.writeDouble(atom.xyz[1]);
+					outputStream.writeDouble(atom.xyz[2]);
+				}
+			}
+		}
+	}
+
+	Protein read(DataInputStream inputStream) throws IOException {
+		if(inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION) {
+			throw new IOException("unknown format of pre-parsed structure");
+		}
+		Protein protein = new Protein();
+		protein.name = readNullableString(inputStream);
+		protein.title = readNullableString(inputStream);
+
+		Map<Integer, String> strings = new HashMap<>();
+		int chainCount = inputStream.readInt();
+		for(int c = 0; c < chainCount; c++) {
+			Chain chain = new Chain();
+			chain.chainId = readString(inputStream, strings);
+			int residueCount = inputStream.readInt();
+			for(int r = 0; r < residueCount; r++) {
+				Residue residue = new Residue();
+				residue.aminoAcid = readString(inputStream, strings);
+				residue.insertionCode = null;
+				residue.residueNumber = inputStream.readInt();
+				int atomCount = inputStream.readInt();
+				for(int a = 0; a < atomCount; a++) {
+					Atom atom = new Atom();
+					atom.name = readString(inputStream, strings);
+					atom.element = readString(inputStream, strings);
+					atom.pdbSerial = inputStream.readInt();
+					atom.occupancy = inputStream.readFloat();
+					atom.tempFactor = inputStream.readFloat();
+					atom.xyz = new double[] { inputStream.readDouble(), inputStream.readDouble(), inputStream.readDouble() };
+					residue.atoms.add(atom);
+				}
+				chain.residues.add(residue);
+			}
+			protein.chains.add(chain);
+		}
+		return protein;
+	}
+
+	/**
+	 * writes the index of a known string, <code>-1</code> followed by a new string or <code>-2</code> for
+	 * <code>null</code>
+	 */
+	private static void writeString(DataOutputStream outputStream, Map<String, Integer> strings, String string) throws IOException {
+		if(string == null) {
+			outputStream.writeInt(NULL_STRING);
+			return;
+		}
+		Integer index = strings.get(string);
+		if(index != null) {
+			outputStream.writeInt(index);
+		} else {
+			strings.put(string, strings.size());
+			outputStream.writeInt(-1);
+			outputStream.writeUTF(string);
+		}
+	}
+
+	private static String readString(DataInputStream inputStream, Map<Integer, String> strings) throws IOException {
+		int index = inputStream.readInt();
+		if(index == NULL_STRING) {
+			return null;
+		}
+		if(index >= 0) {
+			String string = strings.get(index);
+			if(string == null) {
+				throw new IOException("invalid string reference " + index);
+			}
+			return string;
+		}
+		String string = inputStream.readUTF();
+		strings.put(strings.size(), string);
+		return string;
+	}
+
+	private static void writeNullableString(DataOutputStream outputStream, String string) throws IOException {
+		outputStream.writeBoolean(string != null);
+		if(string != null) {
+			outputStream.writeUTF(string);
+		}
+	}
+
+	private static String readNullableString(DataInputStream inputStream) throws IOException {
+		return inputStream.readBoolean() ? inputStream.readUTF() : null;
+	}
+}
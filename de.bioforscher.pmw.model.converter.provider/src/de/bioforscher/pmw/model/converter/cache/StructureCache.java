@@ -0,0 +1,484 @@
+package de.bioforscher.pmw.model.converter.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.parser.CompressedFiles;
+import de.bioforscher.pmw.model.converter.parser.PDBConverter;
+
+/**
+ * A local cache of structures fetched from the PDB. Downloaded files are stored content-addressed (by their SHA-256
+ * hash) together with a pre-parsed binary representation, the id of an entry references the hash. Thus, requesting a
+ * cached structure neither touches the network nor parses text.
+ * <ul>
+ * <li>the size of all stored files is bounded, least recently used structures are evicted first</li>
+ * <li>the number of concurrent downloads is limited, concurrent requests of the same id share one download and failed
+ * downloads are retried</li>
+ * <li>in offline mode only cached structures are provided</li>
+ * </ul>
+ * Instances are thread-safe. The directory must not be shared by several instances at the same time.
+ * @author S
+ *
+ */
+public class StructureCache {
+	public static final String DEFAULT_URL_TEMPLATE = ModelConverter.PDB_FETCH_URL;
+	public static final long DEFAULT_MAXIMAL_SIZE = 2L << 30;
+	public static final int DEFAULT_FETCH_CONCURRENCY = 4;
+	private static final int FETCH_ATTEMPTS = 3;
+	private static final long RETRY_DELAY = 500;
+	private static final int CONNECT_TIMEOUT = 10000;
+	private static final int READ_TIMEOUT = 60000;
+	/**
+	 * ids become file names, so they are restricted to harmless characters
+	 */
+	private static final Pattern ID_PATTERN = Pattern.compile("[a-z0-9_-]+");
+	private static final String RAW_SUFFIX = ".raw";
+	private static final String PARSED_SUFFIX = ".v" + ProteinSerializer.VERSION + ".bin";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final Path objectDirectory;
+	private final Path idDirectory;
+	private final long maximalSize;
+	private final boolean offline;
+	private final String urlTemplate;
+	private final Semaphore fetchPermits;
+	private final ProteinSerializer proteinSerializer = new ProteinSerializer();
+	private final Map<String, CompletableFuture<String>> pendingFetches = new ConcurrentHashMap<>();
+	private final AtomicInteger fetchCount = new AtomicInteger();
+	/**
+	 * hash of each stored structure to the size of its files - in access order, guarded by this
+	 */
+	private final LinkedHashMap<String, Long> objects = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * id to hash of all stored structures, guarded by this
+	 */
+	private final Map<String, String> ids = new HashMap<>();
+	private long size;
+
+	/**
+	 * creates a cache with default settings
+	 * @param directory the directory to store files in, it is created if needed
+	 * @throws IOException when the directory cannot be read
+	 */
+	public StructureCache(Path directory) throws IOException {
+		this(directory, DEFAULT_MAXIMAL_SIZE, DEFAULT_FETCH_CONCURRENCY, false, DEFAULT_URL_TEMPLATE);
+	}
+
+	/**
+	 * @param directory the directory to store files in, it is created if needed - structures stored by previous
+	 * instances are reused
+	 * @param maximalSize the maximal number of bytes stored - the most recently used structure is always kept
+	 * @param fetchConcurrency the maximal number of concurrent downloads
+	 * @param offline if true, the network is never accessed
+	 * @param urlTemplate the URL to fetch structures from, <code>%s</code> is replaced by the id - the file format is
+	 * chosen by the name of the file (see {@link PDBConverter#forFileName(String)})
+	 * @throws IOException when the directory cannot be read
+	 */
+	public StructureCache(Path directory, long maximalSize, int fetchConcurrency, boolean offline, String urlTemplate) throws IOException {
+		this.objectDirectory = directory.resolve("objects");
+		this.idDirectory = directory.resolve("ids");
+		this.maximalSize = maximalSize;
+		this.offline = offline;
+		this.urlTemplate = urlTemplate;
+		this.fetchPermits = new Semaphore(Math.max(fetchConcurrency, 1), true);
+		Files.createDirectories(this.objectDirectory);
+		Files.createDirectories(this.idDirectory);
+		load();
+	}
+
+	/**
+	 * restores the state of previous instances - least recently used structures first
+	 */
+	private void load() throws IOException {
+		List<Path> rawFiles;
+		try(Stream<Path> files = Files.walk(this.objectDirectory)) {
+			rawFiles = files.filter(file -> file.getFileName().toString().endsWith(RAW_SUFFIX)).collect(Collectors.toList());
+		}
+		Map<Path, FileTime> accessTimes = new HashMap<>();
+		for(Path rawFile : rawFiles) {
+			accessTimes.put(rawFile, Files.getLastModifiedTime(rawFile));
+		}
+		rawFiles.sort(Comparator.comparing(accessTimes::get));
+		for(Path rawFile : rawFiles) {
+			String fileName = rawFile.getFileName().toString();
+			String hash = fileName.substring(0, fileName.length() - RAW_SUFFIX.length());
+			register(hash, sizeOf(hash));
+		}
+
+		try(DirectoryStream<Path> idFiles = Files.newDirectoryStream(this.idDirectory)) {
+			for(Path idFile : idFiles) {
+				if(idFile.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+					// left over by an interrupted write
+					Files.deleteIfExists(idFile);
+					continue;
+				}
+				String hash = new String(Files.readAllBytes(idFile), StandardCharsets.US_ASCII).trim();
+				if(this.objects.containsKey(hash)) {
+					this.ids.put(idFile.getFileName().toString(), hash);
+				} else {
+					Files.deleteIfExists(idFile);
+				}
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * provides a structure - from the cache if possible
+	 * @param id the PDB id of the structure
+	 * @return a new instance of the parsed structure
+	 * @throws IOException when the structure is not cached and cannot be fetched
+	 */
+	public Protein getProtein(String id) throws IOException {
+		String key = normalize(id);
+		try {
+			return readProtein(resolve(key));
+		} catch (NoSuchFileException e) {
+			// evicted concurrently - fetch once again
+			return readProtein(resolve(key));
+		}
+	}
+
+	/**
+	 * provides the file of a structure as fetched from the PDB - from the cache if possible
+	 * @param id the PDB id of the structure
+	 * @return the content of the file
+	 * @throws IOException when the structure is not cached and cannot be fetched
+	 */
+	public byte[] getFile(String id) throws IOException {
+		String key = normalize(id);
+		try {
+			return Files.readAllBytes(rawFile(resolve(key)));
+		} catch (NoSuchFileException e) {
+			return Files.readAllBytes(rawFile(resolve(key)));
+		}
+	}
+
+	/**
+	 * @param id the PDB id of the structure
+	 * @return true iff the structure is available without accessing the network
+	 */
+	public synchronized boolean contains(String id) {
+		return this.ids.containsKey(normalize(id));
+	}
+
+	/**
+	 * @return the number of bytes currently stored
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of download attempts performed by this instance
+	 */
+	public int getFetchCount() {
+		return this.fetchCount.get();
+	}
+
+	/**
+	 * @return the hash of the structure, which is fetched and stored if necessary
+	 */
+	private String resolve(String key) throws IOException {
+		synchronized(this) {
+			String hash = this.ids.get(key);
+			if(hash != null) {
+				// marks the structure as recently used
+				this.objects.get(hash);
+				touch(hash);
+				return hash;
+			}
+		}
+		if(this.offline) {
+			throw new IOException("structure '" + key + "' is not cached and the structure cache is offline");
+		}
+
+		CompletableFuture<String> fetch = new CompletableFuture<>();
+		CompletableFuture<String> pendingFetch = this.pendingFetches.putIfAbsent(key, fetch);
+		if(pendingFetch != null) {
+			return await(pendingFetch);
+		}
+		try {
+			String hash = fetchAndStore(key);
+			fetch.complete(hash);
+			return hash;
+		} catch (IOException | RuntimeException e) {
+			fetch.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.pendingFetches.remove(key, fetch);
+		}
+	}
+
+	private static String await(CompletableFuture<String> fetch) throws IOException {
+		try {
+			return fetch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private String fetchAndStore(String key) throws IOException {
+		byte[] content = fetch(key);
+		String hash = hash(content);
+		Protein protein = parse(content);
+
+		Path rawFile = rawFile(hash);
+		Files.createDirectories(rawFile.getParent());
+		if(!Files.exists(rawFile)) {
+			writeAtomically(rawFile, content);
+		}
+		ByteArrayOutputStream parsed = new ByteArrayOutputStream();
+		try(DataOutputStream outputStream = new DataOutputStream(parsed)) {
+			this.proteinSerializer.write(protein, outputStream);
+		}
+		writeAtomically(parsedFile(hash), parsed.toByteArray());
+		writeAtomically(this.idDirectory.resolve(key), hash.getBytes(StandardCharsets.US_ASCII));
+
+		synchronized(this) {
+			if(!this.objects.containsKey(hash)) {
+				register(hash, content.length + parsed.size());
+			}
+			this.ids.put(key, hash);
+			evict();
+		}
+		return hash;
+	}
+
+	private byte[] fetch(String key) throws IOException {
+		URL url = new URL(String.format(this.urlTemplate, key));
+		try {
+			this.fetchPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		try {
+			IOException failure = null;
+			for(int attempt = 0; attempt < FETCH_ATTEMPTS; attempt++) {
+				if(attempt > 0) {
+					try {
+						Thread.sleep(RETRY_DELAY * attempt);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+				try {
+					this.fetchCount.incrementAndGet();
+					return read(url);
+				} catch (FileNotFoundException e) {
+					// unknown id - retrying is pointless
+					throw e;
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			throw failure;
+		} finally {
+			this.fetchPermits.release();
+		}
+	}
+
+	private static byte[] read(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		try(InputStream inputStream = connection.getInputStream()) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while((read = inputStream.read(buffer)) != -1) {
+				content.write(buffer, 0, read);
+			}
+			return content.toByteArray();
+		} finally {
+			if(connection instanceof HttpURLConnection) {
+				((HttpURLConnection) connection).disconnect();
+			}
+		}
+	}
+
+	private Protein parse(byte[] content) throws IOException {
+		String fileName = this.urlTemplate.substring(this.urlTemplate.lastIndexOf('/') + 1);
+		InputStream inputStream = new ByteArrayInputStream(content);
+		if(fileName.toLowerCase(Locale.ROOT).endsWith(CompressedFiles.GZIP_EXTENSION)) {
+			inputStream = new GZIPInputStream(inputStream);
+		}
+		return PDBConverter.forFileName(fileName).parsePDBFile(inputStream);
+	}
+
+	/**
+	 * reads the pre-parsed structure - it is restored from the raw file if missing or outdated
+	 */
+	private Protein readProtein(String hash) throws IOException {
+		Path parsedFile = parsedFile(hash);
+		if(Files.exists(parsedFile)) {
+			try(DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(parsedFile)))) {
+				return this.proteinSerializer.read(inputStream);
+			} catch (NoSuchFileException e) {
+				throw e;
+			} catch (IOException e) {
+				// corrupt file - restored below
+			}
+		}
+		Protein protein = parse(Files.readAllBytes(rawFile(hash)));
+		ByteArrayOutputStream parsed = new ByteArrayOutputStream();
+		try(DataOutputStream outputStream = new DataOutputStream(parsed)) {
+			this.proteinSerializer.write(protein, outputStream);
+		}
+		writeAtomically(parsedFile, parsed.toByteArray());
+		synchronized(this) {
+			if(this.objects.containsKey(hash)) {
+				long objectSize = sizeOf(hash);
+				this.size += objectSize - this.objects.put(hash, objectSize);
+				evict();
+			}
+		}
+		return protein;
+	}
+
+	/**
+	 * must be called while holding the lock
+	 */
+	private void register(String hash, long objectSize) {
+		this.objects.put(hash, objectSize);
+		this.size += objectSize;
+	}
+
+	/**
+	 * removes least recently used structures until the maximal size is met - must be called while holding the lock
+	 */
+	private void evict() throws IOException {
+		Iterator<Map.Entry<String, Long>> iterator = this.objects.entrySet().iterator();
+		while(this.size > this.maximalSize && this.objects.size() > 1) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			String hash = eldest.getKey();
+			iterator.remove();
+			this.size -= eldest.getValue();
+
+			Iterator<Map.Entry<String, String>> idIterator = this.ids.entrySet().iterator();
+			while(idIterator.hasNext()) {
+				Map.Entry<String, String> id = idIterator.next();
+				if(id.getValue().equals(hash)) {
+					idIterator.remove();
+					Files.deleteIfExists(this.idDirectory.resolve(id.getKey()));
+				}
+			}
+			Files.deleteIfExists(rawFile(hash));
+			Files.deleteIfExists(parsedFile(hash));
+		}
+	}
+
+	private void touch(String hash) {
+		try {
+			Files.setLastModifiedTime(rawFile(hash), FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// only affects the order of eviction after a restart
+		}
+	}
+
+	private long sizeOf(String hash) throws IOException {
+		long objectSize = Files.size(rawFile(hash));
+		Path parsedFile = parsedFile(hash);
+		if(Files.exists(parsedFile)) {
+			objectSize += Files.size(parsedFile);
+		}
+		return objectSize;
+	}
+
+	private Path rawFile(String hash) {
+		return this.objectDirectory.resolve(hash.substring(0, 2)).resolve(hash + RAW_SUFFIX);
+	}
+
+	private Path parsedFile(String hash) {
+		return this.objectDirectory.resolve(hash.substring(0, 2)).resolve(hash + PARSED_SUFFIX);
+	}
+
+	/**
+	 * writes a temporary file first, so other instances (e.g. after a crash) never see incomplete files
+	 */
+	private static void writeAtomically(Path file, byte[] content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMPORARY_SUFFIX);
+		try {
+			try(BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+				outputStream.write(content);
+			}
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private static String hash(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder hash = new StringBuilder(2 * digest.length);
+			for(byte b : digest) {
+				hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String normalize(String id) {
+		String key = id.trim().toLowerCase(Locale.ROOT);
+		if(!ID_PATTERN.matcher(key).matches()) {
+			throw new IllegalArgumentException("invalid structure id '" + id + "'");
+		}
+		return key;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return this.getClass().getSimpleName() + " objects='" + this.objects.size() + "' size='" + this.size + "'";
+	}
+}
@@ -0,0 +1,472 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * A parser of BinaryCIF files, the columnar and binary encoded variant of mmCIF. Columns are decoded as a whole into
+ * primitive arrays (coordinates directly into <code>double[]</code>), string columns reference one instance per distinct
+ * value. The same information as by {@link MmCIFConverter} is evaluated.<br />
+ * Supported encodings: ByteArray, FixedPoint, IntervalQuantization, RunLength, Delta, IntegerPacking and StringArray.
+ * @author S
+ *
+ */
+public class BinaryCIFConverter implements PDBConverter {
+	private static final String ATOM_RECORD = "ATOM";
+	private static final int INT8 = 1;
+	private static final int INT16 = 2;
+	private static final int INT32 = 3;
+	private static final int UINT8 = 4;
+	private static final int UINT16 = 5;
+	private static final int UINT32 = 6;
+	private static final int FLOAT32 = 32;
+	private static final int FLOAT64 = 33;
+
+	private final PDBConverter pdbConverter = new BytePDBConverter();
+
+	@Override
+	public Protein parsePDBFile(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1 << 16];
+		int read;
+		while((read = inputStream.read(buffer)) != -1) {
+			content.write(buffer, 0, read);
+		}
+		return parsePDBFile(ByteBuffer.wrap(content.toByteArray()));
+	}
+
+	/**
+	 * uncompressed files are memory-mapped, so there is nothing to pipeline
+	 */
+	@Override
+	public Protein parseUncompressedFile(File file, boolean pipelined) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return parsePDBFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * parses a BinaryCIF file from a buffer - from its position to its limit
+	 * @param buffer the content to parse
+	 * @return the parsed protein
+	 * @throws IOException when the content is no valid BinaryCIF
+	 */
+	public Protein parsePDBFile(ByteBuffer buffer) throws IOException {
+		Map<String, Object> file = asMap(new MessagePackReader(buffer).read());
+		List<Object> dataBlocks = asList(file.get("dataBlocks"));
+		if(dataBlocks.isEmpty()) {
+			throw new IOException("BinaryCIF file without data blocks");
+		}
+		Map<String, Object> dataBlock = asMap(dataBlocks.get(0));
+		Map<String, Map<String, Object>> categories = new HashMap<>();
+		for(Object category : asList(dataBlock.get("categories"))) {
+			String name = (String) asMap(category).get("name");
+			categories.put(name.startsWith("_") ? name.substring(1) : name, asMap(category));
+		}
+
+		String name = firstValue(categories.get("entry"), "id");
+		if(name == null) {
+			name = (String) dataBlock.get("header");
+		}
+		String title = firstValue(categories.get("struct"), "title");
+
+		ProteinBuilder proteinBuilder = new ProteinBuilder();
+		Map<String, Object> atomSite = categories.get("atom_site");
+		if(atomSite != null) {
+			parseAtomSite(atomSite, proteinBuilder);
+		}
+		return proteinBuilder.build(name, title);
+	}
+
+	private void parseAtomSite(Map<String, Object> atomSite, ProteinBuilder proteinBuilder) throws IOException {
+		int rowCount = ((Number) atomSite.get("rowCount")).intValue();
+		Map<String, Map<String, Object>> columns = columns(atomSite);
+		String[] group = stringColumn(columns, rowCount, "group_PDB");
+		int[] serial = intColumn(columns, rowCount, "id");
+		String[] element = stringColumn(columns, rowCount, "type_symbol");
+		String[] name = stringColumn(columns, rowCount, "auth_atom_id", "label_atom_id");
+		String[] aminoAcid = stringColumn(columns, rowCount, "auth_comp_id", "label_comp_id");
+		String[] chainId = stringColumn(columns, rowCount, "auth_asym_id", "label_asym_id");
+		int[] residueNumber = intColumn(columns, rowCount, "auth_seq_id", "label_seq_id");
+		double[] x = doubleColumn(columns, rowCount, "Cartn_x");
+		double[] y = doubleColumn(columns, rowCount, "Cartn_y");
+		double[] z = doubleColumn(columns, rowCount, "Cartn_z");
+		double[] occupancy = columns.containsKey("occupancy") ? doubleColumn(columns, rowCount, "occupancy") : new double[rowCount];
+		double[] tempFactor = columns.containsKey("B_iso_or_equiv") ? doubleColumn(columns, rowCount, "B_iso_or_equiv") : new double[rowCount];
+		int[] model = columns.containsKey("pdbx_PDB_model_num") ? intColumn(columns, rowCount, "pdbx_PDB_model_num") : null;
+
+		for(int i = 0; i < rowCount; i++) {
+			if(!ATOM_RECORD.equals(group[i])) {
+				continue;
+			}
+			// only the first model is considered
+			if(model != null && model[i] != model[0]) {
+				continue;
+			}
+			proteinBuilder.addAtom(chainId[i], residueNumber[i], aminoAcid[i], name[i], element[i], serial[i],
+					(float) occupancy[i], (float) tempFactor[i], x[i], y[i], z[i]);
+		}
+	}
+
+	private static Map<String, Map<String, Object>> columns(Map<String, Object> category) {
+		Map<String, Map<String, Object>> columns = new HashMap<>();
+		for(Object column : asList(category.get("columns"))) {
+			columns.put((String) asMap(column).get("name"), asMap(column));
+		}
+		return columns;
+	}
+
+	private static String firstValue(Map<String, Object> category, String field) throws IOException {
+		if(category == null || ((Number) category.get("rowCount")).intValue() == 0) {
+			return null;
+		}
+		Map<String, Object> column = columns(category).get(field);
+		if(column == null) {
+			return null;
+		}
+		return asStrings(decodeColumn(column), 1)[0];
+	}
+
+	private static Map<String, Object> requireColumn(Map<String, Map<String, Object>> columns, String... fields) throws IOException {
+		for(String field : fields) {
+			Map<String, Object> column = columns.get(field);
+			if(column != null) {
+				return column;
+			}
+		}
+		throw new IOException("missing column _atom_site." + fields[0]);
+	}
+
+	private static String[] stringColumn(Map<String, Map<String, Object>> columns, int rowCount, String... fields) throws IOException {
+		return asStrings(decodeColumn(requireColumn(columns, fields)), rowCount);
+	}
+
+	private static int[] intColumn(Map<String, Map<String, Object>> columns, int rowCount, String... fields) throws IOException {
+		Object values = decodeColumn(requireColumn(columns, fields));
+		if(values instanceof int[]) {
+			return checkLength((int[]) values, rowCount);
+		}
+		if(values instanceof double[]) {
+			double[] doubles = checkLength((double[]) values, rowCount);
+			int[] ints = new int[doubles.length];
+			for(int i = 0; i < doubles.length; i++) {
+				ints[i] = (int) doubles[i];
+			}
+			return ints;
+		}
+		String[] strings = asStrings(values, rowCount);
+		int[] ints = new int[strings.length];
+		for(int i = 0; i < strings.length; i++) {
+			ints[i] = strings[i] != null ? Integer.parseInt(strings[i]) : 0;
+		}
+		return ints;
+	}
+
+	private static double[] doubleColumn(Map<String, Map<String, Object>> columns, int rowCount, String... fields) throws IOException {
+		Object values = decodeColumn(requireColumn(columns, fields));
+		if(values instanceof double[]) {
+			return checkLength((double[]) values, rowCount);
+		}
+		if(values instanceof int[]) {
+			int[] ints = checkLength((int[]) values, rowCount);
+			double[] doubles = new double[ints.length];
+			for(int i = 0; i < ints.length; i++) {
+				doubles[i] = ints[i];
+			}
+			return doubles;
+		}
+		String[] strings = asStrings(values, rowCount);
+		double[] doubles = new double[strings.length];
+		for(int i = 0; i < strings.length; i++) {
+			doubles[i] = strings[i] != null ? Double.parseDouble(strings[i]) : 0;
+		}
+		return doubles;
+	}
+
+	private static String[] asStrings(Object values, int rowCount) throws IOException {
+		if(values instanceof String[]) {
+			return checkLength((String[]) values, rowCount);
+		}
+		String[] strings = new String[rowCount];
+		if(values instanceof int[]) {
+			int[] ints = checkLength((int[]) values, rowCount);
+			for(int i = 0; i < rowCount; i++) {
+				strings[i] = String.valueOf(ints[i]);
+			}
+		} else {
+			double[] doubles = checkLength((double[]) values, rowCount);
+			for(int i = 0; i < rowCount; i++) {
+				strings[i] = String.valueOf(doubles[i]);
+			}
+		}
+		return strings;
+	}
+
+	private static int[] checkLength(int[] values, int rowCount) throws IOException {
+		checkLength(values.length, rowCount);
+		return values;
+	}
+
+	private static double[] checkLength(double[] values, int rowCount) throws IOException {
+		checkLength(values.length, rowCount);
+		return values;
+	}
+
+	private static String[] checkLength(String[] values, int rowCount) throws IOException {
+		checkLength(values.length, rowCount);
+		return values;
+	}
+
+	private static void checkLength(int length, int rowCount) throws IOException {
+		if(length < rowCount) {
+			throw new IOException("column holds " + length + " values, expected " + rowCount);
+		}
+	}
+
+	/**
+	 * decodes the values of a column - masked values (i.e. '.' or '?' in mmCIF) of string columns become
+	 * <code>null</code>, numeric ones <code>0</code>
+	 */
+	private static Object decodeColumn(Map<String, Object> column) throws IOException {
+		Object values = decode(asMap(column.get("data")));
+		Object mask = column.get("mask");
+		if(mask == null) {
+			return values;
+		}
+		int[] maskValues = (int[]) decode(asMap(mask));
+		for(int i = 0; i < maskValues.length; i++) {
+			if(maskValues[i] == 0) {
+				continue;
+			}
+			if(values instanceof String[]) {
+				((String[]) values)[i] = null;
+			} else if(values instanceof int[]) {
+				((int[]) values)[i] = 0;
+			} else {
+				((double[]) values)[i] = 0;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * applies the encodings of some data in reverse order
+	 * @return the decoded values as <code>int[]</code>, <code>double[]</code> or <code>String[]</code>
+	 */
+	private static Object decode(Map<String, Object> encodedData) throws IOException {
+		Object data = encodedData.get("data");
+		List<Object> encodings = asList(encodedData.get("encoding"));
+		for(int i = encodings.size() - 1; i >= 0; i--) {
+			data = decode(data, asMap(encodings.get(i)));
+		}
+		return data;
+	}
+
+	private static Object decode(Object data, Map<String, Object> encoding) throws IOException {
+		String kind = (String) encoding.get("kind");
+		switch(kind) {
+		case "ByteArray":
+			return decodeByteArray((ByteBuffer) data, intParameter(encoding, "type"));
+		case "FixedPoint":
+			return decodeFixedPoint((int[]) data, intParameter(encoding, "factor"));
+		case "IntervalQuantization":
+			return decodeIntervalQuantization((int[]) data, doubleParameter(encoding, "min"),
+					doubleParameter(encoding, "max"), intParameter(encoding, "numSteps"));
+		case "RunLength":
+			return decodeRunLength((int[]) data, intParameter(encoding, "srcSize"));
+		case "Delta":
+			return decodeDelta((int[]) data, intParameter(encoding, "origin"));
+		case "IntegerPacking":
+			return decodeIntegerPacking((int[]) data, intParameter(encoding, "byteCount"),
+					Boolean.TRUE.equals(encoding.get("isUnsigned")), intParameter(encoding, "srcSize"));
+		case "StringArray":
+			return decodeStringArray((ByteBuffer) data, encoding);
+		default:
+			throw new IOException("unsupported BinaryCIF encoding " + kind);
+		}
+	}
+
+	private static Object decodeByteArray(ByteBuffer data, int type) throws IOException {
+		ByteBuffer buffer = data.duplicate().order(data.order());
+		switch(type) {
+		case FLOAT32: {
+			double[] values = new double[buffer.remaining() / 4];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = buffer.getFloat();
+			}
+			return values;
+		}
+		case FLOAT64: {
+			double[] values = new double[buffer.remaining() / 8];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = buffer.getDouble();
+			}
+			return values;
+		}
+		case INT8:
+		case UINT8: {
+			int[] values = new int[buffer.remaining()];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = type == INT8 ? buffer.get() : buffer.get() & 0xFF;
+			}
+			return values;
+		}
+		case INT16:
+		case UINT16: {
+			int[] values = new int[buffer.remaining() / 2];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = type == INT16 ? buffer.getShort() : buffer.getShort() & 0xFFFF;
+			}
+			return values;
+		}
+		case INT32:
+		case UINT32: {
+			int[] values = new int[buffer.remaining() / 4];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = buffer.getInt();
+			}
+			return values;
+		}
+		default:
+			throw new IOException("unsupported BinaryCIF data type " + type);
+		}
+	}
+
+	private static double[] decodeFixedPoint(int[] data, int factor) {
+		double[] values = new double[data.length];
+		for(int i = 0; i < data.length; i++) {
+			// division (rather than multiplication by the inverse) yields the value closest to the decimal representation
+			values[i] = (double) data[i] / factor;
+		}
+		return values;
+	}
+
+	private static double[] decodeIntervalQuantization(int[] data, double min, double max, int numSteps) {
+		double delta = (max - min) / (numSteps - 1);
+		double[] values = new double[data.length];
+		for(int i = 0; i < data.length; i++) {
+			values[i] = min + delta * data[i];
+		}
+		return values;
+	}
+
+	private static int[] decodeRunLength(int[] data, int srcSize) {
+		int[] values = new int[srcSize];
+		int offset = 0;
+		for(int i = 0; i < data.length; i += 2) {
+			int value = data[i];
+			int count = data[i + 1];
+			for(int j = 0; j < count; j++) {
+				values[offset++] = value;
+			}
+		}
+		return values;
+	}
+
+	private static int[] decodeDelta(int[] data, int origin) {
+		if(data.length == 0) {
+			return data;
+		}
+		// decoded in place, the encoded values are not needed anymore
+		data[0] += origin;
+		for(int i = 1; i < data.length; i++) {
+			data[i] += data[i - 1];
+		}
+		return data;
+	}
+
+	private static int[] decodeIntegerPacking(int[] data, int byteCount, boolean unsigned, int srcSize) {
+		if(byteCount == 4) {
+			return data;
+		}
+		int upperLimit = unsigned ? (byteCount == 1 ? 0xFF : 0xFFFF) : (byteCount == 1 ? 0x7F : 0x7FFF);
+		int lowerLimit = unsigned ? 0 : -upperLimit - 1;
+		int[] values = new int[srcSize];
+		int offset = 0;
+		int i = 0;
+		while(i < data.length) {
+			// values exceeding the packed range are split into several summands
+			int value = 0;
+			int packed = data[i];
+			while(packed == upperLimit || (!unsigned && packed == lowerLimit)) {
+				value += packed;
+				i++;
+				packed = data[i];
+			}
+			values[offset++] = value + packed;
+			i++;
+		}
+		return values;
+	}
+
+	private static String[] decodeStringArray(ByteBuffer data, Map<String, Object> encoding) throws IOException {
+		String stringData = (String) encoding.get("stringData");
+		int[] offsets = (int[]) decode(data(encoding.get("offsets"), encoding.get("offsetEncoding")));
+		int[] indices = (int[]) decode(data(data, encoding.get("dataEncoding")));
+		// each distinct string is created only once
+		String[] strings = new String[Math.max(offsets.length - 1, 0)];
+		for(int i = 0; i < strings.length; i++) {
+			strings[i] = stringData.substring(offsets[i], offsets[i + 1]);
+		}
+		String[] values = new String[indices.length];
+		for(int i = 0; i < indices.length; i++) {
+			values[i] = indices[i] >= 0 ? strings[indices[i]] : null;
+		}
+		return values;
+	}
+
+	private static Map<String, Object> data(Object data, Object encoding) {
+		Map<String, Object> encodedData = new HashMap<>();
+		encodedData.put("data", data);
+		encodedData.put("encoding", encoding);
+		return encodedData;
+	}
+
+	private static int intParameter(Map<String, Object> encoding, String name) throws IOException {
+		Object value = encoding.get(name);
+		if(!(value instanceof Number)) {
+			throw new IOException("missing parameter " + name + " of encoding " + encoding.get("kind"));
+		}
+		return ((Number) value).intValue();
+	}
+
+	private static double doubleParameter(Map<String, Object> encoding, String name) throws IOException {
+		Object value = encoding.get(name);
+		if(!(value instanceof Number)) {
+			throw new IOException("missing parameter " + name + " of encoding " + encoding.get("kind"));
+		}
+		return ((Number) value).doubleValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> asMap(Object object) {
+		return object != null ? (Map<String, Object>) object : Collections.emptyMap();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> asList(Object object) {
+		return object != null ? (List<Object>) object : Collections.emptyList();
+	}
+
+	@Override
+	public String composePdbRepresentation(Protein protein) {
+		return this.pdbConverter.composePdbRepresentation(protein);
+	}
+
+	@Override
+	public String composePdbRepresentation(String chainId, List<Residue> residues) {
+		return this.pdbConverter.composePdbRepresentation(chainId, residues);
+	}
+}
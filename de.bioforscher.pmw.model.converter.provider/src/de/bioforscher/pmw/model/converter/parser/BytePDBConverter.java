@@ -0,0 +1,615 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * A PDB parser working directly on bytes (e.g. of a memory-mapped file). Columns are parsed into primitives without
+ * creating intermediate strings, recurring strings (atom names, elements, residue names, chain ids) are shared.
+ * Handles the same records as {@link SimplePDBConverter} and creates equal models. Furthermore, concatenated files
+ * (such as dumps of whole data sets) of arbitrary size can be processed by {@link #parsePDBFiles(Path, Consumer)}.<br />
+ * Only the first model of ensembles (e.g. of NMR structures) is parsed by {@link #parsePDBFile(Path)}, all models are
+ * provided lazily by {@link #parseModels(Path)}.
+ * @author S
+ *
+ */
+public class BytePDBConverter implements PDBConverter {
+	/**
+	 * files are mapped in windows of this size, so files exceeding the 2 GB limit of a single mapping are supported
+	 */
+	private static final int MAPPING_SIZE = 1 << 28;
+	private static final int STREAM_CHUNK_SIZE = 1 << 16;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10 };
+	private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+	/**
+	 * mantissas up to this value are exactly representable as float
+	 */
+	private static final long MAXIMAL_FLOAT_MANTISSA = 1L << 24;
+	private static final long MAXIMAL_DOUBLE_MANTISSA = 1L << 53;
+	private static final byte[] HEADER_PREFIX = "HEADER".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TITLE_PREFIX = "TITLE".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ATOM_PREFIX = "ATOM".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] END_RECORD = "END".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ENDMDL_PREFIX = "ENDMDL".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * ATOM records have to contain all columns up to the temperature factor - only the element may be missing
+	 */
+	private static final int MINIMAL_ATOM_RECORD_LENGTH = 66;
+	/**
+	 * stateless, thus, shared by all threads
+	 */
+	private static final PDBWriter PDB_WRITER = new PDBWriter();
+
+	private final StringPool stringPool = new StringPool();
+	private Protein protein;
+	private StringBuilder title;
+	private Chain currentChain;
+	private Residue currentResidue;
+	/**
+	 * states whether the current protein contains any records, so empty proteins are not reported for dumps
+	 */
+	private boolean hasRecords;
+	/**
+	 * states whether the first model of the current protein is complete, so atoms of further models are skipped
+	 */
+	private boolean endOfModel;
+
+	/**
+	 * parses a PDB file chunk by chunk, so the content is never held in memory as a whole
+	 */
+	@Override
+	public Protein parsePDBFile(InputStream inputStream) throws IOException {
+		startProtein();
+		parse(inputStream, null);
+		return finishProtein();
+	}
+
+	/**
+	 * uncompressed files are memory-mapped, so there is nothing to pipeline
+	 */
+	@Override
+	public Protein parseUncompressedFile(File file, boolean pipelined) throws IOException {
+		return parsePDBFile(file.toPath());
+	}
+
+	/**
+	 * parses a PDB file by memory-mapping it
+	 * @param path the file to parse
+	 * @return the parsed protein
+	 * @throws IOException
+	 */
+	public Protein parsePDBFile(Path path) throws IOException {
+		startProtein();
+		parse(path, null);
+		return finishProtein();
+	}
+
+	/**
+	 * parses a PDB file from a buffer - from its position to its limit
+	 * @param buffer the content to parse
+	 * @return the parsed protein
+	 */
+	public Protein parsePDBFile(ByteBuffer buffer) {
+		startProtein();
+		parseLines(buffer, buffer.position(), buffer.limit(), true, null);
+		return finishProtein();
+	}
+
+	/**
+	 * parses a file composed of several concatenated PDB files - each is terminated by an <code>END</code> record or
+	 * ends when the next <code>HEADER</code> record is encountered
+	 * @param path the file to parse, it is memory-mapped in windows, so its size is not limited
+	 * @param consumer will be called for each parsed protein in the order of the file
+	 * @throws IOException
+	 */
+	public void parsePDBFiles(Path path, Consumer<Protein> consumer) throws IOException {
+		startProtein();
+		parse(path, consumer);
+		if(this.hasRecords) {
+			consumer.accept(finishProtein());
+		}
+	}
+
+	/**
+	 * parses a stream of several concatenated PDB files (e.g. a decompressing one) - see
+	 * {@link #parsePDBFiles(Path, Consumer)}
+	 * @param inputStream the content to parse, it is processed chunk by chunk
+	 * @param consumer will be called for each parsed protein in the order of the stream
+	 * @throws IOException
+	 */
+	public void parsePDBFiles(InputStream inputStream, Consumer<Protein> consumer) throws IOException {
+		startProtein();
+		parse(inputStream, consumer);
+		if(this.hasRecords) {
+			consumer.accept(finishProtein());
+		}
+	}
+
+	/**
+	 * lazily parses all models of an ensemble - each {@link Protein} is parsed on demand, so only one model is held in
+	 * memory at a time. Files without <code>MODEL</code> records are treated as a single model.<br />
+	 * <b>Important:</b> this converter must not parse other files until the stream is consumed.
+	 * @param path the file to parse, may be gzip-compressed
+	 * @return the models in the order of the file, all sharing the name and title of the entry
+	 * @throws IOException
+	 */
+	public Stream<Protein> parseModels(Path path) throws IOException {
+		ByteBuffer buffer;
+		if(CompressedFiles.isCompressed(path)) {
+			try(InputStream inputStream = CompressedFiles.newInputStream(path, false)) {
+				buffer = ByteBuffer.wrap(readFully(inputStream));
+			}
+		} else {
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				if(channel.size() > Integer.MAX_VALUE) {
+					throw new IOException(path + " exceeds the maximal size of ensembles");
+				}
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(parseModels(buffer),
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * @see #parseModels(Path)
+	 * @param buffer the content to parse - from its position to its limit
+	 * @return an iterator parsing the next model on demand
+	 */
+	public Iterator<Protein> parseModels(ByteBuffer buffer) {
+		return new ModelIterator(buffer);
+	}
+
+	private static byte[] readFully(InputStream inputStream) throws IOException {
+		byte[] content = new byte[STREAM_CHUNK_SIZE];
+		int length = 0;
+		int read;
+		while((read = inputStream.read(content, length, content.length - length)) != -1) {
+			length += read;
+			if(length == content.length) {
+				content = Arrays.copyOf(content, 2 * content.length);
+			}
+		}
+		return Arrays.copyOf(content, length);
+	}
+
+	private void parse(InputStream inputStream, Consumer<Protein> consumer) throws IOException {
+		byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+		ByteBuffer buffer = ByteBuffer.wrap(chunk);
+		int length = 0;
+		while(true) {
+			int read = inputStream.read(chunk, length, chunk.length - length);
+			boolean lastChunk = read == -1;
+			if(!lastChunk) {
+				length += read;
+			}
+			int consumed = parseLines(buffer, 0, length, lastChunk, consumer);
+			if(lastChunk) {
+				return;
+			}
+			// keep the incomplete trailing line for the next chunk
+			System.arraycopy(chunk, consumed, chunk, 0, length - consumed);
+			length -= consumed;
+			if(length == chunk.length) {
+				chunk = Arrays.copyOf(chunk, 2 * chunk.length);
+				buffer = ByteBuffer.wrap(chunk);
+			}
+		}
+	}
+
+	private void parse(Path path, Consumer<Protein> consumer) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while(position < size) {
+				int length = (int) Math.min(MAPPING_SIZE, size - position);
+				boolean lastWindow = position + length == size;
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int consumed = parseLines(buffer, 0, length, lastWindow, consumer);
+				if(consumed == 0 && !lastWindow) {
+					throw new IOException("line at offset " + position + " of " + path + " exceeds " + MAPPING_SIZE + " bytes");
+				}
+				position += consumed;
+			}
+		}
+	}
+
+	/**
+	 * parses all complete lines in the given range
+	 * @return the number of bytes consumed - incomplete trailing lines are only consumed when this is the last window
+	 */
+	private int parseLines(ByteBuffer buffer, int start, int end, boolean lastWindow, Consumer<Protein> consumer) {
+		int lineStart = start;
+		for(int i = start; i < end; i++) {
+			if(buffer.get(i) == '\n') {
+				parseLine(buffer, lineStart, i, consumer);
+				lineStart = i + 1;
+			}
+		}
+		if(lastWindow && lineStart < end) {
+			parseLine(buffer, lineStart, end, consumer);
+			lineStart = end;
+		}
+		return lineStart - start;
+	}
+
+	private void parseLine(ByteBuffer buffer, int start, int end, Consumer<Protein> consumer) {
+		// omit carriage returns of Windows line endings
+		if(end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+
+		// columns as described by SimplePDBConverter
+		if(startsWith(buffer, start, end, ATOM_PREFIX)) {
+			if(!this.endOfModel) {
+				parseAtom(buffer, start, end);
+			}
+			this.hasRecords = true;
+			return;
+		}
+
+		if(startsWith(buffer, start, end, ENDMDL_PREFIX)) {
+			this.endOfModel = true;
+			return;
+		}
+
+		if(startsWith(buffer, start, end, HEADER_PREFIX)) {
+			if(consumer != null && this.hasRecords) {
+				// a new file begins without the previous one being terminated
+				consumer.accept(finishProtein());
+				startProtein();
+			}
+			this.protein.name = this.stringPool.get(buffer, start + 62, Math.min(start + 66, end), false);
+			this.hasRecords = true;
+			return;
+		}
+
+		if(startsWith(buffer, start, end, TITLE_PREFIX)) {
+			// extra whitespace to ensure that words are separated
+			String titlePart = this.stringPool.get(buffer, start + 10, Math.min(start + 80, end), true);
+			if(this.title.length() > 0 && !titlePart.isEmpty()) {
+				this.title.append(' ');
+			}
+			this.title.append(titlePart);
+			this.hasRecords = true;
+			return;
+		}
+
+		if(consumer != null && isEndRecord(buffer, start, end) && this.hasRecords) {
+			consumer.accept(finishProtein());
+			startProtein();
+		}
+	}
+
+	private void parseAtom(ByteBuffer buffer, int start, int end) {
+		// columns are read at fixed offsets - they must not reach into the next record
+		if(end - start < MINIMAL_ATOM_RECORD_LENGTH) {
+			throw new IllegalArgumentException("truncated ATOM record: '" + asString(buffer, start, end) + "'");
+		}
+		String chainId = this.stringPool.get(buffer, start + 21, start + 22, false);
+		int resNum = parseInt(buffer, start + 22, start + 26);
+		if(this.currentChain == null || !this.currentChain.chainId.equals(chainId)) {
+			// chain changed - create new chain object and set reference
+			this.currentChain = new Chain();
+			this.currentChain.chainId = chainId;
+			this.protein.chains.add(this.currentChain);
+			// residues of different chains must never be merged, even when they share their number
+			this.currentResidue = null;
+		}
+
+		if(this.currentResidue == null || this.currentResidue.residueNumber != resNum) {
+			// residue changed - create new residue object and set reference
+			this.currentResidue = new Residue();
+			this.currentResidue.aminoAcid = this.stringPool.get(buffer, start + 17, start + 20, true);
+			this.currentResidue.insertionCode = null;
+			this.currentResidue.residueId = 0;
+			this.currentResidue.residueNumber = resNum;
+			this.currentChain.residues.add(this.currentResidue);
+		}
+
+		Atom atom = new Atom();
+		atom.element = this.stringPool.get(buffer, start + 76, Math.min(start + 78, end), true);
+		atom.name = this.stringPool.get(buffer, start + 12, start + 16, true);
+		atom.occupancy = parseFloat(buffer, start + 54, start + 60);
+		atom.pdbSerial = parseInt(buffer, start + 6, start + 11);
+		atom.tempFactor = parseFloat(buffer, start + 60, start + 66);
+		atom.xyz = new double[] { parseDouble(buffer, start + 30, start + 38),
+				parseDouble(buffer, start + 38, start + 46),
+				parseDouble(buffer, start + 46, start + 54)
+			};
+		this.currentResidue.atoms.add(atom);
+	}
+
+	private void startProtein() {
+		this.protein = new Protein();
+		this.title = new StringBuilder();
+		this.currentChain = null;
+		this.currentResidue = null;
+		this.hasRecords = false;
+		this.endOfModel = false;
+	}
+
+	private Protein finishProtein() {
+		this.protein.title = this.title.toString();
+		return this.protein;
+	}
+
+	/**
+	 * parses one model per call of {@link #next()}, starting at the end of the previous one
+	 */
+	private class ModelIterator implements Iterator<Protein> {
+		private final ByteBuffer buffer;
+		private int position;
+		private int modelCount;
+		private String name;
+		private String title;
+		private Protein nextModel;
+
+		private ModelIterator(ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.position = buffer.position();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(this.nextModel == null && this.position < this.buffer.limit()) {
+				this.nextModel = parseModel();
+			}
+			return this.nextModel != null;
+		}
+
+		@Override
+		public Protein next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Protein model = this.nextModel;
+			this.nextModel = null;
+			return model;
+		}
+
+		/**
+		 * @return the next model or <code>null</code> if there are no further atoms
+		 */
+		private Protein parseModel() {
+			startProtein();
+			int end = this.buffer.limit();
+			int lineStart = this.position;
+			while(lineStart < end && !BytePDBConverter.this.endOfModel) {
+				int lineEnd = lineStart;
+				while(lineEnd < end && this.buffer.get(lineEnd) != '\n') {
+					lineEnd++;
+				}
+				parseLine(this.buffer, lineStart, lineEnd, null);
+				lineStart = Math.min(lineEnd + 1, end);
+			}
+			this.position = lineStart;
+
+			Protein model = finishProtein();
+			if(model.chains.isEmpty()) {
+				return null;
+			}
+			// HEADER and TITLE records precede the first model only
+			if(this.modelCount == 0) {
+				this.name = model.name;
+				this.title = model.title;
+			} else {
+				model.name = this.name;
+				model.title = this.title;
+			}
+			this.modelCount++;
+			return model;
+		}
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+		if(end - start < prefix.length) {
+			return false;
+		}
+		for(int i = 0; i < prefix.length; i++) {
+			if(buffer.get(start + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true for <code>END</code> records - <code>ENDMDL</code> records do not terminate a file
+	 */
+	private static boolean isEndRecord(ByteBuffer buffer, int start, int end) {
+		if(!startsWith(buffer, start, end, END_RECORD)) {
+			return false;
+		}
+		for(int i = start + END_RECORD.length; i < end; i++) {
+			if(buffer.get(i) != ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int parseInt(ByteBuffer buffer, int start, int end) {
+		int i = skipLeadingWhitespace(buffer, start, end);
+		int last = skipTrailingWhitespace(buffer, i, end);
+		boolean negative = false;
+		if(i < last && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		if(i == last) {
+			return Integer.parseInt(asString(buffer, start, end).trim());
+		}
+		int value = 0;
+		for(; i < last; i++) {
+			int digit = buffer.get(i) - '0';
+			if(digit < 0 || digit > 9) {
+				// e.g. hybrid-36 serials - let the JDK decide what to do
+				return Integer.parseInt(asString(buffer, start, end).trim());
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * parses decimals as <code>mantissa / 10^fractionDigits</code> - as both operands are exactly representable and
+	 * IEEE 754 division is correctly rounded, the result equals {@link Double#parseDouble(String)}, other inputs are
+	 * delegated to the JDK
+	 */
+	private static double parseDouble(ByteBuffer buffer, int start, int end) {
+		long parsed = parseDecimal(buffer, start, end, MAXIMAL_DOUBLE_MANTISSA);
+		if(parsed == Long.MIN_VALUE) {
+			return Double.parseDouble(asString(buffer, start, end).trim());
+		}
+		double value = (parsed >> 8) / POWERS_OF_TEN[(int) (parsed & 0xFF)];
+		return value;
+	}
+
+	/**
+	 * @see #parseDouble(ByteBuffer, int, int)
+	 */
+	private static float parseFloat(ByteBuffer buffer, int start, int end) {
+		long parsed = parseDecimal(buffer, start, end, MAXIMAL_FLOAT_MANTISSA);
+		if(parsed == Long.MIN_VALUE) {
+			return Float.parseFloat(asString(buffer, start, end).trim());
+		}
+		return (parsed >> 8) / FLOAT_POWERS_OF_TEN[(int) (parsed & 0xFF)];
+	}
+
+	/**
+	 * @return the signed mantissa shifted by 8 bits combined with the number of fraction digits or
+	 *         {@link Long#MIN_VALUE} if the value cannot be parsed exactly
+	 */
+	private static long parseDecimal(ByteBuffer buffer, int start, int end, long maximalMantissa) {
+		int i = skipLeadingWhitespace(buffer, start, end);
+		int last = skipTrailingWhitespace(buffer, i, end);
+		boolean negative = false;
+		if(i < last && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for(; i < last; i++) {
+			byte b = buffer.get(i);
+			if(b == '.' && fractionDigits == -1) {
+				fractionDigits = 0;
+				continue;
+			}
+			int digit = b - '0';
+			if(digit < 0 || digit > 9) {
+				return Long.MIN_VALUE;
+			}
+			mantissa = mantissa * 10 + digit;
+			digits++;
+			if(fractionDigits != -1) {
+				fractionDigits++;
+			}
+		}
+		if(digits == 0 || mantissa > maximalMantissa || fractionDigits >= POWERS_OF_TEN.length) {
+			return Long.MIN_VALUE;
+		}
+		if(negative && mantissa == 0) {
+			// negative zero would be lost
+			return Long.MIN_VALUE;
+		}
+		return ((negative ? -mantissa : mantissa) << 8) | Math.max(fractionDigits, 0);
+	}
+
+	private static int skipLeadingWhitespace(ByteBuffer buffer, int start, int end) {
+		while(start < end && buffer.get(start) == ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int skipTrailingWhitespace(ByteBuffer buffer, int start, int end) {
+		while(end > start && buffer.get(end - 1) == ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	private static String asString(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public String composePdbRepresentation(Protein protein) {
+		return PDB_WRITER.compose(protein);
+	}
+
+	@Override
+	public String composePdbRepresentation(String chainId, List<Residue> residues) {
+		return PDB_WRITER.compose(chainId, residues);
+	}
+
+	/**
+	 * a small cache of recurring strings - lookups compare the bytes to the cached string, so no string is created for
+	 * values which were already encountered
+	 */
+	private static class StringPool {
+		private static final int SIZE = 1 << 10;
+		private final String[] strings = new String[SIZE];
+
+		private String get(ByteBuffer buffer, int start, int end, boolean trim) {
+			if(end <= start) {
+				return "";
+			}
+			if(trim) {
+				start = skipLeadingWhitespace(buffer, start, end);
+				end = skipTrailingWhitespace(buffer, start, end);
+			}
+			int hash = 0;
+			for(int i = start; i < end; i++) {
+				hash = 31 * hash + (buffer.get(i) & 0xFF);
+			}
+			int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+			String cached = this.strings[slot];
+			if(cached != null && matches(cached, buffer, start, end)) {
+				return cached;
+			}
+			String string = asString(buffer, start, end);
+			this.strings[slot] = string;
+			return string;
+		}
+
+		private static boolean matches(String string, ByteBuffer buffer, int start, int end) {
+			if(string.length() != end - start) {
+				return false;
+			}
+			for(int i = 0; i < string.length(); i++) {
+				if(string.charAt(i) != (char) (buffer.get(start + i) & 0xFF)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
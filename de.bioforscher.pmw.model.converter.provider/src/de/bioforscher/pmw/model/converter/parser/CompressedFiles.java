@@ -0,0 +1,62 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens structure files which may be gzip-compressed (e.g. <code>.pdb.gz</code> or <code>.cif.gz</code> files of a PDB
+ * mirror) - they are decompressed while being read, so no temporary files are needed.
+ * @author S
+ *
+ */
+public final class CompressedFiles {
+	public static final String GZIP_EXTENSION = ".gz";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CompressedFiles() {
+	}
+
+	/**
+	 * @param path the file of interest
+	 * @return true iff the file is gzip-compressed according to its name
+	 */
+	public static boolean isCompressed(Path path) {
+		return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+	}
+
+	/**
+	 * @param fileName a file name, e.g. <code>4cha.cif.gz</code>
+	 * @return the name of the decompressed file, e.g. <code>4cha.cif</code>
+	 */
+	public static String stripCompressionExtension(String fileName) {
+		if(fileName.toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION)) {
+			return fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+		}
+		return fileName;
+	}
+
+	/**
+	 * opens a possibly compressed file
+	 * @param path the file to read
+	 * @param pipelined if true, reading and decompressing the file is performed by a separate thread (see
+	 * {@link PipelinedInputStream})
+	 * @return the stream of the decompressed content
+	 * @throws IOException
+	 */
+	public static InputStream newInputStream(Path path, boolean pipelined) throws IOException {
+		InputStream inputStream = Files.newInputStream(path);
+		if(isCompressed(path)) {
+			try {
+				inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
+			} catch (IOException e) {
+				inputStream.close();
+				throw e;
+			}
+		}
+		return pipelined ? new PipelinedInputStream(inputStream) : inputStream;
+	}
+}
@@ -0,0 +1,134 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes MessagePack (the container format of BinaryCIF) into plain Java objects: maps, lists, strings,
+ * <code>Long</code>, <code>Double</code>, <code>Boolean</code> and <code>null</code>. Binary values are not copied but
+ * returned as little-endian views of the underlying buffer.
+ * @author S
+ *
+ */
+class MessagePackReader {
+	private final ByteBuffer buffer;
+
+	MessagePackReader(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	Object read() throws IOException {
+		if(!this.buffer.hasRemaining()) {
+			throw new IOException("unexpected end of MessagePack data");
+		}
+		int type = this.buffer.get() & 0xFF;
+		if(type <= 0x7F) {
+			return (long) type;
+		}
+		if(type >= 0xE0) {
+			return (long) (byte) type;
+		}
+		if((type & 0xF0) == 0x80) {
+			return readMap(type & 0x0F);
+		}
+		if((type & 0xF0) == 0x90) {
+			return readArray(type & 0x0F);
+		}
+		if((type & 0xE0) == 0xA0) {
+			return readString(type & 0x1F);
+		}
+
+		switch(type) {
+		case 0xC0:
+			return null;
+		case 0xC2:
+			return Boolean.FALSE;
+		case 0xC3:
+			return Boolean.TRUE;
+		case 0xC4:
+			return readBinary(this.buffer.get() & 0xFF);
+		case 0xC5:
+			return readBinary(this.buffer.getShort() & 0xFFFF);
+		case 0xC6:
+			return readBinary(this.buffer.getInt());
+		case 0xCA:
+			return (double) this.buffer.getFloat();
+		case 0xCB:
+			return this.buffer.getDouble();
+		case 0xCC:
+			return (long) (this.buffer.get() & 0xFF);
+		case 0xCD:
+			return (long) (this.buffer.getShort() & 0xFFFF);
+		case 0xCE:
+			return this.buffer.getInt() & 0xFFFFFFFFL;
+		case 0xCF:
+			return this.buffer.getLong();
+		case 0xD0:
+			return (long) this.buffer.get();
+		case 0xD1:
+			return (long) this.buffer.getShort();
+		case 0xD2:
+			return (long) this.buffer.getInt();
+		case 0xD3:
+			return this.buffer.getLong();
+		case 0xD9:
+			return readString(this.buffer.get() & 0xFF);
+		case 0xDA:
+			return readString(this.buffer.getShort() & 0xFFFF);
+		case 0xDB:
+			return readString(this.buffer.getInt());
+		case 0xDC:
+			return readArray(this.buffer.getShort() & 0xFFFF);
+		case 0xDD:
+			return readArray(this.buffer.getInt());
+		case 0xDE:
+			return readMap(this.buffer.getShort() & 0xFFFF);
+		case 0xDF:
+			return readMap(this.buffer.getInt());
+		default:
+			throw new IOException("unsupported MessagePack type 0x" + Integer.toHexString(type));
+		}
+	}
+
+	private Map<String, Object> readMap(int size) throws IOException {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for(int i = 0; i < size; i++) {
+			map.put(String.valueOf(read()), read());
+		}
+		return map;
+	}
+
+	private List<Object> readArray(int size) throws IOException {
+		List<Object> list = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			list.add(read());
+		}
+		return list;
+	}
+
+	private String readString(int length) {
+		String string;
+		if(this.buffer.hasArray()) {
+			string = new String(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), length, StandardCharsets.UTF_8);
+		} else {
+			byte[] bytes = new byte[length];
+			this.buffer.duplicate().get(bytes);
+			string = new String(bytes, StandardCharsets.UTF_8);
+		}
+		this.buffer.position(this.buffer.position() + length);
+		return string;
+	}
+
+	private ByteBuffer readBinary(int length) {
+		ByteBuffer binary = this.buffer.slice();
+		binary.limit(length);
+		this.buffer.position(this.buffer.position() + length);
+		return binary.order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
@@ -0,0 +1,335 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * A minimal parser of the textual mmCIF format. Only the <code>_atom_site</code> category (ATOM records of the first
+ * model), <code>_entry.id</code> and <code>_struct.title</code> are evaluated, so the resulting models are equal to the
+ * ones of {@link SimplePDBConverter}. Author-defined chain ids, residue numbers and names are preferred over the
+ * label ones, as these are the values found in PDB files. Output is still written in the PDB format.
+ * @author S
+ *
+ */
+public class MmCIFConverter implements PDBConverter {
+	private static final String ATOM_SITE_PREFIX = "_atom_site.";
+	private static final String ENTRY_ID = "_entry.id";
+	private static final String STRUCT_TITLE = "_struct.title";
+	private static final String ATOM_RECORD = "ATOM";
+
+	private final Map<String, String> strings = new HashMap<>();
+	private final PDBConverter pdbConverter = new BytePDBConverter();
+	private byte[] content;
+	private int position;
+	// bounds of the last token read
+	private int tokenStart;
+	private int tokenEnd;
+	private boolean tokenQuoted;
+
+	@Override
+	public Protein parsePDBFile(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1 << 16];
+		int read;
+		while((read = inputStream.read(buffer)) != -1) {
+			content.write(buffer, 0, read);
+		}
+		return parse(content.toByteArray());
+	}
+
+	/**
+	 * uncompressed files are read at once, which is faster than streaming them
+	 */
+	@Override
+	public Protein parseUncompressedFile(File file, boolean pipelined) throws IOException {
+		return parse(Files.readAllBytes(file.toPath()));
+	}
+
+	private Protein parse(byte[] content) throws IOException {
+		this.content = content;
+		this.position = 0;
+		ProteinBuilder proteinBuilder = new ProteinBuilder();
+		String name = null;
+		String title = null;
+		boolean parsedDataBlock = false;
+
+		while(nextToken()) {
+			if(this.tokenQuoted) {
+				throw new IOException("unexpected value at offset " + this.tokenStart);
+			}
+			if(startsWith("data_")) {
+				if(parsedDataBlock) {
+					// only the first data block describes the entry of interest
+					break;
+				}
+				parsedDataBlock = true;
+				if(name == null) {
+					name = string(this.tokenStart + 5, this.tokenEnd);
+				}
+			} else if(startsWith("loop_")) {
+				parseLoop(proteinBuilder);
+			} else if(startsWith("_")) {
+				String tag = string(this.tokenStart, this.tokenEnd);
+				if(!nextToken()) {
+					throw new IOException("missing value of " + tag);
+				}
+				if(ENTRY_ID.equals(tag)) {
+					name = value();
+				} else if(STRUCT_TITLE.equals(tag)) {
+					title = value();
+				}
+			}
+		}
+
+		this.content = null;
+		return proteinBuilder.build(name, title);
+	}
+
+	private void parseLoop(ProteinBuilder proteinBuilder) throws IOException {
+		List<String> tags = new ArrayList<>();
+		int loopPosition = this.position;
+		while(nextToken() && !this.tokenQuoted && startsWith("_")) {
+			tags.add(string(this.tokenStart, this.tokenEnd));
+			loopPosition = this.position;
+		}
+		// rewind to the first value
+		this.position = loopPosition;
+
+		boolean atomSite = !tags.isEmpty() && tags.get(0).startsWith(ATOM_SITE_PREFIX);
+		AtomSiteColumns columns = atomSite ? new AtomSiteColumns(tags) : null;
+		int[] bounds = new int[tags.size() * 2];
+		boolean[] quoted = new boolean[tags.size()];
+		int firstModel = Integer.MIN_VALUE;
+
+		while(true) {
+			int rowPosition = this.position;
+			if(!nextToken() || isReservedWord()) {
+				this.position = rowPosition;
+				return;
+			}
+			for(int column = 0; column < tags.size(); column++) {
+				if(column > 0 && !nextToken()) {
+					throw new IOException("incomplete row of loop " + tags.get(0));
+				}
+				bounds[2 * column] = this.tokenStart;
+				bounds[2 * column + 1] = this.tokenEnd;
+				quoted[column] = this.tokenQuoted;
+			}
+			if(!atomSite) {
+				continue;
+			}
+
+			if(!ATOM_RECORD.equals(string(bounds, columns.group))) {
+				continue;
+			}
+			if(columns.model >= 0) {
+				int model = Integer.parseInt(string(bounds, columns.model));
+				if(firstModel == Integer.MIN_VALUE) {
+					firstModel = model;
+				} else if(model != firstModel) {
+					continue;
+				}
+			}
+			proteinBuilder.addAtom(string(bounds, columns.chainId),
+					Integer.parseInt(string(bounds, columns.residueNumber)),
+					string(bounds, columns.aminoAcid),
+					string(bounds, columns.name),
+					string(bounds, columns.element),
+					Integer.parseInt(string(bounds, columns.serial)),
+					parseFloat(bounds, quoted, columns.occupancy),
+					parseFloat(bounds, quoted, columns.tempFactor),
+					Double.parseDouble(string(bounds, columns.x)),
+					Double.parseDouble(string(bounds, columns.y)),
+					Double.parseDouble(string(bounds, columns.z)));
+		}
+	}
+
+	private float parseFloat(int[] bounds, boolean[] quoted, int column) {
+		if(column < 0 || isUnknown(bounds, quoted, column)) {
+			return 0;
+		}
+		return Float.parseFloat(string(bounds, column));
+	}
+
+	private boolean isUnknown(int[] bounds, boolean[] quoted, int column) {
+		return !quoted[column] && bounds[2 * column + 1] - bounds[2 * column] == 1
+				&& (this.content[bounds[2 * column]] == '.' || this.content[bounds[2 * column]] == '?');
+	}
+
+	/**
+	 * reads the next token - unquoted, single- or double-quoted or a multi-line text field
+	 * @return false iff the end of the file was reached
+	 */
+	private boolean nextToken() {
+		byte[] content = this.content;
+		int i = this.position;
+		while(i < content.length) {
+			byte b = content[i];
+			if(b == '#') {
+				// comment - skip until the end of the line
+				while(i < content.length && content[i] != '\n') {
+					i++;
+				}
+			} else if(b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+				i++;
+			} else {
+				break;
+			}
+		}
+		if(i >= content.length) {
+			this.position = i;
+			return false;
+		}
+
+		byte first = content[i];
+		if(first == ';' && (i == 0 || content[i - 1] == '\n')) {
+			// text field - terminated by a semicolon at the beginning of a line
+			int end = i + 1;
+			while(end < content.length && !(content[end] == ';' && content[end - 1] == '\n')) {
+				end++;
+			}
+			this.tokenStart = i + 1;
+			this.tokenEnd = end;
+			// omit the line break preceding the terminating semicolon
+			while(this.tokenEnd > this.tokenStart && (content[this.tokenEnd - 1] == '\n' || content[this.tokenEnd - 1] == '\r')) {
+				this.tokenEnd--;
+			}
+			this.tokenQuoted = true;
+			this.position = Math.min(end + 1, content.length);
+			return true;
+		}
+
+		if(first == '\'' || first == '"') {
+			// quoted value - the quote only terminates the value when followed by whitespace
+			int end = i + 1;
+			while(end < content.length && !(content[end] == first && (end + 1 == content.length || isWhitespace(content[end + 1])))) {
+				end++;
+			}
+			this.tokenStart = i + 1;
+			this.tokenEnd = end;
+			this.tokenQuoted = true;
+			this.position = Math.min(end + 1, content.length);
+			return true;
+		}
+
+		int end = i;
+		while(end < content.length && !isWhitespace(content[end])) {
+			end++;
+		}
+		this.tokenStart = i;
+		this.tokenEnd = end;
+		this.tokenQuoted = false;
+		this.position = end;
+		return true;
+	}
+
+	private boolean isReservedWord() {
+		return !this.tokenQuoted && (startsWith("_") || startsWith("loop_") || startsWith("data_"));
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private boolean startsWith(String prefix) {
+		if(this.tokenEnd - this.tokenStart < prefix.length()) {
+			return false;
+		}
+		for(int i = 0; i < prefix.length(); i++) {
+			if(this.content[this.tokenStart + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the value of the last token, <code>null</code> for unknown or omitted values
+	 */
+	private String value() {
+		if(!this.tokenQuoted && this.tokenEnd - this.tokenStart == 1
+				&& (this.content[this.tokenStart] == '.' || this.content[this.tokenStart] == '?')) {
+			return null;
+		}
+		return string(this.tokenStart, this.tokenEnd).trim();
+	}
+
+	private String string(int[] bounds, int column) {
+		return string(bounds[2 * column], bounds[2 * column + 1]);
+	}
+
+	/**
+	 * @return the given range as string - recurring values (e.g. atom names) share one instance
+	 */
+	private String string(int start, int end) {
+		String string = new String(this.content, start, end - start, StandardCharsets.ISO_8859_1);
+		String pooled = this.strings.putIfAbsent(string, string);
+		return pooled != null ? pooled : string;
+	}
+
+	@Override
+	public String composePdbRepresentation(Protein protein) {
+		return this.pdbConverter.composePdbRepresentation(protein);
+	}
+
+	@Override
+	public String composePdbRepresentation(String chainId, List<Residue> residues) {
+		return this.pdbConverter.composePdbRepresentation(chainId, residues);
+	}
+
+	/**
+	 * resolves the columns of the <code>_atom_site</code> category needed by the model
+	 */
+	private static class AtomSiteColumns {
+		private final int group;
+		private final int serial;
+		private final int element;
+		private final int name;
+		private final int aminoAcid;
+		private final int chainId;
+		private final int residueNumber;
+		private final int x;
+		private final int y;
+		private final int z;
+		private final int occupancy;
+		private final int tempFactor;
+		private final int model;
+
+		private AtomSiteColumns(List<String> tags) throws IOException {
+			this.group = require(tags, "group_PDB");
+			this.serial = require(tags, "id");
+			this.element = require(tags, "type_symbol");
+			this.name = require(tags, "auth_atom_id", "label_atom_id");
+			this.aminoAcid = require(tags, "auth_comp_id", "label_comp_id");
+			this.chainId = require(tags, "auth_asym_id", "label_asym_id");
+			this.residueNumber = require(tags, "auth_seq_id", "label_seq_id");
+			this.x = require(tags, "Cartn_x");
+			this.y = require(tags, "Cartn_y");
+			this.z = require(tags, "Cartn_z");
+			this.occupancy = tags.indexOf(ATOM_SITE_PREFIX + "occupancy");
+			this.tempFactor = tags.indexOf(ATOM_SITE_PREFIX + "B_iso_or_equiv");
+			this.model = tags.indexOf(ATOM_SITE_PREFIX + "pdbx_PDB_model_num");
+		}
+
+		private static int require(List<String> tags, String... fields) throws IOException {
+			for(String field : fields) {
+				int column = tags.indexOf(ATOM_SITE_PREFIX + field);
+				if(column >= 0) {
+					return column;
+				}
+			}
+			throw new IOException("missing column " + ATOM_SITE_PREFIX + fields[0]);
+		}
+	}
+}
@@ -3,9 +3,11 @@ package de.bioforscher.pmw.model.converter.parser;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
 
 import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
 
 public interface PDBConverter {
 	/**
@@ -17,10 +19,38 @@ public interface PDBConverter {
 	Protein parsePDBFile(InputStream inputStream) throws IOException;
 	
 	/**
-	 * @see {@link #parsePDBFile(byte[])}
+	 * @see {@link #parsePDBFile(byte[])} - gzip-compressed files (<code>.gz</code>) are decompressed while being parsed
 	 */
 	default Protein parsePDBFile(File file) throws IOException {
-		return parsePDBFile(Files.newInputStream(file.toPath()));
+		return parsePDBFile(file, false);
+	}
+	
+	/**
+	 * parses a possibly gzip-compressed file - uncompressed files are passed to
+	 * {@link #parseUncompressedFile(File, boolean)}
+	 * @param file the file to parse
+	 * @param pipelined if true, reading and decompressing is performed by a separate thread concurrently to parsing
+	 * @return the parsed protein
+	 * @throws IOException
+	 */
+	default Protein parsePDBFile(File file, boolean pipelined) throws IOException {
+		if(!CompressedFiles.isCompressed(file.toPath())) {
+			return parseUncompressedFile(file, pipelined);
+		}
+		try(InputStream inputStream = CompressedFiles.newInputStream(file.toPath(), pipelined)) {
+			return parsePDBFile(inputStream);
+		}
+	}
+	
+	/**
+	 * parses a file which is known to be uncompressed - converters able to read files directly (e.g. by
+	 * memory-mapping them) override this, by default the file is streamed
+	 * @see #parsePDBFile(File, boolean)
+	 */
+	default Protein parseUncompressedFile(File file, boolean pipelined) throws IOException {
+		try(InputStream inputStream = CompressedFiles.newInputStream(file.toPath(), pipelined)) {
+			return parsePDBFile(inputStream);
+		}
 	}
 	
 	/**
@@ -30,5 +60,33 @@ public interface PDBConverter {
 		return parsePDBFile(new File(filepath));
 	}
 	
-	void updatePdbRepresentation(Protein protein);
+	/**
+	 * chooses the converter by the extension of a file name - <code>.cif</code> and <code>.mmcif</code> files are parsed
+	 * as mmCIF, <code>.bcif</code> files as BinaryCIF and all others as PDB - the extension of compressed files is
+	 * ignored
+	 * @param fileName the name of the file to parse
+	 * @return a new converter instance
+	 */
+	static PDBConverter forFileName(String fileName) {
+		String lowerCaseFileName = CompressedFiles.stripCompressionExtension(fileName).toLowerCase(Locale.ROOT);
+		if(lowerCaseFileName.endsWith(".bcif")) {
+			return new BinaryCIFConverter();
+		}
+		if(lowerCaseFileName.endsWith(".cif") || lowerCaseFileName.endsWith(".mmcif")) {
+			return new MmCIFConverter();
+		}
+		return new BytePDBConverter();
+	}
+	
+	/**
+	 * composes the ATOM records of a protein from the current state of its atoms
+	 * @param protein the protein to render
+	 * @return one line per atom
+	 */
+	String composePdbRepresentation(Protein protein);
+	
+	/**
+	 * @see #composePdbRepresentation(Protein)
+	 */
+	String composePdbRepresentation(String chainId, List<Residue> residues);
 }
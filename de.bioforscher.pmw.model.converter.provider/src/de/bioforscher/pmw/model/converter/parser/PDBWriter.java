@@ -0,0 +1,474 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * Writes ATOM records directly into byte buffers. Numbers are formatted by hand (emulating the
+ * {@link DecimalFormat}-based formatting previously used, i.e. <code>Locale.US</code>, at most 4 (coordinates)
+ * respectively 3 (occupancy, temperature factor) integer digits and half-even rounding of the exact binary value), so no
+ * intermediate strings are created.<br />
+ * Instances can be shared by any number of threads: each thread renders into its own reusable buffer, which is flushed
+ * to the output stream whenever it is filled. Large proteins and ensembles are rendered in parallel (by chain
+ * respectively by model) into pooled buffers and written in their original order.
+ * @author S
+ *
+ */
+public class PDBWriter {
+	/**
+	 * proteins with more atoms are rendered chain-wise in parallel
+	 */
+	private static final int PARALLEL_THRESHOLD = 20000;
+	private static final byte[] ATOM_RECORD = "ATOM  ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MODEL_RECORD = "MODEL     ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ENDMDL_RECORD = "ENDMDL\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] END_RECORD = "END\n".getBytes(StandardCharsets.US_ASCII);
+	private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000 };
+	/**
+	 * values of larger magnitude cannot be rounded exactly by 64-bit arithmetic
+	 */
+	private static final double MAXIMAL_EXACT_VALUE = 1e15;
+	/**
+	 * buffers are written to the output stream once they contain this many bytes
+	 */
+	private static final int FLUSH_THRESHOLD = 1 << 16;
+	/**
+	 * larger buffers of parallel rendering are not pooled, so a single huge chain or model is not retained
+	 */
+	private static final int MAXIMAL_POOLED_CAPACITY = 1 << 22;
+
+	private final ThreadLocal<RecordBuffer> buffers = ThreadLocal.withInitial(RecordBuffer::new);
+	/**
+	 * buffers of chains and models rendered in parallel - they have to be kept until all predecessors were written
+	 */
+	private final Queue<RecordBuffer> pooledBuffers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * writes the ATOM records of a protein
+	 * @param protein the protein to write
+	 * @param outputStream the target - it will not be closed
+	 * @throws IOException
+	 */
+	public void write(Protein protein, OutputStream outputStream) throws IOException {
+		if(protein.chains.size() > 1 && countAtoms(protein) > PARALLEL_THRESHOLD) {
+			// render chains independently, keep their order when writing
+			List<RecordBuffer> chains = protein.chains.parallelStream()
+					.map(chain -> render(acquirePooledBuffer(), chain.chainId, chain.residues))
+					.collect(Collectors.toList());
+			for(RecordBuffer chain : chains) {
+				chain.writeTo(outputStream);
+				releasePooledBuffer(chain);
+			}
+		} else {
+			RecordBuffer buffer = acquireBuffer();
+			for(Chain chain : protein.chains) {
+				stream(buffer, chain.chainId, chain.residues, outputStream);
+			}
+			buffer.writeTo(outputStream);
+		}
+	}
+
+	/**
+	 * writes the ATOM records of some residues
+	 * @param chainId the chain identifier to write
+	 * @param residues the residues to write
+	 * @param outputStream the target - it will not be closed
+	 * @throws IOException
+	 */
+	public void write(String chainId, List<Residue> residues, OutputStream outputStream) throws IOException {
+		RecordBuffer buffer = acquireBuffer();
+		stream(buffer, chainId, residues, outputStream);
+		buffer.writeTo(outputStream);
+	}
+
+	/**
+	 * writes an ensemble as one PDB file - each protein is wrapped into MODEL/ENDMDL records, models are rendered in
+	 * parallel in batches, so memory consumption is bounded
+	 * @param models the models to write
+	 * @param outputStream the target - it will not be closed
+	 * @throws IOException
+	 */
+	public void writeModels(List<Protein> models, OutputStream outputStream) throws IOException {
+		int batchSize = 2 * Runtime.getRuntime().availableProcessors();
+		for(int batchStart = 0; batchStart < models.size(); batchStart += batchSize) {
+			List<RecordBuffer> batch = IntStream.range(batchStart, Math.min(batchStart + batchSize, models.size())).parallel()
+					.mapToObj(modelIndex -> {
+						RecordBuffer buffer = acquirePooledBuffer();
+						buffer.append(MODEL_RECORD);
+						buffer.appendInt(modelIndex + 1, 4);
+						buffer.append((byte) '\n');
+						for(Chain chain : models.get(modelIndex).chains) {
+							render(buffer, chain.chainId, chain.residues);
+						}
+						buffer.append(ENDMDL_RECORD);
+						return buffer;
+					})
+					.collect(Collectors.toList());
+			for(RecordBuffer buffer : batch) {
+				buffer.writeTo(outputStream);
+				releasePooledBuffer(buffer);
+			}
+		}
+		outputStream.write(END_RECORD);
+	}
+
+	/**
+	 * composes the ATOM records of a protein
+	 * @param protein the protein to render
+	 * @return one line per atom
+	 */
+	public String compose(Protein protein) {
+		RecordBuffer buffer = acquirePooledBuffer();
+		for(Chain chain : protein.chains) {
+			render(buffer, chain.chainId, chain.residues);
+		}
+		return toStringAndRelease(buffer);
+	}
+
+	/**
+	 * composes the ATOM records of some residues
+	 * @param chainId the chain identifier to write
+	 * @param residues the residues to render
+	 * @return one line per atom
+	 */
+	public String compose(String chainId, List<Residue> residues) {
+		return toStringAndRelease(render(acquirePooledBuffer(), chainId, residues));
+	}
+
+	/**
+	 * @return the content of a pooled buffer, which is emptied and returned to the pool
+	 */
+	private String toStringAndRelease(RecordBuffer buffer) {
+		String records = new String(buffer.bytes, 0, buffer.size, StandardCharsets.ISO_8859_1);
+		buffer.size = 0;
+		releasePooledBuffer(buffer);
+		return records;
+	}
+
+	/**
+	 * @return the empty buffer of the current thread
+	 */
+	private RecordBuffer acquireBuffer() {
+		RecordBuffer buffer = this.buffers.get();
+		buffer.size = 0;
+		return buffer;
+	}
+
+	private RecordBuffer acquirePooledBuffer() {
+		RecordBuffer buffer = this.pooledBuffers.poll();
+		return buffer != null ? buffer : new RecordBuffer();
+	}
+
+	private void releasePooledBuffer(RecordBuffer buffer) {
+		if(buffer.bytes.length <= MAXIMAL_POOLED_CAPACITY) {
+			this.pooledBuffers.offer(buffer);
+		}
+	}
+
+	/**
+	 * renders the records into the buffer, which is written whenever it exceeds {@link #FLUSH_THRESHOLD}
+	 */
+	private static void stream(RecordBuffer buffer, String chainId, List<Residue> residues, OutputStream outputStream) throws IOException {
+		for(Residue residue : residues) {
+			for(Atom atom : residue.atoms) {
+				appendRecord(buffer, atom, residue, chainId);
+				buffer.append((byte) '\n');
+				if(buffer.size >= FLUSH_THRESHOLD) {
+					buffer.writeTo(outputStream);
+				}
+			}
+		}
+	}
+
+	private static RecordBuffer render(RecordBuffer buffer, String chainId, List<Residue> residues) {
+		for(Residue residue : residues) {
+			for(Atom atom : residue.atoms) {
+				appendRecord(buffer, atom, residue, chainId);
+				buffer.append((byte) '\n');
+			}
+		}
+		return buffer;
+	}
+
+	private static int countAtoms(Protein protein) {
+		int atomCount = 0;
+		for(Chain chain : protein.chains) {
+			for(Residue residue : chain.residues) {
+				atomCount += residue.atoms.size();
+			}
+		}
+		return atomCount;
+	}
+
+	/*	COLUMNS        DATA TYPE     FIELD        DEFINITION
+		-------------------------------------------------------------------------------------
+		1 - 6          Record name   "ATOM  "
+		7 - 11         Integer       serial       Atom serial number.
+		13 - 16        Atom          name         Atom name.
+		17             Character     altLoc       Alternate location indicator.
+		18 - 20        Residue name  resName      Residue name.
+		22             Character     chainID      Chain identifier.
+		23 - 26        Integer       resSeq       Residue sequence number.
+		27             AChar         iCode        Code for insertion of residues.
+		31 - 38        Real(8.3)     x            Orthogonal coordinates for X in Angstroms.
+		39 - 46        Real(8.3)     y            Orthogonal coordinates for Y in Angstroms.
+		47 - 54        Real(8.3)     z            Orthogonal coordinates for Z in Angstroms.
+		55 - 60        Real(6.2)     occupancy    Occupancy.
+		61 - 66        Real(6.2)     tempFactor   Temperature factor.
+		77 - 78        LString(2)    element      Element symbol, right justified. */
+	private static void appendRecord(RecordBuffer buffer, Atom atom, Residue residue, String chainId) {
+		int recordStart = buffer.size;
+		buffer.append(ATOM_RECORD);
+		buffer.appendInt(atom.pdbSerial, 5);
+		buffer.append((byte) ' ');
+		appendAtomName(buffer, atom);
+		// alternative location
+		buffer.append((byte) ' ');
+		buffer.appendString(residue.aminoAcid, 3);
+		buffer.append((byte) ' ');
+		buffer.appendString(chainId, 0);
+		buffer.appendInt(residue.residueNumber, 4);
+		// insertion code and columns 28 - 30
+		buffer.append((byte) ' ');
+		buffer.append((byte) ' ');
+		buffer.append((byte) ' ');
+		buffer.append((byte) ' ');
+		buffer.appendDecimal(atom.xyz[0], 4, 3, 8);
+		buffer.appendDecimal(atom.xyz[1], 4, 3, 8);
+		buffer.appendDecimal(atom.xyz[2], 4, 3, 8);
+		buffer.appendDecimal(atom.occupancy, 3, 2, 6);
+		buffer.appendDecimal(atom.tempFactor, 3, 2, 6);
+		while(buffer.size - recordStart < 76) {
+			buffer.append((byte) ' ');
+		}
+		buffer.appendString(atom.element, 2);
+		buffer.append((byte) ' ');
+	}
+
+	/**
+	 * RULES FOR ATOM NAME PADDING: 4 columns in total: 13, 14, 15, 16
+	 */
+	private static void appendAtomName(RecordBuffer buffer, Atom atom) {
+		String name = atom.name;
+		String element = atom.element;
+		switch(name.length()) {
+		case 4:
+			// if length 4: nothing to do
+			buffer.appendString(name, 0);
+			break;
+		case 3:
+			// if length 3: they stay at 14
+			buffer.append((byte) ' ');
+			buffer.appendString(name, 0);
+			break;
+		case 2:
+			// carbon, oxygens, nitrogens, phosphorous stay at column 14
+			// elements with 2 letters (e.g. NA, FE) will go to column 13
+			if(element.equals("C") || element.equals("N") || element.equals("O") || element.equals("P") || element.equals("S")) {
+				buffer.append((byte) ' ');
+				buffer.appendString(name, 0);
+				buffer.append((byte) ' ');
+			} else {
+				buffer.appendString(name, 0);
+				buffer.append((byte) ' ');
+				buffer.append((byte) ' ');
+			}
+			break;
+		case 1:
+			// for length 1 (e.g. K but also C, O) they stay in column 14
+			buffer.append((byte) ' ');
+			buffer.appendString(name, 0);
+			buffer.append((byte) ' ');
+			buffer.append((byte) ' ');
+			break;
+		default:
+			// not representable - as written before
+			buffer.appendString(null, 0);
+		}
+	}
+
+	/**
+	 * a growing byte array - used by one rendering thread at a time
+	 */
+	private static class RecordBuffer {
+		private byte[] bytes = new byte[1 << 12];
+		private int size;
+		/**
+		 * scratch space for right-justified values
+		 */
+		private final byte[] digits = new byte[32];
+
+		private void ensureCapacity(int additionalBytes) {
+			if(this.size + additionalBytes > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + additionalBytes));
+			}
+		}
+
+		private void append(byte b) {
+			ensureCapacity(1);
+			this.bytes[this.size++] = b;
+		}
+
+		private void append(byte[] b) {
+			ensureCapacity(b.length);
+			System.arraycopy(b, 0, this.bytes, this.size, b.length);
+			this.size += b.length;
+		}
+
+		private void appendPadding(int length, int width) {
+			for(int i = length; i < width; i++) {
+				append((byte) ' ');
+			}
+		}
+
+		/**
+		 * appends a string right-justified to the given width - <code>null</code> is written as "null"
+		 */
+		private void appendString(String value, int width) {
+			if(value == null) {
+				value = "null";
+			}
+			appendPadding(value.length(), width);
+			ensureCapacity(value.length());
+			for(int i = 0; i < value.length(); i++) {
+				this.bytes[this.size++] = (byte) value.charAt(i);
+			}
+		}
+
+		/**
+		 * appends an integer right-justified to the given width
+		 */
+		private void appendInt(int value, int width) {
+			long remainder = Math.abs((long) value);
+			int position = this.digits.length;
+			do {
+				this.digits[--position] = (byte) ('0' + remainder % 10);
+				remainder /= 10;
+			} while(remainder != 0);
+			if(value < 0) {
+				this.digits[--position] = '-';
+			}
+			appendDigits(position, width);
+		}
+
+		/**
+		 * appends a decimal right-justified to the given width, formatted like a {@link DecimalFormat} of
+		 * <code>Locale.US</code> with at most <code>integerDigits</code> integer digits and exactly
+		 * <code>fractionDigits</code> fraction digits
+		 */
+		private void appendDecimal(double value, int integerDigits, int fractionDigits, int width) {
+			if(Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAXIMAL_EXACT_VALUE) {
+				appendString(formatWithDecimalFormat(value, integerDigits, fractionDigits), width);
+				return;
+			}
+
+			long scaled = roundHalfEven(Math.abs(value), POWERS_OF_TEN[fractionDigits]);
+			long integerPart = scaled / POWERS_OF_TEN[fractionDigits];
+			long fractionPart = scaled % POWERS_OF_TEN[fractionDigits];
+			// surplus integer digits are dropped, leading zeros of the remaining digits are kept in that case
+			long integerLimit = POWERS_OF_TEN[integerDigits];
+			boolean truncated = integerPart >= integerLimit;
+			integerPart %= integerLimit;
+
+			int position = this.digits.length;
+			for(int i = 0; i < fractionDigits; i++) {
+				this.digits[--position] = (byte) ('0' + fractionPart % 10);
+				fractionPart /= 10;
+			}
+			this.digits[--position] = '.';
+			int writtenDigits = 0;
+			do {
+				if(writtenDigits == 3) {
+					this.digits[--position] = ',';
+				}
+				this.digits[--position] = (byte) ('0' + integerPart % 10);
+				integerPart /= 10;
+				writtenDigits++;
+			} while(integerPart != 0 || (truncated && writtenDigits < integerDigits));
+			// negative values keep their sign, even when rounded to zero
+			if(value < 0 || (value == 0 && 1 / value < 0)) {
+				this.digits[--position] = '-';
+			}
+			appendDigits(position, width);
+		}
+
+		private void appendDigits(int position, int width) {
+			int length = this.digits.length - position;
+			appendPadding(length, width);
+			ensureCapacity(length);
+			System.arraycopy(this.digits, position, this.bytes, this.size, length);
+			this.size += length;
+		}
+
+		/**
+		 * writes and empties this buffer
+		 */
+		private void writeTo(OutputStream outputStream) throws IOException {
+			outputStream.write(this.bytes, 0, this.size);
+			this.size = 0;
+		}
+	}
+
+	/**
+	 * rounds <code>value * scale</code> half-even based on the exact binary value - the double is decomposed into
+	 * <code>mantissa * 2^exponent</code>, so the product can be computed without rounding errors
+	 * @param value a non-negative value smaller than {@link #MAXIMAL_EXACT_VALUE}
+	 * @param scale a power of 10 up to 1000
+	 */
+	static long roundHalfEven(double value, long scale) {
+		long bits = Double.doubleToRawLongBits(value);
+		int biasedExponent = (int) ((bits >>> 52) & 0x7FF);
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+		if(biasedExponent == 0) {
+			// subnormal values
+			biasedExponent = 1;
+		} else {
+			mantissa |= 1L << 52;
+		}
+		int exponent = biasedExponent - 1075;
+		// mantissa < 2^53 and scale < 2^10 - no overflow
+		long product = mantissa * scale;
+		if(exponent >= 0) {
+			return product << exponent;
+		}
+		int shift = -exponent;
+		if(shift >= 64) {
+			// product < 2^63 <= 2^(shift - 1) - always less than one half
+			return 0;
+		}
+		long quotient = product >>> shift;
+		long remainder = product & ((1L << shift) - 1);
+		long half = 1L << (shift - 1);
+		if(remainder > half || (remainder == half && (quotient & 1) == 1)) {
+			quotient++;
+		}
+		return quotient;
+	}
+
+	/**
+	 * the fallback for values which cannot be formatted exactly - instances are created on demand, as
+	 * {@link DecimalFormat} is not thread-safe
+	 */
+	private static String formatWithDecimalFormat(double value, int integerDigits, int fractionDigits) {
+		DecimalFormat decimalFormat = (DecimalFormat) NumberFormat.getInstance(Locale.US);
+		decimalFormat.setMaximumIntegerDigits(integerDigits);
+		decimalFormat.setMinimumFractionDigits(fractionDigits);
+		decimalFormat.setMaximumFractionDigits(fractionDigits);
+		return decimalFormat.format(value);
+	}
+}
@@ -0,0 +1,133 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream (e.g. a decompressing one) on a separate thread, so producing the data and consuming it (e.g.
+ * parsing) are performed concurrently. Chunks are handed over by a bounded queue, thus at most
+ * <code>(capacity + 2) * CHUNK_SIZE</code> bytes are buffered. Failures of the source are rethrown to the consumer.
+ * @author S
+ *
+ */
+public class PipelinedInputStream extends InputStream {
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * marks the end of the source
+	 */
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	private final InputStream source;
+	private final BlockingQueue<byte[]> chunks;
+	private final Thread producer;
+	private volatile IOException failure;
+	private volatile boolean closed;
+	private byte[] chunk;
+	private int position;
+
+	public PipelinedInputStream(InputStream source) {
+		this(source, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param source the stream to read, it is closed when reaching its end or when this stream is closed
+	 * @param capacity the number of chunks which may be buffered
+	 */
+	public PipelinedInputStream(InputStream source, int capacity) {
+		this.source = source;
+		this.chunks = new ArrayBlockingQueue<>(capacity);
+		this.producer = new Thread(this::produce, getClass().getSimpleName());
+		this.producer.setDaemon(true);
+		this.producer.start();
+	}
+
+	private void produce() {
+		try(InputStream source = this.source) {
+			while(!this.closed) {
+				byte[] buffer = new byte[CHUNK_SIZE];
+				int length = 0;
+				int read;
+				// fill the chunk completely to keep the number of hand-overs low
+				while(length < CHUNK_SIZE && (read = source.read(buffer, length, CHUNK_SIZE - length)) != -1) {
+					length += read;
+				}
+				if(length > 0) {
+					this.chunks.put(length == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, length));
+				}
+				if(length < CHUNK_SIZE) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			this.failure = e;
+		} catch (InterruptedException e) {
+			// closed by the consumer
+			return;
+		}
+		try {
+			this.chunks.put(END_OF_STREAM);
+		} catch (InterruptedException e) {
+			// closed by the consumer
+		}
+	}
+
+	/**
+	 * @return false iff the end of the source was reached
+	 */
+	private boolean nextChunk() throws IOException {
+		if(this.chunk != END_OF_STREAM && (this.chunk == null || this.position == this.chunk.length)) {
+			try {
+				this.chunk = this.chunks.take();
+				this.position = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		if(this.chunk == END_OF_STREAM) {
+			if(this.failure != null) {
+				throw this.failure;
+			}
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(!nextChunk()) {
+			return -1;
+		}
+		return this.chunk[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		if(!nextChunk()) {
+			return -1;
+		}
+		int length = Math.min(len, this.chunk.length - this.position);
+		System.arraycopy(this.chunk, this.position, b, off, length);
+		this.position += length;
+		return length;
+	}
+
+	@Override
+	public int available() {
+		return this.chunk != null && this.chunk != END_OF_STREAM ? this.chunk.length - this.position : 0;
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+		this.producer.interrupt();
+	}
+}
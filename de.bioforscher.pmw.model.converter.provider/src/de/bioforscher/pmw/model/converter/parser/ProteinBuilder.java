@@ -0,0 +1,66 @@
+package de.bioforscher.pmw.model.converter.parser;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * Assembles a {@link Protein} from a sequence of atom sites, as provided by formats which do not describe chains and
+ * residues explicitly (e.g. the <code>_atom_site</code> category of mmCIF). Chains and residues are created whenever
+ * the chain id or residue number changes - just like {@link SimplePDBConverter} does for ATOM records.
+ * @author S
+ *
+ */
+class ProteinBuilder {
+	private final Protein protein;
+	private Chain currentChain;
+	private Residue currentResidue;
+
+	ProteinBuilder() {
+		this.protein = new Protein();
+		this.protein.title = "";
+	}
+
+	void addAtom(String chainId, int residueNumber, String aminoAcid, String name, String element, int serial,
+			float occupancy, float tempFactor, double x, double y, double z) {
+		if(this.currentChain == null || !this.currentChain.chainId.equals(chainId)) {
+			this.currentChain = new Chain();
+			this.currentChain.chainId = chainId;
+			this.protein.chains.add(this.currentChain);
+			// residues of different chains must never be merged, even when they share their number
+			this.currentResidue = null;
+		}
+
+		if(this.currentResidue == null || this.currentResidue.residueNumber != residueNumber) {
+			this.currentResidue = new Residue();
+			this.currentResidue.aminoAcid = aminoAcid;
+			this.currentResidue.insertionCode = null;
+			this.currentResidue.residueId = 0;
+			this.currentResidue.residueNumber = residueNumber;
+			this.currentChain.residues.add(this.currentResidue);
+		}
+
+		Atom atom = new Atom();
+		atom.element = element;
+		atom.name = name;
+		atom.occupancy = occupancy;
+		atom.pdbSerial = serial;
+		atom.tempFactor = tempFactor;
+		atom.xyz = new double[] { x, y, z };
+		this.currentResidue.atoms.add(atom);
+	}
+
+	/**
+	 * @param name the id of the entry, may be <code>null</code>
+	 * @param title the title of the entry, may be <code>null</code>
+	 * @return the assembled protein
+	 */
+	Protein build(String name, String title) {
+		this.protein.name = name;
+		if(title != null) {
+			this.protein.title = title;
+		}
+		return this.protein;
+	}
+}
@@ -1,9 +1,14 @@
 package de.bioforscher.pmw.model.converter.provider;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -12,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,13 +28,17 @@ import org.osgi.service.log.LogService;
 
 import de.bioforscher.pmw.api.ModelConverter;
 import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.BackboneSlot;
 import de.bioforscher.pmw.model.Chain;
 import de.bioforscher.pmw.model.Project;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.ReconstructionLevel;
 import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.converter.cache.StructureCache;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.CompressedFiles;
 import de.bioforscher.pmw.model.converter.parser.PDBConverter;
-import de.bioforscher.pmw.model.converter.parser.SimplePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.PDBWriter;
 
 /**
  * A version of the converter not depended on BioJava.
@@ -65,15 +75,39 @@ public class ModelConverterImpl implements ModelConverter {
 		}
 	};
 
+	/**
+	 * stateless, thus, shared by all threads
+	 */
+	private static final PDBWriter PDB_WRITER = new PDBWriter();
 	/**
 	 * connection between 1-letter and 3-letter amino acid name codes
 	 */
 	private Map<String, String> aminoAcidNameMapping;
+	/**
+	 * configuration of the local structure cache - the component's PID is its name
+	 */
+	private static final String CACHE_DIRECTORY = "structureCache.directory";
+	private static final String CACHE_MAXIMAL_SIZE = "structureCache.maximalSize";
+	private static final String CACHE_FETCH_CONCURRENCY = "structureCache.fetchConcurrency";
+	private static final String CACHE_OFFLINE = "structureCache.offline";
+	private static final String CACHE_URL_TEMPLATE = "structureCache.urlTemplate";
+	private static final String DEFAULT_CACHE_DIRECTORY = System.getProperty("user.home") + File.separator + ".pmw" + File.separator + "structures";
+	private static final String TEMPORARY_CACHE_DIRECTORY_PREFIX = "pmw-structures";
+	private StructureCache structureCache;
 	@Reference
 	private LogService logger;
 	
 	@Activate
-	public void activate() {
+	public void activate(Map<String, Object> properties) throws IOException {
+		Path cacheDirectory = Paths.get(String.valueOf(properties.getOrDefault(CACHE_DIRECTORY, DEFAULT_CACHE_DIRECTORY)));
+		try {
+			this.structureCache = createStructureCache(cacheDirectory, properties);
+		} catch (IOException e) {
+			// e.g. a read-only home directory - structures are still served, they are just not kept across restarts
+			Path temporaryDirectory = Files.createTempDirectory(TEMPORARY_CACHE_DIRECTORY_PREFIX);
+			this.logger.log(LogService.LOG_WARNING, "structure cache directory '" + cacheDirectory + "' is not usable, caching in '" + temporaryDirectory + "' instead: " + e);
+			this.structureCache = createStructureCache(temporaryDirectory, properties);
+		}
 		this.aminoAcidNameMapping = new HashMap<>();
 		this.aminoAcidNameMapping.put("ALA", "A");
 		this.aminoAcidNameMapping.put("ARG", "R");
@@ -98,6 +132,14 @@ public class ModelConverterImpl implements ModelConverter {
 		this.aminoAcidNameMapping.put(UNKNOWN_AMINO_ACID_THREE_LETTER_CODE, UNKNOWN_AMINO_ACID_ONE_LETTER_CODE);
 	}
 	
+	private StructureCache createStructureCache(Path directory, Map<String, Object> properties) throws IOException {
+		return new StructureCache(directory,
+				Long.parseLong(String.valueOf(properties.getOrDefault(CACHE_MAXIMAL_SIZE, StructureCache.DEFAULT_MAXIMAL_SIZE))),
+				Integer.parseInt(String.valueOf(properties.getOrDefault(CACHE_FETCH_CONCURRENCY, StructureCache.DEFAULT_FETCH_CONCURRENCY))),
+				Boolean.parseBoolean(String.valueOf(properties.getOrDefault(CACHE_OFFLINE, false))),
+				String.valueOf(properties.getOrDefault(CACHE_URL_TEMPLATE, StructureCache.DEFAULT_URL_TEMPLATE)));
+	}
+	
 	private Stream<Atom> asAtomStream(Residue residue) {
 		return residue.atoms.stream();
 	}
@@ -133,6 +175,7 @@ public class ModelConverterImpl implements ModelConverter {
 		// ensure no old atom describing is still present
 		removeAtomByName(residue, name);
 		residue.atoms.add(atom);
+		residue.indexAtoms();
 	}
 
 	@Override
@@ -148,16 +191,25 @@ public class ModelConverterImpl implements ModelConverter {
 	
 	@Override
 	public Project createModelingProject(byte[] pdbFileContent) throws IOException {
-		PDBConverter parser = new SimplePDBConverter();
-		Protein protein = parser.parsePDBFile(new ByteArrayInputStream(pdbFileContent));
-		updatePdbRepresentation(protein);
+		List<Protein> models = new ArrayList<>();
+		new BytePDBConverter().parseModels(ByteBuffer.wrap(pdbFileContent)).forEachRemaining(models::add);
+		if(models.isEmpty()) {
+			models.add(new BytePDBConverter().parsePDBFile(ByteBuffer.wrap(pdbFileContent)));
+		}
 		// // FIXME: for test purposes
 		// // protein.setReconstructionLevel(ReconstructionLevel.NONE);
+		models.forEach(this::initializeProtein);
+		Protein protein = models.get(0);
+		Project project = createModelingProject(protein,
+				getResidues(protein).stream().map(r -> String.valueOf(r.aminoAcid)).collect(Collectors.joining()));
+		project.proteins.addAll(models.subList(1, models.size()));
+		return project;
+	}
+	
+	private void initializeProtein(Protein protein) {
 		protein.size = getResidues(protein).size();
 		protein.reconstructionLevel = ReconstructionLevel.VALIDATED;
 		assignResidueIds(protein);
-		return createModelingProject(protein,
-				getResidues(protein).stream().map(r -> String.valueOf(r.aminoAcid)).collect(Collectors.joining()));
 	}
 
 	private Project createModelingProject(Protein protein, String sequence) {
@@ -169,28 +221,62 @@ public class ModelConverterImpl implements ModelConverter {
 		return project;
 	}
 	
+	/**
+	 * structures are fetched only once and served by the local structure cache afterwards
+	 */
 	public Protein createProteinByPDBId(String pdbId) throws IOException {
-		this.logger.log(LogService.LOG_INFO, "downloading PDB structure with id '" + pdbId + "'");
-		PDBConverter parser = new SimplePDBConverter();
-		Protein protein = parser.parsePDBFile(new URL(String.format(PDB_FETCH_URL, pdbId)).openStream());
-		updatePdbRepresentation(protein);
-		protein.size = getResidues(protein).size();
-		protein.reconstructionLevel = ReconstructionLevel.VALIDATED;
-		assignResidueIds(protein);
+		this.logger.log(LogService.LOG_INFO, "loading PDB structure with id '" + pdbId + "'");
+		Protein protein = this.structureCache.getProtein(pdbId);
+		initializeProtein(protein);
 		return protein;
 	}
 	
 	public Protein createProtein(File file) throws IOException {
-		Protein protein = new SimplePDBConverter().parsePDBFile(file);
-		updatePdbRepresentation(protein);
-		protein.size = getResidues(protein).size();
-		protein.reconstructionLevel = ReconstructionLevel.VALIDATED;
-		assignResidueIds(protein);
+		return createProtein(file, false);
+	}
+	
+	@Override
+	public Protein createProtein(File file, boolean pipelined) throws IOException {
+		Protein protein = PDBConverter.forFileName(file.getName()).parsePDBFile(file, pipelined);
+		initializeProtein(protein);
 		if(protein.name == null) {
 			protein.name = file.getName().split("\\.")[0];
 		}
 		return protein;
 	}
+	
+	@Override
+	public void createProteins(File file, Consumer<Protein> consumer) throws IOException {
+		createProteins(file, false, consumer);
+	}
+	
+	@Override
+	public void createProteins(File file, boolean pipelined, Consumer<Protein> consumer) throws IOException {
+		Consumer<Protein> initializingConsumer = protein -> {
+			initializeProtein(protein);
+			consumer.accept(protein);
+		};
+		if(!pipelined && !CompressedFiles.isCompressed(file.toPath())) {
+			// plain files are memory-mapped
+			new BytePDBConverter().parsePDBFiles(file.toPath(), initializingConsumer);
+			return;
+		}
+		try(InputStream inputStream = CompressedFiles.newInputStream(file.toPath(), pipelined)) {
+			new BytePDBConverter().parsePDBFiles(inputStream, initializingConsumer);
+		}
+	}
+	
+	@Override
+	public Stream<Protein> createModels(File file) throws IOException {
+		String name = file.getName().split("\\.")[0];
+		return new BytePDBConverter().parseModels(file.toPath()).map(protein -> {
+			initializeProtein(protein);
+			if(protein.name == null) {
+				protein.name = name;
+			}
+			return protein;
+		});
+	}
 
 //	@Override
 //	public Project createModelingProject(String proteinName, String proteinTitle, String sequence) {
@@ -239,6 +325,10 @@ public class ModelConverterImpl implements ModelConverter {
 
 	@Override
 	public Atom getAtomByName(Residue residue, String name) {
+		BackboneSlot slot = BackboneSlot.of(name);
+		if(slot != null) {
+			return getBackboneAtom(residue, slot);
+		}
 		return residue.atoms.stream().filter(r -> r.name.equals(name)).findFirst().get();
 	}
 
@@ -249,20 +339,12 @@ public class ModelConverterImpl implements ModelConverter {
 
 	@Override
 	public Atom getC(Residue residue) {
-		// this is not really elegant - quite boiler-plate
-		return residue.atoms.stream().filter(this::isC).findFirst().get();
+		return getBackboneAtom(residue, BackboneSlot.C);
 	}
 
 	@Override
 	public Atom getCA(Residue residue) {
-//		try {
-			return residue.atoms.stream().filter(this::isCA).findFirst().get();
-//		} catch (NoSuchElementException e) {
-//			System.out.println("atoms:");
-//			residue.atoms.forEach(System.out::println);
-//			e.printStackTrace();
-//			throw new NoSuchElementException();
-//		}
+		return getBackboneAtom(residue, BackboneSlot.CA);
 	}
 
 	@Override
@@ -272,17 +354,29 @@ public class ModelConverterImpl implements ModelConverter {
 	
 	@Override
 	public Atom getH(Residue residue) {
-		return residue.atoms.stream().filter(this::isH).findFirst().get();
+		return getBackboneAtom(residue, BackboneSlot.H);
 	}
 	
 	@Override
 	public Atom getN(Residue residue) {
-		return residue.atoms.stream().filter(this::isN).findFirst().get();
+		return getBackboneAtom(residue, BackboneSlot.N);
 	}
 	
 	@Override
 	public Atom getO(Residue residue) {
-		return residue.atoms.stream().filter(this::isO).findFirst().get();
+		return getBackboneAtom(residue, BackboneSlot.O);
+	}
+	
+	/**
+	 * retrieves an atom by the slot index of the residue
+	 * @throws NoSuchElementException if no such atom is present - as the former stream-based lookup did
+	 */
+	private Atom getBackboneAtom(Residue residue, BackboneSlot slot) throws NoSuchElementException {
+		Atom atom = residue.getBackboneAtom(slot);
+		if(atom == null) {
+			throw new NoSuchElementException("no atom '" + slot.getAtomName() + "' present in " + residue);
+		}
+		return atom;
 	}
 
 	@Override
@@ -290,33 +384,23 @@ public class ModelConverterImpl implements ModelConverter {
 		return protein.chains.stream().flatMap(this::asResidueStream).collect(Collectors.toList());
 	}
 
-	private boolean isC(Atom atom) {
-		return atom.name.equals(BACKBONE_C_NAME);
-	}
-
-	private boolean isCA(Atom atom) {
-		return atom.name.equals(BACKBONE_CA_NAME);
-	}
-	
-	private boolean isH(Atom atom) {
-		return atom.name.equals(BACKBONE_H_NAME);
-	}
-
-	private boolean isN(Atom atom) {
-		return atom.name.equals(BACKBONE_N_NAME);
-	}
-	
-	private boolean isO(Atom atom) {
-		return atom.name.equals(BACKBONE_O_NAME);
-	}
-
 	private void rearrangeAtoms(Residue residue) {
-		Collections.sort(residue.atoms, ATOM_NAME_COMPARATOR);		
+		Collections.sort(residue.atoms, ATOM_NAME_COMPARATOR);
+		residue.indexAtoms();
 	}
 	
 	@Override
 	public boolean removeAtomByName(Residue residue, String name) {
-		return residue.atoms.removeIf(a -> a.name.equals(name));
+		BackboneSlot slot = BackboneSlot.of(name);
+		if(slot != null && residue.getBackboneAtom(slot) == null) {
+			// the index knows there is no such atom - no need to scan the list
+			return false;
+		}
+		boolean removed = residue.atoms.removeIf(a -> a.name.equals(name));
+		if(removed) {
+			residue.indexAtoms();
+		}
+		return removed;
 	}
 
 	@Override
@@ -326,11 +410,27 @@ public class ModelConverterImpl implements ModelConverter {
 	
 	private void removeAtoms(Residue residue) {
 		residue.atoms.clear();
+		residue.indexAtoms();
+	}
+	
+	@Override
+	public String composePdbRepresentation(Protein protein) {
+		return PDB_WRITER.compose(protein);
+	}
+	
+	@Override
+	public String composePdbRepresentation(String chainId, List<Residue> residues) {
+		return PDB_WRITER.compose(chainId, residues);
 	}
 	
 	@Override
-	public void updatePdbRepresentation(Protein protein) {
-		new SimplePDBConverter().updatePdbRepresentation(protein);
+	public void writePdbRepresentation(Protein protein, OutputStream outputStream) throws IOException {
+		PDB_WRITER.write(protein, outputStream);
+	}
+	
+	@Override
+	public void writePdbRepresentation(List<Protein> models, OutputStream outputStream) throws IOException {
+		PDB_WRITER.writeModels(models, outputStream);
 	}
 	
 	@Override
@@ -344,6 +444,6 @@ public class ModelConverterImpl implements ModelConverter {
 					atomCount++;
 				}
 			}
-		}		
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package cache.test;
+
+import static parser.test.ProteinAssert.assertEqualProteins;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.cache.StructureCache;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import junit.framework.TestCase;
+
+/**
+ * runs against a local HTTP stub serving 4cha.pdb for every id - the HEADER record is adjusted, so contents differ
+ */
+public class StructureCacheFunctionalTest extends TestCase {
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+
+	private HttpServer server;
+	private String urlTemplate;
+	private byte[] content;
+	private Path directory;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+	private final AtomicInteger maximalConcurrentRequests = new AtomicInteger();
+	private volatile long responseDelay;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.content = Files.readAllBytes(Paths.get(getResourceAsFilepath(PDB_PATH)));
+		this.directory = Files.createTempDirectory("structures");
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.createContext("/", exchange -> {
+			this.requests.incrementAndGet();
+			this.maximalConcurrentRequests.accumulateAndGet(this.concurrentRequests.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(this.responseDelay);
+				String id = exchange.getRequestURI().getPath().substring(1).replace(".pdb", "");
+				if(id.startsWith("unknown")) {
+					exchange.sendResponseHeaders(404, -1);
+					return;
+				}
+				byte[] response = contentOf(id);
+				exchange.sendResponseHeaders(200, response.length);
+				try(OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(response);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				this.concurrentRequests.decrementAndGet();
+				exchange.close();
+			}
+		});
+		this.server.start();
+		this.urlTemplate = "http://localhost:" + this.server.getAddress().getPort() + "/%s.pdb";
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.server.stop(0);
+		try(Stream<Path> files = Files.walk(this.directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	public void testCaching() throws IOException {
+		Protein expected = new BytePDBConverter().parsePDBFile(Paths.get(getResourceAsFilepath(PDB_PATH)));
+		StructureCache structureCache = createCache(Long.MAX_VALUE, 4, false);
+		assertFalse(structureCache.contains("4cha"));
+		assertEqualProteins(expected, structureCache.getProtein("4cha"));
+		assertEqualProteins(expected, structureCache.getProtein("4CHA"));
+		assertTrue(structureCache.contains("4cha"));
+		assertEquals(1, this.requests.get());
+		assertTrue(structureCache.getSize() > this.content.length);
+
+		// structures of previous instances are reused, even without network
+		StructureCache offlineCache = createCache(Long.MAX_VALUE, 4, true);
+		assertEqualProteins(expected, offlineCache.getProtein("4cha"));
+		assertEquals(new String(this.content, StandardCharsets.US_ASCII), new String(offlineCache.getFile("4cha"), StandardCharsets.US_ASCII));
+		assertEquals(0, offlineCache.getFetchCount());
+		assertEquals(1, this.requests.get());
+	}
+
+	public void testOfflineMode() throws IOException {
+		StructureCache structureCache = createCache(Long.MAX_VALUE, 4, true);
+		try {
+			structureCache.getProtein("4cha");
+			fail("offline cache accessed the network");
+		} catch (IOException e) {
+			assertEquals(0, this.requests.get());
+		}
+	}
+
+	public void testUnknownId() throws IOException {
+		StructureCache structureCache = createCache(Long.MAX_VALUE, 4, false);
+		try {
+			structureCache.getProtein("unknown");
+			fail("missing structure was not reported");
+		} catch (FileNotFoundException e) {
+			// missing entries are not retried
+			assertEquals(1, this.requests.get());
+		}
+	}
+
+	public void testConcurrentRequests() throws Exception {
+		this.responseDelay = 50;
+		StructureCache structureCache = createCache(Long.MAX_VALUE, 2, false);
+		ExecutorService executorService = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<Protein>> proteins = new ArrayList<>();
+			for(int i = 0; i < 32; i++) {
+				// 8 distinct ids, each requested 4 times
+				String id = "1ab" + (i % 8);
+				proteins.add(executorService.submit(() -> structureCache.getProtein(id)));
+			}
+			for(int i = 0; i < proteins.size(); i++) {
+				assertEquals("1AB" + (i % 8), proteins.get(i).get().name);
+			}
+		} finally {
+			executorService.shutdown();
+			executorService.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		assertEquals(8, this.requests.get());
+		assertTrue(this.maximalConcurrentRequests.get() <= 2);
+	}
+
+	public void testEviction() throws IOException {
+		StructureCache unboundedCache = createCache(Long.MAX_VALUE, 4, false);
+		unboundedCache.getProtein("1abc");
+		long objectSize = unboundedCache.getSize();
+
+		// room for 2 structures - 1abc is taken over from the previous instance
+		StructureCache structureCache = createCache(2 * objectSize + objectSize / 2, 4, false);
+		structureCache.getProtein("2abc");
+		// recently used, so 2abc is evicted next
+		structureCache.getProtein("1abc");
+		structureCache.getProtein("3abc");
+		assertTrue(structureCache.contains("1abc"));
+		assertFalse(structureCache.contains("2abc"));
+		assertTrue(structureCache.contains("3abc"));
+		assertTrue(structureCache.getSize() <= 2 * objectSize + objectSize / 2);
+		assertEquals(3, this.requests.get());
+
+		// the state is restored from the directory
+		StructureCache restoredCache = createCache(2 * objectSize + objectSize / 2, 4, true);
+		assertEquals(structureCache.getSize(), restoredCache.getSize());
+		assertTrue(restoredCache.contains("1abc"));
+		assertFalse(restoredCache.contains("2abc"));
+		assertTrue(restoredCache.contains("3abc"));
+	}
+
+	private StructureCache createCache(long maximalSize, int fetchConcurrency, boolean offline) throws IOException {
+		return new StructureCache(this.directory, maximalSize, fetchConcurrency, offline, this.urlTemplate);
+	}
+
+	/**
+	 * @return the content of 4cha.pdb with the id in the HEADER record replaced
+	 */
+	private byte[] contentOf(String id) {
+		byte[] content = this.content.clone();
+		byte[] idBytes = id.toUpperCase().getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(idBytes, 0, content, 62, Math.min(4, idBytes.length));
+		return content;
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
@@ -0,0 +1,111 @@
+package model.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.CoordinateTable;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import junit.framework.TestCase;
+
+public class CoordinateTableFunctionalTest extends TestCase {
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+	private Protein protein;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+	}
+
+	public void testLayout() {
+		CoordinateTable table = CoordinateTable.of(this.protein);
+		List<Residue> residues = residues(this.protein);
+		assertEquals(residues.size(), table.getResidueCount());
+		int atomIndex = 0;
+		for(int residueIndex = 0; residueIndex < residues.size(); residueIndex++) {
+			Residue residue = residues.get(residueIndex);
+			assertSame(residue, table.getResidue(residueIndex));
+			assertEquals(atomIndex, table.getResidueStart(residueIndex));
+			for(Atom atom : residue.atoms) {
+				assertSame(atom, table.getAtom(atomIndex));
+				assertEquals(residueIndex, table.getResidueIndex(atomIndex));
+				assertEquals(atom.xyz[0], table.getX()[atomIndex]);
+				assertEquals(atom.xyz[1], table.getY()[atomIndex]);
+				assertEquals(atom.xyz[2], table.getZ()[atomIndex]);
+				assertEquals(CoordinateTable.encodeAtomName(atom.name), table.getAtomNameCode(atomIndex));
+				atomIndex++;
+			}
+			assertEquals(atomIndex, table.getResidueEnd(residueIndex));
+			int caIndex = table.getAtomIndex(residueIndex, CoordinateTable.CA_CODE);
+			assertEquals("CA", table.getAtom(caIndex).name);
+		}
+		assertEquals(atomIndex, table.getAtomCount());
+	}
+
+	public void testPullAndPush() {
+		CoordinateTable table = CoordinateTable.of(this.protein);
+		Atom atom = table.getAtom(7);
+		double[] xyz = atom.xyz;
+		table.getX()[7] += 1;
+		table.push();
+		// updated in place
+		assertSame(xyz, atom.xyz);
+		assertEquals(table.getX()[7], atom.xyz[0]);
+
+		atom.xyz[1] = 42;
+		assertFalse(table.getY()[7] == 42);
+		table.pull();
+		assertEquals(42.0, table.getY()[7]);
+	}
+
+	public void testTableFollowsComposition() {
+		Residue residue = residues(this.protein).get(3);
+		int atomCount = CoordinateTable.of(this.protein).getAtomCount();
+		Atom hydrogen = new Atom();
+		hydrogen.name = "H";
+		hydrogen.element = "H";
+		hydrogen.xyz = new double[] { 1, 2, 3 };
+		residue.atoms.add(hydrogen);
+
+		// each table is a snapshot of the current composition, so appended atoms are part of the next one
+		CoordinateTable table = CoordinateTable.of(this.protein);
+		assertEquals(atomCount + 1, table.getAtomCount());
+		int hydrogenIndex = table.getAtomIndex(3, CoordinateTable.H_CODE);
+		assertSame(hydrogen, table.getAtom(hydrogenIndex));
+		assertEquals(3, table.getResidueIndex(hydrogenIndex));
+	}
+
+	public void testEmptyResidues() {
+		List<Residue> residues = residues(this.protein);
+		residues.get(1).atoms.clear();
+		residues.get(2).atoms.clear();
+		CoordinateTable table = CoordinateTable.of(this.protein);
+		// residues without atoms share their offset with the next residue - atoms belong to the last of them
+		assertEquals(table.getResidueStart(1), table.getResidueStart(3));
+		assertEquals(3, table.getResidueIndex(table.getResidueStart(3)));
+		assertEquals(CoordinateTable.UNKNOWN_CODE, table.getAtomIndex(1, CoordinateTable.CA_CODE));
+	}
+
+	private List<Residue> residues(Protein protein) {
+		List<Residue> residues = new ArrayList<>();
+		for(Chain chain : protein.chains) {
+			residues.addAll(chain.residues);
+		}
+		return residues;
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
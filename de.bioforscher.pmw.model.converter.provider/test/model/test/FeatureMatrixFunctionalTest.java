@@ -0,0 +1,145 @@
+package model.test;
+
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.FeatureMatrix;
+import de.bioforscher.pmw.model.FeatureType;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import junit.framework.TestCase;
+
+public class FeatureMatrixFunctionalTest extends TestCase {
+	private static final double DELTA = 1E-12;
+	private Protein protein;
+	private Residue[] residues;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.protein = new Protein();
+		this.residues = new Residue[5];
+		for(int i = 0; i < this.residues.length; i++) {
+			this.residues[i] = new Residue();
+			this.residues[i].residueNumber = i + 1;
+		}
+		// residues are indexed chain by chain
+		this.protein.chains.add(chain("A", this.residues[0], this.residues[1], this.residues[2]));
+		this.protein.chains.add(chain("B", this.residues[3], this.residues[4]));
+	}
+
+	public void testLayout() {
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		assertEquals(this.residues.length, featureMatrix.getResidueCount());
+		for(int i = 0; i < this.residues.length; i++) {
+			assertSame(this.residues[i], featureMatrix.getResidue(i));
+			assertEquals(i, featureMatrix.indexOf(this.residues[i]));
+		}
+		try {
+			featureMatrix.indexOf(new Residue());
+			fail("foreign residues must be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testImport() {
+		this.residues[1].features.put(FeatureType.ACCESSIBLE_SURFACE_AREA.name(), new double[] { 42.0, 0.5 });
+		this.residues[4].features.put(FeatureType.ACCESSIBLE_SURFACE_AREA.name(), new double[] { 7.0, 0.25 });
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		assertEquals(42.0, featureMatrix.getValue(FeatureType.ACCESSIBLE_SURFACE_AREA, 1), DELTA);
+		assertEquals(0.5, featureMatrix.getNormalizedValue(FeatureType.ACCESSIBLE_SURFACE_AREA, 1), DELTA);
+		assertEquals(7.0, featureMatrix.getValue(FeatureType.ACCESSIBLE_SURFACE_AREA, this.residues[4]), DELTA);
+		assertEquals(0.25, featureMatrix.getNormalizedValue(FeatureType.ACCESSIBLE_SURFACE_AREA, 4), DELTA);
+		// residues without a value default to 0
+		assertEquals(0.0, featureMatrix.getValue(FeatureType.ACCESSIBLE_SURFACE_AREA, 0), DELTA);
+		assertEquals(0.0, featureMatrix.getValue(FeatureType.SECONDARY_STRUCTURE, 1), DELTA);
+	}
+
+	public void testExport() {
+		double[] existing = new double[] { 1.0, 1.0 };
+		this.residues[2].features.put(FeatureType.SECONDARY_STRUCTURE.name(), existing);
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		for(int i = 0; i < this.residues.length; i++) {
+			featureMatrix.setValue(FeatureType.SECONDARY_STRUCTURE, i, i);
+			featureMatrix.setValue(FeatureType.MEMBRANE_TOPOLOGY, this.residues[i], 2 * i);
+		}
+		featureMatrix.normalize(FeatureType.SECONDARY_STRUCTURE);
+		featureMatrix.exportFeatures(FeatureType.SECONDARY_STRUCTURE);
+
+		for(int i = 0; i < this.residues.length; i++) {
+			double[] feature = this.residues[i].features.get(FeatureType.SECONDARY_STRUCTURE.name());
+			assertEquals(i, feature[0], DELTA);
+			assertEquals(i / 4.0, feature[1], DELTA);
+			// only the requested features are exported
+			assertNull(this.residues[i].features.get(FeatureType.MEMBRANE_TOPOLOGY.name()));
+		}
+		// existing arrays are updated in place
+		assertSame(existing, this.residues[2].features.get(FeatureType.SECONDARY_STRUCTURE.name()));
+
+		// exported values are imported again
+		FeatureMatrix reimported = FeatureMatrix.of(this.protein);
+		for(int i = 0; i < this.residues.length; i++) {
+			assertEquals(featureMatrix.getValue(FeatureType.SECONDARY_STRUCTURE, i), reimported.getValue(FeatureType.SECONDARY_STRUCTURE, i), DELTA);
+			assertEquals(featureMatrix.getNormalizedValue(FeatureType.SECONDARY_STRUCTURE, i),
+					reimported.getNormalizedValue(FeatureType.SECONDARY_STRUCTURE, i), DELTA);
+		}
+	}
+
+	public void testProteinExportsAvailableFeatures() {
+		this.protein.availableFeatures.add(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		this.protein.getFeatureMatrix().setValue(FeatureType.ACCESSIBLE_SURFACE_AREA, 3, 12.0);
+		this.protein.getFeatureMatrix().setValue(FeatureType.MEMBRANE_TOPOLOGY, 3, 1.0);
+		this.protein.exportFeatures();
+		assertEquals(12.0, this.residues[3].features.get(FeatureType.ACCESSIBLE_SURFACE_AREA.name())[0], DELTA);
+		assertNull(this.residues[3].features.get(FeatureType.MEMBRANE_TOPOLOGY.name()));
+	}
+
+	public void testNormalize() {
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		double[] values = featureMatrix.getValues(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		double[] input = new double[] { 10, -10, 30, 0, 20 };
+		System.arraycopy(input, 0, values, 0, input.length);
+
+		featureMatrix.normalize(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		double[] normalizedValues = featureMatrix.getNormalizedValues(FeatureType.ACCESSIBLE_SURFACE_AREA);
+		for(int i = 0; i < input.length; i++) {
+			assertEquals((input[i] + 10) / 40, normalizedValues[i], DELTA);
+			// raw values remain untouched
+			assertEquals(input[i], values[i], DELTA);
+		}
+
+		// explicit ranges, e.g. of discrete features
+		featureMatrix.normalize(FeatureType.ACCESSIBLE_SURFACE_AREA, 0, 20);
+		for(int i = 0; i < input.length; i++) {
+			assertEquals(input[i] / 20, featureMatrix.getNormalizedValue(FeatureType.ACCESSIBLE_SURFACE_AREA, i), DELTA);
+		}
+	}
+
+	public void testNormalizeConstantValues() {
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		for(int i = 0; i < this.residues.length; i++) {
+			featureMatrix.setValue(FeatureType.MEMBRANE_TOPOLOGY, i, 3.0);
+		}
+		featureMatrix.normalize(FeatureType.MEMBRANE_TOPOLOGY);
+		// 0 / 0 must not be propagated as NaN
+		for(int i = 0; i < this.residues.length; i++) {
+			assertEquals(0.0, featureMatrix.getNormalizedValue(FeatureType.MEMBRANE_TOPOLOGY, i), 0.0);
+		}
+	}
+
+	public void testClear() {
+		FeatureMatrix featureMatrix = FeatureMatrix.of(this.protein);
+		featureMatrix.setValue(FeatureType.SECONDARY_STRUCTURE, 0, 2.0);
+		featureMatrix.getNormalizedValues(FeatureType.SECONDARY_STRUCTURE)[0] = 1.0;
+		featureMatrix.clear(FeatureType.SECONDARY_STRUCTURE);
+		assertEquals(0.0, featureMatrix.getValue(FeatureType.SECONDARY_STRUCTURE, 0), 0.0);
+		assertEquals(0.0, featureMatrix.getNormalizedValue(FeatureType.SECONDARY_STRUCTURE, 0), 0.0);
+	}
+
+	private Chain chain(String chainId, Residue... residues) {
+		Chain chain = new Chain();
+		chain.chainId = chainId;
+		for(Residue residue : residues) {
+			chain.residues.add(residue);
+		}
+		return chain;
+	}
+}
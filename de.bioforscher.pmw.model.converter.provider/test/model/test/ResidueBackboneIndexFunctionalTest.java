@@ -0,0 +1,132 @@
+package model.test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Objects;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.BackboneSlot;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.provider.ModelConverterImpl;
+import junit.framework.TestCase;
+
+public class ResidueBackboneIndexFunctionalTest extends TestCase {
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+	private final ModelConverterImpl modelConverter = new ModelConverterImpl();
+	private Protein protein;
+	private Residue residue;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+		selectResidue(3);
+	}
+
+	public void testLookup() {
+		for(BackboneSlot slot : BackboneSlot.values()) {
+			assertSame(scan(slot), this.residue.getBackboneAtom(slot));
+		}
+	}
+
+	public void testCreate() {
+		this.modelConverter.createAtom(this.residue, "H", new double[] { 1, 2, 3 });
+		assertSame(scan(BackboneSlot.H), this.residue.getBackboneAtom(BackboneSlot.H));
+
+		// replacing an existing atom
+		Atom ca = this.residue.getBackboneAtom(BackboneSlot.CA);
+		this.modelConverter.createAtom(this.residue, "CA", new double[] { 1, 2, 3 });
+		assertNotSame(ca, this.residue.getBackboneAtom(BackboneSlot.CA));
+		assertSame(scan(BackboneSlot.CA), this.residue.getBackboneAtom(BackboneSlot.CA));
+
+		// appending directly to the list changes its size
+		Atom hydrogen = this.modelConverter.createAtom("H", new double[] { 3, 2, 1 });
+		this.residue.atoms.remove(scan(BackboneSlot.H));
+		this.residue.atoms.add(hydrogen);
+		assertSame(hydrogen, this.residue.getBackboneAtom(BackboneSlot.H));
+	}
+
+	public void testRemove() {
+		assertTrue(this.modelConverter.removeAtomByName(this.residue, "CA"));
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.CA));
+		assertFalse(this.modelConverter.removeAtomByName(this.residue, "CA"));
+
+		// removing directly from the list changes its size
+		this.residue.atoms.remove(this.residue.getBackboneAtom(BackboneSlot.N));
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.N));
+		assertSame(scan(BackboneSlot.C), this.residue.getBackboneAtom(BackboneSlot.C));
+	}
+
+	public void testReorder() {
+		Atom n = this.residue.getBackboneAtom(BackboneSlot.N);
+		Collections.reverse(this.residue.atoms);
+		for(BackboneSlot slot : BackboneSlot.values()) {
+			assertSame(scan(slot), this.residue.getBackboneAtom(slot));
+		}
+		assertSame(n, this.residue.getBackboneAtom(BackboneSlot.N));
+	}
+
+	public void testUpdatePdbSerials() {
+		Collections.reverse(this.residue.atoms);
+		// resolve the index on the reversed list first
+		Atom ca = this.residue.getBackboneAtom(BackboneSlot.CA);
+		this.modelConverter.updatePdbSerials(this.protein);
+		assertEquals("N", this.residue.atoms.get(0).name);
+		assertSame(ca, this.residue.getBackboneAtom(BackboneSlot.CA));
+		for(BackboneSlot slot : BackboneSlot.values()) {
+			assertSame(scan(slot), this.residue.getBackboneAtom(slot));
+		}
+	}
+
+	public void testRenamingIndexedAtom() {
+		Atom ca = this.residue.getBackboneAtom(BackboneSlot.CA);
+		ca.name = "CX";
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.CA));
+	}
+
+	public void testUndetectedModifications() {
+		// renaming a side chain atom to a backbone name keeps the size and the indexed atoms
+		Atom sideChainAtom = sideChainAtom();
+		sideChainAtom.name = "H";
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.H));
+		this.residue.indexAtoms();
+		assertSame(sideChainAtom, this.residue.getBackboneAtom(BackboneSlot.H));
+
+		// replacing a side chain atom in place keeps the size and the indexed atoms
+		selectResidue(5);
+		Atom hydrogen = this.modelConverter.createAtom("H", new double[] { 1, 2, 3 });
+		this.residue.atoms.set(this.residue.atoms.indexOf(sideChainAtom()), hydrogen);
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.H));
+		this.residue.indexAtoms();
+		assertSame(hydrogen, this.residue.getBackboneAtom(BackboneSlot.H));
+	}
+
+	private void selectResidue(int index) {
+		this.residue = this.protein.chains.get(0).residues.get(index);
+		assertNull(this.residue.getBackboneAtom(BackboneSlot.H));
+	}
+
+	/**
+	 * @return the first atom which is not covered by a {@link BackboneSlot}
+	 */
+	private Atom sideChainAtom() {
+		return this.residue.atoms.stream().filter(atom -> BackboneSlot.of(atom.name) == null).findFirst().get();
+	}
+
+	/**
+	 * @return the first atom of the slot's name as found by scanning the list
+	 */
+	private Atom scan(BackboneSlot slot) {
+		return this.residue.atoms.stream().filter(atom -> atom.name.equals(slot.getAtomName())).findFirst().orElse(null);
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
@@ -0,0 +1,106 @@
+package parser.test;
+
+import static parser.test.ProteinAssert.assertEqualProteins;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.SimplePDBConverter;
+import junit.framework.TestCase;
+
+public class BytePDBParserFunctionalTest extends TestCase {
+	// local file to parse
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+
+	public void testEquivalenceToSimplePDBParser() throws IOException {
+		File file = new File(getResourceAsFilepath(PDB_PATH));
+		Protein expected = new SimplePDBConverter().parsePDBFile(file);
+		assertEqualProteins(expected, new BytePDBConverter().parsePDBFile(file));
+		assertEqualProteins(expected, new BytePDBConverter().parsePDBFile(Files.newInputStream(file.toPath())));
+	}
+
+	public void testTruncatedAtomRecord() {
+		String content = "ATOM      1  N   ILE A   1      12.345  23.456\n"
+				+ "ATOM      2  CA  ILE A   1      13.345  24.456  35.567  1.00 20.00           C\n";
+		try {
+			new BytePDBConverter().parsePDBFile(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+			fail("truncated records must not be completed by the next line");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("truncated"));
+		}
+	}
+
+	public void testConcatenatedFiles() throws IOException {
+		Path file = new File(getResourceAsFilepath(PDB_PATH)).toPath();
+		Protein expected = new SimplePDBConverter().parsePDBFile(file.toFile());
+		Path dump = Files.createTempFile("dump", ".pdb");
+		try {
+			byte[] content = Files.readAllBytes(file);
+			for(int i = 0; i < 3; i++) {
+				Files.write(dump, content, StandardOpenOption.APPEND);
+				Files.write(dump, "END\n".getBytes(), StandardOpenOption.APPEND);
+			}
+			List<Protein> proteins = new ArrayList<>();
+			new BytePDBConverter().parsePDBFiles(dump, proteins::add);
+			assertEquals(3, proteins.size());
+			for(Protein protein : proteins) {
+				assertEqualProteins(expected, protein);
+			}
+		} finally {
+			Files.delete(dump);
+		}
+	}
+
+	public void testEnsemble() throws IOException {
+		Path file = new File(getResourceAsFilepath(PDB_PATH)).toPath();
+		Protein expected = new SimplePDBConverter().parsePDBFile(file.toFile());
+		Path ensemble = Files.createTempFile("ensemble", ".pdb");
+		try {
+			// HEADER and TITLE records, followed by 3 models of the atoms
+			List<String> lines = Files.readAllLines(file);
+			List<String> ensembleLines = new ArrayList<>();
+			lines.stream().filter(line -> line.startsWith("HEADER") || line.startsWith("TITLE")).forEach(ensembleLines::add);
+			for(int model = 1; model <= 3; model++) {
+				ensembleLines.add(String.format("MODEL     %4d", model));
+				lines.stream().filter(line -> line.startsWith("ATOM") || line.startsWith("TER")).forEach(ensembleLines::add);
+				ensembleLines.add("ENDMDL");
+			}
+			ensembleLines.add("END");
+			Files.write(ensemble, ensembleLines);
+
+			// models must not be merged
+			assertEqualProteins(expected, new SimplePDBConverter().parsePDBFile(ensemble.toFile()));
+			assertEqualProteins(expected, new BytePDBConverter().parsePDBFile(ensemble.toFile()));
+
+			Iterator<Protein> models = new BytePDBConverter().parseModels(ensemble).iterator();
+			for(int model = 1; model <= 3; model++) {
+				assertTrue(models.hasNext());
+				assertEqualProteins(expected, models.next());
+			}
+			assertFalse(models.hasNext());
+			assertEquals(1, new BytePDBConverter().parseModels(file).count());
+		} finally {
+			Files.delete(ensemble);
+		}
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
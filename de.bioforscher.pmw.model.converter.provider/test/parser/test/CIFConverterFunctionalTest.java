@@ -0,0 +1,55 @@
+package parser.test;
+
+import static parser.test.ProteinAssert.assertEqualProteins;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.parser.BinaryCIFConverter;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.MmCIFConverter;
+import de.bioforscher.pmw.model.converter.parser.PDBConverter;
+import de.bioforscher.pmw.model.converter.parser.SimplePDBConverter;
+import junit.framework.TestCase;
+
+/**
+ * the mmCIF and BinaryCIF files describe the same atoms as the PDB file (waters included as HETATM records)
+ */
+public class CIFConverterFunctionalTest extends TestCase {
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+	private static final String MMCIF_PATH = "parser/test/4cha.cif";
+	private static final String BINARY_CIF_PATH = "parser/test/4cha.bcif";
+
+	public void testMmCIFEquivalenceToSimplePDBParser() throws IOException {
+		Protein expected = new SimplePDBConverter().parsePDBFile(getResourceAsFilepath(PDB_PATH));
+		File file = new File(getResourceAsFilepath(MMCIF_PATH));
+		assertEqualProteins(expected, new MmCIFConverter().parsePDBFile(file));
+		assertEqualProteins(expected, new MmCIFConverter().parsePDBFile(Files.newInputStream(file.toPath())));
+	}
+
+	public void testBinaryCIFEquivalenceToSimplePDBParser() throws IOException {
+		Protein expected = new SimplePDBConverter().parsePDBFile(getResourceAsFilepath(PDB_PATH));
+		File file = new File(getResourceAsFilepath(BINARY_CIF_PATH));
+		assertEqualProteins(expected, new BinaryCIFConverter().parsePDBFile(file));
+		assertEqualProteins(expected, new BinaryCIFConverter().parsePDBFile(Files.newInputStream(file.toPath())));
+	}
+
+	public void testConverterSelection() {
+		assertTrue(PDBConverter.forFileName("4cha.cif") instanceof MmCIFConverter);
+		assertTrue(PDBConverter.forFileName("4CHA.MMCIF") instanceof MmCIFConverter);
+		assertTrue(PDBConverter.forFileName("4cha.bcif") instanceof BinaryCIFConverter);
+		assertTrue(PDBConverter.forFileName("4cha.pdb") instanceof BytePDBConverter);
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
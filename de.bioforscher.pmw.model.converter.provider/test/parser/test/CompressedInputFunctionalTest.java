@@ -0,0 +1,170 @@
+package parser.test;
+
+import static parser.test.ProteinAssert.assertEqualProteins;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.converter.parser.BinaryCIFConverter;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.CompressedFiles;
+import de.bioforscher.pmw.model.converter.parser.PDBConverter;
+import de.bioforscher.pmw.model.converter.parser.PipelinedInputStream;
+import junit.framework.TestCase;
+
+public class CompressedInputFunctionalTest extends TestCase {
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+	private static final String MMCIF_PATH = "parser/test/4cha.cif";
+	private static final String BINARY_CIF_PATH = "parser/test/4cha.bcif";
+
+	public void testCompressedFiles() throws IOException {
+		for(String path : new String[] { PDB_PATH, MMCIF_PATH }) {
+			File file = new File(getResourceAsFilepath(path));
+			Protein expected = PDBConverter.forFileName(file.getName()).parsePDBFile(file);
+			Path compressed = compress(file.toPath(), 1);
+			try {
+				String fileName = compressed.getFileName().toString();
+				assertEqualProteins(expected, PDBConverter.forFileName(fileName).parsePDBFile(compressed.toFile()));
+				assertEqualProteins(expected, PDBConverter.forFileName(fileName).parsePDBFile(compressed.toFile(), true));
+			} finally {
+				Files.delete(compressed);
+			}
+		}
+	}
+
+	public void testUncompressedFilesAreMapped() throws IOException {
+		File pdbFile = new File(getResourceAsFilepath(PDB_PATH));
+		List<Path> mappedPaths = new ArrayList<>();
+		BytePDBConverter pdbConverter = new BytePDBConverter() {
+			@Override
+			public Protein parsePDBFile(Path path) throws IOException {
+				mappedPaths.add(path);
+				return super.parsePDBFile(path);
+			}
+
+			@Override
+			public Protein parsePDBFile(InputStream inputStream) throws IOException {
+				throw new AssertionError("uncompressed files must not be streamed");
+			}
+		};
+		for(boolean pipelined : new boolean[] { false, true }) {
+			assertNotNull(pdbConverter.parsePDBFile(pdbFile, pipelined));
+		}
+		assertNotNull(pdbConverter.parsePDBFile(pdbFile));
+		assertEquals(Arrays.asList(pdbFile.toPath(), pdbFile.toPath(), pdbFile.toPath()), mappedPaths);
+
+		File bcifFile = new File(getResourceAsFilepath(BINARY_CIF_PATH));
+		List<ByteBuffer> mappedBuffers = new ArrayList<>();
+		BinaryCIFConverter bcifConverter = new BinaryCIFConverter() {
+			@Override
+			public Protein parsePDBFile(ByteBuffer buffer) throws IOException {
+				mappedBuffers.add(buffer);
+				return super.parsePDBFile(buffer);
+			}
+
+			@Override
+			public Protein parsePDBFile(InputStream inputStream) throws IOException {
+				throw new AssertionError("uncompressed files must not be streamed");
+			}
+		};
+		assertNotNull(bcifConverter.parsePDBFile(bcifFile, true));
+		assertEquals(1, mappedBuffers.size());
+		assertTrue(mappedBuffers.get(0) instanceof MappedByteBuffer);
+	}
+
+	public void testCompressedDump() throws IOException {
+		File file = new File(getResourceAsFilepath(PDB_PATH));
+		Protein expected = new BytePDBConverter().parsePDBFile(file);
+		Path compressed = compress(file.toPath(), 3);
+		try {
+			for(boolean pipelined : new boolean[] { false, true }) {
+				List<Protein> proteins = new ArrayList<>();
+				try(InputStream inputStream = CompressedFiles.newInputStream(compressed, pipelined)) {
+					new BytePDBConverter().parsePDBFiles(inputStream, proteins::add);
+				}
+				assertEquals(3, proteins.size());
+				for(Protein protein : proteins) {
+					assertEqualProteins(expected, protein);
+				}
+			}
+		} finally {
+			Files.delete(compressed);
+		}
+	}
+
+	public void testPipelinedFailure() {
+		InputStream failingStream = new InputStream() {
+			private int remaining = 1 << 20;
+
+			@Override
+			public int read() throws IOException {
+				if(this.remaining-- == 0) {
+					throw new IOException("corrupt");
+				}
+				return 'A';
+			}
+		};
+		try(InputStream inputStream = new PipelinedInputStream(failingStream, 2)) {
+			byte[] buffer = new byte[4096];
+			while(inputStream.read(buffer) != -1) {
+				// consume
+			}
+			fail("failure of the source was not reported");
+		} catch (IOException e) {
+			assertEquals("corrupt", e.getMessage());
+		}
+	}
+
+	public void testPipelinedContent() throws IOException {
+		byte[] content = new byte[300000];
+		for(int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		try(InputStream inputStream = new PipelinedInputStream(new ByteArrayInputStream(content), 1)) {
+			byte[] read = new byte[content.length];
+			int length = 0;
+			int b;
+			// mix single byte and bulk reads
+			while((b = inputStream.read()) != -1) {
+				read[length++] = (byte) b;
+				length += Math.max(inputStream.read(read, length, Math.min(1000, read.length - length)), 0);
+			}
+			assertEquals(content.length, length);
+			assertTrue(Arrays.equals(content, read));
+		}
+	}
+
+	private Path compress(Path file, int copies) throws IOException {
+		String fileName = file.getFileName().toString();
+		Path compressed = Files.createTempFile("compressed", fileName.substring(fileName.indexOf('.')) + CompressedFiles.GZIP_EXTENSION);
+		byte[] content = Files.readAllBytes(file);
+		try(OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+			for(int i = 0; i < copies; i++) {
+				outputStream.write(content);
+			}
+		}
+		return compressed;
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
@@ -0,0 +1,104 @@
+package parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+import de.bioforscher.pmw.model.converter.parser.BytePDBConverter;
+import de.bioforscher.pmw.model.converter.parser.PDBWriter;
+import junit.framework.TestCase;
+
+public class PDBWriterFunctionalTest extends TestCase {
+	// local file to parse
+	private static final String PDB_PATH = "parser/test/4cha.pdb";
+
+	public void testRoundTrip() throws IOException {
+		Protein protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+		byte[] written = write(protein);
+		Protein reparsed = new BytePDBConverter().parsePDBFile(ByteBuffer.wrap(written));
+
+		List<Atom> atoms = atoms(protein);
+		List<Atom> reparsedAtoms = atoms(reparsed);
+		assertEquals(atoms.size(), reparsedAtoms.size());
+		for(int i = 0; i < atoms.size(); i++) {
+			assertEquals(atoms.get(i).name, reparsedAtoms.get(i).name);
+			assertEquals(atoms.get(i).pdbSerial, reparsedAtoms.get(i).pdbSerial);
+			// coordinates of PDB files have 3 fraction digits, so they are reproduced exactly
+			assertTrue(Arrays.equals(atoms.get(i).xyz, reparsedAtoms.get(i).xyz));
+		}
+		// streaming and composing create the same records
+		assertEquals(new BytePDBConverter().composePdbRepresentation(protein), new String(written, StandardCharsets.ISO_8859_1));
+	}
+
+	public void testCompositionFollowsChanges() throws IOException {
+		Protein protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+		BytePDBConverter converter = new BytePDBConverter();
+		converter.composePdbRepresentation(protein);
+		List<Atom> atoms = atoms(protein);
+		atoms.get(0).xyz[0] += 1;
+		atoms.get(1).name = "CB";
+		atoms.get(2).tempFactor = -atoms.get(2).tempFactor;
+		protein.chains.get(0).residues.get(1).residueNumber++;
+		// records are rendered on demand, so each change is part of the next composition
+		assertEquals(new String(write(protein), StandardCharsets.ISO_8859_1), converter.composePdbRepresentation(protein));
+	}
+
+	public void testCompose() throws IOException {
+		Protein protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+		PDBWriter pdbWriter = new PDBWriter();
+		String expected = new String(write(protein), StandardCharsets.ISO_8859_1);
+		// pooled buffers are emptied before they are reused
+		assertEquals(expected, pdbWriter.compose(protein));
+		assertEquals(expected, pdbWriter.compose(protein));
+
+		Chain chain = protein.chains.get(0);
+		List<Residue> residues = chain.residues.subList(2, 5);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		pdbWriter.write(chain.chainId, residues, outputStream);
+		assertEquals(new String(outputStream.toByteArray(), StandardCharsets.ISO_8859_1), pdbWriter.compose(chain.chainId, residues));
+		assertEquals(expected, pdbWriter.compose(protein));
+	}
+
+	public void testConcurrentWriting() throws IOException {
+		Protein protein = new BytePDBConverter().parsePDBFile(new File(getResourceAsFilepath(PDB_PATH)));
+		byte[] expected = write(protein);
+		IntStream.range(0, 64).parallel().forEach(i -> {
+			try {
+				assertTrue(Arrays.equals(expected, write(protein)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private byte[] write(Protein protein) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new PDBWriter().write(protein, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	private List<Atom> atoms(Protein protein) {
+		return protein.chains.stream().flatMap(c -> c.residues.stream()).flatMap(r -> r.atoms.stream()).collect(Collectors.toList());
+	}
+
+	private String getResourceAsFilepath(String filename) {
+		ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+		Objects.requireNonNull(ccl);
+		URL resource = ccl.getResource(filename);
+		Objects.requireNonNull(resource);
+		return resource.getPath();
+	}
+}
@@ -0,0 +1,54 @@
+package parser.test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+import java.util.Arrays;
+
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Chain;
+import de.bioforscher.pmw.model.Protein;
+import de.bioforscher.pmw.model.Residue;
+
+/**
+ * Structural comparison of parsed proteins, shared by the tests of all parsers and caches.
+ * @author S
+ *
+ */
+public final class ProteinAssert {
+	private ProteinAssert() {
+	}
+
+	/**
+	 * asserts that both proteins describe the same chains, residues and atoms - numbers are compared exactly, as parsing
+	 * and caching must not introduce rounding errors
+	 */
+	public static void assertEqualProteins(Protein expected, Protein actual) {
+		assertEquals(expected.name, actual.name);
+		assertEquals(expected.title, actual.title);
+		assertEquals(expected.chains.size(), actual.chains.size());
+		for(int c = 0; c < expected.chains.size(); c++) {
+			Chain expectedChain = expected.chains.get(c);
+			Chain actualChain = actual.chains.get(c);
+			assertEquals(expectedChain.chainId, actualChain.chainId);
+			assertEquals(expectedChain.residues.size(), actualChain.residues.size());
+			for(int r = 0; r < expectedChain.residues.size(); r++) {
+				Residue expectedResidue = expectedChain.residues.get(r);
+				Residue actualResidue = actualChain.residues.get(r);
+				assertEquals(expectedResidue.aminoAcid, actualResidue.aminoAcid);
+				assertEquals(expectedResidue.residueNumber, actualResidue.residueNumber);
+				assertEquals(expectedResidue.atoms.size(), actualResidue.atoms.size());
+				for(int a = 0; a < expectedResidue.atoms.size(); a++) {
+					Atom expectedAtom = expectedResidue.atoms.get(a);
+					Atom actualAtom = actualResidue.atoms.get(a);
+					assertEquals(expectedAtom.name, actualAtom.name);
+					assertEquals(expectedAtom.element, actualAtom.element);
+					assertEquals(expectedAtom.pdbSerial, actualAtom.pdbSerial);
+					assertEquals(Float.floatToIntBits(expectedAtom.occupancy), Float.floatToIntBits(actualAtom.occupancy));
+					assertEquals(Float.floatToIntBits(expectedAtom.tempFactor), Float.floatToIntBits(actualAtom.tempFactor));
+					assertTrue(Arrays.equals(expectedAtom.xyz, actualAtom.xyz));
+				}
+			}
+		}
+	}
+}
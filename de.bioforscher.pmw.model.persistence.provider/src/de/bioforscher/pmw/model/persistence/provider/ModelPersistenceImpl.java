@@ -13,6 +13,7 @@ import de.bioforscher.pmw.api.ModelPersistence;
 import de.bioforscher.pmw.model.DefinedMotif;
 import de.bioforscher.pmw.model.Fragment;
 import de.bioforscher.pmw.model.Project;
+import de.bioforscher.pmw.model.Protein;
 
 @Component(name = "de.bioforscher.pmw.model.persistence")
 public class ModelPersistenceImpl implements ModelPersistence {
@@ -38,6 +39,7 @@ public class ModelPersistenceImpl implements ModelPersistence {
 	@Override
 	public void createProject(Project project) throws Exception {
 		this.logger.log(LogService.LOG_INFO, "creating persistence entry for project " + project._id);
+		exportFeatures(project);
 		this.projects.insert(project);
 	}
 	
@@ -53,9 +55,17 @@ public class ModelPersistenceImpl implements ModelPersistence {
 	@Override
 	public void updateProject(Project project) throws Exception {
 		this.logger.log(LogService.LOG_INFO, "updating persistence entry project " + project._id);
+		exportFeatures(project);
 		this.projects.upsert(project);
 	}
 	
+	/**
+	 * features are computed into the feature matrix of each protein - the maps of the residues are the stored representation
+	 */
+	private void exportFeatures(Project project) {
+		project.proteins.forEach(Protein::exportFeatures);
+	}
+	
 	@Override
 	public void deleteProject(String projectId) throws Exception {
 		this.logger.log(LogService.LOG_INFO, "deleting persistence entry project " + projectId);
@@ -76,6 +86,16 @@ public class ModelPersistenceImpl implements ModelPersistence {
 		this.fragments.insert(fragment);
 	}
 
+	@Override
+	public void deleteFragments(List<Fragment> fragments) throws Exception {
+		this.logger.log(LogService.LOG_INFO, "deleting persistence entries of " + fragments.size() + " fragments");
+		for(Fragment fragment : fragments) {
+			Fragment queryFragment = new Fragment();
+			queryFragment._id = fragment._id;
+			this.fragments.find(queryFragment).remove();
+		}
+	}
+
 	@Override
 	public List<Fragment> retrieveFragments() throws Exception {
 		this.logger.log(LogService.LOG_INFO, "retrieving all fragments");
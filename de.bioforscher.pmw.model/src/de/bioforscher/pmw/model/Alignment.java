@@ -38,6 +38,10 @@ public class Alignment extends DTO {
 	 * The rotation matrix necessary to rotate {@link Alignment#residues2} to the position of {@link Alignment#residues1}.
 	 */
 	public double[][] rotationMatrix;
+	/**
+	 * The position of the reference in the reference set of a batch alignment, -1 for alignments of a pair of fragments.
+	 */
+	public int referenceIndex = -1;
 	
 	public static Alignment of(List<double[]> reference, List<double[]> fragmentToAlign, double[] translationVector, double[][] rotationMatrix) {
 		Alignment alignment = new Alignment();
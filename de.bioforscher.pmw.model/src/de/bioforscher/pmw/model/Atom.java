@@ -11,8 +11,7 @@ public class Atom extends DTO {
 	public int pdbSerial;
 	public float tempFactor;
 	public double[] xyz;
-	public String pdbRepresentation;
-	
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + " name='" + this.name + "' coords='" + Arrays.toString(this.xyz) + "' element='" + this.element + "'";
@@ -0,0 +1,53 @@
+package de.bioforscher.pmw.model;
+
+/**
+ * The atoms of a {@link Residue} which are directly accessible by {@link Residue#getBackboneAtom(BackboneSlot)}.
+ *
+ * @author S
+ *
+ */
+public enum BackboneSlot {
+	N("N"),
+	CA("CA"),
+	C("C"),
+	O("O"),
+	CB("CB"),
+	H("H");
+
+	private final String atomName;
+
+	private BackboneSlot(String atomName) {
+		this.atomName = atomName;
+	}
+
+	/**
+	 * @return the PDB name of the atom stored in this slot
+	 */
+	public String getAtomName() {
+		return this.atomName;
+	}
+
+	/**
+	 * resolves the slot of an atom
+	 * @param atomName the PDB name of the atom - e.g. 'CA'
+	 * @return the corresponding slot or <code>null</code> if atoms of this name are not indexed
+	 */
+	public static BackboneSlot of(String atomName) {
+		switch(atomName) {
+		case "N":
+			return N;
+		case "CA":
+			return CA;
+		case "C":
+			return C;
+		case "O":
+			return O;
+		case "CB":
+			return CB;
+		case "H":
+			return H;
+		default:
+			return null;
+		}
+	}
+}
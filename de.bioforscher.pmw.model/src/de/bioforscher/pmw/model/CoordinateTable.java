@@ -0,0 +1,246 @@
+package de.bioforscher.pmw.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A columnar (structure-of-arrays) representation of all {@link Atom}s of a {@link Protein}. Coordinates are packed into
+ * 3 contiguous <code>double[]</code> (one per dimension), atom names and elements are encoded as small integers and the
+ * atoms of each {@link Residue} are addressed by offsets. Thus, algorithms can iterate primitive arrays rather than chasing
+ * pointers through chains, residues and atoms.<br />
+ * The DTOs remain the persisted and serialized representation of the model. The table keeps a reference to each of
+ * them, so {@link #getAtom(int)} and {@link #getResidue(int)} give access to the corresponding model entries. Coordinates
+ * are exchanged explicitly: {@link #pull()} copies the current <code>xyz</code> values of all atoms into the table,
+ * {@link #push()} writes the table's values back.<br />
+ * <b>Important:</b> a table is a snapshot of the composition of a protein and is not thread-safe - create one per
+ * computation by {@link #of(Protein)} and discard it afterwards, it is not cached by the protein.
+ * @author S
+ *
+ */
+public class CoordinateTable {
+	/**
+	 * code of atom names which are not part of {@link #ATOM_NAMES} and elements which are not part of {@link #ELEMENTS}
+	 */
+	public static final int UNKNOWN_CODE = -1;
+	/**
+	 * atom names which can be encoded - backbone atoms first, so their codes are stable and can be used as constants
+	 */
+	private static final List<String> ATOM_NAMES = Arrays.asList("N", "CA", "C", "O", "CB", "H",
+			"CG", "CG1", "CG2", "CD", "CD1", "CD2", "CE", "CE1", "CE2", "CE3", "CZ", "CZ2", "CZ3", "CH2",
+			"ND1", "ND2", "NE", "NE1", "NE2", "NH1", "NH2", "NZ",
+			"OD1", "OD2", "OE1", "OE2", "OG", "OG1", "OH", "OXT",
+			"SD", "SG");
+	/**
+	 * elements which can be encoded
+	 */
+	private static final List<String> ELEMENTS = Arrays.asList("C", "N", "O", "S", "H", "D", "SE", "P");
+	public static final short N_CODE = 0;
+	public static final short CA_CODE = 1;
+	public static final short C_CODE = 2;
+	public static final short O_CODE = 3;
+	public static final short CB_CODE = 4;
+	public static final short H_CODE = 5;
+
+	private final Atom[] atoms;
+	private final Residue[] residues;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final short[] atomNameCodes;
+	private final byte[] elementCodes;
+	/**
+	 * the atoms of residue <code>i</code> are located at the indices <code>[residueOffsets[i], residueOffsets[i + 1])</code>
+	 */
+	private final int[] residueOffsets;
+
+	private CoordinateTable(Atom[] atoms, Residue[] residues, int[] residueOffsets) {
+		this.atoms = atoms;
+		this.residues = residues;
+		this.residueOffsets = residueOffsets;
+		this.x = new double[atoms.length];
+		this.y = new double[atoms.length];
+		this.z = new double[atoms.length];
+		this.atomNameCodes = new short[atoms.length];
+		this.elementCodes = new byte[atoms.length];
+		for(int i = 0; i < atoms.length; i++) {
+			this.atomNameCodes[i] = encodeAtomName(atoms[i].name);
+			this.elementCodes[i] = encodeElement(atoms[i].element);
+		}
+		pull();
+	}
+
+	/**
+	 * creates the table of all atoms of a protein - the ordering of atoms and residues follows the ordering of the model
+	 * @param protein the protein to process
+	 * @return a new table, already filled with the current coordinates
+	 */
+	public static CoordinateTable of(Protein protein) {
+		int residueCount = 0;
+		int atomCount = 0;
+		for(Chain chain : protein.chains) {
+			residueCount += chain.residues.size();
+			for(Residue residue : chain.residues) {
+				atomCount += residue.atoms.size();
+			}
+		}
+
+		Atom[] atoms = new Atom[atomCount];
+		Residue[] residues = new Residue[residueCount];
+		int[] residueOffsets = new int[residueCount + 1];
+		int residueIndex = 0;
+		int atomIndex = 0;
+		for(Chain chain : protein.chains) {
+			for(Residue residue : chain.residues) {
+				residues[residueIndex] = residue;
+				residueOffsets[residueIndex] = atomIndex;
+				for(Atom atom : residue.atoms) {
+					atoms[atomIndex] = atom;
+					atomIndex++;
+				}
+				residueIndex++;
+			}
+		}
+		residueOffsets[residueCount] = atomCount;
+		return new CoordinateTable(atoms, residues, residueOffsets);
+	}
+
+	/**
+	 * encodes an atom name
+	 * @param name the atom name such as CA
+	 * @return the code of this atom name or {@link #UNKNOWN_CODE}
+	 */
+	public static short encodeAtomName(String name) {
+		return (short) ATOM_NAMES.indexOf(name);
+	}
+
+	/**
+	 * encodes an element
+	 * @param element the element symbol such as C
+	 * @return the code of this element or {@link #UNKNOWN_CODE}
+	 */
+	public static byte encodeElement(String element) {
+		return (byte) ELEMENTS.indexOf(element);
+	}
+
+	/**
+	 * copies the current coordinates of all atoms into this table
+	 */
+	public void pull() {
+		for(int i = 0; i < this.atoms.length; i++) {
+			double[] xyz = this.atoms[i].xyz;
+			this.x[i] = xyz[0];
+			this.y[i] = xyz[1];
+			this.z[i] = xyz[2];
+		}
+	}
+
+	/**
+	 * writes the coordinates of this table back to the atoms - the <code>xyz</code> arrays of the atoms are updated in place
+	 */
+	public void push() {
+		for(int i = 0; i < this.atoms.length; i++) {
+			double[] xyz = this.atoms[i].xyz;
+			xyz[0] = this.x[i];
+			xyz[1] = this.y[i];
+			xyz[2] = this.z[i];
+		}
+	}
+
+	public int getAtomCount() {
+		return this.atoms.length;
+	}
+
+	public int getResidueCount() {
+		return this.residues.length;
+	}
+
+	public Atom getAtom(int atomIndex) {
+		return this.atoms[atomIndex];
+	}
+
+	public Residue getResidue(int residueIndex) {
+		return this.residues[residueIndex];
+	}
+
+	/**
+	 * @return the x coordinates of all atoms - this is the backing array, changes will be visible after {@link #push()}
+	 */
+	public double[] getX() {
+		return this.x;
+	}
+
+	/**
+	 * @return the y coordinates of all atoms - this is the backing array, changes will be visible after {@link #push()}
+	 */
+	public double[] getY() {
+		return this.y;
+	}
+
+	/**
+	 * @return the z coordinates of all atoms - this is the backing array, changes will be visible after {@link #push()}
+	 */
+	public double[] getZ() {
+		return this.z;
+	}
+
+	public short getAtomNameCode(int atomIndex) {
+		return this.atomNameCodes[atomIndex];
+	}
+
+	public byte getElementCode(int atomIndex) {
+		return this.elementCodes[atomIndex];
+	}
+
+	/**
+	 * @param residueIndex the index of the residue
+	 * @return the index of the first atom of this residue
+	 */
+	public int getResidueStart(int residueIndex) {
+		return this.residueOffsets[residueIndex];
+	}
+
+	/**
+	 * @param residueIndex the index of the residue
+	 * @return the index after the last atom of this residue
+	 */
+	public int getResidueEnd(int residueIndex) {
+		return this.residueOffsets[residueIndex + 1];
+	}
+
+	/**
+	 * determines the residue an atom belongs to
+	 * @param atomIndex the index of the atom
+	 * @return the index of the residue containing this atom
+	 */
+	public int getResidueIndex(int atomIndex) {
+		int index = Arrays.binarySearch(this.residueOffsets, atomIndex);
+		if(index < 0) {
+			return -index - 2;
+		}
+		// residues without atoms share their offset with the next residue - choose the last of them
+		while(index + 1 < this.residues.length && this.residueOffsets[index + 1] == atomIndex) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * looks up a certain atom of a residue
+	 * @param residueIndex the index of the residue
+	 * @param atomNameCode the encoded atom name such as {@link #CA_CODE}
+	 * @return the index of the atom or {@link #UNKNOWN_CODE} if the residue does not contain such an atom
+	 */
+	public int getAtomIndex(int residueIndex, short atomNameCode) {
+		for(int i = this.residueOffsets[residueIndex]; i < this.residueOffsets[residueIndex + 1]; i++) {
+			if(this.atomNameCodes[i] == atomNameCode) {
+				return i;
+			}
+		}
+		return UNKNOWN_CODE;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + " atoms='" + this.atoms.length + "' residues='" + this.residues.length + "'";
+	}
+}
@@ -0,0 +1,213 @@
+package de.bioforscher.pmw.model;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Dense storage of all residue-level features of a {@link Protein}. For each {@link FeatureType} 2 columns (raw and
+ * normalized values) are allocated on first use, each holding one <code>double</code> per residue. Residues are indexed
+ * in the order of the model (i.e. chain by chain).<br />
+ * {@link Residue#features} remains the representation used for JSON and MongoDB - these maps are only written by
+ * {@link #exportFeatures(FeatureType...)} (see {@link Protein#exportFeatures()}) right before serialization, so features
+ * are not stored twice while being computed. Values present in these maps (e.g. of a loaded project) are imported on
+ * creation of the matrix.<br />
+ * <b>Important:</b> writing distinct residues concurrently is fine, everything else is not thread-safe.
+ * @author S
+ *
+ */
+public class FeatureMatrix {
+	private static final int NUMBER_OF_FEATURE_TYPES = FeatureType.values().length;
+	private final Residue[] residues;
+	private final Map<Residue, Integer> residueIndices;
+	private final double[][] values;
+	private final double[][] normalizedValues;
+
+	private FeatureMatrix(Residue[] residues) {
+		this.residues = residues;
+		this.residueIndices = new IdentityHashMap<>(residues.length);
+		for(int i = 0; i < residues.length; i++) {
+			this.residueIndices.put(residues[i], i);
+		}
+		this.values = new double[NUMBER_OF_FEATURE_TYPES][];
+		this.normalizedValues = new double[NUMBER_OF_FEATURE_TYPES][];
+	}
+
+	/**
+	 * creates the feature matrix of a protein and imports all features already present in {@link Residue#features}
+	 * @param protein the protein to process
+	 * @return the new matrix
+	 */
+	public static FeatureMatrix of(Protein protein) {
+		int residueCount = 0;
+		for(Chain chain : protein.chains) {
+			residueCount += chain.residues.size();
+		}
+		Residue[] residues = new Residue[residueCount];
+		int residueIndex = 0;
+		for(Chain chain : protein.chains) {
+			for(Residue residue : chain.residues) {
+				residues[residueIndex] = residue;
+				residueIndex++;
+			}
+		}
+
+		FeatureMatrix featureMatrix = new FeatureMatrix(residues);
+		featureMatrix.importFeatures();
+		return featureMatrix;
+	}
+
+	private void importFeatures() {
+		for(int i = 0; i < this.residues.length; i++) {
+			Map<String, double[]> features = this.residues[i].features;
+			if(features == null || features.isEmpty()) {
+				continue;
+			}
+			for(FeatureType featureType : FeatureType.values()) {
+				double[] feature = features.get(featureType.name());
+				if(feature == null) {
+					continue;
+				}
+				getValues(featureType)[i] = feature[0];
+				getNormalizedValues(featureType)[i] = feature[1];
+			}
+		}
+	}
+
+	/**
+	 * writes the values of the given features to {@link Residue#features}, existing arrays are updated in place
+	 * @param featureTypes the features to export
+	 */
+	public void exportFeatures(FeatureType... featureTypes) {
+		for(FeatureType featureType : featureTypes) {
+			double[] values = getValues(featureType);
+			double[] normalizedValues = getNormalizedValues(featureType);
+			String key = featureType.name();
+			for(int i = 0; i < this.residues.length; i++) {
+				double[] feature = this.residues[i].features.get(key);
+				if(feature == null) {
+					this.residues[i].features.put(key, new double[] { values[i], normalizedValues[i] });
+				} else {
+					feature[0] = values[i];
+					feature[1] = normalizedValues[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * resets all raw and normalized values of a feature to <code>0</code>
+	 * @param featureType the feature to reset
+	 */
+	public void clear(FeatureType featureType) {
+		this.values[featureType.ordinal()] = new double[this.residues.length];
+		this.normalizedValues[featureType.ordinal()] = new double[this.residues.length];
+	}
+
+	/**
+	 * normalizes the values of a feature to the interval [0, 1] by the observed minimum and maximum
+	 * @param featureType the feature to normalize
+	 */
+	public void normalize(FeatureType featureType) {
+		double[] values = getValues(featureType);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for(double value : values) {
+			if(value < min) {
+				min = value;
+			}
+			if(value > max) {
+				max = value;
+			}
+		}
+		normalize(featureType, min, max);
+	}
+
+	/**
+	 * normalizes the values of a feature by the given range - NaNs (e.g. when <code>min == max</code>) are replaced by
+	 * <code>0</code>, so they are not propagated to the front-end
+	 * @param featureType the feature to normalize
+	 * @param min the value mapped to 0
+	 * @param max the value mapped to 1
+	 */
+	public void normalize(FeatureType featureType, double min, double max) {
+		double[] values = getValues(featureType);
+		double[] normalizedValues = getNormalizedValues(featureType);
+		double range = max - min;
+		for(int i = 0; i < values.length; i++) {
+			double normalizedValue = (values[i] - min) / range;
+			normalizedValues[i] = Double.isNaN(normalizedValue) ? 0.0 : normalizedValue;
+		}
+	}
+
+	public int getResidueCount() {
+		return this.residues.length;
+	}
+
+	public Residue getResidue(int residueIndex) {
+		return this.residues[residueIndex];
+	}
+
+	/**
+	 * @param residue a residue of the protein
+	 * @return the index of this residue
+	 * @throws IllegalArgumentException if the residue is not part of the protein
+	 */
+	public int indexOf(Residue residue) {
+		Integer residueIndex = this.residueIndices.get(residue);
+		if(residueIndex == null) {
+			throw new IllegalArgumentException(residue + " is not part of this feature matrix");
+		}
+		return residueIndex;
+	}
+
+	public double getValue(FeatureType featureType, int residueIndex) {
+		return getValues(featureType)[residueIndex];
+	}
+
+	public double getValue(FeatureType featureType, Residue residue) {
+		return getValue(featureType, indexOf(residue));
+	}
+
+	public double getNormalizedValue(FeatureType featureType, int residueIndex) {
+		return getNormalizedValues(featureType)[residueIndex];
+	}
+
+	public void setValue(FeatureType featureType, int residueIndex, double value) {
+		getValues(featureType)[residueIndex] = value;
+	}
+
+	public void setValue(FeatureType featureType, Residue residue, double value) {
+		setValue(featureType, indexOf(residue), value);
+	}
+
+	/**
+	 * @param featureType the feature of interest
+	 * @return the backing array of raw values, allocated on first access
+	 */
+	public double[] getValues(FeatureType featureType) {
+		double[] values = this.values[featureType.ordinal()];
+		if(values == null) {
+			values = new double[this.residues.length];
+			this.values[featureType.ordinal()] = values;
+		}
+		return values;
+	}
+
+	/**
+	 * @param featureType the feature of interest
+	 * @return the backing array of normalized values, allocated on first access
+	 */
+	public double[] getNormalizedValues(FeatureType featureType) {
+		double[] normalizedValues = this.normalizedValues[featureType.ordinal()];
+		if(normalizedValues == null) {
+			normalizedValues = new double[this.residues.length];
+			this.normalizedValues[featureType.ordinal()] = normalizedValues;
+		}
+		return normalizedValues;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + " residues='" + this.residues.length + "'";
+	}
+}
@@ -18,6 +18,11 @@ public class Protein extends DTO {
 	public List<Interaction> interactions;
 	//TODO redundant to motifs - keep one
 	public List<Fragment> fragments;
+	/**
+	 * the dense storage of residue features - {@link Residue#features} remains the serialized representation, it is only
+	 * written by {@link #exportFeatures()}
+	 */
+	private transient FeatureMatrix featureMatrix;
 	
 	public Protein() {
 		this.availableFeatures = new ArrayList<>();
@@ -28,6 +33,28 @@ public class Protein extends DTO {
 		this.fragments = new ArrayList<>();
 	}
 	
+	/**
+	 * provides the {@link FeatureMatrix} of this protein - it is created on first access (importing the features present
+	 * in the residues) and cached, residues must not be added, removed or rearranged afterwards
+	 * @return the feature matrix
+	 */
+	public FeatureMatrix getFeatureMatrix() {
+		if(this.featureMatrix == null) {
+			this.featureMatrix = FeatureMatrix.of(this);
+		}
+		return this.featureMatrix;
+	}
+	
+	/**
+	 * writes all available features to the {@link Residue#features} maps, so they are part of the JSON and MongoDB
+	 * representation - to be called before this protein is serialized
+	 */
+	public void exportFeatures() {
+		if(this.featureMatrix != null) {
+			this.featureMatrix.exportFeatures(this.availableFeatures.toArray(new FeatureType[this.availableFeatures.size()]));
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + " name='" + this.name + "' size='" + this.size + "'";
@@ -20,12 +20,86 @@ public class Residue extends DTO {
 	/** the model/API uses this custom field of residues to identify them in the structure (it is unique across all chains, e.g. "C-123" could be utilized alternatively) */
 	public int residueId;
 	public int residueNumber;
+	/**
+	 * direct references to the backbone atoms - no public field, as it is derived from {@link #atoms}
+	 */
+	private transient BackboneIndex backboneIndex;
 	
 	public Residue() {
 		this.atoms = new ArrayList<>();
 		this.features = new HashMap<>();
 	}
 	
+	/**
+	 * retrieves a backbone atom (or CB/H) without scanning {@link #atoms} - the index is validated on each call and
+	 * recreated when the list was modified (i.e. its size changed or the indexed atom moved), so it never reports stale
+	 * atoms after additions, removals or reorderings - validation compares references only, no strings<br />
+	 * renaming other atoms to a backbone name or replacing atoms in place is not detected - call {@link #indexAtoms()}
+	 * in such cases
+	 * @param slot the atom to retrieve
+	 * @return the first atom of the requested name or <code>null</code> if the residue does not contain such an atom
+	 */
+	public Atom getBackboneAtom(BackboneSlot slot) {
+		BackboneIndex index = this.backboneIndex;
+		if(index == null || !index.isValid(this.atoms, slot)) {
+			index = createIndex();
+		}
+		return index.atoms[slot.ordinal()];
+	}
+	
+	/**
+	 * recreates the index of backbone atoms, should be called after modifying {@link #atoms}
+	 */
+	public void indexAtoms() {
+		createIndex();
+	}
+	
+	private BackboneIndex createIndex() {
+		BackboneIndex index = new BackboneIndex(this.atoms);
+		this.backboneIndex = index;
+		return index;
+	}
+	
+	/**
+	 * immutable snapshot of the backbone atom positions - all fields are final, so instances can be safely shared across
+	 * threads, concurrent rebuilds merely create equal snapshots
+	 */
+	private static final class BackboneIndex {
+		private final List<Atom> list;
+		private final int size;
+		private final Atom[] atoms;
+		private final int[] positions;
+		/**
+		 * the name instances of the indexed atoms - assigning another name to an indexed atom replaces the reference
+		 */
+		private final String[] names;
+		
+		private BackboneIndex(List<Atom> list) {
+			this.list = list;
+			this.size = list.size();
+			this.atoms = new Atom[BackboneSlot.values().length];
+			this.positions = new int[this.atoms.length];
+			this.names = new String[this.atoms.length];
+			for(int i = 0; i < this.size; i++) {
+				Atom atom = list.get(i);
+				BackboneSlot slot = BackboneSlot.of(atom.name);
+				if(slot != null && this.atoms[slot.ordinal()] == null) {
+					this.atoms[slot.ordinal()] = atom;
+					this.positions[slot.ordinal()] = i;
+					this.names[slot.ordinal()] = atom.name;
+				}
+			}
+		}
+		
+		private boolean isValid(List<Atom> list, BackboneSlot slot) {
+			if(list != this.list || list.size() != this.size) {
+				return false;
+			}
+			Atom atom = this.atoms[slot.ordinal()];
+			return atom == null || (list.get(this.positions[slot.ordinal()]) == atom && atom.name == this.names[slot.ordinal()]);
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + " name='" + this.aminoAcid + "' resNum='" + this.residueNumber + "' size='" + this.atoms.size() + "'";
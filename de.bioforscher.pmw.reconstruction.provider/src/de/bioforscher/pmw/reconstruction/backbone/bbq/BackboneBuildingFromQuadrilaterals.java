@@ -1,21 +1,18 @@
 package de.bioforscher.pmw.reconstruction.backbone.bbq;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.LinearAlgebra;
+import de.bioforscher.pmw.api.Mat3;
 import de.bioforscher.pmw.api.ModelConverter;
 import de.bioforscher.pmw.model.Atom;
 import de.bioforscher.pmw.model.Chain;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.Residue;
 import de.bioforscher.pmw.reconstruction.factory.ReconstructionAlgorithm;
+import de.bioforscher.pmw.reconstruction.library.Library;
+import de.bioforscher.pmw.reconstruction.library.LibraryImage;
 
 /**
  * Reduced implementation of the BBQ algorithm.<br />
@@ -32,15 +29,19 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	
 	private static final int QUADRILATERAL_SETOFF = 3;
 	private static final int[] BINS = { 1, 32, 1024, 33, 31, 1025, 1023, 1056, 992, 1057, 1055, 993, 991, 2, 128, 2048, 130, 126, 2050, 2046, 2176, 1920, 2178, 2174, 1922, 1918 };
-	private static final String LIBRARY = "de/bioforscher/pmw/reconstruction/backbone/bbq/bbq-library.dat";
 	private static final double BIN_SIZE = 0.2;
 	private static final int MAX_INDEX = 107221;
-	private static Map<Integer, List<double[]>> quadrilateralLookup;
+	/**
+	 * bin indices (sorted) and the C, O, N and CB coordinates of each bin
+	 */
+	private final LibraryImage quadrilateralLookup;
+	/**
+	 * scratch rotation of the fragment currently reconstructed
+	 */
+	private final Mat3 rotation = new Mat3();
 	
 	public BackboneBuildingFromQuadrilaterals(LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
-		if(quadrilateralLookup == null) {
-			initializeLibrary();
-		}
+		this.quadrilateralLookup = Library.QUADRILATERALS.get();
 		
 		this.linearAlgebra = linearAlgebra;
 		this.modelConverter = modelConverter;
@@ -59,7 +60,7 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	    for (int j = 0; j < arrayOfInt.length; j++) {
 	      if ((arrayOfInt[j] >= 0) && 
 	        (arrayOfInt[j] < MAX_INDEX)) {
-	        if (quadrilateralLookup.get(arrayOfInt[j]) != null) {
+	        if (findBin(arrayOfInt[j]) >= 0) {
 	          return arrayOfInt[j];
 	        }
 	      }
@@ -68,7 +69,8 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	    int bmu = -1;
 	    double bmuDistance = Double.MAX_VALUE;
 
-	    for(int i : quadrilateralLookup.keySet()) {
+	    for(int row = 0; row < this.quadrilateralLookup.getRows(); row++) {
+	    	int i = this.quadrilateralLookup.get(row, 0);
 	    	double distance = distanceToBin(index, i);
 //	    	System.out.println(distance + " for " + i + " vs " + index);
 	    	if(distance < bmuDistance) {
@@ -90,13 +92,24 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	    return arrayOfInt;
 	}
 	
-	private synchronized void initializeLibrary() {
-		quadrilateralLookup =  new HashMap<>();
-		InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(LIBRARY);
-		new BufferedReader(new InputStreamReader(is)).lines().forEach(line -> {
-			String[] tmp = line.trim().split("\\s+");
-			quadrilateralLookup.put(Integer.parseInt(tmp[0]), parseAtoms(tmp));
-		});
+	/**
+	 * @return the row of the given bin in the library, a negative value if the bin is not populated
+	 */
+	private int findBin(int index) {
+		int low = 0;
+		int high = this.quadrilateralLookup.getRows() - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			int bin = this.quadrilateralLookup.get(middle, 0);
+			if(bin < index) {
+				low = middle + 1;
+			} else if(bin > index) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
 	}
 	
 	private int lookupSuitableQuadrilateral(double[] ca1, double[] ca2, double[] ca3, double[] ca4) {
@@ -140,40 +153,25 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	 * @param r2
 	 * @param r3
 	 * @param r4
-	 * @return the most suitable quadrilateral (by convention the atoms are in order CA, O, N, CB)
+	 * @return the row of the most suitable quadrilateral in the library (by convention the atoms are in order C, O, N, CB)
 	 */
-	private List<double[]> lookupSuitableQuadrilateral(Residue r1, Residue r2, Residue r3, Residue r4) {
+	private int lookupSuitableQuadrilateral(Residue r1, Residue r2, Residue r3, Residue r4) {
 		double[] ca1 = r1.atoms.get(0).xyz;
 		double[] ca2 = r2.atoms.get(0).xyz;
 		double[] ca3 = r3.atoms.get(0).xyz;
 		double[] ca4 = r4.atoms.get(0).xyz;
 		int index = lookupSuitableQuadrilateral(ca1, ca2, ca3, ca4);
 
-		List<double[]> sc = quadrilateralLookup.getOrDefault(index, quadrilateralLookup.get(determineFallbackIndex(index)));
-//		if(sc == null) {
-//			index = determineFallbackIndex(index);
-//			sc = quadrilateralLookup.get(index);
-//		}
-		
-		return sc;
-	}
-
-	private List<double[]> parseAtoms(String[] strArray) {
-		List<double[]> atoms = new ArrayList<>();
-		// C
-		atoms.add(new double[] { Double.parseDouble(strArray[2]), Double.parseDouble(strArray[3]), Double.parseDouble(strArray[4]) });
-		// O
-		atoms.add(new double[] { Double.parseDouble(strArray[6]), Double.parseDouble(strArray[7]), Double.parseDouble(strArray[8]) });
-		// N
-		atoms.add(new double[] { Double.parseDouble(strArray[10]), Double.parseDouble(strArray[11]), Double.parseDouble(strArray[12]) });
-		// CB
-		atoms.add(new double[] { Double.parseDouble(strArray[14]), Double.parseDouble(strArray[15]), Double.parseDouble(strArray[16]) });
-		return atoms;
+		int row = findBin(index);
+		if(row < 0) {
+			row = findBin(determineFallbackIndex(index));
+		}
+		return row;
 	}
 	
 	@Override
 	public void reconstruct(Protein protein) {
-		this.logger.log(LogService.LOG_DEBUG, "bbq sanity check: " + quadrilateralLookup.size());
+		this.logger.log(LogService.LOG_DEBUG, "bbq sanity check: " + this.quadrilateralLookup.getRows());
 		for(Chain chain : protein.chains) {
 			List<Residue> residues = chain.residues;
 			if(residues.size() < 4) {
@@ -194,27 +192,33 @@ public class BackboneBuildingFromQuadrilaterals implements ReconstructionAlgorit
 	}
 	
 	private void reconstructFragment(Residue residue1, Residue residue2, Residue residue3, Residue residue4) {
-		List<double[]> fragmentScaffold = lookupSuitableQuadrilateral(residue1, residue2, residue3, residue4);
-		double[] c = fragmentScaffold.get(0);
-		double[] o = fragmentScaffold.get(1);
-		double[] n = fragmentScaffold.get(2);
+		// the scaffold atoms C, O, N and CB are stored consecutively
+		int offset = 12 * lookupSuitableQuadrilateral(residue1, residue2, residue3, residue4);
 		
 		// compute rototranslation to the local coordinate system
 		double[] translation = residue2.atoms.get(0).xyz;
-		double[][] rotation = this.linearAlgebra.rotation(this.modelConverter.getCA(residue1).xyz,
+		this.linearAlgebra.rotation(this.modelConverter.getCA(residue1).xyz,
 				this.modelConverter.getCA(residue2).xyz,
-				this.modelConverter.getCA(residue3).xyz);
+				this.modelConverter.getCA(residue3).xyz,
+				this.rotation);
 		
-		// create and add atom
-		this.modelConverter.createAtom(residue1, "C", this.linearAlgebra.transform(c, translation, rotation));
-		this.modelConverter.createAtom(residue1, "O", this.linearAlgebra.transform(o, translation, rotation));
-		this.modelConverter.createAtom(residue2, "N", this.linearAlgebra.transform(n, translation, rotation));
+		// create and add atom - coordinates are transformed in place
+		this.modelConverter.createAtom(residue1, "C", transform(offset, translation));
+		this.modelConverter.createAtom(residue1, "O", transform(offset + 3, translation));
+		this.modelConverter.createAtom(residue2, "N", transform(offset + 6, translation));
 
 		// cannot perform these options for glycines without CB
 		//TODO: trust BBQ or PULCHRA more?
 //		if(!residue2.getAminoAcid().equals('G')) {
-//			double[] cb = fragmentScaffold.get(3);
-//			CoordinateManipulations.placeAtom(residue2, "CB", rototranslate(cb, translation, rotation));
+//			CoordinateManipulations.placeAtom(residue2, "CB", transform(offset + 9, translation));
 //		}
 	}
+	
+	/**
+	 * @return the scaffold atom at the given offset in the library, placed by the current rotation and the given translation
+	 */
+	private double[] transform(int offset, double[] translation) {
+		double[] atom = this.quadrilateralLookup.getVector(offset, new double[3]);
+		return this.rotation.transform(atom, translation, atom);
+	}
 }
@@ -0,0 +1,111 @@
+package de.bioforscher.pmw.reconstruction.library;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The text libraries of the reconstruction algorithms. They remain the source of truth, but are compiled into
+ * {@link LibraryImage}s at build time (see {@link LibraryCompiler}). Libraries are loaded from their image and only
+ * parsed when no image is available (e.g. when running from the sources).
+ * @author S
+ *
+ */
+public enum Library {
+	/**
+	 * BBQ fragments - one row per bin, sorted by the bin index, with C, O, N and CB coordinates (12 values) per row
+	 */
+	QUADRILATERALS("de/bioforscher/pmw/reconstruction/backbone/bbq/bbq-library.dat") {
+		@Override
+		LibraryImage compile(BufferedReader reader) throws IOException {
+			return LibraryCompiler.compileQuadrilaterals(reader);
+		}
+	},
+	/**
+	 * PULCHRA rotamer index - rows of amino acid index, 3 distance bins, population and offset of the coordinates
+	 */
+	ROTAMER_INDICES("de/bioforscher/pmw/reconstruction/sidechain/pulchra/rot_data_idx.dat") {
+		@Override
+		LibraryImage compile(BufferedReader reader) throws IOException {
+			return LibraryCompiler.compileTable(reader, 6);
+		}
+	},
+	/**
+	 * PULCHRA rotamer coordinates - 3 values per atom
+	 */
+	ROTAMER_COORDINATES("de/bioforscher/pmw/reconstruction/sidechain/pulchra/rot_data_coords.dat") {
+		@Override
+		LibraryImage compile(BufferedReader reader) throws IOException {
+			return LibraryCompiler.compileVectors(reader);
+		}
+	};
+
+	public static final String IMAGE_EXTENSION = ".bin";
+
+	private final String resource;
+	private volatile LibraryImage image;
+
+	private Library(String resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * parses the text representation
+	 */
+	abstract LibraryImage compile(BufferedReader reader) throws IOException;
+
+	/**
+	 * @return the class path location of the text representation
+	 */
+	public String getResource() {
+		return this.resource;
+	}
+
+	/**
+	 * @return the class path location of the compiled representation
+	 */
+	public String getImageResource() {
+		return this.resource + IMAGE_EXTENSION;
+	}
+
+	/**
+	 * @return the library - loaded once and shared afterwards
+	 * @throws UncheckedIOException if neither the image nor the text representation can be read
+	 */
+	public LibraryImage get() {
+		LibraryImage image = this.image;
+		if(image == null) {
+			synchronized (this) {
+				image = this.image;
+				if(image == null) {
+					try {
+						image = load();
+					} catch (IOException e) {
+						throw new UncheckedIOException("failed to load library " + this.resource, e);
+					}
+					this.image = image;
+				}
+			}
+		}
+		return image;
+	}
+
+	private LibraryImage load() throws IOException {
+		ClassLoader classLoader = Library.class.getClassLoader();
+		URL imageLocation = classLoader.getResource(getImageResource());
+		if(imageLocation != null) {
+			return LibraryImage.load(imageLocation);
+		}
+		URL textLocation = classLoader.getResource(this.resource);
+		if(textLocation == null) {
+			throw new FileNotFoundException("missing library " + this.resource);
+		}
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(textLocation.openStream(), StandardCharsets.US_ASCII))) {
+			return compile(reader);
+		}
+	}
+}
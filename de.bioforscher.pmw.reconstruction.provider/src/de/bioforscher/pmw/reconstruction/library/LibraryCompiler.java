@@ -0,0 +1,128 @@
+package de.bioforscher.pmw.reconstruction.library;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Build step compiling the text libraries into {@link LibraryImage}s.<br />
+ * Usage: <code>LibraryCompiler &lt;source directory&gt; &lt;target directory&gt;</code> - every library found in the
+ * source directory is written to the same relative location in the target directory. Libraries missing in the source
+ * directory are skipped.
+ * @author S
+ *
+ */
+public class LibraryCompiler {
+	private static final int QUADRILATERAL_VALUES = 12;
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			System.err.println("usage: LibraryCompiler <source directory> <target directory>");
+			System.exit(1);
+		}
+		Path sourceDirectory = Paths.get(args[0]);
+		Path targetDirectory = Paths.get(args[1]);
+		for(Library library : Library.values()) {
+			Path source = sourceDirectory.resolve(library.getResource());
+			if(!Files.exists(source)) {
+				System.err.println("skipping missing library " + source);
+				continue;
+			}
+			Path target = targetDirectory.resolve(library.getImageResource());
+			Files.createDirectories(target.getParent());
+			try(BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.US_ASCII);
+					OutputStream outputStream = Files.newOutputStream(target)) {
+				library.compile(reader).write(outputStream);
+			}
+		}
+	}
+
+	/**
+	 * parses lines of a bin index followed by labeled coordinates, e.g.<br />
+	 * <code>2283 C 1.359 -0.666 -0.165 O 2.271 0.010 -0.590 N 1.453 -1.941 0.205 CB 0.135 1.124 0.992</code>
+	 */
+	static LibraryImage compileQuadrilaterals(BufferedReader reader) throws IOException {
+		long[] order = new long[1024];
+		double[] values = new double[order.length * QUADRILATERAL_VALUES];
+		int rows = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			String[] tmp = line.trim().split("\\s+");
+			if(tmp.length < 17) {
+				continue;
+			}
+			if(rows == order.length) {
+				order = Arrays.copyOf(order, rows << 1);
+				values = Arrays.copyOf(values, order.length * QUADRILATERAL_VALUES);
+			}
+			// sort by the bin index, retaining the row of the values
+			order[rows] = ((long) Integer.parseInt(tmp[0]) << 32) | rows;
+			for(int atom = 0; atom < 4; atom++) {
+				for(int dimension = 0; dimension < 3; dimension++) {
+					values[rows * QUADRILATERAL_VALUES + 3 * atom + dimension] = Double.parseDouble(tmp[4 * atom + dimension + 2]);
+				}
+			}
+			rows++;
+		}
+
+		Arrays.sort(order, 0, rows);
+		int[] table = new int[rows];
+		double[] sortedValues = new double[rows * QUADRILATERAL_VALUES];
+		for(int i = 0; i < rows; i++) {
+			table[i] = (int) (order[i] >> 32);
+			System.arraycopy(values, (int) order[i] * QUADRILATERAL_VALUES, sortedValues, i * QUADRILATERAL_VALUES, QUADRILATERAL_VALUES);
+		}
+		return LibraryImage.of(1, table, sortedValues);
+	}
+
+	/**
+	 * parses the rows of a C array initializer, e.g. <code>{  1,  0,  0, 53,   1,        0 },</code>
+	 */
+	static LibraryImage compileTable(BufferedReader reader, int columns) throws IOException {
+		int[] table = new int[1024 * columns];
+		int size = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			// filter lines which do not contain information
+			if(!line.contains("},")) {
+				continue;
+			}
+			String[] tmp = line.replace("{", "").replace("}", "").split(",");
+			if(size == table.length) {
+				table = Arrays.copyOf(table, size << 1);
+			}
+			for(int column = 0; column < columns; column++) {
+				table[size++] = Integer.parseInt(tmp[column].trim());
+			}
+		}
+		return LibraryImage.of(columns, Arrays.copyOf(table, size), new double[0]);
+	}
+
+	/**
+	 * parses lines of 3 comma-separated values, e.g. <code>{ -0.572, 0.015, -1.834 },</code>
+	 */
+	static LibraryImage compileVectors(BufferedReader reader) throws IOException {
+		double[] values = new double[3072];
+		int size = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			// filter lines which do not contain information
+			if(!line.endsWith(",")) {
+				continue;
+			}
+			String[] tmp = line.replace("{", "").replace("}", "").split(",");
+			if(size == values.length) {
+				values = Arrays.copyOf(values, size << 1);
+			}
+			for(int dimension = 0; dimension < 3; dimension++) {
+				values[size++] = Double.parseDouble(tmp[dimension].trim());
+			}
+		}
+		return LibraryImage.of(0, new int[0], Arrays.copyOf(values, size));
+	}
+}
@@ -0,0 +1,169 @@
+package de.bioforscher.pmw.reconstruction.library;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary representation of a reconstruction library: an integer table of fixed row length and a packed array
+ * of doubles. Images are accessed in place - when located in the file system they are memory-mapped, so loading does
+ * not depend on the size of the library.<br />
+ * Layout (little endian): magic, version, columns, rows, number of values, padding, the table (row by row), padding
+ * to 8 bytes, the values.
+ * @author S
+ *
+ */
+public final class LibraryImage {
+	/**
+	 * identifies the format - change whenever the layout changes, so outdated images are rejected
+	 */
+	public static final int VERSION = 1;
+	private static final int MAGIC = 0x4C574D50;
+	private static final int HEADER_SIZE = 24;
+
+	private final int columns;
+	private final int rows;
+	private final IntBuffer table;
+	private final DoubleBuffer values;
+
+	private LibraryImage(int columns, int rows, IntBuffer table, DoubleBuffer values) {
+		this.columns = columns;
+		this.rows = rows;
+		this.table = table;
+		this.values = values;
+	}
+
+	/**
+	 * @param columns the length of each row of the table
+	 * @param table all rows of the table, concatenated
+	 * @param values the packed values
+	 */
+	public static LibraryImage of(int columns, int[] table, double[] values) {
+		if(columns > 0 ? table.length % columns != 0 : table.length != 0) {
+			throw new IllegalArgumentException("table of " + table.length + " entries does not consist of rows of length " + columns);
+		}
+		return new LibraryImage(columns, columns > 0 ? table.length / columns : 0, IntBuffer.wrap(table), DoubleBuffer.wrap(values));
+	}
+
+	/**
+	 * wraps an image without copying it
+	 * @throws IOException if the buffer does not contain an image of the current version
+	 */
+	public static LibraryImage read(ByteBuffer buffer) throws IOException {
+		buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a library image");
+		}
+		if(buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported version " + buffer.getInt(4) + " of library image");
+		}
+		int columns = buffer.getInt(8);
+		int rows = buffer.getInt(12);
+		int valueCount = buffer.getInt(16);
+		int tableSize = columns * rows;
+		int valuesOffset = valuesOffset(tableSize);
+		if(columns < 0 || rows < 0 || valueCount < 0 || buffer.remaining() < valuesOffset + 8L * valueCount) {
+			throw new IOException("truncated library image");
+		}
+
+		buffer.position(HEADER_SIZE).limit(HEADER_SIZE + 4 * tableSize);
+		IntBuffer table = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		buffer.limit(valuesOffset + 8 * valueCount).position(valuesOffset);
+		DoubleBuffer values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		return new LibraryImage(columns, rows, table, values);
+	}
+
+	/**
+	 * maps the image of the given location into memory - images which are not located in the file system (e.g. packed
+	 * in a bundle) are read in one piece
+	 */
+	public static LibraryImage load(URL url) throws IOException {
+		if("file".equals(url.getProtocol())) {
+			try(FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} catch (URISyntaxException e) {
+				throw new IOException("invalid location of library image " + url, e);
+			}
+		}
+		try(InputStream inputStream = url.openStream()) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while((read = inputStream.read(buffer)) != -1) {
+				content.write(buffer, 0, read);
+			}
+			return read(ByteBuffer.wrap(content.toByteArray()));
+		}
+	}
+
+	public void write(OutputStream outputStream) throws IOException {
+		int tableSize = this.columns * this.rows;
+		int valueCount = this.values.limit();
+		int valuesOffset = valuesOffset(tableSize);
+		ByteBuffer buffer = ByteBuffer.allocate(valuesOffset + 8 * valueCount).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(this.columns).putInt(this.rows).putInt(valueCount).putInt(0);
+		for(int i = 0; i < tableSize; i++) {
+			buffer.putInt(this.table.get(i));
+		}
+		buffer.position(valuesOffset);
+		for(int i = 0; i < valueCount; i++) {
+			buffer.putDouble(this.values.get(i));
+		}
+		outputStream.write(buffer.array());
+	}
+
+	private static int valuesOffset(int tableSize) {
+		return (HEADER_SIZE + 4 * tableSize + 7) & ~7;
+	}
+
+	public int getColumns() {
+		return this.columns;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * @return the entry of the table in the given row and column
+	 */
+	public int get(int row, int column) {
+		return this.table.get(row * this.columns + column);
+	}
+
+	public int getValueCount() {
+		return this.values.limit();
+	}
+
+	public double getValue(int index) {
+		return this.values.get(index);
+	}
+
+	/**
+	 * @return the 3 values starting at the given index as new array
+	 */
+	public double[] getVector(int index) {
+		return new double[] { this.values.get(index), this.values.get(index + 1), this.values.get(index + 2) };
+	}
+
+	/**
+	 * writes the 3 values starting at the given index to the given array
+	 * @return the array
+	 */
+	public double[] getVector(int index, double[] result) {
+		result[0] = this.values.get(index);
+		result[1] = this.values.get(index + 1);
+		result[2] = this.values.get(index + 2);
+		return result;
+	}
+}
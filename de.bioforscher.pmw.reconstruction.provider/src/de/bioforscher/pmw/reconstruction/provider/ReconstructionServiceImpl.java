@@ -80,9 +80,6 @@ public class ReconstructionServiceImpl implements ReconstructionService {
 			this.modelConverter.updatePdbSerials(protein);
 		}
 		
-		// update pdb representation
-		this.modelConverter.updatePdbRepresentation(protein);
-		
 		// assign reconstruction level
 		protein.reconstructionLevel = reconstructionLevel;
 	}
@@ -1,20 +1,17 @@
 package de.bioforscher.pmw.reconstruction.sidechain.pulchra;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.osgi.service.log.LogService;
 import de.bioforscher.pmw.api.LinearAlgebra;
+import de.bioforscher.pmw.api.Mat3;
 import de.bioforscher.pmw.api.ModelConverter;
 import de.bioforscher.pmw.model.Protein;
 import de.bioforscher.pmw.model.Residue;
 import de.bioforscher.pmw.reconstruction.factory.ReconstructionAlgorithm;
+import de.bioforscher.pmw.reconstruction.library.Library;
+import de.bioforscher.pmw.reconstruction.library.LibraryImage;
 
 /**
  * Reduced implementation of the Pulchra algorithm.<br />
@@ -46,24 +43,27 @@ public class Pulchra implements ReconstructionAlgorithm {
 	private ModelConverter modelConverter;
 	
 	private static final double BIN_SIZE = 0.3;
-	private static final String BASE_PATH = "de/bioforscher/pmw/reconstruction/sidechain/pulchra/";
-	private static final String ROT_STAT_IDX_LIBRARY = BASE_PATH + "rot_data_idx.dat";
-	private static final String ROT_STAT_COORDS_LIBRARY = BASE_PATH + "rot_data_coords.dat";
 	@SuppressWarnings("unused")
-	private static final String ROT_STAT_LIBRARY = BASE_PATH + "nco_data.dat";
+	private static final String ROT_STAT_LIBRARY = "de/bioforscher/pmw/reconstruction/sidechain/pulchra/nco_data.dat";
 
 	private static Map<String, String[]> sideChainAtomNames;
-	private static List<int[]> rotStatIdx;
-	private static List<double[]> rotStatCoords;
+	private final LibraryImage rotStatIdx;
+	private final LibraryImage rotStatCoords;
+	/**
+	 * scratch rotation of the residue currently reconstructed
+	 */
+	private final Mat3 rotation = new Mat3();
 //	private static Map<int[], double[]> ncoStat;
 //	private static Map<int[], double[]> ncoStatPro;
 	
 	private List<Residue> residues;
 
 	public Pulchra(LogService logger, LinearAlgebra linearAlgebra, ModelConverter modelConverter) {
-		if(rotStatIdx == null) {
+		if(sideChainAtomNames == null) {
 			initializeLibrary();
 		}
+		this.rotStatIdx = Library.ROTAMER_INDICES.get();
+		this.rotStatCoords = Library.ROTAMER_COORDINATES.get();
 		
 		this.linearAlgebra = linearAlgebra;
 		this.modelConverter = modelConverter;
@@ -71,7 +71,7 @@ public class Pulchra implements ReconstructionAlgorithm {
 
 	@Override
 	public void reconstruct(Protein protein) {
-//		System.out.println("pulchra sanity check: " + rotStatIdx.size() + " - " + rotStatCoords.size());
+//		System.out.println("pulchra sanity check: " + rotStatIdx.getRows() + " - " + rotStatCoords.getValueCount());
 		this.residues = this.modelConverter.getResidues(protein);
 		buildSidechains();
 	}
@@ -106,18 +106,18 @@ public class Pulchra implements ReconstructionAlgorithm {
 			int bin14 = residueBinning[2];
 			
 			// find closest rotamer conformation
-			int[] bestMatchingRotamer = null;
+			int bestMatchingRotamer = -1;
 			double bestMatchingRotamerDistance = Double.MAX_VALUE;
 			int aminoAcidIndex = getAminoAcidIndex(r_c);
-			for(int[] rotamer : rotStatIdx) {
+			for(int rotamer = 0; rotamer < this.rotStatIdx.getRows(); rotamer++) {
 				// check whether rotamer describes the correct amino acid
-				if(rotamer[0] != aminoAcidIndex) {
+				if(this.rotStatIdx.get(rotamer, 0) != aminoAcidIndex) {
 					continue;
 				}
 				
-				double rotamerDistance = Math.abs(rotamer[1] - bin13_1) +
-						Math.abs(rotamer[2] - bin13_2) + 
-						0.2 * Math.abs(rotamer[3] - bin14);
+				double rotamerDistance = Math.abs(this.rotStatIdx.get(rotamer, 1) - bin13_1) +
+						Math.abs(this.rotStatIdx.get(rotamer, 2) - bin13_2) + 
+						0.2 * Math.abs(this.rotStatIdx.get(rotamer, 3) - bin14);
 				if(rotamerDistance < bestMatchingRotamerDistance) {
 					bestMatchingRotamerDistance = rotamerDistance;
 					bestMatchingRotamer = rotamer;
@@ -126,14 +126,15 @@ public class Pulchra implements ReconstructionAlgorithm {
 			
 			// new rebuild
 			double[] translation = ca_c;
-			double[][] rotation = this.linearAlgebra.rotation(ca_p, ca_c, ca_n);
+			this.linearAlgebra.rotation(ca_p, ca_c, ca_n, this.rotation);
 			
-			int pos = bestMatchingRotamer[5];
+			int pos = this.rotStatIdx.get(bestMatchingRotamer, 5);
 			int nsc = getHeavySideChainAtomCount(r_c);
 			// all atoms within the coordinate file describing this residue
 			for(int j = 0; j < nsc; j++) {
-//				System.out.println(j + " : " + aminoAcidName + " : " + determineAtomName(aminoAcidName, j) + " : " + Arrays.toString(rotStatCoords.get(pos + j + 1)));
-				this.modelConverter.createAtom(r_c, determineAtomName(aminoAcidName, j), this.linearAlgebra.transform(rotStatCoords.get(pos + j + 1), translation, rotation));
+//				System.out.println(j + " : " + aminoAcidName + " : " + determineAtomName(aminoAcidName, j) + " : " + Arrays.toString(this.rotStatCoords.getVector(3 * (pos + j + 1))));
+				double[] atom = this.rotStatCoords.getVector(3 * (pos + j + 1), new double[3]);
+				this.modelConverter.createAtom(r_c, determineAtomName(aminoAcidName, j), this.rotation.transform(atom, translation, atom));
 			}
 		}
 	}
@@ -170,9 +171,7 @@ public class Pulchra implements ReconstructionAlgorithm {
 	 * @return the original value if it lies in the interval [x_i,x_a], else x_i or x_a
 	 */
 	private int capToInterval(int value, int lowerBound, int upperBound) {
-		List<Integer> values = Arrays.asList(value, lowerBound, upperBound);
-		Collections.sort(values);
-		return values.get(1);
+		return Math.max(lowerBound, Math.min(value, upperBound));
 	}
 	
 	// TODO: move
@@ -181,26 +180,7 @@ public class Pulchra implements ReconstructionAlgorithm {
 	}
 	
 	private synchronized void initializeLibrary() {
-		// parse sidechain indices
-		rotStatIdx = new ArrayList<>();
-		InputStream idxIs = Thread.currentThread().getContextClassLoader().getResourceAsStream(ROT_STAT_IDX_LIBRARY);
-		new BufferedReader(new InputStreamReader(idxIs)).lines()
-			// filter lines which do not contain information
-			.filter(line -> line.contains("},")).forEach(line -> {
-			// remove padding
-			String[] tmp = line.replace("{", "").replace("}", "").split(",");
-			rotStatIdx.add(parseRotStatIdxLine(tmp));
-		});
-		
-		// parse side chain coordinates
-		rotStatCoords = new ArrayList<>();
-		InputStream coordsIs = Thread.currentThread().getContextClassLoader().getResourceAsStream(ROT_STAT_COORDS_LIBRARY);
-		new BufferedReader(new InputStreamReader(coordsIs)).lines()
-			// filter lines which do not contain information
-			.filter(line -> line.endsWith(",")).forEach(line -> {
-			String[] tmp = line.replace("{", "").replace("}", "").split(",");
-			rotStatCoords.add(parseRotStatCoordsLine(tmp));
-		});
+		// side chain indices and coordinates are provided by Library
 		
 		// parse backbone library for proline
 //		ncoStat = new HashMap<>();
@@ -233,23 +213,4 @@ public class Pulchra implements ReconstructionAlgorithm {
 		sideChainAtomNames.put("Y", new String[] { "CB", "CG", "CD1", "CD2", "CE1", "CE2", "CZ", "OH" });
 		sideChainAtomNames.put("W", new String[] { "CB", "CG", "CD1", "CD2", "NE1", "CE2", "CE3", "CZ2", "CZ3", "CH2" });
 	}
-	
-	private double[] parseRotStatCoordsLine(String[] tmp) {
-		return new double[] {
-			Double.valueOf(tmp[0].trim()),
-			Double.valueOf(tmp[1].trim()),
-			Double.valueOf(tmp[2].trim())
-		};
-	}
-	
-	private int[] parseRotStatIdxLine(String[] tmp) {
-		return new int[] {
-			Integer.valueOf(tmp[0].trim()),
-			Integer.valueOf(tmp[1].trim()),
-			Integer.valueOf(tmp[2].trim()),
-			Integer.valueOf(tmp[3].trim()),
-			Integer.valueOf(tmp[4].trim()),
-			Integer.valueOf(tmp[5].trim())
-		};
-	}
 }
@@ -0,0 +1,107 @@
+package library.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import de.bioforscher.pmw.reconstruction.library.Library;
+import de.bioforscher.pmw.reconstruction.library.LibraryCompiler;
+import de.bioforscher.pmw.reconstruction.library.LibraryImage;
+import junit.framework.TestCase;
+
+public class LibraryImageFunctionalTest extends TestCase {
+	private Path directory;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.directory = Files.createTempDirectory("libraries");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		try(Stream<Path> files = Files.walk(this.directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	public void testCompiledLibraries() throws IOException {
+		Path sourceDirectory = Files.createDirectories(this.directory.resolve("src"));
+		Path targetDirectory = this.directory.resolve("generated");
+		for(Library library : Library.values()) {
+			URL source = getClass().getClassLoader().getResource(library.getResource());
+			if(source != null) {
+				Path copy = sourceDirectory.resolve(library.getResource());
+				Files.createDirectories(copy.getParent());
+				Files.write(copy, Files.readAllBytes(new File(source.getPath()).toPath()));
+			}
+		}
+		LibraryCompiler.main(new String[] { sourceDirectory.toString(), targetDirectory.toString() });
+
+		int compiled = 0;
+		for(Library library : Library.values()) {
+			Path image = targetDirectory.resolve(library.getImageResource());
+			if(!Files.exists(sourceDirectory.resolve(library.getResource()))) {
+				assertFalse(Files.exists(image));
+				continue;
+			}
+			// without images on the class path, libraries are parsed from their text representation
+			assertEqualImages(library.get(), LibraryImage.load(image.toUri().toURL()));
+			compiled++;
+		}
+		assertTrue(compiled > 0);
+	}
+
+	public void testQuadrilaterals() {
+		LibraryImage quadrilaterals = Library.QUADRILATERALS.get();
+		assertEquals(1, quadrilaterals.getColumns());
+		assertEquals(5299, quadrilaterals.getRows());
+		assertEquals(12 * quadrilaterals.getRows(), quadrilaterals.getValueCount());
+		for(int row = 1; row < quadrilaterals.getRows(); row++) {
+			assertTrue(quadrilaterals.get(row - 1, 0) < quadrilaterals.get(row, 0));
+		}
+		// 2283 C  1.359 -0.666 -0.165 O  2.271  0.010 -0.590 N  1.453 -1.941  0.205 CB  0.135  1.124  0.992
+		int row = 0;
+		while(quadrilaterals.get(row, 0) != 2283) {
+			row++;
+		}
+		assertEquals(1.359, quadrilaterals.getValue(12 * row));
+		assertEquals(-0.590, quadrilaterals.getValue(12 * row + 5));
+		assertEquals(0.992, quadrilaterals.getValue(12 * row + 11));
+	}
+
+	public void testRoundTrip() throws IOException {
+		LibraryImage image = LibraryImage.of(3, new int[] { 1, 2, 3, -4, 5, Integer.MAX_VALUE, 7, 8, 9 }, new double[] { 0.5, -1.25, Double.MIN_VALUE });
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		image.write(outputStream);
+		assertEqualImages(image, LibraryImage.read(ByteBuffer.wrap(outputStream.toByteArray())));
+
+		byte[] content = outputStream.toByteArray();
+		content[4]++;
+		try {
+			LibraryImage.read(ByteBuffer.wrap(content));
+			fail("image of unknown version was accepted");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private void assertEqualImages(LibraryImage expected, LibraryImage actual) {
+		assertEquals(expected.getColumns(), actual.getColumns());
+		assertEquals(expected.getRows(), actual.getRows());
+		for(int row = 0; row < expected.getRows(); row++) {
+			for(int column = 0; column < expected.getColumns(); column++) {
+				assertEquals(expected.get(row, column), actual.get(row, column));
+			}
+		}
+		assertEquals(expected.getValueCount(), actual.getValueCount());
+		for(int i = 0; i < expected.getValueCount(); i++) {
+			assertEquals(Double.doubleToLongBits(expected.getValue(i)), Double.doubleToLongBits(actual.getValue(i)));
+		}
+	}
+}
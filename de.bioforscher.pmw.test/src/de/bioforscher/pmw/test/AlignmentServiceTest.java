@@ -1,5 +1,12 @@
 package de.bioforscher.pmw.test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +15,10 @@ import org.osgi.framework.FrameworkUtil;
 import org.osgi.util.tracker.ServiceTracker;
 
 import de.bioforscher.pmw.api.AlignmentService;
+import de.bioforscher.pmw.api.ReferenceSet;
+import de.bioforscher.pmw.model.Alignment;
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Residue;
 
 public class AlignmentServiceTest {
 	private final BundleContext context = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
@@ -18,6 +29,45 @@ public class AlignmentServiceTest {
 		System.out.println("ja! " + this.alignmentService);
 	}
 	
+	@Test
+	public void shouldAlignAgainstReferenceSet() {
+		Random random = new Random(1);
+		List<List<Residue>> references = new ArrayList<>();
+		for(int i = 0; i < 500; i++) {
+			references.add(createFragment(random, 8));
+		}
+		List<Residue> fragment = createFragment(random, 8);
+		
+		ReferenceSet referenceSet = this.alignmentService.prepareReferences(references);
+		List<Alignment> alignments = this.alignmentService.alignFragments(referenceSet, fragment, 5);
+		List<Alignment> expectedAlignments = IntStream.range(0, references.size())
+				.mapToObj(i -> this.alignmentService.alignFragments(references.get(i), fragment))
+				.sorted(Comparator.comparingDouble(a -> a.rmsd))
+				.limit(5)
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(5, alignments.size());
+		for(int i = 0; i < alignments.size(); i++) {
+			Alignment alignment = alignments.get(i);
+			Assert.assertSame(references.get(alignment.referenceIndex).get(0).atoms.get(0).xyz, alignment.atoms1.get(0));
+			Assert.assertEquals(expectedAlignments.get(i).rmsd, alignment.rmsd, 1E-9);
+			Assert.assertArrayEquals(expectedAlignments.get(i).translationVector, alignment.translationVector, 1E-9);
+		}
+	}
+	
+	private List<Residue> createFragment(Random random, int length) {
+		List<Residue> residues = new ArrayList<>();
+		for(int i = 0; i < length; i++) {
+			Atom atom = new Atom();
+			atom.name = "CA";
+			atom.xyz = new double[] { random.nextGaussian() * 5, random.nextGaussian() * 5, random.nextGaussian() * 5 };
+			Residue residue = new Residue();
+			residue.atoms.add(atom);
+			residues.add(residue);
+		}
+		return residues;
+	}
+	
 	@Before
 	public void setup() throws Exception {
 		Assert.assertNotNull(this.context);
@@ -1,5 +1,7 @@
 package de.bioforscher.pmw.test;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,21 +10,51 @@ import org.osgi.framework.FrameworkUtil;
 import org.osgi.util.tracker.ServiceTracker;
 
 import de.bioforscher.pmw.api.FeatureExtractor;
+import de.bioforscher.pmw.api.IncrementalSurfaceArea;
+import de.bioforscher.pmw.api.ModelConverter;
+import de.bioforscher.pmw.model.Atom;
+import de.bioforscher.pmw.model.Protein;
 
 public class FeatureExtractorTest {
 	private final BundleContext context = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
 	private FeatureExtractor featureExtractor;
+	private ModelConverter modelConverter;
 
 	@Test
 	public void shouldAlignmentFragments() {
 		System.out.println("ja! " + this.featureExtractor);
 	}
 	
+	@Test
+	public void shouldUpdateAccessibleSurfaceAreaIncrementally() throws Exception {
+		Protein protein = this.modelConverter.createProteinByPDBId("4cha");
+		IncrementalSurfaceArea surfaceArea = this.featureExtractor.trackAccessibleSurfaceArea(protein);
+		List<Atom> atoms = surfaceArea.getAtoms();
+		
+		// shift a stretch of atoms, so some residues become more, others less accessible
+		int[] movedAtoms = new int[20];
+		for(int i = 0; i < movedAtoms.length; i++) {
+			movedAtoms[i] = 100 + i;
+			atoms.get(movedAtoms[i]).xyz[0] += 1.5;
+			atoms.get(movedAtoms[i]).xyz[2] -= 0.5;
+		}
+		double[] previousValues = surfaceArea.getValues().clone();
+		double[] deltas = surfaceArea.update(movedAtoms);
+		
+		double[] expectedValues = this.featureExtractor.trackAccessibleSurfaceArea(protein).getValues();
+		Assert.assertArrayEquals(expectedValues, surfaceArea.getValues(), 0.0);
+		for(int i = 0; i < deltas.length; i++) {
+			Assert.assertEquals(expectedValues[i] - previousValues[i], deltas[i], 0.0);
+		}
+	}
+	
 	@Before
 	public void setup() throws Exception {
 		Assert.assertNotNull(this.context);
 		this.featureExtractor = getService(FeatureExtractor.class);
 		Assert.assertNotNull(this.featureExtractor);
+		this.modelConverter = getService(ModelConverter.class);
+		Assert.assertNotNull(this.modelConverter);
 	}
 
 	private <T> T getService(Class<T> clazz) throws InterruptedException {
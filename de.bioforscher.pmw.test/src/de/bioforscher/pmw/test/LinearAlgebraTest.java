@@ -10,6 +10,8 @@ import org.osgi.framework.FrameworkUtil;
 import org.osgi.util.tracker.ServiceTracker;
 
 import de.bioforscher.pmw.api.LinearAlgebra;
+import de.bioforscher.pmw.api.Mat3;
+import de.bioforscher.pmw.api.Vec3;
 
 public class LinearAlgebraTest {
 	private final BundleContext context = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
@@ -30,6 +32,36 @@ public class LinearAlgebraTest {
 		System.out.println(Arrays.toString(result));
 		
 	}
+	
+	@Test
+	public void shouldTransformVectorInPlace() {
+		double[] expected = this.linearAlgebra.transform(VECTOR, TRANSLATION_VECTOR, ROTATION_MATRIX);
+		double[] result = VECTOR.clone();
+		Assert.assertSame(result, this.linearAlgebra.transform(result, TRANSLATION_VECTOR, ROTATION_MATRIX, result));
+		Assert.assertArrayEquals(expected, result, 0.0);
+		Assert.assertArrayEquals(expected, new Mat3(ROTATION_MATRIX).transform(VECTOR, TRANSLATION_VECTOR, new double[3]), 0.0);
+	}
+	
+	@Test
+	public void shouldComputeEqualRotations() {
+		double[] v1 = { 1.5, -2.0, 0.3 };
+		double[] v2 = { 3.1, 0.4, -1.2 };
+		double[] v3 = { 2.2, 3.9, 0.8 };
+		double[][] expected = this.linearAlgebra.rotation(v1, v2, v3);
+		double[][] result = this.linearAlgebra.rotation(v1, v2, v3, new Mat3()).toArray();
+		for(int i = 0; i < 3; i++) {
+			Assert.assertArrayEquals(expected[i], result[i], 0.0);
+		}
+	}
+	
+	@Test
+	public void shouldMatchArrayOperations() {
+		double[] expected = this.linearAlgebra.add(this.linearAlgebra.multiply(this.linearAlgebra.normalize(VECTOR), 1.7), TRANSLATION_VECTOR);
+		Assert.assertArrayEquals(expected, new Vec3(VECTOR).normalize().scale(1.7).add(TRANSLATION_VECTOR).toArray(), 0.0);
+		double[] result = this.linearAlgebra.normalize(VECTOR, new double[3]);
+		this.linearAlgebra.add(this.linearAlgebra.multiply(result, 1.7, result), TRANSLATION_VECTOR, result);
+		Assert.assertArrayEquals(expected, result, 0.0);
+	}
 
 	@Before
 	public void setup() throws Exception {